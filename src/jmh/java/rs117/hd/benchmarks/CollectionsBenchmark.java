@@ -0,0 +1,260 @@
+package rs117.hd.benchmarks;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import rs117.hd.utils.collections.Int2IntHashMap;
+import rs117.hd.utils.collections.Long2ObjectHashMap;
+import rs117.hd.utils.collections.PooledArrayType;
+import rs117.hd.utils.collections.PrimitiveIntArray;
+import rs117.hd.utils.collections.TileVertexIntMap;
+
+import static net.runelite.api.Constants.*;
+import static rs117.hd.utils.MathUtils.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollectionsBenchmark {
+	private static final int NUM_LOOKUPS = 1024;
+	private static final int GRID_SIZE = EXTENDED_SCENE_SIZE + 1;
+
+	@Param({ "1024", "65536" })
+	public int size;
+
+	private final Int2IntHashMap int2IntMap = new Int2IntHashMap();
+	private final Long2ObjectHashMap<Object> long2ObjectMap = new Long2ObjectHashMap<>();
+	private final HashMap<Long, Object> boxedLongMap = new HashMap<>();
+
+	private int[] intLookups;
+	private long[] longLookups;
+	private long[] modelCacheLookups;
+	private int[] arraySizes;
+	private int[] pooledArray;
+
+	@Setup
+	public void setup() {
+		var random = new Random(1337);
+		int[] intKeys = new int[size];
+		long[] longKeys = new long[size];
+		for (int i = 0; i < size; i++) {
+			intKeys[i] = random.nextInt();
+			longKeys[i] = random.nextLong();
+			int2IntMap.put(intKeys[i], i);
+			long2ObjectMap.put(longKeys[i], intKeys);
+			boxedLongMap.put(longKeys[i], intKeys);
+		}
+
+		// Mix hits with misses, similarly to how the maps are used during scene loading
+		intLookups = new int[NUM_LOOKUPS];
+		longLookups = new long[NUM_LOOKUPS];
+		for (int i = 0; i < NUM_LOOKUPS; i++) {
+			boolean hit = random.nextInt(4) != 0;
+			intLookups[i] = hit ? intKeys[random.nextInt(size)] : random.nextInt();
+			longLookups[i] = hit ? longKeys[random.nextInt(size)] : random.nextLong();
+		}
+
+		// Approximate the legacy model cache's access pattern, where a small set of static models is looked up every
+		// frame, mixed with a long tail of models that are only seen a few times
+		modelCacheLookups = new long[NUM_LOOKUPS];
+		int hotSetSize = max(1, size / 10);
+		for (int i = 0; i < NUM_LOOKUPS; i++) {
+			boolean hot = random.nextFloat() < .8f;
+			modelCacheLookups[i] = longKeys[hot ? random.nextInt(hotSetSize) : random.nextInt(size)];
+		}
+
+		// Model face counts vary a lot between consecutive models
+		arraySizes = new int[NUM_LOOKUPS];
+		for (int i = 0; i < NUM_LOOKUPS; i++)
+			arraySizes[i] = 16 + random.nextInt(min(size, 8192));
+	}
+
+	@TearDown
+	public void tearDown() {
+		PooledArrayType.INT.release(pooledArray);
+		pooledArray = null;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NUM_LOOKUPS)
+	public int int2IntGet() {
+		int sum = 0;
+		for (int key : intLookups)
+			sum += int2IntMap.getOrDefault(key, -1);
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NUM_LOOKUPS)
+	public int int2IntPutRemove() {
+		int sum = 0;
+		for (int key : intLookups) {
+			if (int2IntMap.put(key ^ 0x5A5A5A5A, key))
+				sum++;
+			int2IntMap.remove(key ^ 0x5A5A5A5A);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NUM_LOOKUPS)
+	public int long2ObjectGet() {
+		int hits = 0;
+		for (long key : longLookups)
+			if (long2ObjectMap.get(key) != null)
+				hits++;
+		return hits;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NUM_LOOKUPS)
+	public int boxedLongMapGet() {
+		int hits = 0;
+		for (long key : longLookups)
+			if (boxedLongMap.get(key) != null)
+				hits++;
+		return hits;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NUM_LOOKUPS)
+	public int long2ObjectModelCacheGet() {
+		int hits = 0;
+		for (long key : modelCacheLookups)
+			if (long2ObjectMap.get(key) != null)
+				hits++;
+		return hits;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NUM_LOOKUPS)
+	public int boxedLongMapModelCacheGet() {
+		int hits = 0;
+		for (long key : modelCacheLookups)
+			if (boxedLongMap.get(key) != null)
+				hits++;
+		return hits;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NUM_LOOKUPS)
+	public int pooledBorrowRelease() {
+		int sum = 0;
+		for (int length : arraySizes) {
+			int[] array = PooledArrayType.INT.borrow(length);
+			sum += array.length;
+			PooledArrayType.INT.release(array);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NUM_LOOKUPS)
+	public int pooledEnsureCapacity() {
+		int sum = 0;
+		for (int length : arraySizes) {
+			pooledArray = PooledArrayType.INT.ensureCapacity(pooledArray, length);
+			sum += pooledArray.length;
+		}
+		return sum;
+	}
+
+	/**
+	 * Terrain vertex keys resembling a full extended scene, with every tile corner on the ground plane, some corners on
+	 * upper planes at different heights, and the occasional tile model with vertices inside the tile.
+	 * Run with {@code -prof gc} and compare {@code gc.alloc.rate.norm} of the fill benchmarks for each map's footprint.
+	 */
+	@State(Scope.Benchmark)
+	public static class TerrainVertices {
+		int[] keys;
+		int[] lookups;
+		Int2IntHashMap hashMap;
+		TileVertexIntMap gridMap;
+
+		private static int vertexKey(int height, int x, int y) {
+			return (height & 0xFFF) << 20 | y << 10 | x;
+		}
+
+		private static int groundHeight(int x, int y) {
+			return (int) (Math.sin(x * .1) * Math.cos(y * .07) * 400) + 800;
+		}
+
+		@Setup
+		public void setup() {
+			var random = new Random(1337);
+			var sceneKeys = new PrimitiveIntArray();
+			for (int y = 0; y < GRID_SIZE; y++) {
+				for (int x = 0; x < GRID_SIZE; x++) {
+					int height = groundHeight(x, y);
+					sceneKeys.ensureCapacity(8);
+					sceneKeys.put(vertexKey(height, x * 4, y * 4));
+					if (random.nextInt(6) == 0)
+						sceneKeys.put(vertexKey(height - 240, x * 4, y * 4));
+					if (random.nextInt(20) == 0)
+						sceneKeys.put(vertexKey(height - 480, x * 4, y * 4));
+					if (random.nextInt(20) == 0 && x < EXTENDED_SCENE_SIZE && y < EXTENDED_SCENE_SIZE) {
+						sceneKeys.put(vertexKey(height, x * 4 + 2, y * 4 + 2));
+						sceneKeys.put(vertexKey(height, x * 4 + 1, y * 4));
+						sceneKeys.put(vertexKey(height, x * 4, y * 4 + 3));
+					}
+				}
+			}
+			keys = Arrays.copyOf(sceneKeys.array, sceneKeys.length);
+
+			// Terrain upload looks up the four corners of every tile
+			lookups = new int[EXTENDED_SCENE_SIZE * EXTENDED_SCENE_SIZE * 4];
+			for (int y = 0, i = 0; y < EXTENDED_SCENE_SIZE; y++) {
+				for (int x = 0; x < EXTENDED_SCENE_SIZE; x++) {
+					lookups[i++] = vertexKey(groundHeight(x, y), x * 4, y * 4);
+					lookups[i++] = vertexKey(groundHeight(x + 1, y), x * 4 + 4, y * 4);
+					lookups[i++] = vertexKey(groundHeight(x + 1, y + 1), x * 4 + 4, y * 4 + 4);
+					lookups[i++] = vertexKey(groundHeight(x, y + 1), x * 4, y * 4 + 4);
+				}
+			}
+
+			hashMap = new Int2IntHashMap();
+			gridMap = new TileVertexIntMap();
+			for (int key : keys) {
+				hashMap.put(key, key);
+				gridMap.put(key, key);
+			}
+		}
+	}
+
+	@Benchmark
+	public Int2IntHashMap terrainVertexHashMapFill(TerrainVertices vertices) {
+		var map = new Int2IntHashMap();
+		for (int key : vertices.keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public TileVertexIntMap terrainVertexGridMapFill(TerrainVertices vertices) {
+		var map = new TileVertexIntMap();
+		for (int key : vertices.keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public int terrainVertexHashMapGet(TerrainVertices vertices) {
+		int sum = 0;
+		for (int key : vertices.lookups)
+			sum += vertices.hashMap.getOrDefault(key, 0);
+		return sum;
+	}
+
+	@Benchmark
+	public int terrainVertexGridMapGet(TerrainVertices vertices) {
+		int sum = 0;
+		for (int key : vertices.lookups)
+			sum += vertices.gridMap.getOrDefault(key, 0);
+		return sum;
+	}
+}
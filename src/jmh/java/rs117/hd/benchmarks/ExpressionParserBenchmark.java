@@ -0,0 +1,62 @@
+package rs117.hd.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import rs117.hd.utils.ExpressionPredicate;
+import rs117.hd.utils.VariableSupplier;
+
+import static rs117.hd.utils.ExpressionParser.parsePredicate;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionParserBenchmark {
+	// Representative of the replacement conditions found in tile overrides
+	@Param({
+		"h != 0",
+		"s == 0 || h <= 10 && s < 2",
+		"h == 8 && (s == 3 || s == 4) && l >= 20",
+		"h == 5 ? s > 3 : s > 15",
+		"blending || textures"
+	})
+	public String expression;
+
+	private ExpressionPredicate predicate;
+	private int hsl;
+
+	private final VariableSupplier vars = name -> {
+		switch (name) {
+			case "h":
+				return hsl >> 10 & 0x3F;
+			case "s":
+				return hsl >> 7 & 0x7;
+			case "l":
+				return hsl & 0x7F;
+			case "blending":
+				return true;
+			case "textures":
+				return false;
+		}
+		return null;
+	};
+
+	@Setup
+	public void setup() {
+		predicate = parsePredicate(expression);
+	}
+
+	@Benchmark
+	public ExpressionPredicate parse() {
+		return parsePredicate(expression);
+	}
+
+	@Benchmark
+	public boolean test() {
+		// Step through colors, so the result isn't constant
+		hsl = (hsl + 0x1235) & 0xFFFF;
+		return predicate.test(vars);
+	}
+}
@@ -0,0 +1,74 @@
+package rs117.hd.benchmarks;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import rs117.hd.utils.jobs.GenericJob;
+import rs117.hd.utils.jobs.JobSystem;
+
+/**
+ * Measures how job throughput scales with the number of workers, for a batch of short jobs either queued directly onto
+ * the shared queue, or fanned out from a single root job, which places them all in the local deque of a single worker
+ * for the others to steal from.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JobSystemBenchmark {
+	private static final int NUM_JOBS = 2000;
+
+	@Param({ "1", "4", "8", "16" })
+	public int workers;
+
+	@Param({ "flat", "fanOut" })
+	public String pattern;
+
+	private JobSystem jobSystem;
+	private GenericJob[] jobs;
+
+	@Setup
+	public void setup() {
+		jobSystem = new JobSystem();
+		jobSystem.startUp(workers);
+		jobs = new GenericJob[NUM_JOBS];
+	}
+
+	@TearDown
+	public void tearDown() {
+		jobSystem.shutDown();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NUM_JOBS)
+	public void runJobs() {
+		boolean fanOut = pattern.equals("fanOut");
+		var rootLatch = new CountDownLatch(1);
+		GenericJob root = null;
+		if (fanOut) {
+			// Hold the root back until every job has been added as its dependant
+			root = GenericJob.build("Root", t -> rootLatch.await()).queue(false);
+		}
+
+		for (int i = 0; i < NUM_JOBS; i++) {
+			var job = GenericJob.build("Job", t -> spin(2000));
+			jobs[i] = fanOut ? job.queue(false, root) : job.queue(false);
+		}
+
+		if (fanOut) {
+			rootLatch.countDown();
+			root.waitForCompletion(true);
+		}
+
+		for (var job : jobs)
+			job.waitForCompletion(true);
+	}
+
+	private static void spin(long nanos) {
+		long start = System.nanoTime();
+		while (System.nanoTime() - start < nanos)
+			Thread.onSpinWait();
+	}
+}
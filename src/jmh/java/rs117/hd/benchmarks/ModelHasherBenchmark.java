@@ -0,0 +1,38 @@
+package rs117.hd.benchmarks;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import rs117.hd.model.ModelHasher;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelHasherBenchmark {
+	@Param({ "64", "512", "4096" })
+	public int length;
+
+	private int[] data;
+
+	@Setup
+	public void setup() {
+		var random = new Random(1337);
+		data = new int[length];
+		for (int i = 0; i < length; i++)
+			data[i] = random.nextInt();
+	}
+
+	@Benchmark
+	public long fastHash() {
+		return ModelHasher.fastHash(data);
+	}
+
+	@Benchmark
+	public int arraysHashCode() {
+		return Arrays.hashCode(data);
+	}
+}
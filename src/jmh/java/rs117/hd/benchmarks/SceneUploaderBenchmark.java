@@ -0,0 +1,68 @@
+package rs117.hd.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+import static rs117.hd.renderer.zone.SceneUploader.calculateFaceNormal;
+import static rs117.hd.renderer.zone.SceneUploader.computeFaceUvsInline;
+
+/**
+ * Measures the per-face math done while uploading models, across every face of a synthetic model.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SceneUploaderBenchmark {
+	@Param({ "512", "4096" })
+	public int faceCount;
+
+	private final float[] uvs = new float[12];
+	private final int[] normals = new int[9];
+
+	private SyntheticModel model;
+
+	@Setup
+	public void setup() {
+		model = SyntheticModel.create(117, faceCount / 2, faceCount, 256);
+	}
+
+	@Benchmark
+	public float computeFaceUvs() {
+		final int[] indices1 = model.getFaceIndices1();
+		final int[] indices2 = model.getFaceIndices2();
+		final int[] indices3 = model.getFaceIndices3();
+		final byte[] textureFaces = model.getTextureFaces();
+
+		float sum = 0;
+		for (int f = 0; f < faceCount; f++) {
+			if (textureFaces[f] == -1)
+				continue;
+			computeFaceUvsInline(uvs, model, textureFaces[f], indices1[f], indices2[f], indices3[f]);
+			sum += uvs[0] + uvs[5] + uvs[9];
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public int calculateFaceNormals() {
+		final float[] vx = model.getVerticesX();
+		final float[] vy = model.getVerticesY();
+		final float[] vz = model.getVerticesZ();
+		final int[] indices1 = model.getFaceIndices1();
+		final int[] indices2 = model.getFaceIndices2();
+		final int[] indices3 = model.getFaceIndices3();
+
+		int sum = 0;
+		for (int f = 0; f < faceCount; f++) {
+			final int a = indices1[f];
+			final int b = indices2[f];
+			final int c = indices3[f];
+			calculateFaceNormal(normals, vx[a], vy[a], vz[a], vx[b], vy[b], vz[b], vx[c], vy[c], vz[c]);
+			sum += normals[0] + normals[1] + normals[2];
+		}
+		return sum;
+	}
+}
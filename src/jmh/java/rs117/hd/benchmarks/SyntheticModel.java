@@ -0,0 +1,215 @@
+package rs117.hd.benchmarks;
+
+import java.util.Random;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+import net.bytebuddy.implementation.ExceptionMethod;
+import net.runelite.api.*;
+
+import static net.bytebuddy.matcher.ElementMatchers.isAbstract;
+
+/**
+ * A headless stand-in for the client's {@link Model}, holding randomly generated geometry.
+ * Only the accessors used by the benchmarked code paths are implemented. The remaining methods of the interface are
+ * generated at runtime and throw, so this keeps compiling as the RuneLite API grows, while the implemented
+ * accessors remain plain virtual calls which the JIT can inline, unlike a {@link java.lang.reflect.Proxy} or mock.
+ */
+public abstract class SyntheticModel implements Model {
+	private static Class<? extends SyntheticModel> implementation;
+
+	private int vertexCount;
+	private float[] verticesX;
+	private float[] verticesY;
+	private float[] verticesZ;
+	private int faceCount;
+	private int[] faceIndices1;
+	private int[] faceIndices2;
+	private int[] faceIndices3;
+	private int[] faceColors1;
+	private int[] faceColors2;
+	private int[] faceColors3;
+	private byte[] faceRenderPriorities;
+	private int[] texIndices1;
+	private int[] texIndices2;
+	private int[] texIndices3;
+	private byte[] textureFaces;
+	private int radius;
+	private int diameter;
+
+	protected SyntheticModel() {}
+
+	/**
+	 * Generates a model with vertices scattered within a sphere, and faces connecting random vertices.
+	 * Every face is given a random render priority, and every fourth face is textured.
+	 */
+	public static SyntheticModel create(long seed, int vertexCount, int faceCount, int radius) {
+		SyntheticModel model;
+		try {
+			model = getImplementation().getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException ex) {
+			throw new IllegalStateException("Failed to instantiate synthetic model", ex);
+		}
+
+		var random = new Random(seed);
+		model.vertexCount = vertexCount;
+		model.verticesX = new float[vertexCount];
+		model.verticesY = new float[vertexCount];
+		model.verticesZ = new float[vertexCount];
+		for (int i = 0; i < vertexCount; i++) {
+			float x, y, z;
+			do {
+				x = random.nextFloat() * 2 - 1;
+				y = random.nextFloat() * 2 - 1;
+				z = random.nextFloat() * 2 - 1;
+			} while (x * x + y * y + z * z > 1);
+			model.verticesX[i] = x * radius;
+			model.verticesY[i] = y * radius;
+			model.verticesZ[i] = z * radius;
+		}
+
+		model.faceCount = faceCount;
+		model.faceIndices1 = new int[faceCount];
+		model.faceIndices2 = new int[faceCount];
+		model.faceIndices3 = new int[faceCount];
+		model.faceColors1 = new int[faceCount];
+		model.faceColors2 = new int[faceCount];
+		model.faceColors3 = new int[faceCount];
+		model.faceRenderPriorities = new byte[faceCount];
+		model.textureFaces = new byte[faceCount];
+		for (int i = 0; i < faceCount; i++) {
+			// Avoid degenerate triangles, since they aren't representative of real models
+			int a = random.nextInt(vertexCount);
+			int b = (a + 1 + random.nextInt(vertexCount - 2)) % vertexCount;
+			int c;
+			do {
+				c = random.nextInt(vertexCount);
+			} while (c == a || c == b);
+			model.faceIndices1[i] = a;
+			model.faceIndices2[i] = b;
+			model.faceIndices3[i] = c;
+			model.faceColors1[i] = random.nextInt(0xFFFF);
+			model.faceColors2[i] = random.nextInt(0xFFFF);
+			model.faceColors3[i] = random.nextInt(0xFFFF);
+			model.faceRenderPriorities[i] = (byte) random.nextInt(12);
+			model.textureFaces[i] = (byte) (i % 4 == 0 ? random.nextInt(256) : -1);
+		}
+
+		int texFaceCount = 256;
+		model.texIndices1 = new int[texFaceCount];
+		model.texIndices2 = new int[texFaceCount];
+		model.texIndices3 = new int[texFaceCount];
+		for (int i = 0; i < texFaceCount; i++) {
+			int f = random.nextInt(faceCount);
+			model.texIndices1[i] = model.faceIndices1[f];
+			model.texIndices2[i] = model.faceIndices2[f];
+			model.texIndices3[i] = model.faceIndices3[f];
+		}
+
+		model.radius = radius;
+		model.diameter = radius * 2;
+		return model;
+	}
+
+	private static synchronized Class<? extends SyntheticModel> getImplementation() {
+		if (implementation == null) {
+			implementation = new ByteBuddy()
+				.subclass(SyntheticModel.class)
+				.method(isAbstract())
+				.intercept(ExceptionMethod.throwing(UnsupportedOperationException.class))
+				.make()
+				.load(SyntheticModel.class.getClassLoader(), ClassLoadingStrategy.Default.WRAPPER)
+				.getLoaded();
+		}
+		return implementation;
+	}
+
+	@Override
+	public int getVerticesCount() {
+		return vertexCount;
+	}
+
+	@Override
+	public float[] getVerticesX() {
+		return verticesX;
+	}
+
+	@Override
+	public float[] getVerticesY() {
+		return verticesY;
+	}
+
+	@Override
+	public float[] getVerticesZ() {
+		return verticesZ;
+	}
+
+	@Override
+	public int getFaceCount() {
+		return faceCount;
+	}
+
+	@Override
+	public int[] getFaceIndices1() {
+		return faceIndices1;
+	}
+
+	@Override
+	public int[] getFaceIndices2() {
+		return faceIndices2;
+	}
+
+	@Override
+	public int[] getFaceIndices3() {
+		return faceIndices3;
+	}
+
+	@Override
+	public int[] getFaceColors1() {
+		return faceColors1;
+	}
+
+	@Override
+	public int[] getFaceColors2() {
+		return faceColors2;
+	}
+
+	@Override
+	public int[] getFaceColors3() {
+		return faceColors3;
+	}
+
+	@Override
+	public byte[] getFaceRenderPriorities() {
+		return faceRenderPriorities;
+	}
+
+	@Override
+	public int[] getTexIndices1() {
+		return texIndices1;
+	}
+
+	@Override
+	public int[] getTexIndices2() {
+		return texIndices2;
+	}
+
+	@Override
+	public int[] getTexIndices3() {
+		return texIndices3;
+	}
+
+	@Override
+	public byte[] getTextureFaces() {
+		return textureFaces;
+	}
+
+	@Override
+	public int getRadius() {
+		return radius;
+	}
+
+	@Override
+	public int getDiameter() {
+		return diameter;
+	}
+}
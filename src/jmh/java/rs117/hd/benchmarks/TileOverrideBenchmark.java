@@ -0,0 +1,103 @@
+package rs117.hd.benchmarks;
+
+import com.google.gson.Gson;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import rs117.hd.scene.AreaManager;
+import rs117.hd.scene.TileOverrideManager;
+import rs117.hd.scene.areas.Area;
+import rs117.hd.scene.tile_overrides.TileOverride;
+import rs117.hd.scene.tile_overrides.TileOverrideIndex;
+
+import static rs117.hd.utils.ResourcePath.path;
+
+/**
+ * Resolves tile overrides for every tile of an extended scene, using the real areas and synthetic overrides.
+ * Compares the region index against testing every override in priority order.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TileOverrideBenchmark {
+	private static final int EXTENDED_SCENE_SIZE = 184;
+	private static final int NUM_OVERRIDES = 800;
+	private static final int NUM_IDS = 256;
+
+	// Lumbridge, Varrock, Prifddinas & Zeah
+	@Param({ "3168,3168", "3160,3380", "3208,6048", "1600,3600" })
+	public String sceneBase;
+
+	private final TileOverrideManager tileOverrideManager = new TileOverrideManager();
+	private TileOverrideIndex overrideIndex;
+	private final int[] worldPos = new int[3];
+	private int[][] tileIds;
+	private int baseX, baseY;
+
+	@Setup
+	public void setup() throws IOException {
+		Area[] areas = path(AreaManager.class, "areas.json").loadJson(new Gson(), Area[].class);
+		AreaManager.AREAS = areas;
+		for (var area : areas)
+			area.normalize();
+
+		var random = new Random(1337);
+		var overrides = new ArrayList<TileOverride>();
+		for (int i = 0; i < NUM_OVERRIDES; i++) {
+			var override = new TileOverride();
+			override.index = i;
+			override.area = areas[random.nextInt(areas.length)];
+			// Roughly matches the ratio of ID-specific overrides to any-match overrides in tile_overrides.json
+			if (random.nextInt(5) != 0) {
+				override.overlayIds = new int[1 + random.nextInt(4)];
+				for (int j = 0; j < override.overlayIds.length; j++)
+					override.overlayIds[j] = random.nextInt(NUM_IDS);
+			}
+			override.normalize(null, null);
+			overrides.add(override);
+		}
+		tileOverrideManager.indexOverrides(overrides);
+		overrideIndex = tileOverrideManager.getOverrideIndex();
+
+		String[] base = sceneBase.split(",");
+		baseX = Integer.parseInt(base[0]);
+		baseY = Integer.parseInt(base[1]);
+
+		tileIds = new int[EXTENDED_SCENE_SIZE * EXTENDED_SCENE_SIZE][];
+		for (int i = 0; i < tileIds.length; i++)
+			tileIds[i] = new int[] { TileOverride.OVERLAY_FLAG | random.nextInt(NUM_IDS), random.nextInt(NUM_IDS) };
+	}
+
+	@Benchmark
+	public int getOverridesForScene() {
+		int matches = 0;
+		for (int x = 0; x < EXTENDED_SCENE_SIZE; x++) {
+			for (int y = 0; y < EXTENDED_SCENE_SIZE; y++) {
+				worldPos[0] = baseX + x;
+				worldPos[1] = baseY + y;
+				if (overrideIndex.find(worldPos, tileIds[x * EXTENDED_SCENE_SIZE + y]) != TileOverride.NONE)
+					matches++;
+			}
+		}
+		return matches;
+	}
+
+	@Benchmark
+	public int getOverridesForSceneUnindexed() {
+		int matches = 0;
+		for (int x = 0; x < EXTENDED_SCENE_SIZE; x++) {
+			for (int y = 0; y < EXTENDED_SCENE_SIZE; y++) {
+				worldPos[0] = baseX + x;
+				worldPos[1] = baseY + y;
+				if (overrideIndex.findUnindexed(worldPos, tileIds[x * EXTENDED_SCENE_SIZE + y]) != TileOverride.NONE)
+					matches++;
+			}
+		}
+		return matches;
+	}
+}
@@ -0,0 +1,92 @@
+package rs117.hd.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import rs117.hd.utils.DirtyRegionTracker;
+
+/**
+ * Compares copying the whole interface into a mapped buffer each frame, against only copying regions which changed.
+ * Frames are synthetic, with a static background interface, and a few small animated areas resembling the minimap,
+ * chatbox and XP drops, unless every pixel is set to change.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UiUploadBenchmark {
+	private static final int NUM_FRAMES = 8;
+
+	@Param({ "1920x1080", "3840x2160" })
+	public String resolution;
+
+	@Param({ "static", "typical", "full" })
+	public String changes;
+
+	private int width;
+	private int height;
+	private int[][] frames;
+	private IntBuffer target;
+	private DirtyRegionTracker tracker;
+	private int frame;
+
+	@Setup
+	public void setup() {
+		String[] parts = resolution.split("x");
+		width = Integer.parseInt(parts[0]);
+		height = Integer.parseInt(parts[1]);
+
+		var random = new Random(1337);
+		int[] background = new int[width * height];
+		for (int i = 0; i < background.length; i++)
+			background[i] = (i / width) % 37 == 0 ? 0 : 0xFF000000 | random.nextInt(0x1000);
+
+		frames = new int[NUM_FRAMES][];
+		for (int f = 0; f < NUM_FRAMES; f++) {
+			int[] pixels = frames[f] = background.clone();
+			switch (changes) {
+				case "typical":
+					// Minimap, chatbox text and an XP drop
+					fill(pixels, width - 220, 10, 150, 150, f);
+					fill(pixels, 10, height - 140, 480, 20, f * 31);
+					fill(pixels, width - 400, 120 + f * 8, 60, 16, f * 17);
+					break;
+				case "full":
+					for (int i = 0; i < pixels.length; i++)
+						pixels[i] ^= f + 1;
+					break;
+			}
+		}
+
+		target = ByteBuffer.allocateDirect(width * height * Integer.BYTES)
+			.order(ByteOrder.nativeOrder())
+			.asIntBuffer();
+		tracker = new DirtyRegionTracker();
+		tracker.update(frames[0], width, height, target);
+	}
+
+	private void fill(int[] pixels, int x0, int y0, int w, int h, int seed) {
+		for (int y = y0; y < y0 + h; y++)
+			for (int x = x0; x < x0 + w; x++)
+				pixels[y * width + x] = 0xFF000000 | (seed * 0x9E3779B9 + x * 31 + y);
+	}
+
+	@Benchmark
+	public IntBuffer fullCopy() {
+		int[] pixels = frames[frame++ % NUM_FRAMES];
+		target.position(0);
+		target.put(pixels, 0, width * height);
+		return target;
+	}
+
+	@Benchmark
+	public int dirtyRegionCopy() {
+		int[] pixels = frames[frame++ % NUM_FRAMES];
+		return tracker.update(pixels, width, height, target);
+	}
+}
@@ -0,0 +1,53 @@
+package rs117.hd.renderer.zone;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import rs117.hd.benchmarks.SyntheticModel;
+import rs117.hd.utils.collections.PrimitiveCharArray;
+
+/**
+ * Lives in the renderer package, since {@link FacePrioritySorter#sortModelFaces} is package-private.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FacePrioritySorterBenchmark {
+	@Param({ "256", "2048", "8000" })
+	public int faceCount;
+
+	@Param({ "false", "true" })
+	public boolean depthOnly;
+
+	private final FacePrioritySorter sorter = new FacePrioritySorter();
+	private final PrimitiveCharArray visibleFaces = new PrimitiveCharArray();
+
+	private SyntheticModel model;
+	private int[] faceDistances;
+	private char[] allFaces;
+
+	@Setup
+	public void setup() {
+		model = SyntheticModel.create(117, faceCount / 2, faceCount, 512);
+
+		var random = new Random(1337);
+		faceDistances = new int[faceCount];
+		allFaces = new char[faceCount];
+		for (int i = 0; i < faceCount; i++) {
+			allFaces[i] = (char) i;
+			faceDistances[i] = random.nextInt(model.getDiameter());
+		}
+	}
+
+	@Benchmark
+	public int sortModelFaces() {
+		// Sorting reorders the visible faces in-place, so start from the same order each time
+		visibleFaces.reset();
+		visibleFaces.put(allFaces, 0, faceCount);
+		sorter.sortModelFaces(visibleFaces, model, faceDistances, depthOnly);
+		return visibleFaces.array[0];
+	}
+}
@@ -0,0 +1,142 @@
+package rs117.hd.renderer.zone;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import rs117.hd.utils.collections.ConcurrentPool;
+
+/**
+ * Compares sorting static alpha models with one job per zone, against pooling the models of every zone into batches of
+ * similar face counts. The scene is synthetic, with most zones holding a few small models, and a couple of zones packed
+ * with large ones, like water features or rows of windows. Jobs run on a plain thread pool rather than the JobSystem,
+ * so no client is needed.
+ * <p>
+ * Lives in the renderer package, since alpha models and the sorting job's internals are package-private.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StaticAlphaSortingBenchmark {
+	private static final int ZONE_COUNT = 64;
+	private static final int MIN_BATCH_FACES = 4096;
+
+	@Param({ "4", "8" })
+	public int threads;
+
+	/**
+	 * Either rotate the camera far enough each frame to require full sorts, or only slightly.
+	 */
+	@Param({ "rotating", "panning" })
+	public String view;
+
+	private ExecutorService executor;
+	private List<List<Zone.AlphaModel>> zones;
+	private final List<Zone.AlphaModel> allModels = new ArrayList<>();
+	private final List<StaticAlphaSortingJob> perZoneJobs = new ArrayList<>();
+	private final List<StaticAlphaSortingJob> batchJobs = new ArrayList<>();
+	private final List<Future<?>> futures = new ArrayList<>();
+	private int[] batchEnds;
+	private int yaw;
+
+	@Setup
+	public void setup() {
+		FacePrioritySorter.POOL = new ConcurrentPool<>(FacePrioritySorter::new);
+		executor = Executors.newFixedThreadPool(threads);
+		batchEnds = new int[threads];
+
+		var random = new Random(117);
+		zones = new ArrayList<>();
+		for (int z = 0; z < ZONE_COUNT; z++) {
+			boolean packed = z % 29 == 7;
+			int modelCount = packed ? 40 : random.nextInt(4);
+			var models = new ArrayList<Zone.AlphaModel>();
+			for (int i = 0; i < modelCount; i++) {
+				int faceCount = packed ? 1000 + random.nextInt(3000) : 16 + random.nextInt(400);
+				models.add(createModel(random, faceCount, packed ? 400 : 120));
+			}
+			zones.add(models);
+			allModels.addAll(models);
+			perZoneJobs.add(new StaticAlphaSortingJob());
+		}
+		for (int i = 0; i < threads; i++)
+			batchJobs.add(new StaticAlphaSortingJob());
+	}
+
+	@TearDown
+	public void tearDown() {
+		executor.shutdownNow();
+		FacePrioritySorter.POOL.destroy();
+		FacePrioritySorter.POOL = null;
+	}
+
+	private static Zone.AlphaModel createModel(Random random, int faceCount, int size) {
+		var m = new Zone.AlphaModel();
+		m.packedFaces = new int[faceCount];
+		m.sortedFaces = new int[faceCount * 3];
+		int radius = 0;
+		for (int f = 0; f < faceCount; f++) {
+			int fx = random.nextInt(size * 2) - size;
+			int fy = random.nextInt(size) - size / 2;
+			int fz = random.nextInt(size * 2) - size;
+			radius = Math.max(radius, fx * fx + fy * fy + fz * fz);
+			m.packedFaces[f] = ((fx & ((1 << 11) - 1)) << 21)
+							   | ((fy & ((1 << 10) - 1)) << 11)
+							   | (fz & ((1 << 11) - 1));
+		}
+		m.radius = 2 + (int) Math.sqrt(radius);
+		return m;
+	}
+
+	private void nextView() {
+		yaw = (yaw + ("rotating".equals(view) ? 256 : 3)) & 2047;
+	}
+
+	private int run(List<StaticAlphaSortingJob> jobs, int count) throws Exception {
+		futures.clear();
+		for (int i = 0; i < count; i++) {
+			var job = jobs.get(i);
+			job.setView(yaw, 256);
+			futures.add(executor.submit(job::sortModels));
+		}
+		for (var future : futures)
+			future.get();
+		return count;
+	}
+
+	@Benchmark
+	public int perZone() throws Exception {
+		nextView();
+		int count = 0;
+		for (int z = 0; z < ZONE_COUNT; z++) {
+			var models = zones.get(z);
+			if (models.isEmpty())
+				continue;
+			var job = perZoneJobs.get(count++);
+			job.reset();
+			job.addAlphaModels(models, 0, models.size());
+		}
+		return run(perZoneJobs, count);
+	}
+
+	@Benchmark
+	public int balancedBatches() throws Exception {
+		nextView();
+		int numBatches = StaticAlphaSortingJob.splitIntoBatches(allModels, threads, MIN_BATCH_FACES, batchEnds);
+		int start = 0;
+		for (int i = 0; i < numBatches; i++) {
+			var job = batchJobs.get(i);
+			job.reset();
+			job.addAlphaModels(allModels, start, batchEnds[i]);
+			start = batchEnds[i];
+		}
+		return run(batchJobs, numBatches);
+	}
+}
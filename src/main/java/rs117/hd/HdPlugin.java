@@ -84,8 +84,11 @@ import rs117.hd.config.SeasonalTheme;
 import rs117.hd.config.ShadingMode;
 import rs117.hd.config.ShadowMode;
 import rs117.hd.config.VanillaShadowMode;
+import rs117.hd.opengl.shader.ProgramBinaryCache;
+import rs117.hd.opengl.shader.ShaderCompileBatch;
 import rs117.hd.opengl.shader.ShaderException;
 import rs117.hd.opengl.shader.ShaderIncludes;
+import rs117.hd.opengl.shader.ShaderSourceCache;
 import rs117.hd.opengl.shader.TiledLightingShaderProgram;
 import rs117.hd.opengl.shader.UIShaderProgram;
 import rs117.hd.opengl.uniforms.UBOCompute;
@@ -117,6 +120,7 @@ import rs117.hd.scene.WaterTypeManager;
 import rs117.hd.utils.ColorUtils;
 import rs117.hd.utils.DestructibleHandler;
 import rs117.hd.utils.DeveloperTools;
+import rs117.hd.utils.DirtyRegionTracker;
 import rs117.hd.utils.FileWatcher;
 import rs117.hd.utils.GsonUtils;
 import rs117.hd.utils.HDUtils;
@@ -310,6 +314,9 @@ public class HdPlugin extends Plugin {
 
 	public final List<TiledLightingShaderProgram> tiledLightingShaderPrograms = new ArrayList<>();
 
+	public final ShaderSourceCache shaderSourceCache = new ShaderSourceCache();
+	public final ProgramBinaryCache programBinaryCache = new ProgramBinaryCache(PLUGIN_DIR.resolve("shader-cache"));
+
 	@Inject
 	private GammaCalibrationOverlay gammaCalibrationOverlay;
 
@@ -334,6 +341,7 @@ public class HdPlugin extends Plugin {
 
 	public static boolean SUPPORTS_INDIRECT_DRAW;
 	public static boolean SUPPORTS_STORAGE_BUFFERS;
+	public static boolean SUPPORTS_PARALLEL_SHADER_COMPILE;
 
 	public Canvas canvas;
 	public JFrame clientJFrame;
@@ -365,6 +373,8 @@ public class HdPlugin extends Plugin {
 	private int uiWidth;
 	private int uiHeight;
 	private GenericJob uiCopyJob;
+	private final DirtyRegionTracker uiDirtyRegions = new DirtyRegionTracker();
+	private boolean uiUploadPending;
 
 	@Nullable
 	public int[] sceneViewport;
@@ -418,6 +428,8 @@ public class HdPlugin extends Plugin {
 	public boolean configTiledLighting;
 	public boolean configTiledLightingImageLoadStore;
 	public int configDetailDrawDistance;
+	public int configZoneUploadBudget;
+	public int configZoneSwapsPerFrame;
 	public int configExpandedMapLoadingChunks;
 	public DynamicLights configDynamicLights;
 	public ShadowMode configShadowMode;
@@ -576,6 +588,7 @@ public class HdPlugin extends Plugin {
 
 				SUPPORTS_INDIRECT_DRAW = config.indirectDraw().get(NVIDIA_GPU && !APPLE);
 				SUPPORTS_STORAGE_BUFFERS = GL_CAPS.GL_ARB_buffer_storage && !DEBUG_MAC_OS && config.storageBuffers().get(!INTEL_GPU);
+				SUPPORTS_PARALLEL_SHADER_COMPILE = GL_CAPS.GL_KHR_parallel_shader_compile || GL_CAPS.GL_ARB_parallel_shader_compile;
 
 				log.info("Starting 117 HD... (count: {})", startupCount);
 				log.info("Renderer:          {}", rendererClass.getSimpleName());
@@ -590,6 +603,7 @@ public class HdPlugin extends Plugin {
 				log.info("GPU driver:        {}", glGetString(GL_VERSION));
 				log.info("Indirect draw:     {}", SUPPORTS_INDIRECT_DRAW);
 				log.info("Storage buffers:   {}", SUPPORTS_STORAGE_BUFFERS);
+				log.info("Parallel shaders:  {}", SUPPORTS_PARALLEL_SHADER_COMPILE);
 				log.info("Low memory mode:   {}", useLowMemoryMode);
 
 				renderer = injector.getInstance(rendererClass);
@@ -612,6 +626,15 @@ public class HdPlugin extends Plugin {
 				lwjglInitialized = true;
 				checkGLErrors();
 
+				programBinaryCache.initialize();
+
+				// Let the driver pick how many threads to compile shaders on
+				if (GL_CAPS.GL_KHR_parallel_shader_compile) {
+					KHRParallelShaderCompile.glMaxShaderCompilerThreadsKHR(0xFFFFFFFF);
+				} else if (GL_CAPS.GL_ARB_parallel_shader_compile) {
+					ARBParallelShaderCompile.glMaxShaderCompilerThreadsARB(0xFFFFFFFF);
+				}
+
 				MAX_TEXTURE_UNITS = glGetInteger(GL_MAX_TEXTURE_IMAGE_UNITS); // Not the fixed pipeline MAX_TEXTURE_UNITS
 				if (MAX_TEXTURE_UNITS < TEXTURE_UNIT_COUNT)
 					log.warn("The GPU only supports {} texture units", MAX_TEXTURE_UNITS);
@@ -747,6 +770,7 @@ public class HdPlugin extends Plugin {
 				return;
 			isActive = false;
 			FileWatcher.destroy();
+			shaderSourceCache.clear();
 
 			if (renderer != null)
 				renderer.waitUntilIdle();
@@ -901,6 +925,8 @@ public class HdPlugin extends Plugin {
 
 	public ShaderIncludes getShaderIncludes() {
 		var includes = new ShaderIncludes()
+			.setSourceCache(shaderSourceCache)
+			.setProgramBinaryCache(programBinaryCache)
 			.addIncludePath(SHADER_PATH)
 			.addInclude("VERSION_HEADER", OSType.getOSType() == OSType.Linux ? LINUX_VERSION_HEADER : WINDOWS_VERSION_HEADER)
 			.define("UI_SCALING_MODE", config.uiScalingMode())
@@ -961,40 +987,64 @@ public class HdPlugin extends Plugin {
 	}
 
 	private void initializeShaders() throws ShaderException, IOException {
+		long startNanos = System.nanoTime();
 		var includes = getShaderIncludes();
 
 		// Bind a valid VAO, otherwise validation may fail on older Intel-based Macs
 		glBindVertexArray(vaoTri);
 
-		renderer.initializeShaders(includes);
-		uiProgram.compile(includes);
+		// Submit all programs before waiting on any of them, so the driver can compile them in parallel
+		var batch = new ShaderCompileBatch();
+		renderer.initializeShaders(includes, batch);
+		batch.submit(uiProgram, includes);
 
+		var tiledLightingBatch = new ShaderCompileBatch();
 		if (configDynamicLights != DynamicLights.NONE && configTiledLighting) {
 			if (!AMD_GPU && configTiledLightingImageLoadStore &&
 				GL_CAPS.GL_ARB_shader_image_load_store &&
 				tiledLightingImageStoreProgram.isViable()
 			) {
 				try {
-					tiledLightingImageStoreProgram.compile(includes
+					tiledLightingBatch.submit(tiledLightingImageStoreProgram, includes
 						.define("TILED_IMAGE_STORE", true)
 						.define("TILED_LIGHTING_LAYER", false));
 				} catch (ShaderException ex) {
 					log.warn("Disabling TILED_IMAGE_STORE due to:", ex);
 				}
 			}
+		}
+
+		try {
+			batch.finish();
+		} catch (Exception ex) {
+			tiledLightingBatch.cancel();
+			throw ex;
+		}
+
+		try {
+			tiledLightingBatch.finish();
+		} catch (ShaderException ex) {
+			log.warn("Disabling TILED_IMAGE_STORE due to:", ex);
+		}
 
+		if (configDynamicLights != DynamicLights.NONE && configTiledLighting) {
 			// Compile layered version if the image store version isn't supported or failed to compile
 			if (!tiledLightingImageStoreProgram.isValid()) {
 				try {
+					var layeredBatch = new ShaderCompileBatch();
 					for (int layer = 0; layer < DynamicLights.MAX_LAYERS_PER_TILE; layer++) {
 						var shader = new TiledLightingShaderProgram();
-						shader.compile(includes
+						tiledLightingShaderPrograms.add(shader);
+						layeredBatch.submit(shader, includes
 							.define("TILED_IMAGE_STORE", false)
 							.define("TILED_LIGHTING_LAYER", layer));
-						tiledLightingShaderPrograms.add(shader);
 					}
+					layeredBatch.finish();
 				} catch (ShaderException ex) {
 					log.warn("Disabling TILED_LIGHTING_LAYERED due to:", ex);
+					for (var program : tiledLightingShaderPrograms)
+						program.destroy();
+					tiledLightingShaderPrograms.clear();
 					// If both tiled lighting implementations fail, fall back to the old lighting, and warn about it
 					if (!Props.DEVELOPMENT) {
 						config.tiledLighting(false);
@@ -1023,7 +1073,16 @@ public class HdPlugin extends Plugin {
 
 		checkGLErrors();
 
+		log.debug(
+			"Compiled {} shader programs in {} ms ({})",
+			batch.getProgramCount() + tiledLightingBatch.getProgramCount() + tiledLightingShaderPrograms.size(),
+			String.format("%.1f", (System.nanoTime() - startNanos) / 1e6),
+			ShaderCompileBatch.isSerial() ? "serial" :
+				SUPPORTS_PARALLEL_SHADER_COMPILE ? "two-phase, parallel" : "two-phase"
+		);
+
 		eventBus.post(new ShaderRecompile(includes));
+		programBinaryCache.logStats();
 	}
 
 	private void destroyShaders() {
@@ -1183,6 +1242,8 @@ public class HdPlugin extends Plugin {
 
 	private void destroyUiTexture() {
 		uiResolution = null;
+		uiDirtyRegions.invalidate();
+		uiUploadPending = false;
 
 		for (int i = 0; i < 3; i++) {
 			if (pboUi[i] != null)
@@ -1467,6 +1528,7 @@ public class HdPlugin extends Plugin {
 	public void initializeShaderHotswapping() {
 		SHADER_PATH.watch("\\.(glsl|cl)$", path -> {
 			log.info("Recompiling shaders: {}", path);
+			shaderSourceCache.invalidate(path);
 			recompilePrograms();
 		});
 	}
@@ -1481,6 +1543,11 @@ public class HdPlugin extends Plugin {
 			max(1, client.getCanvasHeight())
 		};
 		boolean resize = !Arrays.equals(uiResolution, resolution);
+		// If the previous frame's changes were never uploaded, the texture no longer matches the tracked pixels
+		if (resize || uiUploadPending)
+			uiDirtyRegions.invalidate();
+		uiUploadPending = false;
+
 		if (resize) {
 			uiResolution = resolution;
 
@@ -1517,12 +1584,14 @@ public class HdPlugin extends Plugin {
 					"AsyncUICopy",
 					t -> {
 						long start = System.nanoTime();
-						pbo.mapped().intView().put(pixels, 0, uiWidth * uiHeight);
+						// Only copy the parts of the interface which changed since the previous frame
+						uiDirtyRegions.update(pixels, uiWidth, uiHeight, pbo.mapped().intView());
 						frameTimer.add(Timer.COPY_UI_ASYNC, System.nanoTime() - start);
 					}
 				)
 				.setExecuteAsync(!isPowerSaving)
 				.queue();
+			uiUploadPending = true;
 		}
 		pbo.unbind();
 	}
@@ -1570,8 +1639,20 @@ public class HdPlugin extends Plugin {
 			pbo.unmap();
 			pbo.bind();
 
-			glTexSubImage2D(GL_TEXTURE_2D, 0, 0, 0, uiWidth, uiHeight, GL_BGRA, GL_UNSIGNED_INT_8_8_8_8_REV, 0);
+			int[] rects = uiDirtyRegions.getRects();
+			int rectCount = uiDirtyRegions.getRectCount();
+			glPixelStorei(GL_UNPACK_ROW_LENGTH, uiWidth);
+			for (int i = 0; i < rectCount * 4; i += 4) {
+				int x = rects[i];
+				int y = rects[i + 1];
+				glTexSubImage2D(
+					GL_TEXTURE_2D, 0, x, y, rects[i + 2], rects[i + 3],
+					GL_BGRA, GL_UNSIGNED_INT_8_8_8_8_REV, ((long) y * uiWidth + x) * Integer.BYTES
+				);
+			}
+			glPixelStorei(GL_UNPACK_ROW_LENGTH, 0);
 			pbo.unbind();
+			uiUploadPending = false;
 			frameTimer.end(Timer.UPLOAD_UI);
 		}
 
@@ -1661,6 +1742,8 @@ public class HdPlugin extends Plugin {
 		configExpandShadowDraw = config.expandShadowDraw();
 		configUseFasterModelHashing = config.fasterModelHashing();
 		configZoneStreaming = config.zoneStreaming();
+		configZoneUploadBudget = config.zoneUploadBudget();
+		configZoneSwapsPerFrame = config.zoneSwapsPerFrame();
 		configPowerSaving = config.powerSaving();
 		configShadingMode = config.shadingMode();
 		configUnlitFaceColors = configShadingMode.unlitFaceColors;
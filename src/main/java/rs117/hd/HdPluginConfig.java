@@ -41,6 +41,7 @@ import rs117.hd.config.DefaultSkyColor;
 import rs117.hd.config.DynamicLights;
 import rs117.hd.config.FogDepthMode;
 import rs117.hd.config.InfernalCape;
+import rs117.hd.config.ModelCacheEvictionPolicy;
 import rs117.hd.config.Saturation;
 import rs117.hd.config.SceneScalingMode;
 import rs117.hd.config.SeasonalHemisphere;
@@ -1066,6 +1067,53 @@ public interface HdPluginConfig extends Config
 		return 2048;
 	}
 
+	String KEY_MODEL_CACHE_EVICTION_POLICY = "modelCacheEvictionPolicy";
+	@ConfigItem(
+		keyName = KEY_MODEL_CACHE_EVICTION_POLICY,
+		name = "Legacy cache eviction",
+		description =
+			"Decides which models are removed from the cache when it runs out of space.<br>" +
+			"'Oldest first' always removes the least recently cached models.<br>" +
+			"'Frequency-aware' keeps models that are reused often, so they survive bursts of one-off models,<br>" +
+			"such as in crowded areas with many unique player outfits.",
+		position = -92,
+		section = legacySettings
+	)
+	default ModelCacheEvictionPolicy modelCacheEvictionPolicy() {
+		return ModelCacheEvictionPolicy.FIFO;
+	}
+
+	String KEY_MODEL_DISK_CACHE = "modelDiskCache";
+	@ConfigItem(
+		keyName = KEY_MODEL_DISK_CACHE,
+		name = "Legacy disk cache",
+		description =
+			"With the legacy renderer, also save cached model data to disk, so it can be reused after restarting the client.<br>" +
+			"Requires model caching to be enabled. The cache is discarded whenever relevant settings change.",
+		position = -91,
+		section = legacySettings
+	)
+	default boolean modelDiskCache() { return false; }
+
+	String KEY_MODEL_DISK_CACHE_SIZE = "modelDiskCacheSizeMiB";
+	@Range(
+		min = 64,
+		max = 2047
+	)
+	@Units(" MiB")
+	@ConfigItem(
+		keyName = KEY_MODEL_DISK_CACHE_SIZE,
+		name = "Legacy disk cache size",
+		description =
+			"Size of the model disk cache file in mebibytes (slightly more than megabytes).<br>" +
+			"Minimum=64 MiB, maximum=2047 MiB",
+		position = -90,
+		section = legacySettings
+	)
+	default int modelDiskCacheSizeMiB() {
+		return 512;
+	}
+
 	String KEY_LEGACY_GREY_COLORS = "reduceOverExposure";
 	@ConfigItem(
 		keyName = KEY_LEGACY_GREY_COLORS,
@@ -1138,6 +1186,37 @@ public interface HdPluginConfig extends Config
 		return true;
 	}
 
+	String KEY_ZONE_UPLOAD_BUDGET = "experimentalZoneUploadBudget";
+	@Range(
+		max = 256
+	)
+	@Units(" MiB")
+	@ConfigItem(
+		keyName = KEY_ZONE_UPLOAD_BUDGET,
+		name = "Zone upload budget",
+		description =
+			"The amount of streamed zone data that can be uploaded to the GPU per frame, or 0 for no limit.<br>" +
+			"Lower values spread the cost of loading busy areas over more frames, reducing stutters.",
+		section = experimentalSettings
+	)
+	default int zoneUploadBudget() {
+		return 0;
+	}
+
+	String KEY_ZONE_SWAPS_PER_FRAME = "experimentalZoneSwapsPerFrame";
+	@Range(
+		max = 64
+	)
+	@ConfigItem(
+		keyName = KEY_ZONE_SWAPS_PER_FRAME,
+		name = "Zone swaps per frame",
+		description = "The number of streamed zones that can appear per frame, or 0 for no limit.",
+		section = experimentalSettings
+	)
+	default int zoneSwapsPerFrame() {
+		return 0;
+	}
+
 	String KEY_PRESERVE_VANILLA_NORMALS = "experimentalPreserveVanillaNormals";
 	@ConfigItem(
 		keyName = KEY_PRESERVE_VANILLA_NORMALS,
@@ -4,12 +4,15 @@ import lombok.RequiredArgsConstructor;
 
 @RequiredArgsConstructor
 public enum CpuUsageLimit {
-	MAX(1),
-	HIGH(0.75f),
-	MEDIUM(0.5f),
-	LOW(0.25f),
-	MINIMAL(0),
+	MAX(1, 50, 200),
+	HIGH(0.75f, 20, 100),
+	MEDIUM(0.5f, 10, 50),
+	LOW(0.25f, 2, 20),
+	MINIMAL(0, 0, 10),
 	;
 
 	public final float threadRatio;
+	// How long an idle worker busy-waits, then yields, before parking, trading idle CPU usage for wake-up latency
+	public final int idleSpinMicros;
+	public final int idleYieldMicros;
 }
@@ -0,0 +1,22 @@
+package rs117.hd.config;
+
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+public enum ModelCacheEvictionPolicy {
+	FIFO("Oldest first", Integer.MAX_VALUE),
+	FREQUENCY("Frequency-aware", 2),
+	;
+
+	private final String name;
+
+	/**
+	 * The number of cache hits required for an entry to be given a second chance instead of being evicted.
+	 */
+	public final int retentionThreshold;
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
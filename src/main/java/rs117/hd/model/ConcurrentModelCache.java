@@ -0,0 +1,222 @@
+package rs117.hd.model;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import javax.annotation.Nullable;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.lwjgl.system.MemoryUtil;
+import rs117.hd.config.ModelCacheEvictionPolicy;
+
+import static rs117.hd.utils.MathUtils.*;
+
+/**
+ * A thread-safe {@link ModelCache}, split into shards by hash, each with its own allocation ring and lock, so models
+ * can be pushed from several threads at once with little contention.
+ * <p>
+ * Since another thread may evict and overwrite an entry as soon as its shard's lock is released, cached data is never
+ * handed out directly. Instead, it's copied into or out of the caller's buffers while the shard is locked.
+ */
+@Slf4j
+public class ConcurrentModelCache {
+	private static final int MIN_SHARD_SIZE_MIB = 32;
+
+	private final ModelCache[] shards;
+	private final int shardMask;
+
+	@Nullable
+	@Getter
+	private ModelDiskCache diskCache;
+
+	/**
+	 * @param maxShards the maximum number of shards, which is rounded down to a power of two, and further limited so no
+	 *                  shard is smaller than {@value MIN_SHARD_SIZE_MIB} MiB
+	 */
+	public ConcurrentModelCache(int modelCacheSizeMiB, int maxShards, Runnable terminationHook) {
+		modelCacheSizeMiB = ModelCache.limitCacheSize(modelCacheSizeMiB);
+		int numShards = Integer.highestOneBit(max(1, min(maxShards, modelCacheSizeMiB / MIN_SHARD_SIZE_MIB)));
+		shardMask = numShards - 1;
+		shards = new ModelCache[numShards];
+
+		log.debug("Splitting {} MiB model cache into {} shards", modelCacheSizeMiB, numShards);
+		try {
+			for (int i = 0; i < numShards; i++)
+				shards[i] = new ModelCache(modelCacheSizeMiB / numShards, terminationHook);
+		} catch (Throwable err) {
+			destroy();
+			throw err;
+		}
+	}
+
+	public int getShardCount() {
+		return shards.length;
+	}
+
+	private ModelCache shard(long hash) {
+		// Model hashes are well mixed, but the lower bits may still be shared by similar models
+		return shards[(int) (hash ^ hash >>> 32 ^ hash >>> 17) & shardMask];
+	}
+
+	public void destroy() {
+		for (var shard : shards) {
+			if (shard != null) {
+				synchronized (shard) {
+					shard.destroy();
+				}
+			}
+		}
+		diskCache = null;
+	}
+
+	public void clear() {
+		for (var shard : shards) {
+			synchronized (shard) {
+				shard.clear();
+			}
+		}
+	}
+
+	public void setEvictionPolicy(ModelCacheEvictionPolicy evictionPolicy) {
+		for (var shard : shards) {
+			synchronized (shard) {
+				shard.setEvictionPolicy(evictionPolicy);
+			}
+		}
+	}
+
+	/**
+	 * Attach a disk tier shared by all shards. See {@link ModelCache#setDiskCache}.
+	 */
+	public void setDiskCache(@Nullable ModelDiskCache diskCache) {
+		for (var shard : shards) {
+			synchronized (shard) {
+				shard.setDiskCache(diskCache);
+			}
+		}
+		this.diskCache = diskCache;
+	}
+
+	/**
+	 * Open the disk tier if it isn't already open. See {@link ModelDiskCache#open}.
+	 */
+	public void openDiskCache(long fingerprint) {
+		var diskCache = this.diskCache;
+		if (diskCache == null)
+			return;
+
+		synchronized (diskCache) {
+			if (!diskCache.isOpen())
+				diskCache.open(fingerprint);
+		}
+	}
+
+	/**
+	 * Copy cached data into the destination buffer at its current position, if the cached data has the expected size.
+	 *
+	 * @return true if the data was found and copied
+	 */
+	public boolean copyIntBuffer(long hash, IntBuffer dst, int expectedInts) {
+		var shard = shard(hash);
+		synchronized (shard) {
+			IntBuffer src = shard.getIntBuffer(hash);
+			if (src == null || src.remaining() != expectedInts)
+				return false;
+			assert dst.remaining() >= expectedInts;
+			// memAddress includes the buffers' current positions
+			MemoryUtil.memCopy(MemoryUtil.memAddress(src), MemoryUtil.memAddress(dst), expectedInts * 4L);
+		}
+		dst.position(dst.position() + expectedInts);
+		return true;
+	}
+
+	/**
+	 * Copy cached data into the destination buffer at its current position, if the cached data has the expected size.
+	 *
+	 * @return true if the data was found and copied
+	 */
+	public boolean copyFloatBuffer(long hash, FloatBuffer dst, int expectedFloats) {
+		var shard = shard(hash);
+		synchronized (shard) {
+			FloatBuffer src = shard.getFloatBuffer(hash);
+			if (src == null || src.remaining() != expectedFloats)
+				return false;
+			assert dst.remaining() >= expectedFloats;
+			// memAddress includes the buffers' current positions
+			MemoryUtil.memCopy(MemoryUtil.memAddress(src), MemoryUtil.memAddress(dst), expectedFloats * 4L);
+		}
+		dst.position(dst.position() + expectedFloats);
+		return true;
+	}
+
+	/**
+	 * Cache a copy of part of the source buffer, starting at the specified offset.
+	 *
+	 * @return false if no space could be reserved
+	 */
+	public boolean putInts(long hash, IntBuffer src, int offset, int length) {
+		if (length <= 0)
+			return true;
+
+		var shard = shard(hash);
+		synchronized (shard) {
+			IntBuffer dst = shard.reserveIntBuffer(hash, length);
+			if (dst == null)
+				return false;
+			MemoryUtil.memCopy(MemoryUtil.memAddress(src, offset), MemoryUtil.memAddress0(dst), length * 4L);
+			dst.position(length).flip();
+			shard.flushPendingDiskWrites();
+		}
+		return true;
+	}
+
+	/**
+	 * Cache a copy of part of the source buffer, starting at the specified offset.
+	 *
+	 * @return false if no space could be reserved
+	 */
+	public boolean putFloats(long hash, FloatBuffer src, int offset, int length) {
+		if (length <= 0)
+			return true;
+
+		var shard = shard(hash);
+		synchronized (shard) {
+			FloatBuffer dst = shard.reserveFloatBuffer(hash, length);
+			if (dst == null)
+				return false;
+			MemoryUtil.memCopy(MemoryUtil.memAddress(src, offset), MemoryUtil.memAddress0(dst), length * 4L);
+			dst.position(length).flip();
+			shard.flushPendingDiskWrites();
+		}
+		return true;
+	}
+
+	// Counters are read without locking, so they may be slightly out of date while other threads are using the cache
+
+	public long getHits() {
+		long sum = 0;
+		for (var shard : shards)
+			sum += shard.getHits();
+		return sum;
+	}
+
+	public long getMisses() {
+		long sum = 0;
+		for (var shard : shards)
+			sum += shard.getMisses();
+		return sum;
+	}
+
+	public long getEvictions() {
+		long sum = 0;
+		for (var shard : shards)
+			sum += shard.getEvictions();
+		return sum;
+	}
+
+	public long getRetentions() {
+		long sum = 0;
+		for (var shard : shards)
+			sum += shard.getRetentions();
+		return sum;
+	}
+}
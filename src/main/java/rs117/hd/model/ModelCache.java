@@ -3,14 +3,22 @@ package rs117.hd.model;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.util.ArrayDeque;
-import java.util.HashMap;
+import javax.annotation.Nullable;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.lwjgl.system.MemoryUtil;
+import org.lwjgl.system.libc.LibCString;
+import rs117.hd.config.ModelCacheEvictionPolicy;
+import rs117.hd.utils.collections.Long2ObjectHashMap;
 
 import static rs117.hd.utils.MathUtils.*;
+import static rs117.hd.utils.collections.Util.EMPTY_LONG;
 
 @Slf4j
 public class ModelCache {
+	private static final int MAX_HITS = 15;
+	private static final long MAX_RETAINED_BYTES_PER_RESERVATION = 4 * MiB;
+
 	private static class Allocation {
 		long address;
 		long byteCapacity;
@@ -64,6 +72,7 @@ public class ModelCache {
 		final long byteCapacity;
 		final IntBuffer intBuffer;
 		final FloatBuffer floatBuffer;
+		int hits;
 
 		public Buffer(long byteCapacity) {
 			endMarker = true;
@@ -91,36 +100,33 @@ public class ModelCache {
 	}
 
 	private final Runnable terminationHook;
-	private final HashMap<Long, Buffer> cache = new HashMap<>();
+	private final Long2ObjectHashMap<Buffer> cache = new Long2ObjectHashMap<>(4096);
 	private final ArrayDeque<Buffer> buffers = new ArrayDeque<>();
 	private final Allocation[] allocations;
 	private Allocation currentAllocation;
 	private int currentAllocationIndex;
 
-	public ModelCache(int modelCacheSizeMiB, Runnable terminationHook) {
-		this.terminationHook = terminationHook;
+	@Nullable
+	@Getter
+	private ModelDiskCache diskCache;
+	private final ArrayDeque<Buffer> pendingDiskWrites = new ArrayDeque<>();
 
-		// Limit cache size to 128 MiB for 32-bit
-		if (modelCacheSizeMiB > 128 && !"64".equals(System.getProperty("sun.arch.data.model"))) {
-			log.warn("Defaulting model cache to 128 MiB due to non 64-bit client");
-			modelCacheSizeMiB = 128;
-		}
+	private ModelCacheEvictionPolicy evictionPolicy = ModelCacheEvictionPolicy.FIFO;
+	private long retainedBytes;
 
-		try {
-			int totalPhysicalMemoryMiB = (int) (((com.sun.management.OperatingSystemMXBean)
-				java.lang.management.ManagementFactory.getOperatingSystemMXBean()).getTotalPhysicalMemorySize() / MiB);
+	@Getter
+	private long hits;
+	@Getter
+	private long misses;
+	@Getter
+	private long evictions;
+	@Getter
+	private long retentions;
 
-			// Try to limit the cache size to half of the total physical memory
-			if (modelCacheSizeMiB > totalPhysicalMemoryMiB / 2) {
-				log.warn(
-					"Limiting cache size to {} since the selected amount ({}) exceeds half of the total system memory ({} / 2)",
-					totalPhysicalMemoryMiB / 2, modelCacheSizeMiB, totalPhysicalMemoryMiB);
-				modelCacheSizeMiB = totalPhysicalMemoryMiB / 2;
-			}
-		} catch (Throwable e) {
-			log.warn("Unable to check physical memory size: " + e);
-		}
+	public ModelCache(int modelCacheSizeMiB, Runnable terminationHook) {
+		this.terminationHook = terminationHook;
 
+		modelCacheSizeMiB = limitCacheSize(modelCacheSizeMiB);
 		long byteCapacity = modelCacheSizeMiB * MiB;
 
 		log.debug("Allocating {} MiB model cache", modelCacheSizeMiB);
@@ -150,11 +156,45 @@ public class ModelCache {
 		currentAllocation = allocations[0];
 	}
 
+	/**
+	 * Limit the cache size based on the client's architecture and the amount of physical memory in the system.
+	 */
+	public static int limitCacheSize(int modelCacheSizeMiB) {
+		// Limit cache size to 128 MiB for 32-bit
+		if (modelCacheSizeMiB > 128 && !"64".equals(System.getProperty("sun.arch.data.model"))) {
+			log.warn("Defaulting model cache to 128 MiB due to non 64-bit client");
+			modelCacheSizeMiB = 128;
+		}
+
+		try {
+			int totalPhysicalMemoryMiB = (int) (((com.sun.management.OperatingSystemMXBean)
+				java.lang.management.ManagementFactory.getOperatingSystemMXBean()).getTotalPhysicalMemorySize() / MiB);
+
+			// Try to limit the cache size to half of the total physical memory
+			if (modelCacheSizeMiB > totalPhysicalMemoryMiB / 2) {
+				log.warn(
+					"Limiting cache size to {} since the selected amount ({}) exceeds half of the total system memory ({} / 2)",
+					totalPhysicalMemoryMiB / 2, modelCacheSizeMiB, totalPhysicalMemoryMiB);
+				modelCacheSizeMiB = totalPhysicalMemoryMiB / 2;
+			}
+		} catch (Throwable e) {
+			log.warn("Unable to check physical memory size: " + e);
+		}
+
+		return modelCacheSizeMiB;
+	}
+
 	public void destroy() {
 		cache.clear();
 		buffers.clear();
+		pendingDiskWrites.clear();
 		currentAllocation = null;
 
+		if (diskCache != null) {
+			diskCache.close();
+			diskCache = null;
+		}
+
 		if (allocations != null) {
 			for (int i = 0; i < allocations.length; i++) {
 				if (allocations[i] != null) {
@@ -179,6 +219,12 @@ public class ModelCache {
 	public void clear() {
 		cache.clear();
 		buffers.clear();
+		pendingDiskWrites.clear();
+		if (diskCache != null) {
+			synchronized (diskCache) {
+				diskCache.close();
+			}
+		}
 		for (Allocation allocation : allocations) {
 			if (allocation != null) {
 				allocation.cursor = 0;
@@ -187,8 +233,97 @@ public class ModelCache {
 		}
 	}
 
-	private Buffer get(long hash) {
-		return cache.get(hash);
+	/**
+	 * Attach a disk tier, which will be consulted on cache misses, and which will receive a copy of all newly cached
+	 * data once {@link #flushPendingDiskWrites()} is called. The disk cache must be opened before it is used.
+	 */
+	public void setDiskCache(@Nullable ModelDiskCache diskCache) {
+		if (this.diskCache != null && this.diskCache != diskCache)
+			this.diskCache.close();
+		this.diskCache = diskCache;
+		pendingDiskWrites.clear();
+	}
+
+	private void putEntry(Buffer buffer) {
+		// The map can't hold its sentinel key, so buffers with such a hash will simply never be reused
+		if (buffer.hash != EMPTY_LONG)
+			cache.put(buffer.hash, buffer);
+	}
+
+	public void setEvictionPolicy(ModelCacheEvictionPolicy evictionPolicy) {
+		this.evictionPolicy = evictionPolicy;
+	}
+
+	private Buffer get(long hash, boolean isFloat) {
+		Buffer buffer = cache.get(hash);
+		if (buffer == null && diskCache != null && diskCache.isOpen())
+			buffer = loadFromDisk(hash, isFloat);
+
+		if (buffer == null) {
+			misses++;
+		} else {
+			hits++;
+			if (buffer.hits < MAX_HITS)
+				buffer.hits++;
+		}
+		return buffer;
+	}
+
+	private Buffer loadFromDisk(long hash, boolean isFloat) {
+		long address;
+		int byteLength;
+		// The disk cache may be shared between the shards of a ConcurrentModelCache
+		synchronized (diskCache) {
+			long diskAddress = diskCache.get(hash);
+			if (diskAddress == 0)
+				return null;
+
+			byteLength = diskCache.getByteLength(hash);
+			address = reserve(byteLength);
+			if (address == 0L)
+				return null;
+
+			MemoryUtil.memCopy(diskAddress, address, byteLength);
+		}
+		int capacity = byteLength / 4;
+		Buffer buffer = isFloat ?
+			new Buffer(hash, MemoryUtil.memFloatBuffer(address, capacity)) :
+			new Buffer(hash, MemoryUtil.memIntBuffer(address, capacity));
+		putEntry(buffer);
+		buffers.addLast(buffer);
+		return buffer;
+	}
+
+	/**
+	 * Copy buffers which have been reserved and filled since the last call to the disk tier, if there is one.
+	 */
+	public void flushPendingDiskWrites() {
+		if (pendingDiskWrites.isEmpty())
+			return;
+
+		if (diskCache == null) {
+			pendingDiskWrites.clear();
+			return;
+		}
+
+		synchronized (diskCache) {
+			if (!diskCache.isOpen()) {
+				pendingDiskWrites.clear();
+				return;
+			}
+
+			Buffer buffer;
+			while ((buffer = pendingDiskWrites.pollFirst()) != null) {
+				// Skip buffers which have already been evicted, since their memory may have been reused
+				if (cache.get(buffer.hash) != buffer)
+					continue;
+
+				var data = buffer.intBuffer == null ? buffer.floatBuffer : buffer.intBuffer;
+				// Only persist the part of the buffer that was filled, so partially filled buffers remain cache misses
+				if (data.limit() > 0)
+					diskCache.put(buffer.hash, MemoryUtil.memAddress0(data), data.limit() * 4);
+			}
+		}
 	}
 
 	private void nextAllocation() {
@@ -251,8 +386,9 @@ public class ModelCache {
 			}
 		}
 
+		retainedBytes = 0;
 		while (currentAllocation.freeBytesAhead < numBytes) {
-			if (removeOldestCacheEntry() == null) {
+			if (removeOldestCacheEntry(numBytes) == null) {
 				log.error("No more cache entries left to free, yet there aren't enough free bytes ({} < {})",
 					currentAllocation.freeBytesAhead, numBytes);
 				terminationHook.run();
@@ -263,7 +399,7 @@ public class ModelCache {
 		return currentAllocation.reserve(numBytes);
 	}
 
-	private Buffer removeOldestCacheEntry() {
+	private Buffer removeOldestCacheEntry(long numBytesToReserve) {
 		Buffer buffer = buffers.pollFirst();
 
 		if (buffer != null) {
@@ -277,20 +413,59 @@ public class ModelCache {
 
 			currentAllocation.freeBytesAhead += buffer.byteCapacity;
 			assert currentAllocation.cursor + currentAllocation.freeBytesAhead <= currentAllocation.byteCapacity;
+
+			if (!buffer.endMarker && !retainFrequentlyUsedBuffer(buffer, numBytesToReserve))
+				evictions++;
 		}
 
 		return buffer;
 	}
 
+	/**
+	 * Give frequently used buffers a second chance by moving them from the tail of the ring to the head, instead of
+	 * evicting them. Each move halves the buffer's hit counter, so buffers which stop being used are eventually evicted.
+	 * This needs to be called right after the buffer has been freed, so the freed region directly follows the cursor.
+	 *
+	 * @return true if the buffer was retained
+	 */
+	private boolean retainFrequentlyUsedBuffer(Buffer buffer, long numBytesToReserve) {
+		if (buffer.hits < evictionPolicy.retentionThreshold)
+			return false;
+
+		// Ensure the pending reservation will still fit, and limit how much data is moved for each reservation
+		if (currentAllocation.bytesFromEnd() - buffer.byteCapacity < numBytesToReserve ||
+			retainedBytes + buffer.byteCapacity > MAX_RETAINED_BYTES_PER_RESERVATION)
+			return false;
+
+		var data = buffer.intBuffer == null ? buffer.floatBuffer : buffer.intBuffer;
+		long srcAddress = MemoryUtil.memAddress0(data);
+		long dstAddress = currentAllocation.reserve(buffer.byteCapacity);
+		// The regions may overlap, so memmove is required, since memCopy falls back to memcpy for larger sizes
+		if (srcAddress != dstAddress)
+			LibCString.nmemmove(dstAddress, srcAddress, buffer.byteCapacity);
+
+		int capacity = (int) (buffer.byteCapacity / 4);
+		Buffer moved = buffer.intBuffer != null ?
+			new Buffer(buffer.hash, MemoryUtil.memIntBuffer(dstAddress, capacity).limit(data.limit())) :
+			new Buffer(buffer.hash, MemoryUtil.memFloatBuffer(dstAddress, capacity).limit(data.limit()));
+		moved.hits = buffer.hits >> 1;
+		putEntry(moved);
+		buffers.addLast(moved);
+
+		retainedBytes += buffer.byteCapacity;
+		retentions++;
+		return true;
+	}
+
 	public IntBuffer getIntBuffer(long hash) {
-		Buffer buffer = get(hash);
+		Buffer buffer = get(hash, false);
 		if (buffer == null)
 			return null;
 		return buffer.intBuffer;
 	}
 
 	public FloatBuffer getFloatBuffer(long hash) {
-		Buffer buffer = get(hash);
+		Buffer buffer = get(hash, true);
 		if (buffer == null)
 			return null;
 		return buffer.floatBuffer;
@@ -301,8 +476,10 @@ public class ModelCache {
 		if (address == 0L)
 			return null;
 		Buffer buffer = new Buffer(hash, MemoryUtil.memIntBuffer(address, capacity));
-		cache.put(hash, buffer);
+		putEntry(buffer);
 		buffers.addLast(buffer);
+		if (diskCache != null)
+			pendingDiskWrites.addLast(buffer);
 		return buffer.intBuffer;
 	}
 
@@ -311,8 +488,10 @@ public class ModelCache {
 		if (address == 0L)
 			return null;
 		Buffer buffer = new Buffer(hash, MemoryUtil.memFloatBuffer(address, capacity));
-		cache.put(hash, buffer);
+		putEntry(buffer);
 		buffers.addLast(buffer);
+		if (diskCache != null)
+			pendingDiskWrites.addLast(buffer);
 		return buffer.floatBuffer;
 	}
 }
@@ -0,0 +1,345 @@
+package rs117.hd.model;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.zip.CRC32;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.lwjgl.system.MemoryUtil;
+import rs117.hd.utils.ResourcePath;
+import rs117.hd.utils.collections.Long2ObjectHashMap;
+
+import static rs117.hd.utils.MathUtils.*;
+import static rs117.hd.utils.collections.Util.EMPTY_LONG;
+
+/**
+ * A memory-mapped disk tier for the {@link ModelCache}, which allows cached model data to survive client restarts.
+ * <p>
+ * Model data is stored in a single fixed-size data file, which is written to as a FIFO ring, mirroring the eviction
+ * order of the in-memory cache. The location and checksum of each entry is kept in a compact index file, which is
+ * only written when the cache is closed. Each entry's checksum is validated the first time it's read back.
+ */
+@Slf4j
+public class ModelDiskCache {
+	private static final int MAGIC = 0x524C4D43; // RLMC
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 8 + 4;
+	private static final int ENTRY_BYTES = 8 + 4 + 4 + 4;
+	private static final int MAX_SIZE_MIB = 2047;
+
+	private static class Entry {
+		final long hash;
+		final int offset;
+		final int byteLength;
+		final int checksum;
+		boolean validated;
+
+		Entry(long hash, int offset, int byteLength, int checksum) {
+			this.hash = hash;
+			this.offset = offset;
+			this.byteLength = byteLength;
+			this.checksum = checksum;
+		}
+	}
+
+	private final ResourcePath dataPath;
+	private final ResourcePath indexPath;
+	private final Long2ObjectHashMap<Entry> index = new Long2ObjectHashMap<>();
+	private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+	private final CRC32 crc = new CRC32();
+
+	private MappedByteBuffer mappedBuffer;
+	private long mappedAddress;
+	private final int byteCapacity;
+	private int cursor;
+	@Getter
+	private long fingerprint;
+	@Getter
+	private boolean isOpen;
+	private boolean hasFailed;
+
+	@Getter
+	private long hits;
+	@Getter
+	private long misses;
+	@Getter
+	private long evictions;
+	@Getter
+	private long checksumFailures;
+	@Getter
+	private long bytesWritten;
+
+	public ModelDiskCache(ResourcePath directory, int sizeMiB) {
+		dataPath = directory.resolve("model-cache.bin");
+		indexPath = directory.resolve("model-cache.idx");
+		byteCapacity = (int) min(clamp(sizeMiB, 1, MAX_SIZE_MIB) * MiB, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Map the data file and load the index, discarding any existing entries if they were written with a different
+	 * fingerprint, which should capture any state other than the model hash that influences the cached data.
+	 */
+	public void open(long fingerprint) {
+		if (isOpen) {
+			if (this.fingerprint != fingerprint)
+				reset(fingerprint);
+			return;
+		}
+
+		if (hasFailed)
+			return;
+
+		this.fingerprint = fingerprint;
+		try {
+			if (mappedBuffer == null) {
+				dataPath.toFile().getParentFile().mkdirs();
+				try (
+					var file = new RandomAccessFile(dataPath.toFile(), "rw");
+					var channel = file.getChannel()
+				) {
+					if (file.length() != byteCapacity)
+						file.setLength(byteCapacity);
+					mappedBuffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, byteCapacity);
+				}
+				mappedAddress = MemoryUtil.memAddress(mappedBuffer);
+			}
+
+			loadIndex();
+			isOpen = true;
+
+			// Delete the index while the cache is in use, since the data file will be modified without updating it
+			try {
+				indexPath.toFile().delete();
+			} catch (Exception ex) {
+				log.debug("Unable to delete model disk cache index:", ex);
+			}
+
+			log.debug("Opened {} MiB model disk cache with {} entries", byteCapacity / MiB, index.size());
+		} catch (Throwable ex) {
+			log.warn("Unable to open the model disk cache. Continuing without it...", ex);
+			hasFailed = true;
+			close();
+		}
+	}
+
+	/**
+	 * Write the index to disk and release the mapped data file.
+	 */
+	public void close() {
+		if (isOpen) {
+			try {
+				mappedBuffer.force();
+				writeIndex();
+			} catch (Throwable ex) {
+				log.warn("Unable to save the model disk cache index:", ex);
+			}
+
+			log.debug(
+				"Closed model disk cache with {} entries, hit rate: {}%, written: {}",
+				index.size(), round(getHitRate() * 100), formatBytes(bytesWritten)
+			);
+		}
+
+		isOpen = false;
+		index.clear();
+		entries.clear();
+		cursor = 0;
+		mappedBuffer = null;
+		mappedAddress = 0;
+	}
+
+	/**
+	 * Discard all entries, and start over using the specified fingerprint.
+	 */
+	public void reset(long fingerprint) {
+		this.fingerprint = fingerprint;
+		index.clear();
+		entries.clear();
+		cursor = 0;
+	}
+
+	public int size() {
+		return index.size();
+	}
+
+	public long getBytesMapped() {
+		return mappedBuffer == null ? 0 : byteCapacity;
+	}
+
+	public float getHitRate() {
+		long total = hits + misses;
+		return total == 0 ? 0 : (float) hits / total;
+	}
+
+	/**
+	 * Look up the data stored for the specified hash.
+	 *
+	 * @return the address of the mapped data, or zero if there is no valid entry
+	 */
+	public long get(long hash) {
+		if (!isOpen)
+			return 0;
+
+		Entry entry = index.get(hash);
+		if (entry == null) {
+			misses++;
+			return 0;
+		}
+
+		if (!entry.validated) {
+			if (checksum(entry.offset, entry.byteLength) != entry.checksum) {
+				// The data has been corrupted, likely due to the client closing without saving the index
+				checksumFailures++;
+				misses++;
+				index.remove(hash);
+				return 0;
+			}
+			entry.validated = true;
+		}
+
+		hits++;
+		return mappedAddress + entry.offset;
+	}
+
+	/**
+	 * Look up the size of the data stored for the specified hash, which must have been returned by {@link #get(long)}.
+	 */
+	public int getByteLength(long hash) {
+		Entry entry = index.get(hash);
+		return entry == null ? 0 : entry.byteLength;
+	}
+
+	/**
+	 * Copy data into the mapped data file, evicting the oldest entries as needed.
+	 */
+	public void put(long hash, long address, int byteLength) {
+		// The index can't hold its sentinel key, so data with such a hash is never stored
+		if (!isOpen || hash == EMPTY_LONG || byteLength <= 0 || byteLength > byteCapacity)
+			return;
+
+		if (cursor + byteLength > byteCapacity) {
+			// Evict any entries in the unused space at the end of the file before wrapping around
+			while (!entries.isEmpty() && entries.peekFirst().offset >= cursor)
+				evictOldest();
+			cursor = 0;
+		}
+
+		// Since entries are written sequentially, the oldest entry always follows the cursor
+		final int end = cursor + byteLength;
+		while (!entries.isEmpty()) {
+			Entry oldest = entries.peekFirst();
+			if (oldest.offset >= end || oldest.offset + oldest.byteLength <= cursor)
+				break;
+			evictOldest();
+		}
+
+		MemoryUtil.memCopy(address, mappedAddress + cursor, byteLength);
+		var entry = new Entry(hash, cursor, byteLength, checksum(cursor, byteLength));
+		entry.validated = true;
+		Entry previous = index.get(hash);
+		index.put(hash, entry);
+		if (previous != null)
+			entries.remove(previous);
+		entries.addLast(entry);
+
+		cursor = end;
+		bytesWritten += byteLength;
+	}
+
+	private void evictOldest() {
+		Entry entry = entries.pollFirst();
+		if (entry != null) {
+			index.remove(entry.hash, entry);
+			evictions++;
+		}
+	}
+
+	private int checksum(int offset, int byteLength) {
+		crc.reset();
+		crc.update(mappedBuffer.duplicate().position(offset).limit(offset + byteLength));
+		return (int) crc.getValue();
+	}
+
+	private void loadIndex() {
+		index.clear();
+		entries.clear();
+		cursor = 0;
+
+		if (!indexPath.exists())
+			return;
+
+		try {
+			ByteBuffer buffer = indexPath.loadByteBuffer().order(ByteOrder.LITTLE_ENDIAN);
+			if (buffer.remaining() < HEADER_BYTES + 4)
+				throw new IOException("Truncated index");
+
+			// Validate the checksum stored at the end of the index
+			crc.reset();
+			crc.update(buffer.duplicate().limit(buffer.limit() - 4));
+			if ((int) crc.getValue() != buffer.getInt(buffer.limit() - 4))
+				throw new IOException("Index checksum mismatch");
+
+			if (buffer.getInt() != MAGIC)
+				throw new IOException("Invalid index");
+			int version = buffer.getInt();
+			long fingerprint = buffer.getLong();
+			long byteCapacity = buffer.getLong();
+			long cursor = buffer.getLong();
+			int numEntries = buffer.getInt();
+
+			if (version != VERSION || fingerprint != this.fingerprint || byteCapacity != this.byteCapacity) {
+				log.debug("Discarding outdated model disk cache");
+				return;
+			}
+
+			if (cursor < 0 || cursor > byteCapacity || buffer.remaining() - 4 != (long) numEntries * ENTRY_BYTES)
+				throw new IOException("Corrupt index");
+
+			for (int i = 0; i < numEntries; i++) {
+				var entry = new Entry(buffer.getLong(), buffer.getInt(), buffer.getInt(), buffer.getInt());
+				if (entry.hash == EMPTY_LONG || entry.offset < 0 || entry.byteLength <= 0 ||
+					entry.offset + (long) entry.byteLength > byteCapacity)
+					throw new IOException("Corrupt index entry");
+				index.put(entry.hash, entry);
+				entries.addLast(entry);
+			}
+			this.cursor = (int) cursor;
+		} catch (IOException ex) {
+			log.warn("Discarding invalid model disk cache index: {}", ex.getMessage());
+			index.clear();
+			entries.clear();
+			cursor = 0;
+		}
+	}
+
+	private void writeIndex() throws IOException {
+		ByteBuffer buffer = ByteBuffer
+			.allocate(HEADER_BYTES + entries.size() * ENTRY_BYTES + 4)
+			.order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putLong(fingerprint);
+		buffer.putLong(byteCapacity);
+		buffer.putLong(cursor);
+		buffer.putInt(entries.size());
+		// Write the entries in ring order, so the FIFO eviction order is preserved across restarts
+		for (var entry : entries) {
+			buffer.putLong(entry.hash);
+			buffer.putInt(entry.offset);
+			buffer.putInt(entry.byteLength);
+			buffer.putInt(entry.checksum);
+		}
+
+		crc.reset();
+		crc.update(buffer.array(), 0, buffer.position());
+		buffer.putInt((int) crc.getValue());
+		buffer.flip();
+
+		indexPath.writeByteBuffer(buffer);
+	}
+}
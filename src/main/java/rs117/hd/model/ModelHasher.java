@@ -165,7 +165,7 @@ public class ModelHasher {
 		h = h * 31L + model.getOverrideHue();
 		h = h * 31L + model.getOverrideSaturation();
 		h = h * 31L + model.getOverrideLuminance();
-		h = h * 31L + modelOverride.hashCode();
+		h = h * 31L + modelOverride.contentHash();
 		return h;
 	}
 
@@ -185,7 +185,7 @@ public class ModelHasher {
 		h = h * 31L + (modelOverride.uvType == UvType.VANILLA || modelOverride.retainVanillaUvs ? textureTrianglesHash : 0);
 		h = h * 31L + (modelOverride.uvType.orientationDependent ? orientation : 0);
 		h = h * 31L + (modelOverride.uvType == UvType.BOX ? vertexHash : 0);
-		h = h * 31L + modelOverride.hashCode();
+		h = h * 31L + modelOverride.contentHash();
 		h = h * 31L + faceTexturesHash;
 		return h;
 	}
@@ -319,6 +319,7 @@ public class OpenCLManager {
 	public void initializePrograms() throws ShaderException, IOException {
 		try (var stack = MemoryStack.stackPush()) {
 			var includes = new ShaderIncludes()
+				.setSourceCache(plugin.shaderSourceCache)
 				.define("UNDO_VANILLA_SHADING", plugin.configUndoVanillaShading)
 				.define("LEGACY_GREY_COLORS", plugin.configLegacyGreyColors)
 				.define("WIND_DISPLACEMENT", plugin.configWindDisplacement)
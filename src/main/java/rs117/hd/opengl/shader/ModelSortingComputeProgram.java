@@ -22,8 +22,8 @@ public class ModelSortingComputeProgram extends ShaderProgram {
 	}
 
 	@Override
-	public void compile(ShaderIncludes includes) throws ShaderException, IOException {
-		super.compile(includes
+	public void submit(ShaderIncludes includes) throws ShaderException, IOException {
+		super.submit(includes
 			.define("THREAD_COUNT", threadCount)
 			.define("FACES_PER_THREAD", facesPerThread));
 	}
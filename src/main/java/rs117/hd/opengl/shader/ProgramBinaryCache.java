@@ -0,0 +1,218 @@
+package rs117.hd.opengl.shader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.*;
+import rs117.hd.utils.Props;
+import rs117.hd.utils.ResourcePath;
+
+import static org.lwjgl.opengl.GL33C.*;
+import static rs117.hd.HdPlugin.GL_CAPS;
+
+/**
+ * Stores linked shader programs on disk with {@code glGetProgramBinary}, and loads them back with
+ * {@code glProgramBinary}, skipping compilation and linking on later startups, and when switching back to previously
+ * used settings. Programs are keyed by a hash of their fully preprocessed sources, along with the GPU vendor, renderer
+ * and driver version, since binaries are only valid for the exact driver which produced them. If a binary fails to
+ * load, for instance after a driver update which kept the same version string, it's deleted and the program is
+ * compiled from source as usual.
+ */
+@Slf4j
+public class ProgramBinaryCache {
+	private static final int MAGIC = 0x31313748; // "117H"
+	private static final int FORMAT_VERSION = 1;
+	private static final int HEADER_SIZE = 3 * Integer.BYTES;
+	private static final int MAX_FILES = 256;
+	private static final String EXTENSION = ".bin";
+
+	private final ResourcePath directory;
+	@Getter
+	private boolean enabled;
+	private String driverId;
+
+	private int hits;
+	private int misses;
+	private long hitNanos;
+	private long compileNanos;
+
+	public ProgramBinaryCache(ResourcePath directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Checks whether the driver supports program binaries. Must be called with a current OpenGL context.
+	 */
+	public void initialize() {
+		enabled = false;
+		if (Props.has("rlhd.skip-program-binary-cache"))
+			return;
+
+		if (!GL_CAPS.OpenGL41 && !GL_CAPS.GL_ARB_get_program_binary) {
+			log.debug("Program binary cache disabled, since the driver doesn't support program binaries");
+			return;
+		}
+
+		if (glGetInteger(GL41C.GL_NUM_PROGRAM_BINARY_FORMATS) < 1) {
+			log.debug("Program binary cache disabled, since the driver doesn't support any binary formats");
+			return;
+		}
+
+		driverId = glGetString(GL_VENDOR) + '\n' + glGetString(GL_RENDERER) + '\n' + glGetString(GL_VERSION);
+
+		try {
+			directory.mkdirs();
+			evictOldestFiles();
+			enabled = true;
+		} catch (Exception ex) {
+			log.warn("Program binary cache disabled, since the cache directory is unavailable: {}", directory, ex);
+		}
+	}
+
+	/**
+	 * @return a key identifying a program made up of the specified shader sources, compiled by the current driver
+	 */
+	public String getKey(int[] shaderTypes, String[] sources) {
+		try {
+			var digest = MessageDigest.getInstance("SHA-256");
+			digest.update(driverId.getBytes(StandardCharsets.UTF_8));
+			for (int i = 0; i < sources.length; i++) {
+				digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(0, shaderTypes[i]));
+				digest.update(sources[i].getBytes(StandardCharsets.UTF_8));
+			}
+
+			var sb = new StringBuilder();
+			byte[] hash = digest.digest();
+			for (int i = 0; i < 16; i++)
+				sb.append(String.format("%02x", hash[i]));
+			return sb.toString();
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * Attempts to create a program from a previously stored binary.
+	 *
+	 * @return the linked program, or 0 if there's no usable binary for the key
+	 */
+	public int load(String key, String name, long startNanos) {
+		var path = directory.resolve(key + EXTENSION);
+		if (!path.exists())
+			return 0;
+
+		int program = 0;
+		try {
+			ByteBuffer data = path.loadByteBuffer();
+			if (data.remaining() <= HEADER_SIZE || data.getInt() != MAGIC || data.getInt() != FORMAT_VERSION) {
+				log.debug("Discarding invalid program binary for {}", name);
+				deleteFile(path);
+				return 0;
+			}
+
+			int format = data.getInt();
+			program = glCreateProgram();
+			GL41C.glProgramBinary(program, format, data);
+			if (glGetProgrami(program, GL_LINK_STATUS) != GL_TRUE) {
+				log.debug("Discarding program binary rejected by the driver for {}: {}", name, glGetProgramInfoLog(program));
+				// Loading a binary in an unsupported format generates an error, which shouldn't be reported later
+				while (glGetError() != GL_NO_ERROR)
+					;
+				glDeleteProgram(program);
+				deleteFile(path);
+				return 0;
+			}
+
+			long elapsed = System.nanoTime() - startNanos;
+			hits++;
+			hitNanos += elapsed;
+			log.debug("Loaded {} from the program binary cache in {} ms", name, String.format("%.2f", elapsed / 1e6));
+			return program;
+		} catch (IOException ex) {
+			log.debug("Failed to read program binary for {}", name, ex);
+			if (program != 0)
+				glDeleteProgram(program);
+			return 0;
+		}
+	}
+
+	/**
+	 * Stores the binary of a freshly linked program. The program should have been linked with
+	 * {@code GL_PROGRAM_BINARY_RETRIEVABLE_HINT} set.
+	 */
+	public void store(String key, int program, String name, long startNanos) {
+		long elapsed = System.nanoTime() - startNanos;
+		misses++;
+		compileNanos += elapsed;
+		log.debug("Compiled {} in {} ms", name, String.format("%.2f", elapsed / 1e6));
+
+		int length = glGetProgrami(program, GL41C.GL_PROGRAM_BINARY_LENGTH);
+		if (length <= 0)
+			return;
+
+		ByteBuffer data = BufferUtils.createByteBuffer(HEADER_SIZE + length);
+		data.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(0);
+
+		int[] writtenLength = { 0 };
+		int[] format = { 0 };
+		GL41C.glGetProgramBinary(program, writtenLength, format, data);
+		if (writtenLength[0] <= 0)
+			return;
+
+		data.putInt(2 * Integer.BYTES, format[0]);
+		data.position(0).limit(HEADER_SIZE + writtenLength[0]);
+
+		var path = directory.resolve(key + EXTENSION);
+		var tempPath = directory.resolve(key + ".tmp");
+		try {
+			// Write to a temporary file first, to avoid leaving a partial binary behind if the client is closed
+			tempPath.writeByteBuffer(data);
+			Files.move(tempPath.toPath(), path.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException ex) {
+			log.debug("Failed to store program binary for {}", name, ex);
+			deleteFile(tempPath);
+		}
+	}
+
+	public void logStats() {
+		if (hits + misses == 0)
+			return;
+
+		log.info(
+			"Shaders ready: {} loaded from cache in {} ms, {} compiled in {} ms",
+			hits, String.format("%.1f", hitNanos / 1e6),
+			misses, String.format("%.1f", compileNanos / 1e6)
+		);
+		hits = misses = 0;
+		hitNanos = compileNanos = 0;
+	}
+
+	private void evictOldestFiles() {
+		File[] files = directory.toFile().listFiles((dir, filename) -> filename.endsWith(EXTENSION));
+		if (files == null || files.length <= MAX_FILES)
+			return;
+
+		Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+		for (int i = 0; i < files.length - MAX_FILES; i++)
+			if (!files[i].delete())
+				log.debug("Failed to delete old program binary: {}", files[i]);
+	}
+
+	private static void deleteFile(ResourcePath path) {
+		try {
+			Files.deleteIfExists(path.toPath());
+		} catch (IOException ex) {
+			log.debug("Failed to delete {}", path, ex);
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package rs117.hd.opengl.shader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Getter;
+import rs117.hd.utils.Props;
+
+/**
+ * Compiles a set of shader programs together, submitting all of them to the driver before waiting on any, so drivers
+ * supporting parallel shader compilation can compile them concurrently. Programs are finished in the order they
+ * become ready, falling back to waiting on the oldest one.
+ */
+public class ShaderCompileBatch {
+	// Compile each program to completion before submitting the next, for comparing startup times
+	private static final boolean SERIAL = Props.has("rlhd.serial-shader-compile");
+
+	private final List<ShaderProgram> pending = new ArrayList<>();
+
+	@Getter
+	private int programCount;
+
+	public static boolean isSerial() {
+		return SERIAL;
+	}
+
+	public ShaderCompileBatch submit(ShaderProgram program, ShaderIncludes includes) throws ShaderException, IOException {
+		program.submit(includes);
+		programCount++;
+		if (SERIAL) {
+			program.finishCompile();
+		} else {
+			pending.add(program);
+		}
+		return this;
+	}
+
+	/**
+	 * Waits for all submitted programs to finish compiling. If any program fails to compile, the remaining programs
+	 * are discarded, and the exception is rethrown.
+	 */
+	public void finish() throws ShaderException, IOException {
+		try {
+			while (!pending.isEmpty()) {
+				int next = 0;
+				for (int i = 0; i < pending.size(); i++) {
+					if (pending.get(i).isCompileComplete()) {
+						next = i;
+						break;
+					}
+				}
+				pending.remove(next).finishCompile();
+			}
+		} finally {
+			cancel();
+		}
+	}
+
+	/**
+	 * Discards all submitted programs which haven't finished compiling yet.
+	 */
+	public void cancel() {
+		for (var program : pending)
+			program.cancelCompile();
+		pending.clear();
+	}
+}
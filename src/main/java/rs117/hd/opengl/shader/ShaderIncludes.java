@@ -31,10 +31,12 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.Stack;
 import java.util.function.Supplier;
 import java.util.regex.Pattern;
+import javax.annotation.Nullable;
 import lombok.extern.slf4j.Slf4j;
 import rs117.hd.opengl.uniforms.UniformBuffer;
 import rs117.hd.utils.Props;
@@ -58,6 +60,12 @@ public class ShaderIncludes {
 	private final List<IncludeProcessor> includeProcessors = new ArrayList<>();
 	private final List<ResourcePath> includePaths = new ArrayList<>();
 	private final Map<String, Supplier<String>> includeMap = new HashMap<>();
+	@Nullable
+	private ShaderSourceCache sourceCache;
+	@Nullable
+	private ShaderSourceCache.Expansion recording;
+	@Nullable
+	ProgramBinaryCache programBinaryCache;
 
 	public final Set<UniformBuffer<?>> uniformBuffers = new HashSet<>();
 
@@ -71,6 +79,8 @@ public class ShaderIncludes {
 		clone.includePaths.addAll(includePaths);
 		clone.includeMap.putAll(includeMap);
 		clone.uniformBuffers.addAll(uniformBuffers);
+		clone.sourceCache = sourceCache;
+		clone.programBinaryCache = programBinaryCache;
 		return clone;
 	}
 
@@ -171,13 +181,15 @@ public class ShaderIncludes {
 							if (supplier == null)
 								throw includeError(lineNumber, m.group());
 							includeContents = supplier.get();
+							if (recording != null)
+								recording.includes.add(new ShaderSourceCache.IncludeDependency(false, m.group(), includeContents));
 							break;
 						}
 
 						// Fall back to custom include processors
-						for (var processor : includeProcessors)
-							if ((includeContents = processor.process(expression)) != null)
-								break;
+						includeContents = processInclude(expression);
+						if (recording != null)
+							recording.includes.add(new ShaderSourceCache.IncludeDependency(true, expression, includeContents));
 				}
 
 				if (includeContents == null) {
@@ -255,6 +267,16 @@ public class ShaderIncludes {
 		return sb.toString();
 	}
 
+	@Nullable
+	private String processInclude(String expression) throws IOException {
+		for (var processor : includeProcessors) {
+			String includeContents = processor.process(expression);
+			if (includeContents != null)
+				return includeContents;
+		}
+		return null;
+	}
+
 	private String loadFileInternal(String path) throws ShaderException, IOException {
 		includeStack.push(includeList.size());
 		includeList.add(path);
@@ -262,8 +284,15 @@ public class ShaderIncludes {
 		String source = null;
 		for (var includePath : includePaths) {
 			var resourcePath = includePath.resolve(path);
-			if (resourcePath.exists()) {
-				source = parse(resourcePath.loadString());
+			String contents;
+			if (sourceCache != null) {
+				contents = sourceCache.readFile(includePath, resourcePath, recording);
+			} else {
+				contents = resourcePath.exists() ? resourcePath.loadString() : null;
+			}
+
+			if (contents != null) {
+				source = parse(contents);
 				if (SHADER_DUMP_PATH != null)
 					SHADER_DUMP_PATH.resolve(resourcePath.path).mkdirs().writeString(source);
 				break;
@@ -274,6 +303,29 @@ public class ShaderIncludes {
 		return source;
 	}
 
+	private boolean isUpToDate(ShaderSourceCache.Expansion expansion) throws IOException {
+		assert sourceCache != null;
+		for (var include : expansion.includes) {
+			String value;
+			if (include.isProcessor) {
+				value = processInclude(include.expression);
+			} else {
+				var supplier = includeMap.get(include.expression);
+				if (supplier == null)
+					return false;
+				value = supplier.get();
+			}
+			if (!Objects.equals(value, include.value))
+				return false;
+		}
+
+		for (var file : expansion.files)
+			if (!sourceCache.isFileUnchanged(file))
+				return false;
+
+		return true;
+	}
+
 	public String loadFile(String path) throws ShaderException, IOException {
 		includeList.clear();
 
@@ -291,13 +343,59 @@ public class ShaderIncludes {
 				break;
 		}
 
-		String source = loadFileInternal(path);
-		if (source != null)
+		// Dumping shaders relies on every include being expanded
+		String cacheKey = null;
+		if (sourceCache != null && SHADER_DUMP_PATH == null) {
+			var keyBuilder = new StringBuilder(path);
+			for (var includePath : includePaths)
+				keyBuilder.append('|').append(includePath);
+			cacheKey = keyBuilder.toString();
+
+			var cached = sourceCache.find(cacheKey, this::isUpToDate);
+			if (cached != null) {
+				includeList.addAll(cached.includeList);
+				return cached.source;
+			}
+
+			recording = new ShaderSourceCache.Expansion();
+		}
+
+		String source;
+		var expansion = recording;
+		try {
+			source = loadFileInternal(path);
+		} finally {
+			recording = null;
+		}
+
+		if (source != null) {
+			if (expansion != null) {
+				expansion.source = source;
+				expansion.includeList.addAll(includeList);
+				sourceCache.add(cacheKey, expansion);
+			}
 			return source;
+		}
 
 		throw new IOException("Failed to load file: " + path);
 	}
 
+	/**
+	 * Use the specified cache to skip reading and expanding includes when loading the same files again.
+	 */
+	public ShaderIncludes setSourceCache(@Nullable ShaderSourceCache sourceCache) {
+		this.sourceCache = sourceCache;
+		return this;
+	}
+
+	/**
+	 * Use the specified cache to load previously linked programs instead of compiling them from source.
+	 */
+	public ShaderIncludes setProgramBinaryCache(@Nullable ProgramBinaryCache programBinaryCache) {
+		this.programBinaryCache = programBinaryCache;
+		return this;
+	}
+
 	public ShaderIncludes addIncludePath(Class<?> clazz) {
 		return addIncludePath(path(clazz));
 	}
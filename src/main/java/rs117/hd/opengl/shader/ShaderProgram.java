@@ -3,7 +3,9 @@ package rs117.hd.opengl.shader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Consumer;
+import javax.annotation.Nullable;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -31,15 +33,68 @@ public class ShaderProgram implements Destructible {
 	@Getter
 	private boolean viable = true;
 
+	@Nullable
+	private ShaderTemplate.PendingProgram pendingProgram;
+	private Set<UniformBuffer<?>> pendingUniformBuffers;
+
 	public ShaderProgram(Consumer<ShaderTemplate> templateConsumer) {
 		shaderTemplate = new ShaderTemplate();
 		templateConsumer.accept(shaderTemplate);
 	}
 
-	public void compile(ShaderIncludes includes) throws ShaderException, IOException {
+	/**
+	 * Compiles the program, blocking until it's ready for use.
+	 */
+	public final void compile(ShaderIncludes includes) throws ShaderException, IOException {
+		submit(includes);
+		finishCompile();
+	}
+
+	/**
+	 * Starts compiling the program in the background, if supported by the driver. The previous program remains in use
+	 * until {@link #finishCompile()} is called. Subclasses may override this to adjust the includes or shader template.
+	 */
+	public void submit(ShaderIncludes includes) throws ShaderException, IOException {
+		cancelCompile();
+		try {
+			pendingProgram = shaderTemplate.submit(includes);
+			pendingUniformBuffers = Set.copyOf(includes.uniformBuffers);
+		} catch (ShaderException ex) {
+			viable = false;
+			throw ex;
+		}
+	}
+
+	/**
+	 * @return whether {@link #finishCompile()} can be called without waiting on the driver
+	 */
+	public boolean isCompileComplete() {
+		return pendingProgram == null || pendingProgram.isComplete();
+	}
+
+	/**
+	 * Discards the program submitted with {@link #submit}, if any, keeping the current program.
+	 */
+	public void cancelCompile() {
+		if (pendingProgram != null)
+			pendingProgram.destroy();
+		pendingProgram = null;
+		pendingUniformBuffers = null;
+	}
+
+	/**
+	 * Waits for the program submitted with {@link #submit} to finish compiling, then replaces the current program.
+	 */
+	public void finishCompile() throws ShaderException, IOException {
+		assert pendingProgram != null : "No program has been submitted";
+		var pending = pendingProgram;
+		var uniformBuffers = pendingUniformBuffers;
+		pendingProgram = null;
+		pendingUniformBuffers = null;
+
 		int newProgram;
 		try {
-			newProgram = shaderTemplate.compile(includes);
+			newProgram = pending.finish();
 		} catch (ShaderException ex) {
 			viable = false;
 			throw ex;
@@ -57,7 +112,7 @@ public class ShaderProgram implements Destructible {
 				log.warn("{} has missing or unused {}: {}", getClass().getSimpleName(), prop.getClass().getSimpleName(), prop.uniformName);
 		}
 
-		for (var ubo : includes.uniformBuffers) {
+		for (var ubo : uniformBuffers) {
 			int bindingIndex = glGetUniformBlockIndex(program, ubo.getUniformBlockName());
 			if (bindingIndex != -1)
 				uniformBlockMappings.add(new UniformBufferBlockPair(ubo, bindingIndex));
@@ -113,6 +168,7 @@ public class ShaderProgram implements Destructible {
 	@Override
 	public void destroy() {
 		viable = true;
+		cancelCompile();
 		if (program == 0)
 			return;
 
@@ -0,0 +1,204 @@
+package rs117.hd.opengl.shader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import rs117.hd.utils.FileWatcher;
+import rs117.hd.utils.ResourcePath;
+
+/**
+ * Caches shader sources after include expansion, so recompiling shaders, for instance after changing a config which
+ * only affects some of them, can skip reading and expanding includes. Each expanded source records a hash of every
+ * file it read, along with the value of every identifier and processor include it used, and is only reused if none of
+ * them have changed. File contents are kept until the file watcher reports a change to the file.
+ */
+@Slf4j
+public class ShaderSourceCache {
+	// The number of variants to keep per file, for files compiled with several different sets of defines
+	private static final int MAX_VARIANTS = 16;
+
+	private final boolean watchFiles;
+	private final Map<String, FileContents> files = new HashMap<>();
+	private final Map<String, List<Expansion>> expansions = new HashMap<>();
+	private final Map<String, FileWatcher.UnregisterCallback> watchers = new HashMap<>();
+
+	@Getter
+	private int fileReads;
+	@Getter
+	private int hits;
+	@Getter
+	private int misses;
+
+	public ShaderSourceCache() {
+		this(true);
+	}
+
+	/**
+	 * @param watchFiles whether to watch include paths on the file system for changes. If false, files on the file system
+	 *                   are cached until {@link #invalidate} is called.
+	 */
+	public ShaderSourceCache(boolean watchFiles) {
+		this.watchFiles = watchFiles;
+	}
+
+	@RequiredArgsConstructor
+	private static final class FileContents {
+		@Nullable
+		final String contents;
+		final long hash;
+	}
+
+	@RequiredArgsConstructor
+	static final class FileDependency {
+		final ResourcePath includePath;
+		final ResourcePath resourcePath;
+		final long hash;
+	}
+
+	@RequiredArgsConstructor
+	static final class IncludeDependency {
+		final boolean isProcessor;
+		final String expression;
+		@Nullable
+		final String value;
+	}
+
+	static final class Expansion {
+		final List<FileDependency> files = new ArrayList<>();
+		final List<IncludeDependency> includes = new ArrayList<>();
+		final List<String> includeList = new ArrayList<>();
+		String source;
+	}
+
+	@FunctionalInterface
+	interface Validator {
+		boolean isUpToDate(Expansion expansion) throws IOException;
+	}
+
+	/**
+	 * Reads a file through the cache, recording a dependency on its contents in the expansion being recorded.
+	 *
+	 * @return the file's contents, or null if it doesn't exist
+	 */
+	synchronized String readFile(
+		ResourcePath includePath,
+		ResourcePath resourcePath,
+		@Nullable Expansion recording
+	) throws IOException {
+		var file = getFile(includePath, resourcePath);
+		if (recording != null)
+			recording.files.add(new FileDependency(includePath, resourcePath, file.hash));
+		return file.contents;
+	}
+
+	synchronized boolean isFileUnchanged(FileDependency dependency) throws IOException {
+		return getFile(dependency.includePath, dependency.resourcePath).hash == dependency.hash;
+	}
+
+	private FileContents getFile(ResourcePath includePath, ResourcePath resourcePath) throws IOException {
+		String key = cacheKey(resourcePath);
+		var file = files.get(key);
+		if (file == null) {
+			String contents = resourcePath.exists() ? resourcePath.loadString() : null;
+			file = new FileContents(contents, hash(contents));
+			fileReads++;
+			if (isCacheable(includePath))
+				files.put(key, file);
+		}
+		return file;
+	}
+
+	@Nullable
+	synchronized Expansion find(String key, Validator validator) throws IOException {
+		var variants = expansions.get(key);
+		if (variants != null) {
+			for (int i = 0; i < variants.size(); i++) {
+				var expansion = variants.get(i);
+				if (validator.isUpToDate(expansion)) {
+					// Keep the most recently used variants at the front
+					if (i > 0)
+						variants.add(0, variants.remove(i));
+					hits++;
+					return expansion;
+				}
+			}
+		}
+		misses++;
+		return null;
+	}
+
+	synchronized void add(String key, Expansion expansion) {
+		var variants = expansions.computeIfAbsent(key, k -> new ArrayList<>());
+		variants.add(0, expansion);
+		if (variants.size() > MAX_VARIANTS)
+			variants.remove(variants.size() - 1);
+	}
+
+	/**
+	 * Drops the cached contents of the file, or all files within the directory, at the specified path.
+	 */
+	public synchronized void invalidate(ResourcePath path) {
+		String key = cacheKey(path);
+		if (files.remove(key) == null)
+			files.keySet().removeIf(k -> k.startsWith(key + "/"));
+	}
+
+	/**
+	 * Drops all cached files and expanded sources, and stops watching for changes.
+	 */
+	public synchronized void clear() {
+		for (var watcher : watchers.values())
+			watcher.unregister();
+		watchers.clear();
+		files.clear();
+		expansions.clear();
+	}
+
+	private boolean isCacheable(ResourcePath includePath) {
+		// Resources inside the JAR can't change
+		if (!includePath.isFileSystemResource())
+			return true;
+		if (!watchFiles)
+			return true;
+
+		String key = cacheKey(includePath);
+		if (watchers.containsKey(key))
+			return true;
+
+		try {
+			watchers.put(key, includePath.watch((path, first) -> {
+				if (!first)
+					invalidate(path);
+			}));
+			return true;
+		} catch (RuntimeException ex) {
+			log.debug("Unable to watch shader include path {}, skipping the cache", includePath, ex);
+			return false;
+		}
+	}
+
+	private static String cacheKey(ResourcePath path) {
+		if (path.isFileSystemResource())
+			return path.toPath().toAbsolutePath().normalize().toString().replace('\\', '/');
+		return path.toPosixPath();
+	}
+
+	private static long hash(@Nullable String contents) {
+		if (contents == null)
+			return 0;
+
+		// 64-bit FNV-1a
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < contents.length(); i++) {
+			hash ^= contents.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+}
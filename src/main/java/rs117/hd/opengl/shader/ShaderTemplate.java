@@ -34,6 +34,7 @@ import org.lwjgl.BufferUtils;
 import org.lwjgl.opengl.*;
 
 import static org.lwjgl.opengl.GL33C.*;
+import static rs117.hd.HdPlugin.SUPPORTS_PARALLEL_SHADER_COMPILE;
 import static rs117.hd.opengl.shader.ShaderIncludes.SHADER_DUMP_PATH;
 
 @Slf4j
@@ -59,76 +60,177 @@ public class ShaderTemplate
 	}
 
 	public int compile(ShaderIncludes includes) throws ShaderException, IOException {
-		int program = glCreateProgram();
-		int[] shaders = new int[shaderTypePaths.size()];
+		return submit(includes).finish();
+	}
+
+	/**
+	 * Starts compiling and linking the program, without waiting for the driver to finish. With parallel shader
+	 * compilation, the driver compiles in the background until {@link PendingProgram#finish()} is called, or until the
+	 * program's status is queried in some other way, so submitting several programs before finishing any of them lets
+	 * the driver compile them in parallel.
+	 */
+	public PendingProgram submit(ShaderIncludes includes) throws ShaderException, IOException {
+		var pending = new PendingProgram(includes.copy(), shaderTypePaths.size());
 		int i = 0;
-		boolean ok = false;
+		for (var entry : shaderTypePaths.entrySet()) {
+			pending.types[i] = entry.getKey();
+			pending.paths[i] = entry.getValue();
+			pending.sources[i] = loadSource(includes, pending.types[i], pending.paths[i]);
+			i++;
+		}
+		pending.name = String.join(" + ", pending.paths);
+
+		var binaryCache = includes.programBinaryCache;
+		if (binaryCache != null && binaryCache.isEnabled() && SHADER_DUMP_PATH == null) {
+			pending.binaryCache = binaryCache;
+			pending.binaryKey = binaryCache.getKey(pending.types, pending.sources);
+			pending.program = binaryCache.load(pending.binaryKey, pending.name, pending.startNanos);
+			if (pending.program != 0) {
+				pending.loadedFromCache = true;
+				return pending;
+			}
+		}
 
-		try
-		{
-			for (var entry : shaderTypePaths.entrySet()) {
-				int shader = glCreateShader(entry.getKey());
+		pending.program = glCreateProgram();
+		try {
+			for (i = 0; i < pending.types.length; i++) {
+				int shader = glCreateShader(pending.types[i]);
 				if (shader == 0)
-					throw new ShaderException("Unable to create shader of type " + entry.getKey());
+					throw new ShaderException("Unable to create shader of type " + pending.types[i]);
 
-				String source = includes
-					.addInclude("SHADER_TYPE", SHADER_TYPE_DEFINE + entry.getKey())
-					.loadFile(entry.getValue());
-				glShaderSource(shader, source);
+				glShaderSource(shader, pending.sources[i]);
 				glCompileShader(shader);
+				glAttachShader(pending.program, shader);
+				pending.shaders[i] = shader;
+			}
 
-				if (glGetShaderi(shader, GL_COMPILE_STATUS) != GL_TRUE) {
-					String error = glGetShaderInfoLog(shader);
-					glDeleteShader(shader);
-					throw ShaderException.compileError(includes, source, error, entry.getValue());
+			if (pending.binaryKey != null)
+				GL41C.glProgramParameteri(pending.program, GL41C.GL_PROGRAM_BINARY_RETRIEVABLE_HINT, GL_TRUE);
+			glLinkProgram(pending.program);
+		} catch (ShaderException ex) {
+			pending.destroy();
+			throw ex;
+		}
+
+		return pending;
+	}
+
+	private static String loadSource(ShaderIncludes includes, int type, String path) throws ShaderException, IOException {
+		return includes
+			.addInclude("SHADER_TYPE", SHADER_TYPE_DEFINE + type)
+			.loadFile(path);
+	}
+
+	public static class PendingProgram {
+		private final long startNanos = System.nanoTime();
+		// A copy of the includes used, for mapping error line numbers back to source files
+		private final ShaderIncludes includes;
+		private final int[] types;
+		private final String[] paths;
+		private final String[] sources;
+		private final int[] shaders;
+		private String name;
+		private int program;
+		private boolean loadedFromCache;
+		private ProgramBinaryCache binaryCache;
+		private String binaryKey;
+
+		private PendingProgram(ShaderIncludes includes, int numStages) {
+			this.includes = includes;
+			types = new int[numStages];
+			paths = new String[numStages];
+			sources = new String[numStages];
+			shaders = new int[numStages];
+		}
+
+		/**
+		 * @return whether the driver has finished compiling and linking, meaning {@link #finish()} won't block
+		 */
+		public boolean isComplete() {
+			if (loadedFromCache || program == 0 || !SUPPORTS_PARALLEL_SHADER_COMPILE)
+				return true;
+			return glGetProgrami(program, KHRParallelShaderCompile.GL_COMPLETION_STATUS_KHR) == GL_TRUE;
+		}
+
+		/**
+		 * Waits for the program to finish compiling and linking, and checks for errors.
+		 *
+		 * @return the linked program
+		 */
+		public int finish() throws ShaderException, IOException {
+			if (loadedFromCache)
+				return program;
+
+			boolean ok = false;
+			try {
+				for (int i = 0; i < shaders.length; i++) {
+					if (glGetShaderi(shaders[i], GL_COMPILE_STATUS) != GL_TRUE) {
+						String error = glGetShaderInfoLog(shaders[i]);
+						// Reload the failing stage, so the include list used for mapping error line numbers matches its source
+						loadSource(includes, types[i], paths[i]);
+						throw ShaderException.compileError(includes, sources[i], error, paths[i]);
+					}
 				}
 
-				glAttachShader(program, shader);
-				shaders[i++] = shader;
-			}
+				if (glGetProgrami(program, GL_LINK_STATUS) == GL_FALSE) {
+					throw ShaderException.compileError(
+						includes,
+						"// Linking " + name,
+						glGetProgramInfoLog(program),
+						paths
+					);
+				}
 
-			glLinkProgram(program);
-
-			String[] paths = shaderTypePaths.values().toArray(String[]::new);
-			String combinedName = String.join(" + ", paths);
-			if (glGetProgrami(program, GL_LINK_STATUS) == GL_FALSE) {
-				throw ShaderException.compileError(
-					includes,
-					"// Linking " + combinedName,
-					glGetProgramInfoLog(program),
-					paths
-				);
-			}
+				if (binaryKey != null)
+					binaryCache.store(binaryKey, program, name, startNanos);
 
-			ok = true;
+				ok = true;
 
-			if (SHADER_DUMP_PATH != null) {
-				int[] numFormats = { 0 };
-				glGetIntegerv(GL41C.GL_NUM_PROGRAM_BINARY_FORMATS, numFormats);
-				if (numFormats[0] < 1) {
-					log.error("OpenGL driver does not support any binary formats");
-				} else {
-					int[] size = { 0 };
-					glGetProgramiv(program, GL41C.GL_PROGRAM_BINARY_LENGTH, size);
+				if (SHADER_DUMP_PATH != null) {
+					int[] numFormats = { 0 };
+					glGetIntegerv(GL41C.GL_NUM_PROGRAM_BINARY_FORMATS, numFormats);
+					if (numFormats[0] < 1) {
+						log.error("OpenGL driver does not support any binary formats");
+					} else {
+						int[] size = { 0 };
+						glGetProgramiv(program, GL41C.GL_PROGRAM_BINARY_LENGTH, size);
 
-					int[] format = { 0 };
-					ByteBuffer binary = BufferUtils.createByteBuffer(size[0]);
-					GL41C.glGetProgramBinary(program, size, format, binary);
+						int[] format = { 0 };
+						ByteBuffer binary = BufferUtils.createByteBuffer(size[0]);
+						GL41C.glGetProgramBinary(program, size, format, binary);
 
-					SHADER_DUMP_PATH.resolve("binaries", combinedName + ".bin").mkdirs().writeByteBuffer(binary);
+						SHADER_DUMP_PATH.resolve("binaries", name + ".bin").mkdirs().writeByteBuffer(binary);
+					}
+				}
+			} finally {
+				deleteShaders();
+				if (!ok) {
+					glDeleteProgram(program);
+					program = 0;
 				}
 			}
-		} finally {
-			while (i > 0) {
-				int shader = shaders[--i];
-				glDetachShader(program, shader);
-				glDeleteShader(shader);
-			}
 
-			if (!ok)
+			return program;
+		}
+
+		/**
+		 * Discards the program without waiting for it to finish compiling.
+		 */
+		public void destroy() {
+			deleteShaders();
+			if (program != 0)
 				glDeleteProgram(program);
+			program = 0;
 		}
 
-		return program;
+		private void deleteShaders() {
+			for (int i = 0; i < shaders.length; i++) {
+				if (shaders[i] == 0)
+					continue;
+				glDetachShader(program, shaders[i]);
+				glDeleteShader(shaders[i]);
+				shaders[i] = 0;
+			}
+		}
 	}
 }
@@ -26,8 +26,8 @@ public abstract class ShadowShaderProgram extends ShaderProgram {
 	}
 
 	@Override
-	public void compile(ShaderIncludes includes) throws ShaderException, IOException {
-		super.compile(includes.copy().define("SHADOW_MODE", mode));
+	public void submit(ShaderIncludes includes) throws ShaderException, IOException {
+		super.submit(includes.copy().define("SHADOW_MODE", mode));
 	}
 
 	public static class Fast extends ShadowShaderProgram {
@@ -51,13 +51,13 @@ public abstract class ShadowShaderProgram extends ShaderProgram {
 		}
 
 		@Override
-		public void compile(ShaderIncludes includes) throws ShaderException, IOException {
+		public void submit(ShaderIncludes includes) throws ShaderException, IOException {
 			if (mode == ShadowMode.DETAILED) {
 				shaderTemplate.add(GL_GEOMETRY_SHADER, "shadow_geom.glsl");
 			} else {
 				shaderTemplate.remove(GL_GEOMETRY_SHADER);
 			}
-			super.compile(includes);
+			super.submit(includes);
 		}
 	}
 }
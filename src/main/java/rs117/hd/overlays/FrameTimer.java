@@ -7,6 +7,7 @@ import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import lombok.Getter;
@@ -45,6 +46,10 @@ public class FrameTimer {
 	private final ArrayDeque<Timer> glDebugGroupStack = new ArrayDeque<>(NUM_GPU_DEBUG_GROUPS);
 	private final ArrayDeque<Listener> listeners = new ArrayDeque<>();
 	private long[] lastGCTimes;
+	private long[] lastGCCounts;
+	private int frameGarbageCollections;
+	private String frameGarbageCollectors;
+	private int frameZoneSwaps;
 
 	@RequiredArgsConstructor
 	public class AutoTimer implements AutoCloseable {
@@ -68,6 +73,26 @@ public class FrameTimer {
 	public long cumulativeError;
 	public long errorCompensation;
 
+	/**
+	 * Time from the start of the last scene load, until every zone within the camera's view had been uploaded.
+	 */
+	@Getter
+	private volatile long timeToFirstFullFrustum;
+
+	private final AtomicInteger staticAlphaSortsSkipped = new AtomicInteger();
+	private final AtomicInteger staticAlphaSortsResorted = new AtomicInteger();
+
+	/**
+	 * Static alpha models whose sort was skipped during the last frame, since the camera hadn't rotated.
+	 */
+	@Getter
+	private int lastStaticAlphaSortsSkipped;
+	/**
+	 * Static alpha models which had to be re-sorted during the last frame.
+	 */
+	@Getter
+	private int lastStaticAlphaSortsResorted;
+
 	private void initialize() {
 		clientThread.invoke(() -> {
 			int[] queryNames = new int[NUM_GPU_TIMERS * 2];
@@ -202,6 +227,22 @@ public class FrameTimer {
 			timings[timer.ordinal()] += TimeUnit.NANOSECONDS.convert(duration, unit);
 	}
 
+	public void addStaticAlphaSorts(int skipped, int resorted) {
+		if (!isActive)
+			return;
+		staticAlphaSortsSkipped.addAndGet(skipped);
+		staticAlphaSortsResorted.addAndGet(resorted);
+	}
+
+	public void recordZoneSwap() {
+		if (isActive)
+			frameZoneSwaps++;
+	}
+
+	public void recordTimeToFirstFullFrustum(long nanos) {
+		timeToFirstFullFrustum = nanos;
+	}
+
 	public void endFrameAndReset() {
 		if (HdPlugin.GL_CAPS.OpenGL43) {
 			while (!glDebugGroupStack.isEmpty()) {
@@ -217,6 +258,8 @@ public class FrameTimer {
 		long frameEndTimestamp = System.currentTimeMillis();
 
 		trackGarbageCollection();
+		lastStaticAlphaSortsSkipped = staticAlphaSortsSkipped.getAndSet(0);
+		lastStaticAlphaSortsResorted = staticAlphaSortsResorted.getAndSet(0);
 
 		int[] available = { 0 };
 		for (var timer : Timer.TIMERS) {
@@ -240,19 +283,35 @@ public class FrameTimer {
 		}
 
 		final float cpuLoad = (float) osBean.getSystemLoadAverage() / osBean.getAvailableProcessors();
-		var frameTimings = new FrameTimings(frameEndTimestamp, timings, cpuLoad);
+		var frameTimings = new FrameTimings(
+			frameEndTimestamp,
+			frameEndNanos,
+			timings,
+			cpuLoad,
+			frameGarbageCollections,
+			frameGarbageCollectors,
+			frameZoneSwaps
+		);
 		for (var listener : listeners)
 			listener.onFrameCompletion(frameTimings);
 
 		reset();
+		frameZoneSwaps = 0;
 	}
 
 	private void trackGarbageCollection() {
 		List<GarbageCollectorMXBean> garbageCollectors = ManagementFactory.getGarbageCollectorMXBeans();
-		if (lastGCTimes == null || lastGCTimes.length != garbageCollectors.size())
+		if (lastGCTimes == null || lastGCTimes.length != garbageCollectors.size()) {
 			lastGCTimes = new long[garbageCollectors.size()];
+			lastGCCounts = new long[garbageCollectors.size()];
+			// Seed the counts, so the first frame doesn't include every collection since startup
+			for (int i = 0; i < garbageCollectors.size(); i++)
+				lastGCCounts[i] = Math.max(0, garbageCollectors.get(i).getCollectionCount());
+		}
 
 		plugin.garbageCollectionCount = 0;
+		frameGarbageCollections = 0;
+		frameGarbageCollectors = null;
 		long elapsedDuration = 0;
 		for (int i = 0; i < garbageCollectors.size(); i++) {
 			var gc = garbageCollectors.get(i);
@@ -262,7 +321,15 @@ public class FrameTimer {
 				lastGCTimes[i] = time;
 				elapsedDuration += duration;
 			}
-			plugin.garbageCollectionCount += gc.getCollectionCount();
+
+			long count = gc.getCollectionCount();
+			if (count > lastGCCounts[i]) {
+				frameGarbageCollections += (int) (count - lastGCCounts[i]);
+				frameGarbageCollectors = frameGarbageCollectors == null ?
+					gc.getName() : frameGarbageCollectors + ", " + gc.getName();
+				lastGCCounts[i] = count;
+			}
+			plugin.garbageCollectionCount += count;
 		}
 
 		add(Timer.GARBAGE_COLLECTION, elapsedDuration * 1_000_000L);
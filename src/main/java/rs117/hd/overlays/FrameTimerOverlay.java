@@ -3,11 +3,13 @@ package rs117.hd.overlays;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import java.awt.Dimension;
+import java.awt.Font;
 import java.awt.Graphics2D;
 import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.Formatter;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import net.runelite.client.ui.FontManager;
 import net.runelite.client.ui.overlay.OverlayLayer;
@@ -17,12 +19,15 @@ import net.runelite.client.ui.overlay.OverlayPosition;
 import net.runelite.client.ui.overlay.components.LineComponent;
 import net.runelite.client.ui.overlay.components.TitleComponent;
 import rs117.hd.HdPlugin;
+import rs117.hd.renderer.legacy.LegacyModelPusher;
 import rs117.hd.renderer.zone.SceneManager;
 import rs117.hd.renderer.zone.WorldViewContext;
 import rs117.hd.renderer.zone.ZoneRenderer;
+import rs117.hd.renderer.zone.ZoneUploadBudget;
 import rs117.hd.utils.FrameTimingsRecorder;
 import rs117.hd.utils.NpcDisplacementCache;
 import rs117.hd.utils.collections.PooledArrayType;
+import rs117.hd.utils.jobs.JobStats;
 import rs117.hd.utils.jobs.JobSystem;
 
 import static rs117.hd.renderer.zone.SceneManager.MAX_WORLDVIEWS;
@@ -42,6 +47,9 @@ public class FrameTimerOverlay extends OverlayPanel implements FrameTimer.Listen
 	@Inject
 	private FrameTimingsRecorder frameTimingsRecorder;
 
+	@Inject
+	private HitchDetector hitchDetector;
+
 	@Inject
 	private NpcDisplacementCache npcDisplacementCache;
 
@@ -51,11 +59,21 @@ public class FrameTimerOverlay extends OverlayPanel implements FrameTimer.Listen
 	@Inject
 	private SceneManager sceneManager;
 
+	@Inject
+	private LegacyModelPusher legacyModelPusher;
+
+	@Inject
+	private ZoneUploadBudget zoneUploadBudget;
+
 	private final ArrayDeque<FrameTimings> frames = new ArrayDeque<>();
 	private final long[] timings = new long[Timer.TIMERS.length];
 	private float cpuLoad;
 	private final Map<String, LineComponent> componentMap = new HashMap<>();
 	private final StringBuilder sb = new StringBuilder();
+	private long lastWorkerStatsTime, lastWakeCount, lastWakeLatency, lastIdleBurn, lastStealCount;
+	private double avgWakeLatencyMillis, idleBurnRatio, stealsPerSecond;
+	private JobStats.Sampler jobStatsSampler;
+	private List<JobStats.Interval> jobStats = List.of();
 	private final Formatter formatter = new Formatter(sb);
 
 	@Inject
@@ -67,6 +85,7 @@ public class FrameTimerOverlay extends OverlayPanel implements FrameTimer.Listen
 	}
 
 	public void setActive(boolean activate) {
+		jobSystem.getStats().setEnabled(this, activate);
 		if (activate) {
 			frameTimer.addTimingsListener(this);
 			overlayManager.add(this);
@@ -74,6 +93,8 @@ public class FrameTimerOverlay extends OverlayPanel implements FrameTimer.Listen
 			frameTimer.removeTimingsListener(this);
 			overlayManager.remove(this);
 			frames.clear();
+			jobStatsSampler = null;
+			jobStats = List.of();
 		}
 	}
 
@@ -167,6 +188,19 @@ public class FrameTimerOverlay extends OverlayPanel implements FrameTimer.Listen
 				.right(plugin.isPowerSaving ? "ON" : "OFF")
 				.build());
 
+			if (jobSystem.isActive()) {
+				updateWorkerStats(time);
+				children.add(LineComponent.builder()
+					.left("Worker wake latency:")
+					.right(format("%.3f ms", avgWakeLatencyMillis))
+					.build());
+
+				children.add(LineComponent.builder()
+					.left("Worker idle spin:")
+					.right(format("%.1f%%", idleBurnRatio * 100))
+					.build());
+			}
+
 			children.add(LineComponent.builder()
 				.leftFont(boldFont)
 				.left("Scene stats:")
@@ -190,6 +224,15 @@ public class FrameTimerOverlay extends OverlayPanel implements FrameTimer.Listen
 					.left("Temp renderables:")
 					.right(String.valueOf(plugin.getDrawnTempRenderableCount()))
 					.build());
+
+				children.add(LineComponent.builder()
+					.left("Alpha sorts skipped:")
+					.right(format(
+						"%d/%d",
+						frameTimer.getLastStaticAlphaSortsSkipped(),
+						frameTimer.getLastStaticAlphaSortsSkipped() + frameTimer.getLastStaticAlphaSortsResorted()
+					))
+					.build());
 			} else {
 				children.add(LineComponent.builder()
 					.left("Tiles:")
@@ -210,6 +253,19 @@ public class FrameTimerOverlay extends OverlayPanel implements FrameTimer.Listen
 					.left("NPC displacement cache size:")
 					.right(String.valueOf(npcDisplacementCache.size()))
 					.build());
+
+				var diskCache = legacyModelPusher.getModelDiskCache();
+				if (diskCache != null && diskCache.isOpen()) {
+					children.add(LineComponent.builder()
+						.left("Model disk cache hit rate:")
+						.right(format("%.1f%%", diskCache.getHitRate() * 100))
+						.build());
+
+					children.add(LineComponent.builder()
+						.left("Model disk cache mapped:")
+						.right(formatBytes(diskCache.getBytesMapped()))
+						.build());
+				}
 			}
 
 			children.add(LineComponent.builder()
@@ -221,6 +277,7 @@ public class FrameTimerOverlay extends OverlayPanel implements FrameTimer.Listen
 			addTiming("Root Scene Load", root.loadTime, false);
 			addTiming("Root Scene Upload", root.uploadTime, false);
 			addTiming("Root Scene Swap", root.sceneSwapTime, false);
+			addTiming("Time To Full Frustum", frameTimer.getTimeToFirstFullFrustum(), false);
 
 			// TODO: Maybe this should be calculated somewhere else
 			int subSceneCount = 0;
@@ -255,6 +312,58 @@ public class FrameTimerOverlay extends OverlayPanel implements FrameTimer.Listen
 				.right(String.valueOf(jobSystem.getWorkQueueSize()))
 				.build());
 
+			if (plugin.renderer instanceof ZoneRenderer) {
+				long budget = zoneUploadBudget.getBytesPerFrame();
+				children.add(LineComponent.builder()
+					.left("Upload budget:")
+					.right(formatBytes(zoneUploadBudget.getLastFrameBytesMapped()) + " / " +
+						(budget > 0 ? formatBytes(budget) : "unlimited"))
+					.build());
+
+				children.add(LineComponent.builder()
+					.left("Upload backlog:")
+					.right(format(
+						"%d (%d deferred)",
+						zoneUploadBudget.getBacklogSize(),
+						zoneUploadBudget.getLastFrameDeferred()
+					))
+					.build());
+			}
+
+			if (jobSystem.isActive()) {
+				children.add(LineComponent.builder()
+					.leftFont(boldFont)
+					.left("Jobs (p99 wait / run):")
+					.build());
+
+				for (var interval : jobStats) {
+					if (interval.getCount() == 0 && interval.getStalls() == 0)
+						continue;
+					children.add(LineComponent.builder()
+						.left(interval.getName() + ":")
+						.right(format(
+							"%.2f / %.2f ms",
+							interval.getQueueLatency(.99) / 1e6,
+							interval.getRunTime(.99) / 1e6
+						))
+						.build());
+					if (interval.getStalls() > 0) {
+						children.add(LineComponent.builder()
+							.left(interval.getName() + " stalls:")
+							.right(format("%d/s", interval.getStalls()))
+							.build());
+					}
+				}
+
+				children.add(LineComponent.builder()
+					.left("Job steals:")
+					.right(format("%.0f/s", stealsPerSecond))
+					.build());
+			}
+
+			if (hitchDetector.isActive())
+				addHitchReport(boldFont);
+
 			if (frameTimingsRecorder.isCapturingSnapshot())
 				children.add(LineComponent.builder()
 					.leftFont(boldFont)
@@ -269,6 +378,86 @@ public class FrameTimerOverlay extends OverlayPanel implements FrameTimer.Listen
 		return result;
 	}
 
+	private void addHitchReport(Font boldFont) {
+		var children = panelComponent.getChildren();
+		children.add(LineComponent.builder()
+			.leftFont(boldFont)
+			.left(format("Hitches (> %d ms):", hitchDetector.getThresholdMs()))
+			.right(String.valueOf(hitchDetector.getHitchCount()))
+			.build());
+
+		var report = hitchDetector.getLastReport();
+		if (report == null)
+			return;
+
+		children.add(LineComponent.builder()
+			.left(format("Last: %.0f s ago", (System.currentTimeMillis() - report.timestamp) / 1e3))
+			.right(format("%.1f / %.1f ms", report.frameNanos / 1e6, report.baselineFrameNanos / 1e6))
+			.build());
+
+		for (int i = 0; i < min(report.causes.size(), 3); i++) {
+			var cause = report.causes.get(i);
+			children.add(LineComponent.builder()
+				.left(cause.name + ":")
+				.right(format("+%.1f ms", cause.getExcessNanos() / 1e6))
+				.build());
+		}
+
+		if (report.garbageCollections > 0) {
+			children.add(LineComponent.builder()
+				.left("Garbage collections:")
+				.right(String.valueOf(report.garbageCollections))
+				.build());
+		}
+
+		if (report.zoneSwaps > 0) {
+			children.add(LineComponent.builder()
+				.left("Zone swaps:")
+				.right(String.valueOf(report.zoneSwaps))
+				.build());
+		}
+
+		if (report.jobBacklogSpiked) {
+			children.add(LineComponent.builder()
+				.left("Job backlog:")
+				.right(String.valueOf(report.jobBacklog))
+				.build());
+		}
+	}
+
+	private void updateWorkerStats(long now) {
+		// Sample the cumulative counters once a second, to keep the numbers readable
+		long elapsed = now - lastWorkerStatsTime;
+		if (elapsed < 1e9)
+			return;
+
+		long wakeCount = jobSystem.getWakeCount();
+		long wakeLatency = jobSystem.getWakeLatencyNanos();
+		long idleBurn = jobSystem.getIdleBurnNanos();
+		long stealCount = jobSystem.getTotalStealCount();
+		if (lastWorkerStatsTime != 0) {
+			long wakes = wakeCount - lastWakeCount;
+			avgWakeLatencyMillis = wakes == 0 ? 0 : (wakeLatency - lastWakeLatency) / 1e6 / wakes;
+			idleBurnRatio = (double) (idleBurn - lastIdleBurn) / (elapsed * jobSystem.getWorkerCount());
+			// Workers are recreated when the job system restarts, resetting their counters
+			stealsPerSecond = max(0, stealCount - lastStealCount) / (elapsed / 1e9);
+		}
+
+		// The first sample only establishes a baseline
+		if (jobStatsSampler == null) {
+			jobStatsSampler = jobSystem.getStats().createSampler();
+			jobStatsSampler.sample();
+		} else {
+			jobStats = jobStatsSampler.sample();
+		}
+
+		lastWorkerStatsTime = now;
+		lastWakeCount = wakeCount;
+		lastWakeLatency = wakeLatency;
+		lastIdleBurn = idleBurn;
+		lastStealCount = stealCount;
+	}
+
 	private boolean getAverageTimings() {
 		if (frames.isEmpty())
 			return false;
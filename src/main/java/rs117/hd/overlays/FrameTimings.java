@@ -1,15 +1,34 @@
 package rs117.hd.overlays;
 
 import java.util.Arrays;
+import javax.annotation.Nullable;
 
 public class FrameTimings {
 	public final long frameTimestamp;
+	public final long frameEndNanos;
 	public final long[] timers;
 	public final float cpuLoad;
+	public final int garbageCollections;
+	// Names of the garbage collectors which ran during the frame, if any
+	@Nullable
+	public final String garbageCollectors;
+	public final int zoneSwaps;
 
-	public FrameTimings(long frameTimestamp, long[] timers, float cpuLoad) {
+	public FrameTimings(
+		long frameTimestamp,
+		long frameEndNanos,
+		long[] timers,
+		float cpuLoad,
+		int garbageCollections,
+		@Nullable String garbageCollectors,
+		int zoneSwaps
+	) {
 		this.frameTimestamp = frameTimestamp;
+		this.frameEndNanos = frameEndNanos;
 		this.timers = Arrays.copyOf(timers, timers.length);
 		this.cpuLoad = cpuLoad;
+		this.garbageCollections = garbageCollections;
+		this.garbageCollectors = garbageCollectors;
+		this.zoneSwaps = zoneSwaps;
 	}
 }
@@ -0,0 +1,189 @@
+package rs117.hd.overlays;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.client.callback.ClientThread;
+import rs117.hd.utils.jobs.JobSystem;
+
+import static rs117.hd.utils.MathUtils.*;
+
+/**
+ * Watches for frames which take longer than a threshold, and attributes them to whichever timers, job backlog, zone swaps
+ * or garbage collections stood out compared to their rolling baselines over the preceding frames.
+ */
+@Slf4j
+@Singleton
+public class HitchDetector implements FrameTimer.Listener {
+	private static final long DEFAULT_THRESHOLD_MS = 100;
+	// Weight of each new frame in the exponential moving baselines, roughly averaging over the last 64 frames
+	private static final double BASELINE_WEIGHT = 1 / 64d;
+	private static final int WARMUP_FRAMES = 64;
+	// How far above its baseline a timer needs to be to count as a cause
+	private static final double SPIKE_RATIO = 2;
+	private static final long MIN_SPIKE_NANOS = 2_000_000;
+	private static final int MIN_JOB_BACKLOG_SPIKE = 8;
+	private static final int MAX_LOGGED_CAUSES = 5;
+
+	@Inject
+	private ClientThread clientThread;
+
+	@Inject
+	private FrameTimer frameTimer;
+
+	@Inject
+	private JobSystem jobSystem;
+
+	@RequiredArgsConstructor
+	public static class Cause {
+		public final String name;
+		public final long nanos;
+		public final long baselineNanos;
+
+		public long getExcessNanos() {
+			return nanos - baselineNanos;
+		}
+	}
+
+	@RequiredArgsConstructor
+	public static class HitchReport {
+		public final long timestamp;
+		public final long frameNanos;
+		public final long baselineFrameNanos;
+		public final List<Cause> causes;
+		public final int garbageCollections;
+		@Nullable
+		public final String garbageCollectors;
+		public final int zoneSwaps;
+		public final int jobBacklog;
+		public final boolean jobBacklogSpiked;
+
+		@Override
+		public String toString() {
+			var sb = new StringBuilder();
+			sb.append(String.format("%.1f ms frame (baseline %.1f ms)", frameNanos / 1e6, baselineFrameNanos / 1e6));
+			if (causes.isEmpty()) {
+				sb.append(", no timer stood out");
+			} else {
+				sb.append(", caused by: ");
+				for (int i = 0; i < min(causes.size(), MAX_LOGGED_CAUSES); i++) {
+					var cause = causes.get(i);
+					if (i > 0)
+						sb.append(", ");
+					sb.append(String.format("%s %.1f ms (+%.1f)", cause.name, cause.nanos / 1e6, cause.getExcessNanos() / 1e6));
+				}
+			}
+			if (garbageCollections > 0)
+				sb.append(String.format("; %d GC (%s)", garbageCollections, garbageCollectors));
+			if (zoneSwaps > 0)
+				sb.append("; ").append(zoneSwaps).append(" zone swaps");
+			if (jobBacklogSpiked)
+				sb.append("; job backlog of ").append(jobBacklog);
+			return sb.toString();
+		}
+	}
+
+	private final double[] timerBaselines = new double[Timer.TIMERS.length];
+	private double frameBaseline;
+	private double jobBacklogBaseline;
+	private double zoneSwapBaseline;
+	private long lastFrameEndNanos;
+	private int frameCount;
+
+	@Getter
+	private boolean isActive;
+	@Getter
+	private long thresholdMs = DEFAULT_THRESHOLD_MS;
+	@Getter
+	@Nullable
+	private volatile HitchReport lastReport;
+	@Getter
+	private int hitchCount;
+
+	/**
+	 * @param thresholdMs the frame time in milliseconds which counts as a hitch, or 0 for the default
+	 */
+	public void setActive(boolean activate, long thresholdMs) {
+		clientThread.invoke(() -> {
+			this.thresholdMs = thresholdMs > 0 ? thresholdMs : DEFAULT_THRESHOLD_MS;
+			if (activate == isActive)
+				return;
+
+			isActive = activate;
+			if (activate) {
+				frameCount = 0;
+				lastFrameEndNanos = 0;
+				hitchCount = 0;
+				lastReport = null;
+				frameTimer.addTimingsListener(this);
+				log.info("Reporting frames slower than {} ms", this.thresholdMs);
+			} else {
+				frameTimer.removeTimingsListener(this);
+			}
+		});
+	}
+
+	@Override
+	public void onFrameCompletion(FrameTimings timings) {
+		final long[] timers = timings.timers;
+		// Measure the whole time between frames, since hitches often happen outside of the draw callbacks
+		long frameNanos = timers[Timer.DRAW_FRAME.ordinal()];
+		if (lastFrameEndNanos != 0)
+			frameNanos = max(frameNanos, timings.frameEndNanos - lastFrameEndNanos);
+		lastFrameEndNanos = timings.frameEndNanos;
+
+		final int jobBacklog = jobSystem.getWorkQueueSize();
+		if (frameCount >= WARMUP_FRAMES && frameNanos > thresholdMs * 1_000_000) {
+			report(timings, frameNanos, jobBacklog);
+			// Leave the baselines untouched, so a burst of hitches doesn't become the new normal
+			return;
+		}
+
+		double weight = frameCount < WARMUP_FRAMES ? 1d / (frameCount + 1) : BASELINE_WEIGHT;
+		for (int i = 0; i < timers.length; i++)
+			timerBaselines[i] += (timers[i] - timerBaselines[i]) * weight;
+		frameBaseline += (frameNanos - frameBaseline) * weight;
+		jobBacklogBaseline += (jobBacklog - jobBacklogBaseline) * weight;
+		zoneSwapBaseline += (timings.zoneSwaps - zoneSwapBaseline) * weight;
+		frameCount++;
+	}
+
+	private void report(FrameTimings timings, long frameNanos, int jobBacklog) {
+		var causes = new ArrayList<Cause>();
+		for (var timer : Timer.TIMERS) {
+			// The frame's total would otherwise always be listed as its own cause
+			if (timer == Timer.DRAW_FRAME)
+				continue;
+
+			long nanos = timings.timers[timer.ordinal()];
+			long baseline = (long) timerBaselines[timer.ordinal()];
+			if (nanos > baseline * SPIKE_RATIO && nanos - baseline > MIN_SPIKE_NANOS)
+				causes.add(new Cause(timer.name, nanos, baseline));
+		}
+		causes.sort((a, b) -> Long.compare(b.getExcessNanos(), a.getExcessNanos()));
+
+		// Only attribute the hitch to the job backlog and zone swaps when they're unusual
+		boolean jobBacklogSpiked = jobBacklog > jobBacklogBaseline * SPIKE_RATIO + MIN_JOB_BACKLOG_SPIKE;
+		boolean zoneSwapsSpiked = timings.zoneSwaps > zoneSwapBaseline * SPIKE_RATIO;
+
+		var report = new HitchReport(
+			timings.frameTimestamp,
+			frameNanos,
+			(long) frameBaseline,
+			causes,
+			timings.garbageCollections,
+			timings.garbageCollectors,
+			zoneSwapsSpiked ? timings.zoneSwaps : 0,
+			jobBacklog,
+			jobBacklogSpiked
+		);
+		lastReport = report;
+		hitchCount++;
+		log.warn("Hitch detected: {}", report);
+	}
+}
@@ -59,6 +59,10 @@ public enum Timer {
 	DRAW_TEMP_ASYNC(ASYNC_CPU_TIMER),
 	DRAW_DYNAMIC_ASYNC(ASYNC_CPU_TIMER),
 	STATIC_ALPHA_SORT(ASYNC_CPU_TIMER),
+	GENERATE_MAIN_TILE_OVERRIDES(ASYNC_CPU_TIMER),
+	GENERATE_UNDERWATER_TERRAIN(ASYNC_CPU_TIMER),
+	GENERATE_TERRAIN_NORMALS(ASYNC_CPU_TIMER),
+	GENERATE_TERRAIN_DATA(ASYNC_CPU_TIMER),
 
 	// GPU timers
 	RENDER_FRAME(GPU_TIMER),
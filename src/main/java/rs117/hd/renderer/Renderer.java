@@ -5,6 +5,7 @@ import java.util.Set;
 import javax.annotation.Nullable;
 import net.runelite.api.hooks.*;
 import org.lwjgl.opengl.*;
+import rs117.hd.opengl.shader.ShaderCompileBatch;
 import rs117.hd.opengl.shader.ShaderException;
 import rs117.hd.opengl.shader.ShaderIncludes;
 import rs117.hd.scene.SceneContext;
@@ -19,7 +20,7 @@ public interface Renderer extends DrawCallbacks {
 	default void initialize() {}
 	default void destroy() {}
 	default void addShaderIncludes(ShaderIncludes includes) {}
-	default void initializeShaders(ShaderIncludes includes) throws ShaderException, IOException {}
+	default void initializeShaders(ShaderIncludes includes, ShaderCompileBatch batch) throws ShaderException, IOException {}
 	default void destroyShaders() {}
 	default void waitUntilIdle() {}
 	default void processConfigChanges(Set<String> keys) {}
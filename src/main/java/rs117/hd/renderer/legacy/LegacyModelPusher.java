@@ -3,6 +3,8 @@ package rs117.hd.renderer.legacy;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.util.Arrays;
+import java.util.Objects;
+import java.util.TreeSet;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -13,10 +15,12 @@ import net.runelite.api.gameval.ItemID;
 import net.runelite.api.kit.*;
 import net.runelite.client.RuneLite;
 import net.runelite.client.callback.ClientThread;
+import net.runelite.client.config.ConfigManager;
 import net.runelite.client.util.LinkBrowser;
 import rs117.hd.HdPlugin;
 import rs117.hd.HdPluginConfig;
-import rs117.hd.model.ModelCache;
+import rs117.hd.model.ConcurrentModelCache;
+import rs117.hd.model.ModelDiskCache;
 import rs117.hd.model.ModelHasher;
 import rs117.hd.overlays.FrameTimer;
 import rs117.hd.overlays.Timer;
@@ -33,6 +37,7 @@ import rs117.hd.scene.water_types.WaterType;
 import rs117.hd.utils.HDUtils;
 import rs117.hd.utils.ModelHash;
 import rs117.hd.utils.PopupUtils;
+import rs117.hd.utils.ResourcePath;
 
 import static rs117.hd.HdPlugin.MAX_FACE_COUNT;
 import static rs117.hd.scene.tile_overrides.TileOverride.OVERLAY_FLAG;
@@ -67,12 +72,18 @@ public class LegacyModelPusher {
 	@Inject
 	private FrameTimer frameTimer;
 
+	@Inject
+	private ConfigManager configManager;
+
 	public static final int DATUM_PER_FACE = 12;
 
+	private static final ResourcePath DISK_CACHE_PATH = HdPlugin.PLUGIN_DIR.resolve("model-cache");
+
 	private static final int[] ZEROED_INTS = new int[12];
+	private static final int MAX_CACHE_SHARDS = 8;
 
 	private final int[] tzHaarRecolored = new int[3];
-	private ModelCache modelCache;
+	private ConcurrentModelCache modelCache;
 
 	public void startUp() {
 		assert WindDisplacement.values().length - 1 <= 0x7;
@@ -80,10 +91,13 @@ public class LegacyModelPusher {
 		if (plugin.configModelCaching && !plugin.useLowMemoryMode) {
 			final int size = config.modelCacheSizeMiB();
 			try {
-				modelCache = new ModelCache(size, () -> {
+				modelCache = new ConcurrentModelCache(size, MAX_CACHE_SHARDS, () -> {
 					shutDown();
 					plugin.stopPlugin();
 				});
+				modelCache.setEvictionPolicy(config.modelCacheEvictionPolicy());
+				if (config.modelDiskCache())
+					modelCache.setDiskCache(new ModelDiskCache(DISK_CACHE_PATH, config.modelDiskCacheSizeMiB()));
 			} catch (Throwable err) {
 				log.error("Error while initializing model cache. Stopping the plugin...", err);
 
@@ -148,6 +162,44 @@ public class LegacyModelPusher {
 		}
 	}
 
+	public void updateEvictionPolicy() {
+		if (modelCache != null)
+			modelCache.setEvictionPolicy(config.modelCacheEvictionPolicy());
+	}
+
+	@Nullable
+	public ConcurrentModelCache getModelCache() {
+		return modelCache;
+	}
+
+	@Nullable
+	public ModelDiskCache getModelDiskCache() {
+		return modelCache == null ? null : modelCache.getDiskCache();
+	}
+
+	/**
+	 * Hash any state which affects the cached model data, without being part of the model hashes themselves.
+	 * Since settings and materials are baked into the data, any change to them invalidates the disk cache.
+	 */
+	private long computeDiskCacheFingerprint() {
+		long h = 1;
+		String prefix = HdPluginConfig.CONFIG_GROUP + ".";
+		for (String key : new TreeSet<>(configManager.getConfigurationKeys(prefix))) {
+			key = key.substring(prefix.length());
+			h = h * 31L + key.hashCode();
+			h = h * 31L + Objects.hashCode(configManager.getConfiguration(HdPluginConfig.CONFIG_GROUP, key));
+		}
+
+		if (MaterialManager.MATERIALS != null) {
+			for (var material : MaterialManager.MATERIALS) {
+				h = h * 31L + Objects.hashCode(material.name);
+				h = h * 31L + material.uboIndex;
+			}
+		}
+
+		return h;
+	}
+
 	/**
 	 * Pushes model data to staging buffers in the provided {@link LegacySceneContext}, and writes the pushed number of
 	 * vertices and UVs to {@link LegacySceneContext#modelPusherResults}.
@@ -206,30 +258,22 @@ public class LegacyModelPusher {
 		boolean foundCachedUvData = skipUVs;
 
 		if (useCache) {
-			assert client.isClientThread() : "Model caching isn't thread-safe";
-
-			IntBuffer vertexData = this.modelCache.getIntBuffer(modelHasher.vertexHash);
-			foundCachedVertexData = vertexData != null && vertexData.remaining() == bufferSize;
-			if (foundCachedVertexData) {
-				sceneContext.stagingBufferVertices.put(vertexData);
-				vertexData.rewind();
-			}
+			// The cache itself is thread-safe, but the scene's scratch arrays and the model hasher aren't
+			assert client.isClientThread() : "Model pushing isn't thread-safe";
 
-			FloatBuffer normalData = this.modelCache.getFloatBuffer(modelHasher.normalHash);
-			foundCachedNormalData = normalData != null && normalData.remaining() == bufferSize;
-			if (foundCachedNormalData) {
-				sceneContext.stagingBufferNormals.put(normalData);
-				normalData.rewind();
-			}
+			var diskCache = modelCache.getDiskCache();
+			if (diskCache != null && !diskCache.isOpen())
+				modelCache.openDiskCache(computeDiskCacheFingerprint());
 
+			foundCachedVertexData = modelCache.copyIntBuffer(
+				modelHasher.vertexHash, sceneContext.stagingBufferVertices.getBuffer(), bufferSize);
+			foundCachedNormalData = modelCache.copyFloatBuffer(
+				modelHasher.normalHash, sceneContext.stagingBufferNormals.getBuffer(), bufferSize);
 			if (!foundCachedUvData) {
-				FloatBuffer uvData = this.modelCache.getFloatBuffer(modelHasher.uvHash);
-				foundCachedUvData = uvData != null && uvData.remaining() == bufferSize;
-				if (foundCachedUvData) {
+				foundCachedUvData = modelCache.copyFloatBuffer(
+					modelHasher.uvHash, sceneContext.stagingBufferUvs.getBuffer(), bufferSize);
+				if (foundCachedUvData)
 					texturedFaceCount = faceCount;
-					sceneContext.stagingBufferUvs.put(uvData);
-					uvData.rewind();
-				}
 			}
 
 			if (foundCachedVertexData && foundCachedNormalData && foundCachedUvData) {
@@ -239,42 +283,13 @@ public class LegacyModelPusher {
 			}
 		}
 
-		IntBuffer fullVertexData = null;
-		FloatBuffer fullNormalData = null;
-		FloatBuffer fullUvData = null;
-
-		boolean cacheVertexData = false;
-		boolean cacheNormalData = false;
-		boolean cacheUvData = false;
-		if (useCache) {
-			cacheVertexData = !foundCachedVertexData;
-			cacheNormalData = !foundCachedNormalData;
-			cacheUvData = !foundCachedUvData;
-
-			if (cacheVertexData) {
-				fullVertexData = this.modelCache.reserveIntBuffer(modelHasher.vertexHash, bufferSize);
-				if (fullVertexData == null) {
-					log.error("failed to reserve vertex buffer");
-					cacheVertexData = false;
-				}
-			}
-
-			if (cacheNormalData) {
-				fullNormalData = this.modelCache.reserveFloatBuffer(modelHasher.normalHash, bufferSize);
-				if (fullNormalData == null) {
-					log.error("failed to reserve normal buffer");
-					cacheNormalData = false;
-				}
-			}
-
-			if (cacheUvData) {
-				fullUvData = this.modelCache.reserveFloatBuffer(modelHasher.uvHash, bufferSize);
-				if (fullUvData == null) {
-					log.error("failed to reserve uv buffer");
-					cacheUvData = false;
-				}
-			}
-		}
+		// Newly generated data is copied into the cache from the staging buffers, once the model has been pushed
+		boolean cacheVertexData = useCache && !foundCachedVertexData;
+		boolean cacheNormalData = useCache && !foundCachedNormalData;
+		boolean cacheUvData = useCache && !foundCachedUvData;
+		int vertexOffset = sceneContext.stagingBufferVertices.position();
+		int normalOffset = sceneContext.stagingBufferNormals.position();
+		int uvOffset = skipUVs ? 0 : sceneContext.stagingBufferUvs.position();
 
 		if (!foundCachedVertexData) {
 			if (plugin.enableDetailedTimers)
@@ -284,8 +299,6 @@ public class LegacyModelPusher {
 			for (int face = 0; face < faceCount; face++) {
 				int[] data = getFaceVertices(sceneContext, tile, uuid, model, modelOverride, face);
 				sceneContext.stagingBufferVertices.put(data);
-				if (cacheVertexData)
-					fullVertexData.put(data);
 			}
 			modelOverride.revertRotation(model);
 
@@ -300,8 +313,6 @@ public class LegacyModelPusher {
 			for (int face = 0; face < faceCount; face++) {
 				getNormalDataForFace(sceneContext, model, modelOverride, face);
 				sceneContext.stagingBufferNormals.put(sceneContext.modelFaceNormals);
-				if (cacheNormalData)
-					fullNormalData.put(sceneContext.modelFaceNormals);
 			}
 
 			if (plugin.enableDetailedTimers)
@@ -366,8 +377,6 @@ public class LegacyModelPusher {
 				}
 
 				sceneContext.stagingBufferUvs.put(uvData);
-				if (cacheUvData)
-					fullUvData.put(uvData);
 
 				++texturedFaceCount;
 			}
@@ -376,12 +385,27 @@ public class LegacyModelPusher {
 				frameTimer.end(Timer.MODEL_PUSHING_UV);
 		}
 
-		if (cacheVertexData)
-			fullVertexData.flip();
-		if (cacheNormalData)
-			fullNormalData.flip();
-		if (cacheUvData)
-			fullUvData.flip();
+		if (cacheVertexData && !modelCache.putInts(
+			modelHasher.vertexHash,
+			sceneContext.stagingBufferVertices.getBuffer(),
+			vertexOffset,
+			sceneContext.stagingBufferVertices.position() - vertexOffset
+		))
+			log.error("failed to reserve vertex buffer");
+		if (cacheNormalData && !modelCache.putFloats(
+			modelHasher.normalHash,
+			sceneContext.stagingBufferNormals.getBuffer(),
+			normalOffset,
+			sceneContext.stagingBufferNormals.position() - normalOffset
+		))
+			log.error("failed to reserve normal buffer");
+		if (cacheUvData && !modelCache.putFloats(
+			modelHasher.uvHash,
+			sceneContext.stagingBufferUvs.getBuffer(),
+			uvOffset,
+			sceneContext.stagingBufferUvs.position() - uvOffset
+		))
+			log.error("failed to reserve uv buffer");
 
 		sceneContext.modelPusherResults[0] = faceCount;
 		sceneContext.modelPusherResults[1] = texturedFaceCount;
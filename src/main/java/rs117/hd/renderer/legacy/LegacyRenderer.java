@@ -33,6 +33,7 @@ import rs117.hd.opengl.compute.OpenCLManager;
 import rs117.hd.opengl.shader.ModelPassthroughComputeProgram;
 import rs117.hd.opengl.shader.ModelSortingComputeProgram;
 import rs117.hd.opengl.shader.SceneShaderProgram;
+import rs117.hd.opengl.shader.ShaderCompileBatch;
 import rs117.hd.opengl.shader.ShaderException;
 import rs117.hd.opengl.shader.ShaderIncludes;
 import rs117.hd.opengl.shader.ShadowShaderProgram;
@@ -262,9 +263,16 @@ public class LegacyRenderer implements Renderer {
 
 	@Override
 	public void processConfigChanges(Set<String> keys) {
-		if (keys.contains(KEY_MODEL_CACHING) || keys.contains(KEY_MODEL_CACHE_SIZE)) {
+		if (
+			keys.contains(KEY_MODEL_CACHING) ||
+			keys.contains(KEY_MODEL_CACHE_SIZE) ||
+			keys.contains(KEY_MODEL_DISK_CACHE) ||
+			keys.contains(KEY_MODEL_DISK_CACHE_SIZE)
+		) {
 			modelPusher.shutDown();
 			modelPusher.startUp();
+		} else if (keys.contains(KEY_MODEL_CACHE_EVICTION_POLICY)) {
+			modelPusher.updateEvictionPolicy();
 		}
 	}
 
@@ -279,16 +287,16 @@ public class LegacyRenderer implements Renderer {
 	}
 
 	@Override
-	public void initializeShaders(ShaderIncludes includes) throws ShaderException, IOException {
-		sceneProgram.compile(includes);
+	public void initializeShaders(ShaderIncludes includes, ShaderCompileBatch batch) throws ShaderException, IOException {
+		batch.submit(sceneProgram, includes);
 
 		shadowProgram.setMode(plugin.configShadowMode);
-		shadowProgram.compile(includes);
+		batch.submit(shadowProgram, includes);
 
 		if (computeMode == ComputeMode.OPENCL) {
 			clManager.initializePrograms();
 		} else {
-			modelPassthroughComputeProgram.compile(includes);
+			batch.submit(modelPassthroughComputeProgram, includes);
 
 			for (int i = 0; i < numSortingBins; i++) {
 				int faceCount = modelSortingBinFaceCounts[i];
@@ -296,7 +304,7 @@ public class LegacyRenderer implements Renderer {
 				int facesPerThread = ceil((float) faceCount / threadCount);
 				var program = new ModelSortingComputeProgram(threadCount, facesPerThread);
 				modelSortingComputePrograms.add(program);
-				program.compile(includes);
+				batch.submit(program, includes);
 			}
 		}
 	}
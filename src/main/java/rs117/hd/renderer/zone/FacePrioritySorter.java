@@ -38,7 +38,14 @@ import static rs117.hd.utils.MathUtils.*;
 public final class FacePrioritySorter implements AutoCloseable {
 	public static ConcurrentPool<FacePrioritySorter> POOL;
 
-	public static final int MAX_FACE_COUNT = 8192;
+	static final int STATIC_SORT_SKIPPED = 0;
+	static final int STATIC_SORT_ADAPTIVE = 1;
+	static final int STATIC_SORT_FULL = 2;
+
+	private static final int FACE_INDEX_BITS = 13;
+	public static final int MAX_FACE_COUNT = 1 << FACE_INDEX_BITS;
+	private static final int MAX_ADAPTIVE_SORT_ANGLE = 16; // in fixed-point units, out of 2048 for a full turn
+	private static final int MAX_ADAPTIVE_SORT_SHIFTS_PER_FACE = 4;
 	private static final int MAX_DIAMETER = 6000;
 	private static final int MAX_FACES_PER_PRIORITY = 4000;
 	private static final int PRIORITY_COUNT = 12;
@@ -200,15 +207,39 @@ public final class FacePrioritySorter implements AutoCloseable {
 		}
 	}
 
-	void sortStaticModelFacesByDistance(
+	/**
+	 * Sort a static model's faces back to front, unless its order can't have changed since the last time it was sorted.
+	 * The sorted order only depends on the camera's fixed yaw and pitch, since faces are projected onto the view axis
+	 * in model space. For small camera movements, the previous order is used as a nearly sorted starting point.
+	 *
+	 * @return {@link #STATIC_SORT_SKIPPED}, {@link #STATIC_SORT_ADAPTIVE} or {@link #STATIC_SORT_FULL}
+	 */
+	int sortStaticModelFacesByDistance(
 		Zone.AlphaModel m,
+		int yaw, int pitch,
 		int yawCos, int yawSin,
 		int pitchCos, int pitchSin
 	) {
+		final int start = m.startpos / (VERT_SIZE >> 2);
+		final boolean hasPreviousOrder = m.sortedYaw != -1 && m.sortedStart == start;
+		if (hasPreviousOrder && m.sortedYaw == yaw && m.sortedPitch == pitch)
+			return STATIC_SORT_SKIPPED;
+
+		final boolean smallChange = hasPreviousOrder &&
+			abs(((yaw - m.sortedYaw + 1024) & 2047) - 1024) <= MAX_ADAPTIVE_SORT_ANGLE &&
+			abs(pitch - m.sortedPitch) <= MAX_ADAPTIVE_SORT_ANGLE;
+		m.sortedYaw = yaw;
+		m.sortedPitch = pitch;
+		m.sortedStart = start;
+
+		if (smallChange && resortStaticModelFaces(m, start, yawCos, yawSin, pitchCos, pitchSin))
+			return STATIC_SORT_ADAPTIVE;
+
+		m.sortedFacesLen = 0;
 		final int radius = m.radius;
 		final int diameter = 1 + radius * 2;
 		if (diameter >= MAX_DIAMETER)
-			return;
+			return STATIC_SORT_FULL;
 
 		final int faceCount = m.packedFaces.length;
 		ensureCapacity(diameter, faceCount);
@@ -224,16 +255,7 @@ public final class FacePrioritySorter implements AutoCloseable {
 
 		int minFz = diameter, maxFz = 0;
 		for (int i = 0; i < faceCount; ++i) {
-			final int packed = packedFaces[i];
-			final short x = (short) (packed >> 21);
-			final short y = (short) ((packed << 11) >> 22);
-			final short z = (short) ((packed << 21) >> 21);
-
-			// We do rotations with 16 bits of extra precision, which we discard post-rotation.
-			// Very little of this can actually be pre-computed without discarding that precision.
-			int fz = (z * yawCos - x * yawSin) >> 16;
-			fz = ((y * pitchSin + fz * pitchCos) >> 16) + radius;
-
+			final int fz = staticFaceDistance(packedFaces[i], radius, yawCos, yawSin, pitchCos, pitchSin);
 			final int tailFaceIdx = zsortTail[fz];
 			if (tailFaceIdx == -1) {
 				zsortHead[fz] = i;
@@ -248,7 +270,6 @@ public final class FacePrioritySorter implements AutoCloseable {
 			zsortNext[i] = -1;
 		}
 
-		final int start = m.startpos / (VERT_SIZE >> 2);
 		for (int i = maxFz; i >= minFz; --i) {
 			for (int f = zsortHead[i]; f != -1; f = zsortNext[f]) {
 				if (f >= faceCount)
@@ -262,9 +283,76 @@ public final class FacePrioritySorter implements AutoCloseable {
 				m.sortedFacesLen += 3;
 
 				if (m.sortedFacesLen >= sortedFaces.length)
-					return;
+					return STATIC_SORT_FULL;
 			}
 		}
+
+		return STATIC_SORT_FULL;
+	}
+
+	/**
+	 * Insertion sort the faces, starting from the previous order, which is cheap as long as few faces swap places.
+	 * Ties are broken by face index, so the result is identical to the bucket sort's.
+	 *
+	 * @return false if the previous order can't be reused, or too many faces moved, in which case nothing is written
+	 */
+	private boolean resortStaticModelFaces(
+		Zone.AlphaModel m,
+		int start,
+		int yawCos, int yawSin,
+		int pitchCos, int pitchSin
+	) {
+		final int faceCount = m.packedFaces.length;
+		final int diameter = 1 + m.radius * 2;
+		// Only models whose faces were all sorted last time have a complete order to start from
+		if (diameter >= MAX_DIAMETER || faceCount > MAX_FACE_COUNT ||
+			m.sortedFaces.length != faceCount * 3 || m.sortedFacesLen != faceCount * 3)
+			return false;
+
+		ensureCapacity(diameter, faceCount);
+
+		final int[] packedFaces = m.packedFaces;
+		final int[] sortedFaces = m.sortedFaces;
+		final int[] keys = this.zsortNext;
+		final int radius = m.radius;
+		final int maxShifts = faceCount * MAX_ADAPTIVE_SORT_SHIFTS_PER_FACE;
+
+		int shifts = 0;
+		for (int i = 0; i < faceCount; ++i) {
+			final int f = (sortedFaces[i * 3] - start) / 3;
+			final int fz = staticFaceDistance(packedFaces[f], radius, yawCos, yawSin, pitchCos, pitchSin);
+			// Ascending keys sort faces by descending distance, then by ascending face index
+			final int key = (MAX_DIAMETER - fz) << FACE_INDEX_BITS | f;
+
+			int j = i;
+			for (; j > 0 && keys[j - 1] > key; --j)
+				keys[j] = keys[j - 1];
+			keys[j] = key;
+
+			shifts += i - j;
+			if (shifts > maxShifts)
+				return false;
+		}
+
+		for (int i = 0; i < faceCount; ++i) {
+			final int faceStart = (keys[i] & (MAX_FACE_COUNT - 1)) * 3 + start;
+			sortedFaces[i * 3] = faceStart;
+			sortedFaces[i * 3 + 1] = faceStart + 1;
+			sortedFaces[i * 3 + 2] = faceStart + 2;
+		}
+
+		return true;
+	}
+
+	private static int staticFaceDistance(int packed, int radius, int yawCos, int yawSin, int pitchCos, int pitchSin) {
+		final short x = (short) (packed >> 21);
+		final short y = (short) ((packed << 11) >> 22);
+		final short z = (short) ((packed << 21) >> 21);
+
+		// We do rotations with 16 bits of extra precision, which we discard post-rotation.
+		// Very little of this can actually be pre-computed without discarding that precision.
+		int fz = (z * yawCos - x * yawSin) >> 16;
+		return ((y * pitchSin + fz * pitchCos) >> 16) + radius;
 	}
 
 	@Override
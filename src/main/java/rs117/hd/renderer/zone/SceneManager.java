@@ -31,13 +31,16 @@ import rs117.hd.scene.LightManager;
 import rs117.hd.scene.ProceduralGenerator;
 import rs117.hd.scene.areas.AABB;
 import rs117.hd.scene.areas.Area;
+import rs117.hd.utils.Camera;
 import rs117.hd.utils.DestructibleHandler;
 import rs117.hd.utils.NpcDisplacementCache;
 import rs117.hd.utils.collections.Int2IntHashMap;
 import rs117.hd.utils.collections.PooledArrayType;
 import rs117.hd.utils.jobs.GenericJob;
+import rs117.hd.utils.jobs.JobSystem;
 
 import static net.runelite.api.Constants.*;
+import static net.runelite.api.Perspective.LOCAL_TILE_SIZE;
 import static net.runelite.api.Perspective.SCENE_SIZE;
 import static rs117.hd.HdPlugin.checkGLErrors;
 import static rs117.hd.renderer.zone.WorldViewContext.DYNAMIC_MODEL_VAO_POOL;
@@ -51,6 +54,10 @@ public class SceneManager {
 	public static final int NUM_ZONES = EXTENDED_SCENE_SIZE >> 3;
 
 	private static final int ZONE_DEFER_DIST_START = 3;
+	// Zones outside the view frustum are uploaded as if they were this many zones further away
+	private static final float OUTSIDE_FRUSTUM_PENALTY = 8;
+	// Pending uploads are re-prioritized when the camera turns by more than ~20 degrees, or the player moves a zone
+	private static final float REPRIORITIZE_TURN_THRESHOLD = .12f;
 
 	@Inject
 	private Injector injector;
@@ -91,6 +98,12 @@ public class SceneManager {
 	@Inject
 	private FrameTimer frameTimer;
 
+	@Inject
+	private JobSystem jobSystem;
+
+	@Inject
+	private ZoneUploadBudget uploadBudget;
+
 	private UBOWorldViews uboWorldViews;
 
 	@Getter
@@ -101,8 +114,18 @@ public class SceneManager {
 	private ZoneSceneContext nextSceneContext;
 	private Zone[][] nextZones;
 	private final List<SortedZone> sortedZones = new ArrayList<>();
+	private final ZoneUploadQueue sceneLoadQueue = new ZoneUploadQueue();
 	private boolean reloadRequested;
 
+	// The focal point and camera direction zone uploads were last prioritized with, in zones of the current scene
+	private final float[] cameraForward = new float[3];
+	private float uploadFocusX = NUM_ZONES / 2f, uploadFocusZ = NUM_ZONES / 2f;
+	private float uploadForwardX, uploadForwardZ;
+	// The offset from zones in the scene being loaded to the corresponding zones in the current scene
+	private int nextZoneOffsetX, nextZoneOffsetZ;
+	private long streamingStartTimestampMs;
+	private volatile long fullFrustumStartNanos;
+
 	public boolean isZoneStreamingEnabled() {
 		return plugin.configZoneStreaming;
 	}
@@ -146,6 +169,7 @@ public class SceneManager {
 	public void destroy() {
 		eventBus.unregister(this);
 
+		sceneLoadQueue.clear();
 		root.free();
 		for (int i = 0; i < subs.length; i++) {
 			if (subs[i] != null)
@@ -180,8 +204,11 @@ public class SceneManager {
 		}
 	}
 
-	public void update() {
+	public void update(Camera sceneCamera) {
 		assert client.isClientThread();
+		uploadBudget.setLimits(plugin.configZoneUploadBudget * MiB, plugin.configZoneSwapsPerFrame);
+		uploadBudget.beginFrame();
+
 		frameTimer.begin(Timer.UPDATE_AREA_HIDING);
 		updateAreaHiding();
 		frameTimer.end(Timer.UPDATE_AREA_HIDING);
@@ -216,8 +243,19 @@ public class SceneManager {
 			}
 		}
 
+		if (updateUploadFocus(sceneCamera)) {
+			sceneLoadQueue.reprioritize(job -> getNextSceneUploadPriority(job.x, job.z));
+			if (!root.isLoading)
+				reprioritizeStreaming();
+		}
+
 		root.processZoneSwaps();
 
+		if (fullFrustumStartNanos != 0 && !root.isLoading && isFullFrustumUploaded()) {
+			frameTimer.recordTimeToFirstFullFrustum(System.nanoTime() - fullFrustumStartNanos);
+			fullFrustumStartNanos = 0;
+		}
+
 		WorldView wv = client.getTopLevelWorldView();
 		if (wv != null) {
 			for (WorldEntity we : wv.worldEntities()) {
@@ -244,6 +282,114 @@ public class SceneManager {
 		root.completeInvalidation();
 	}
 
+	/**
+	 * Updates the focal point and camera direction used to prioritize zone uploads.
+	 *
+	 * @return true if they have changed enough that pending uploads should be re-prioritized
+	 */
+	private boolean updateUploadFocus(Camera sceneCamera) {
+		final int sceneOffset = root.sceneContext.sceneOffset;
+		float focusX = sceneCamera.getPositionX();
+		float focusZ = sceneCamera.getPositionZ();
+		Player localPlayer = client.getLocalPlayer();
+		if (localPlayer != null) {
+			var lp = localPlayer.getLocalLocation();
+			focusX = lp.getX();
+			focusZ = lp.getY();
+		}
+		focusX = (focusX / LOCAL_TILE_SIZE + sceneOffset) / CHUNK_SIZE;
+		focusZ = (focusZ / LOCAL_TILE_SIZE + sceneOffset) / CHUNK_SIZE;
+
+		// Only the horizontal direction matters, and looking straight down favors no particular direction
+		sceneCamera.getForwardDirection(cameraForward);
+		float forwardX = cameraForward[0];
+		float forwardZ = cameraForward[2];
+		float length = sqrt(forwardX * forwardX + forwardZ * forwardZ);
+		if (length < .01f) {
+			forwardX = forwardZ = 0;
+		} else {
+			forwardX /= length;
+			forwardZ /= length;
+		}
+
+		float turnX = forwardX - uploadForwardX;
+		float turnZ = forwardZ - uploadForwardZ;
+		boolean hasTurned = turnX * turnX + turnZ * turnZ > REPRIORITIZE_TURN_THRESHOLD;
+		boolean hasMoved = abs(focusX - uploadFocusX) + abs(focusZ - uploadFocusZ) > 1;
+		if (!hasTurned && !hasMoved)
+			return false;
+
+		uploadFocusX = focusX;
+		uploadFocusZ = focusZ;
+		uploadForwardX = forwardX;
+		uploadForwardZ = forwardZ;
+		return true;
+	}
+
+	/**
+	 * Zones are prioritized by their distance from the focal point, where zones behind the camera count as being up to
+	 * three times as far away, and zones outside the view frustum, as last determined by
+	 * {@link ZoneRenderer#zoneInFrustum}, are pushed further back. Lower values are uploaded first.
+	 */
+	private float getZoneUploadPriority(float focusX, float focusZ, int zx, int zz, boolean inFrustum) {
+		float dx = zx + .5f - focusX;
+		float dz = zz + .5f - focusZ;
+		float dist = sqrt(dx * dx + dz * dz);
+		float facing = dist < 1 ? 1 : (dx * uploadForwardX + dz * uploadForwardZ) / dist;
+		float priority = dist * (2 - facing);
+		if (!inFrustum)
+			priority += OUTSIDE_FRUSTUM_PENALTY;
+		return priority;
+	}
+
+	private float getNextSceneUploadPriority(int zx, int zz) {
+		// The player is always near the center of a newly loaded scene
+		int ox = zx + nextZoneOffsetX;
+		int oz = zz + nextZoneOffsetZ;
+		boolean inFrustum = ox >= 0 && ox < NUM_ZONES && oz >= 0 && oz < NUM_ZONES && root.zones[ox][oz].inSceneFrustum;
+		return getZoneUploadPriority(NUM_ZONES / 2f, NUM_ZONES / 2f, zx, zz, inFrustum);
+	}
+
+	private static long getRevealDelayMs(float priority) {
+		return ceil(clamp(priority / 15.0f, 0.25f, 1.5f) * 1000.0f);
+	}
+
+	/**
+	 * Recalculates when zones deferred by a staggered scene load should start uploading, in order of priority.
+	 */
+	private void reprioritizeStreaming() {
+		if (streamingStartTimestampMs == 0)
+			return;
+
+		boolean hasPendingUploads = false;
+		for (int x = 0; x < NUM_ZONES; x++) {
+			for (int z = 0; z < NUM_ZONES; z++) {
+				Zone zone = root.zones[x][z];
+				ZoneUploadJob job = zone.uploadJob;
+				if (job == null || job.isQueued() || job.revealAfterTimestampMs <= 0)
+					continue;
+
+				job.priority = getZoneUploadPriority(uploadFocusX, uploadFocusZ, x, z, zone.inSceneFrustum);
+				job.revealAfterTimestampMs = streamingStartTimestampMs + getRevealDelayMs(job.priority);
+				hasPendingUploads = true;
+			}
+		}
+
+		if (!hasPendingUploads)
+			streamingStartTimestampMs = 0;
+	}
+
+	private boolean isFullFrustumUploaded() {
+		for (int x = 0; x < NUM_ZONES; x++) {
+			for (int z = 0; z < NUM_ZONES; z++) {
+				Zone zone = root.zones[x][z];
+				if (zone.inSceneFrustum && zone.uploadJob != null)
+					return false;
+			}
+		}
+		return true;
+	}
+
 	private void updateAreaHiding() {
 		Player localPlayer = client.getLocalPlayer();
 		if (!isTopLevelValid() || localPlayer == null || root.isLoading)
@@ -320,6 +466,10 @@ public class SceneManager {
 	public boolean isLoadingScene() { return nextSceneContext != null; }
 
 	public void completeAllStreaming() {
+		// Jobs which were already deferred by the upload budget have completed without mapping their zone, and are only
+		// re-queued by the next zone swap, so they won't have been uploaded once this returns
+		uploadBudget.suspend();
+		sceneLoadQueue.flush();
 		root.sceneLoadGroup.complete();
 		root.streamingGroup.complete();
 		root.invalidationGroup.complete();
@@ -441,7 +591,10 @@ public class SceneManager {
 			Stopwatch sw = Stopwatch.createStarted();
 			root.loadTime = root.uploadTime = root.sceneSwapTime = 0;
 			root.isLoading = true;
+			fullFrustumStartNanos = System.nanoTime();
 
+			uploadBudget.suspend();
+			sceneLoadQueue.flush();
 			root.sceneLoadGroup.complete();
 			root.streamingGroup.complete();
 			root.invalidationGroup.complete();
@@ -536,6 +689,9 @@ public class SceneManager {
 
 			final int dx = scene.getBaseX() - prev.getBaseX() >> 3;
 			final int dy = scene.getBaseY() - prev.getBaseY() >> 3;
+			nextZoneOffsetX = dx;
+			nextZoneOffsetZ = dy;
+			sceneLoadQueue.begin(ctx.sceneLoadGroup, generateSceneDataTask, max(2, jobSystem.getWorkerCount() * 2));
 
 			if (ctx.sceneContext != null &&
 				prev.isInstance() == scene.isInstance() &&
@@ -558,8 +714,7 @@ public class SceneManager {
 						old.needsRoofUpdate = true;
 
 						if (old.hasWater || old.dirty || isEdgeTile(ctx.zones, ox, oz)) {
-							float dist = distance(vec(x, z), vec(NUM_ZONES / 2, NUM_ZONES / 2));
-							sortedZones.add(SortedZone.getZone(old, x, z, dist));
+							sortedZones.add(SortedZone.getZone(old, x, z, getNextSceneUploadPriority(x, z)));
 							nextSceneContext.totalDeferred++;
 						} else {
 							// The zone can be reused without modifications
@@ -585,13 +740,12 @@ public class SceneManager {
 
 					if (!zone.initialized) {
 						float dist = distance(vec(x, z), vec(NUM_ZONES / 2, NUM_ZONES / 2));
+						float priority = getNextSceneUploadPriority(x, z);
 						if (!staggerLoad || dist < ZONE_DEFER_DIST_START) {
-							ZoneUploadJob
-								.build(ctx, nextSceneContext, zone, true, x, z)
-								.queue(ctx.sceneLoadGroup, generateSceneDataTask);
+							sceneLoadQueue.add(ZoneUploadJob.build(ctx, nextSceneContext, zone, true, x, z), priority);
 							nextSceneContext.totalMapZones++;
 						} else {
-							sortedZones.add(SortedZone.getZone(zone, x, z, dist));
+							sortedZones.add(SortedZone.getZone(zone, x, z, priority));
 							nextSceneContext.totalDeferred++;
 						}
 					}
@@ -599,6 +753,7 @@ public class SceneManager {
 			}
 
 			long timeMs = System.currentTimeMillis();
+			streamingStartTimestampMs = staggerLoad ? timeMs : 0;
 			for (SortedZone sorted : sortedZones) {
 				Zone newZone = injector.getInstance(Zone.class);
 				newZone.dirty = sorted.zone.dirty;
@@ -607,17 +762,19 @@ public class SceneManager {
 					sorted.zone.cull = false;
 					sorted.zone.uploadJob = ZoneUploadJob
 						.build(ctx, nextSceneContext, newZone, false, sorted.x, sorted.z);
-					sorted.zone.uploadJob.revealAfterTimestampMs =
-						timeMs + ceil(clamp(sorted.dist / 15.0f, 0.25f, 1.5f) * 1000.0f);
+					sorted.zone.uploadJob.priority = sorted.priority;
+					sorted.zone.uploadJob.revealAfterTimestampMs = timeMs + getRevealDelayMs(sorted.priority);
 				} else {
 					nextZones[sorted.x][sorted.z] = newZone;
-					ZoneUploadJob
-						.build(ctx, nextSceneContext, newZone, true, sorted.x, sorted.z)
-						.queue(ctx.sceneLoadGroup, generateSceneDataTask);
+					sceneLoadQueue.add(
+						ZoneUploadJob.build(ctx, nextSceneContext, newZone, true, sorted.x, sorted.z),
+						sorted.priority
+					);
 				}
 				sorted.free();
 			}
 			sortedZones.clear();
+			sceneLoadQueue.dispatch();
 
 			root.loadTime = sw.elapsed(TimeUnit.NANOSECONDS);
 			log.debug("loadScene time: {}", sw);
@@ -680,6 +837,7 @@ public class SceneManager {
 		log.debug("swapScene - Lights: {} ms", lightsTime - roofsTime);
 
 		long sceneUploadTimeStart = sw.elapsed(TimeUnit.NANOSECONDS);
+		sceneLoadQueue.flush();
 		int blockingCount = root.sceneLoadGroup.getPendingCount();
 		root.sceneLoadGroup.complete();
 
@@ -801,16 +959,16 @@ public class SceneManager {
 
 		public Zone zone;
 		public int x, z;
-		public float dist;
+		public float priority;
 
-		public static SortedZone getZone(Zone zone, int x, int z, float dist) {
+		public static SortedZone getZone(Zone zone, int x, int z, float priority) {
 			SortedZone sorted = POOL.poll();
 			if (sorted == null)
 				sorted = new SortedZone();
 			sorted.zone = zone;
 			sorted.x = x;
 			sorted.z = z;
-			sorted.dist = dist;
+			sorted.priority = priority;
 			return sorted;
 		}
 
@@ -818,7 +976,7 @@ public class SceneManager {
 
 		@Override
 		public int compareTo(SortedZone o) {
-			return Float.compare(dist, o.dist);
+			return Float.compare(priority, o.priority);
 		}
 	}
 }
@@ -1,7 +1,9 @@
 package rs117.hd.renderer.zone;
 
 import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
 import lombok.RequiredArgsConstructor;
 import rs117.hd.overlays.FrameTimer;
 import rs117.hd.overlays.Timer;
@@ -12,8 +14,19 @@ import rs117.hd.utils.jobs.Job;
 import static net.runelite.api.Perspective.*;
 import static rs117.hd.utils.MathUtils.*;
 
+/**
+ * Sorts the faces of a batch of static alpha models, which may span several zones. The client thread can steal models
+ * which haven't been started yet, if it needs them before the batch gets to them.
+ */
 @RequiredArgsConstructor
 public final class StaticAlphaSortingJob extends Job {
+	// Rough cost of a model's bookkeeping, in terms of faces, so batches of tiny models still get split up
+	private static final int MODEL_OVERHEAD_FACES = 16;
+
+	private static final int STATE_QUEUED = 0;
+	private static final int STATE_SORTING = 1;
+	private static final int STATE_SORTED = 2;
+
 	private FrameTimer frameTimer;
 
 	private AlphaModel[] models = new AlphaModel[16];
@@ -27,6 +40,42 @@ public final class StaticAlphaSortingJob extends Job {
 	private int pitchSin;
 	private int pitchCos;
 
+	private int skippedCount;
+	private int resortedCount;
+
+	// The client thread parks on this job while a worker sorts the model it needs, and gets unparked once it's sorted
+	private volatile Thread waitingThread;
+	private volatile int waitingIdx = -1;
+
+	/**
+	 * Split the models into contiguous batches with roughly equal face counts, keeping the models in their draw order.
+	 *
+	 * @param batchEnds receives the exclusive end index of each batch, and must have room for maxBatches
+	 * @return the number of batches
+	 */
+	static int splitIntoBatches(List<AlphaModel> models, int maxBatches, int minBatchFaces, int[] batchEnds) {
+		long totalCost = 0;
+		for (int i = 0; i < models.size(); i++)
+			totalCost += sortingCost(models.get(i));
+
+		final int numBatches = (int) clamp(totalCost / max(1, minBatchFaces), 1, max(1, maxBatches));
+		int batch = 0;
+		long cost = 0;
+		for (int i = 0; i < models.size() && batch < numBatches - 1; i++) {
+			cost += sortingCost(models.get(i));
+			// Compare against the cumulative target, so rounding doesn't pile up in the last batch
+			if (cost * numBatches >= totalCost * (batch + 1))
+				batchEnds[batch++] = i + 1;
+		}
+		while (batch < numBatches)
+			batchEnds[batch++] = models.size();
+		return numBatches;
+	}
+
+	private static int sortingCost(AlphaModel m) {
+		return m.packedFaces.length + MODEL_OVERHEAD_FACES;
+	}
+
 	public void addAlphaModel(AlphaModel m) {
 		if (size == models.length) {
 			final int newCapacity = ceilPow2(models.length * 2);
@@ -35,54 +84,104 @@ public final class StaticAlphaSortingJob extends Job {
 		}
 
 		m.asyncSortIdx = size;
-		states.set(size, 0);
+		m.sortingJob = this;
+		states.set(size, STATE_QUEUED);
 		models[size] = m;
 		size++;
 	}
 
-	public void queue(Camera camera) {
+	public void addAlphaModels(List<AlphaModel> models, int start, int end) {
+		for (int i = start; i < end; i++)
+			addAlphaModel(models.get(i));
+	}
+
+	public void setView(Camera camera) {
 		if (frameTimer == null)
 			frameTimer = getInjector().getInstance(FrameTimer.class);
-		yaw = camera.getFixedYaw();
+		setView(camera.getFixedYaw(), camera.getFixedPitch());
+	}
+
+	void setView(int yaw, int pitch) {
+		this.yaw = yaw;
 		yawSin = SINE14[yaw];
 		yawCos = COSINE14[yaw];
-		pitch = camera.getFixedPitch();
+		this.pitch = pitch;
 		pitchSin = SINE14[pitch];
 		pitchCos = COSINE14[pitch];
-		queue();
 	}
 
 	public void reset() {
+		Arrays.fill(models, 0, size, null);
 		size = 0;
 	}
 
 	@Override
 	protected void onRun() {
 		long start = System.nanoTime();
+		sortModels();
+		frameTimer.add(Timer.STATIC_ALPHA_SORT, System.nanoTime() - start);
+		frameTimer.addStaticAlphaSorts(skippedCount, resortedCount);
+	}
+
+	/**
+	 * Sort every model which hasn't already been claimed by the client thread.
+	 */
+	void sortModels() {
+		skippedCount = resortedCount = 0;
 		try (FacePrioritySorter sorter = FacePrioritySorter.POOL.acquire()) {
 			for (int i = 0; i < size; i++) {
-				if (!states.compareAndSet(i, 0, 1))
+				if (!states.compareAndSet(i, STATE_QUEUED, STATE_SORTING))
 					continue;
-				processModel(sorter, models[i]);
+				if (processModel(sorter, i) == FacePrioritySorter.STATIC_SORT_SKIPPED) {
+					skippedCount++;
+				} else {
+					resortedCount++;
+				}
 			}
 		}
-		frameTimer.add(Timer.STATIC_ALPHA_SORT, System.nanoTime() - start);
 	}
 
-	private void processModel(FacePrioritySorter sorter, AlphaModel m) {
-		m.sortedFacesLen = 0;
-		sorter.sortStaticModelFacesByDistance(m, yawCos, yawSin, pitchCos, pitchSin);
-		m.setSorted();
+	private int processModel(FacePrioritySorter sorter, int idx) {
+		final AlphaModel m = models[idx];
+		try {
+			int result = sorter.sortStaticModelFacesByDistance(m, yaw, pitch, yawCos, yawSin, pitchCos, pitchSin);
+			m.setSorted();
+			return result;
+		} finally {
+			// Always mark the model as done, so the client thread can never be left parked on it
+			states.set(idx, STATE_SORTED);
+			if (waitingIdx == idx)
+				LockSupport.unpark(waitingThread);
+		}
 	}
 
-	public boolean forceProcessModelClient(AlphaModel m) {
-		if (m.asyncSortIdx < 0 || m.asyncSortIdx >= size) return false;
-		if (states.compareAndSet(m.asyncSortIdx, 0, 1)) {
+	/**
+	 * Make sure the model has been sorted. If the batch hasn't started on the model yet, the client thread sorts it
+	 * right away, otherwise it waits for only this model to finish, instead of the whole batch.
+	 */
+	public void awaitModelClient(AlphaModel m) {
+		final int idx = m.asyncSortIdx;
+		if (idx < 0 || idx >= size || models[idx] != m)
+			return;
+
+		if (states.compareAndSet(idx, STATE_QUEUED, STATE_SORTING)) {
 			try (FacePrioritySorter sorter = FacePrioritySorter.POOL.acquire()) {
-				processModel(sorter, models[m.asyncSortIdx]);
+				boolean skipped = processModel(sorter, idx) == FacePrioritySorter.STATIC_SORT_SKIPPED;
+				frameTimer.addStaticAlphaSorts(skipped ? 1 : 0, skipped ? 0 : 1);
 			}
-			return true;
+			return;
+		}
+
+		// Publish which model we're waiting on before checking its state, so the worker either sees us waiting,
+		// or we see the model sorted
+		waitingThread = Thread.currentThread();
+		waitingIdx = idx;
+		try {
+			while (states.get(idx) != STATE_SORTED)
+				LockSupport.park(this);
+		} finally {
+			waitingIdx = -1;
+			waitingThread = null;
 		}
-		return false;
 	}
 }
@@ -15,17 +15,20 @@ import org.lwjgl.system.MemoryStack;
 import rs117.hd.HdPlugin;
 import rs117.hd.opengl.uniforms.UBOWorldViews;
 import rs117.hd.opengl.uniforms.UBOWorldViews.WorldViewStruct;
+import rs117.hd.overlays.FrameTimer;
 import rs117.hd.utils.Camera;
 import rs117.hd.utils.CommandBuffer;
 import rs117.hd.utils.DestructibleHandler;
 import rs117.hd.utils.buffer.GLBuffer;
 import rs117.hd.utils.collections.ConcurrentPool;
 import rs117.hd.utils.jobs.JobGroup;
+import rs117.hd.utils.jobs.JobSystem;
 
 import static org.lwjgl.opengl.GL33C.*;
 import static rs117.hd.renderer.zone.DynamicModelVAO.METADATA_SIZE;
 import static rs117.hd.renderer.zone.SceneManager.NUM_ZONES;
 import static rs117.hd.renderer.zone.ZoneRenderer.FRAMES_IN_FLIGHT;
+import static rs117.hd.utils.MathUtils.*;
 import static rs117.hd.utils.collections.Util.quickSort;
 
 @Slf4j
@@ -37,6 +40,8 @@ public class WorldViewContext {
 	public static final int VAO_PRESCENE = 4;
 	public static final int VAO_COUNT = 5;
 
+	private static final int MIN_ALPHA_SORTING_BATCH_FACES = 4096;
+
 	public static final ConcurrentPool<DynamicModelVAO> DYNAMIC_MODEL_VAO_STAGING_POOL =
 		new ConcurrentPool<>(() -> new DynamicModelVAO("DynamicModelVAO::Staging", true));
 	public static final ConcurrentPool<DynamicModelVAO> DYNAMIC_MODEL_VAO_POOL =
@@ -54,6 +59,15 @@ public class WorldViewContext {
 	@Inject
 	private SceneManager sceneManager;
 
+	@Inject
+	private ZoneUploadBudget uploadBudget;
+
+	@Inject
+	private JobSystem jobSystem;
+
+	@Inject
+	private FrameTimer frameTimer;
+
 	final int worldViewId;
 	final int sizeX, sizeZ;
 	@Nullable
@@ -68,6 +82,12 @@ public class WorldViewContext {
 
 	private final Comparator<Zone> alphaSortComparator = Comparator.comparingInt((Zone z) -> z.dist).reversed();
 	private final List<Zone> alphaZones = new ArrayList<>();
+	private final List<Zone.AlphaModel> staticAlphaModels = new ArrayList<>();
+	private final List<StaticAlphaSortingJob> alphaSortingJobs = new ArrayList<>();
+	private int[] alphaSortingBatchEnds = new int[0];
+
+	private final Comparator<ZoneUploadJob> swapPriorityComparator = Comparator.comparingDouble(job -> job.priority);
+	private final List<ZoneUploadJob> pendingSwaps = new ArrayList<>();
 
 	CommandBuffer vaoSceneCmd;
 	CommandBuffer vaoDirectionalCmd;
@@ -80,6 +100,7 @@ public class WorldViewContext {
 	final JobGroup<ZoneUploadJob> sceneLoadGroup = new JobGroup<>(true, true);
 	final JobGroup<ZoneUploadJob> streamingGroup = new JobGroup<>(false, false);
 	final JobGroup<ZoneUploadJob> invalidationGroup = new JobGroup<>(true, false);
+	final JobGroup<StaticAlphaSortingJob> alphaSortingGroup = new JobGroup<>(true, false);
 
 	WorldViewContext(
 		@Nullable WorldView worldView,
@@ -181,11 +202,44 @@ public class WorldViewContext {
 			}
 		}
 
-		if (!alphaZones.isEmpty()) {
-			quickSort(alphaZones, alphaSortComparator);
-			for (int i = 0; i < alphaZones.size(); i++)
-				alphaZones.get(i).alphaStaticModelSort(camera);
+		if (alphaZones.isEmpty())
+			return;
+
+		quickSort(alphaZones, alphaSortComparator);
+		staticAlphaModels.clear();
+		for (int i = 0; i < alphaZones.size(); i++)
+			alphaZones.get(i).collectStaticAlphaModels(staticAlphaModels);
+
+		// Pool the models of every visible zone, and spread them across the workers in batches of similar face counts,
+		// so a single zone packed with alpha models doesn't end up holding up the client thread
+		final int maxBatches = max(1, jobSystem.getWorkerCount());
+		if (alphaSortingBatchEnds.length < maxBatches)
+			alphaSortingBatchEnds = new int[maxBatches];
+		final int numBatches = StaticAlphaSortingJob.splitIntoBatches(
+			staticAlphaModels, maxBatches, MIN_ALPHA_SORTING_BATCH_FACES, alphaSortingBatchEnds);
+		while (alphaSortingJobs.size() < numBatches)
+			alphaSortingJobs.add(new StaticAlphaSortingJob());
+
+		int batchStart = 0;
+		for (int i = 0; i < numBatches; i++) {
+			final StaticAlphaSortingJob job = alphaSortingJobs.get(i);
+			job.waitForCompletion();
+			job.reset();
+			job.addAlphaModels(staticAlphaModels, batchStart, alphaSortingBatchEnds[i]);
+			job.setView(camera);
+			job.queue(alphaSortingGroup);
+			batchStart = alphaSortingBatchEnds[i];
 		}
+		for (int i = numBatches; i < alphaSortingJobs.size(); i++) {
+			final StaticAlphaSortingJob job = alphaSortingJobs.get(i);
+			job.waitForCompletion();
+			job.reset();
+		}
+		staticAlphaModels.clear();
+	}
+
+	void completeStaticAlphaSorting() {
+		alphaSortingGroup.complete();
 	}
 
 	void handleZoneSwap(int zx, int zz, boolean queue) {
@@ -198,12 +252,20 @@ public class WorldViewContext {
 			if (queue && uploadTask.revealAfterTimestampMs < System.currentTimeMillis()) {
 				log.trace("queueing zone({}): [{}-{},{}]", uploadTask.zone.hashCode(), worldViewId, zx, zz);
 				uploadTask.revealAfterTimestampMs = 0;
+				uploadTask.uploadBudget = uploadBudget;
 				uploadTask.queue(streamingGroup, sceneManager.getGenerateSceneDataTask());
 			}
 			return;
 		}
 
 		if (uploadTask.isDone()) {
+			if (uploadTask.isDeferred && uploadTask.ranToCompletion() && !uploadTask.wasCancelled()) {
+				// The upload budget ran out before the zone could be mapped, so give it another go this frame
+				if (queue)
+					uploadTask.queue(streamingGroup);
+				return;
+			}
+
 			curZone.uploadJob = null;
 			if (uploadTask.ranToCompletion() && !uploadTask.wasCancelled()) {
 				log.trace("swapping zone({}): [{}-{},{}]", uploadTask.zone.hashCode(), worldViewId, zx, zz);
@@ -220,6 +282,7 @@ public class WorldViewContext {
 				}
 
 				sceneContext.animatedDynamicObjectIds.addAll(curZone.animatedDynamicObjectIds);
+				frameTimer.recordZoneSwap();
 			} else if (uploadTask.wasCancelled() && !curZone.cull) {
 				boolean shouldRetry = uploadTask.encounteredError() && curZone.isFirstLoadingAttempt;
 				if (shouldRetry) {
@@ -242,9 +305,30 @@ public class WorldViewContext {
 	}
 
 	void processZoneSwaps() {
-		for (int x = 0; x < sizeX; x++)
-			for (int z = 0; z < sizeZ; z++)
-				handleZoneSwap(x, z, true);
+		pendingSwaps.clear();
+		for (int x = 0; x < sizeX; x++) {
+			for (int z = 0; z < sizeZ; z++) {
+				ZoneUploadJob uploadTask = zones[x][z].uploadJob;
+				if (uploadTask != null && uploadTask.uploadBudget != null && uploadTask.isDone() && !uploadTask.wasCancelled()) {
+					// Includes deferred uploads, so they're re-queued in order of priority too
+					pendingSwaps.add(uploadTask);
+				} else {
+					handleZoneSwap(x, z, true);
+				}
+			}
+		}
+
+		if (pendingSwaps.isEmpty())
+			return;
+
+		// Swap in streamed zones in order of priority, leaving any over budget for the next frame
+		quickSort(pendingSwaps, swapPriorityComparator);
+		for (int i = 0; i < pendingSwaps.size(); i++) {
+			var uploadTask = pendingSwaps.get(i);
+			if (uploadTask.isDeferred || uploadBudget.tryReserveSwap())
+				handleZoneSwap(uploadTask.x, uploadTask.z, true);
+		}
+		pendingSwaps.clear();
 	}
 
 	void processZoneRebuilds() {
@@ -272,6 +356,7 @@ public class WorldViewContext {
 	void free() {
 		sceneLoadGroup.cancel();
 		streamingGroup.cancel();
+		alphaSortingGroup.cancel();
 
 		if (sceneContext != null)
 			sceneContext.destroy();
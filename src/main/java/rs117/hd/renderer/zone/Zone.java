@@ -92,7 +92,6 @@ public class Zone implements Destructible {
 
 	public IntHashSet animatedDynamicObjectIds = new IntHashSet();
 
-	final StaticAlphaSortingJob alphaSortingJob = new StaticAlphaSortingJob();
 	ZoneUploadJob uploadJob;
 
 	int[] levelOffsets = new int[LEVEL_COUNT]; // buffer pos in ints for the end of the level
@@ -431,6 +430,12 @@ public class Zone implements Destructible {
 
 		int dist;
 		int asyncSortIdx = -1;
+		StaticAlphaSortingJob sortingJob;
+
+		// The view sortedFaces was last sorted for, so the sort can be skipped until the camera rotates
+		int sortedYaw = -1;
+		int sortedPitch;
+		int sortedStart;
 
 		static final int SKIP = 1; // temporary model is in a closer zone
 		static final int TEMP = 2; // temporary model added to a closer zone
@@ -444,6 +449,10 @@ public class Zone implements Destructible {
 			return (flags & SORT_COMPLETED) == 0;
 		}
 
+		void invalidateSortedView() {
+			sortedYaw = -1;
+		}
+
 		boolean isTemp() {
 			return packedFaces == null || sortedFaces == null;
 		}
@@ -639,13 +648,16 @@ public class Zone implements Destructible {
 		m.vao = m.tboF = m.rid = m.lx = m.lz = m.ux = m.uz = -1;
 		m.flags = 0;
 		m.zofx = m.zofz = 0;
+		m.invalidateSortedView();
 		alphaModels.add(m);
 		return m;
 	}
 
+	/**
+	 * Must only be called once the static alpha sorting jobs have completed.
+	 */
 	synchronized void postAlphaPass() {
 		sortedAlphaFacesUpload.waitForCompletion();
-		alphaSortingJob.waitForCompletion();
 
 		for (int i = alphaModels.size() - 1; i >= 0; --i) {
 			AlphaModel m = alphaModels.get(i);
@@ -656,6 +668,7 @@ public class Zone implements Destructible {
 				ALPHA_MODEL_POOL.recycle(m);
 			}
 			m.asyncSortIdx = -1;
+			m.sortingJob = null;
 			m.flags &= ~(AlphaModel.SKIP | AlphaModel.SORT_COMPLETED);
 		}
 	}
@@ -701,16 +714,14 @@ public class Zone implements Destructible {
 		quickSort(alphaModels, alphaModelComparator);
 	}
 
-	void alphaStaticModelSort(Camera camera) {
-		alphaSortingJob.reset();
+	void collectStaticAlphaModels(List<AlphaModel> out) {
 		for (AlphaModel m : alphaModels) {
 			if ((m.flags & AlphaModel.SKIP) != 0 || m.isTemp())
 				continue;
 
 			m.dist = dist;
-			alphaSortingJob.addAlphaModel(m);
+			out.add(m);
 		}
-		alphaSortingJob.queue(camera);
 	}
 
 	void renderAlpha(
@@ -780,10 +791,8 @@ public class Zone implements Destructible {
 
 			// Check if we the faces have already been sorted, if not then the client will steal the work,
 			// if the model is already being processed then we'll have to wait for the result to finish
-			if (m.needsSorting() && !alphaSortingJob.forceProcessModelClient(m)) {
-				while (m.needsSorting() && !alphaSortingJob.isDone())
-					alphaSortingJob.waitForCompletion(10);
-			}
+			if (m.needsSorting() && m.sortingJob != null)
+				m.sortingJob.awaitModelClient(m);
 
 			if (m.sortedFaces == null || m.sortedFacesLen <= 0)
 				continue;
@@ -907,9 +916,14 @@ public class Zone implements Destructible {
 				m2.asyncSortIdx = m.asyncSortIdx;
 				m2.sortedFaces = m.sortedFaces;
 				m2.sortedFacesLen = m.sortedFacesLen;
+				m2.sortedYaw = m.sortedYaw;
+				m2.sortedPitch = m.sortedPitch;
+				m2.sortedStart = m.sortedStart;
 
 				m2.flags = AlphaModel.TEMP;
 				m.flags |= AlphaModel.SKIP;
+				// The copy may re-sort the shared faces, so the original can't assume they're still in its last order
+				m.invalidateSortedView();
 
 				z.alphaModels.add(m2);
 			}
@@ -44,6 +44,7 @@ import rs117.hd.config.ColorFilter;
 import rs117.hd.config.DynamicLights;
 import rs117.hd.config.ShadowMode;
 import rs117.hd.opengl.shader.SceneShaderProgram;
+import rs117.hd.opengl.shader.ShaderCompileBatch;
 import rs117.hd.opengl.shader.ShaderException;
 import rs117.hd.opengl.shader.ShaderIncludes;
 import rs117.hd.opengl.shader.ShadowShaderProgram;
@@ -234,10 +235,11 @@ public class ZoneRenderer implements Renderer {
 	}
 
 	@Override
-	public void initializeShaders(ShaderIncludes includes) throws ShaderException, IOException {
-		sceneProgram.compile(includes);
-		fastShadowProgram.compile(includes);
-		detailedShadowProgram.compile(includes);
+	public void initializeShaders(ShaderIncludes includes, ShaderCompileBatch batch) throws ShaderException, IOException {
+		batch
+			.submit(sceneProgram, includes)
+			.submit(fastShadowProgram, includes)
+			.submit(detailedShadowProgram, includes);
 	}
 
 	@Override
@@ -423,7 +425,7 @@ public class ZoneRenderer implements Renderer {
 				frameTimer.end(Timer.UPDATE_LIGHTS);
 
 				frameTimer.begin(Timer.UPDATE_SCENE);
-				sceneManager.update();
+				sceneManager.update(sceneCamera);
 				frameTimer.end(Timer.UPDATE_SCENE);
 			} catch (Exception ex) {
 				log.error("Error while updating environment or lights:", ex);
@@ -1039,6 +1041,7 @@ public class ZoneRenderer implements Renderer {
 					ctx.drawAll(VAO_PLAYER, ctx.vaoSceneCmd);
 					ctx.vaoSceneCmd.ColorMask(true, true, true, true);
 
+					ctx.completeStaticAlphaSorting();
 					for (int zx = 0; zx < ctx.sizeX; ++zx)
 						for (int zz = 0; zz < ctx.sizeZ; ++zz)
 							ctx.zones[zx][zz].postAlphaPass();
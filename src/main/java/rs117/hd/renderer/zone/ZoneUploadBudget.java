@@ -0,0 +1,109 @@
+package rs117.hd.renderer.zone;
+
+import javax.inject.Singleton;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Limits how many bytes of zone vertex buffers are mapped, and how many streamed zones are swapped into the scene, each
+ * frame. Without a limit, entering a busy area can land dozens of zone uploads in a single frame. Work over the budget
+ * is deferred to the next frame, and re-queued in order of upload priority. Workers never wait on the budget, so they
+ * remain free for other jobs in the meantime.
+ * <p>
+ * Only streamed zones are budgeted. Blocking scene loads must be able to finish without the client thread advancing
+ * frames, so {@link #suspend()} lifts the budget until the next frame whenever the client thread is about to wait for
+ * streaming to complete.
+ */
+@Slf4j
+@Singleton
+public class ZoneUploadBudget {
+	@Getter
+	private long bytesPerFrame;
+	@Getter
+	private int swapsPerFrame;
+	private boolean isSuspended;
+
+	private long frameBytesMapped;
+	private int frameSwaps;
+	private int frameDeferred;
+	private int deferredMappings;
+	private int deferredSwaps;
+
+	@Getter
+	private volatile long lastFrameBytesMapped;
+	@Getter
+	private volatile int lastFrameSwaps;
+	@Getter
+	private volatile int lastFrameDeferred;
+
+	/**
+	 * @param bytesPerFrame the number of bytes that may be mapped per frame, or zero for no limit
+	 * @param swapsPerFrame the number of streamed zones that may be swapped in per frame, or zero for no limit
+	 */
+	public synchronized void setLimits(long bytesPerFrame, int swapsPerFrame) {
+		if (this.bytesPerFrame == bytesPerFrame && this.swapsPerFrame == swapsPerFrame)
+			return;
+		this.bytesPerFrame = bytesPerFrame;
+		this.swapsPerFrame = swapsPerFrame;
+	}
+
+	/**
+	 * Starts a new frame's budget. Deferred work is re-queued by the client thread during the frame's zone swaps.
+	 */
+	public synchronized void beginFrame() {
+		lastFrameBytesMapped = frameBytesMapped;
+		lastFrameSwaps = frameSwaps;
+		lastFrameDeferred = frameDeferred;
+		frameBytesMapped = 0;
+		frameSwaps = 0;
+		frameDeferred = 0;
+		deferredMappings = 0;
+		deferredSwaps = 0;
+		isSuspended = false;
+	}
+
+	/**
+	 * Lifts the budget until the next frame, so jobs queued during a blocking wait on the client thread can't be deferred.
+	 */
+	public synchronized void suspend() {
+		isSuspended = true;
+	}
+
+	/**
+	 * @return the number of streamed zones deferred by the budget this frame, either from being mapped or swapped in
+	 */
+	public synchronized int getBacklogSize() {
+		return deferredMappings + deferredSwaps;
+	}
+
+	/**
+	 * Reserves the bytes for a job's buffers, if they fit within the current frame's budget. At least one job is let
+	 * through each frame, regardless of its size.
+	 *
+	 * @return true if the buffers may be mapped this frame, otherwise the job should be deferred to the next frame
+	 */
+	synchronized boolean tryAcquireMapping(long bytes) {
+		if (!isSuspended && bytesPerFrame > 0 && frameBytesMapped > 0 && frameBytesMapped + bytes > bytesPerFrame) {
+			frameDeferred++;
+			deferredMappings++;
+			return false;
+		}
+		frameBytesMapped += bytes;
+		return true;
+	}
+
+	/**
+	 * Should be called with streamed zones which are ready to be swapped in, in order of priority.
+	 *
+	 * @return true if the zone may be swapped in this frame
+	 */
+	synchronized boolean tryReserveSwap() {
+		if (!isSuspended && swapsPerFrame > 0 && frameSwaps >= swapsPerFrame) {
+			frameDeferred++;
+			deferredSwaps++;
+			return false;
+		}
+		frameSwaps++;
+		return true;
+	}
+}
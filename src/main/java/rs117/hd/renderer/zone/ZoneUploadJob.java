@@ -1,5 +1,6 @@
 package rs117.hd.renderer.zone;
 
+import javax.annotation.Nullable;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.*;
 import rs117.hd.utils.DestructibleHandler;
@@ -22,19 +23,36 @@ public final class ZoneUploadJob extends Job {
 	int x, z;
 	long revealAfterTimestampMs;
 	boolean shouldUnmap;
+	float priority;
+	@Nullable
+	ZoneUploadQueue uploadQueue;
+	@Nullable
+	ZoneUploadBudget uploadBudget;
+	// Set when the upload budget was spent, in which case the client thread re-queues the job on a later frame
+	boolean isDeferred;
+	private boolean isEstimated;
 
 	@Override
 	protected void onRun() throws InterruptedException {
+		isDeferred = false;
 		try (SceneUploader sceneUploader = SceneUploader.POOL.acquire()) {
 			workerHandleCancel();
 
 			sceneUploader.onBeforeProcessTile = this::onBeforeProcessTile;
 			sceneUploader.setScene(sceneContext.scene);
-			sceneUploader.estimateZoneSize(sceneContext, zone, x, z);
+			if (!isEstimated) {
+				sceneUploader.estimateZoneSize(sceneContext, zone, x, z);
+				isEstimated = true;
+			}
 
 			if (zone.sizeO > 0 || zone.sizeA > 0) {
 				workerHandleCancel();
 
+				if (uploadBudget != null && !uploadBudget.tryAcquireMapping(getVertexBufferSize())) {
+					isDeferred = true;
+					return;
+				}
+
 				invokeClientCallback(this::mapZoneVertexBuffers);
 				workerHandleCancel();
 
@@ -52,6 +70,10 @@ public final class ZoneUploadJob extends Job {
 		workerHandleCancel();
 	}
 
+	private long getVertexBufferSize() {
+		return (long) (zone.sizeO + zone.sizeA) * Zone.VERT_SIZE * 3 + (long) zone.sizeF * Zone.TEXTURE_SIZE;
+	}
+
 	private void mapZoneVertexBuffers() {
 		try {
 			GLBuffer o = null, a = null;
@@ -92,6 +114,13 @@ public final class ZoneUploadJob extends Job {
 		}
 	}
 
+	@Override
+	protected void onCompletion() {
+		var queue = uploadQueue;
+		if (queue != null)
+			queue.onJobCompleted();
+	}
+
 	@Override
 	protected void onCancel() {
 		if (viewContext.zones[x][z] != zone)
@@ -109,6 +138,11 @@ public final class ZoneUploadJob extends Job {
 		zone.uploadJob = null;
 		zone = null;
 		revealAfterTimestampMs = 0;
+		priority = 0;
+		uploadQueue = null;
+		uploadBudget = null;
+		isDeferred = false;
+		isEstimated = false;
 		POOL.recycle(this);
 	}
 
@@ -0,0 +1,107 @@
+package rs117.hd.renderer.zone;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.function.ToDoubleFunction;
+import javax.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+import rs117.hd.utils.jobs.Job;
+import rs117.hd.utils.jobs.JobGroup;
+
+import static rs117.hd.utils.collections.Util.quickSort;
+
+/**
+ * Holds zone upload jobs back from the job system, and hands them over a few at a time in order of priority, so the
+ * zones in front of the camera are uploaded first. Since only a few jobs are in flight at any time, pending jobs can be
+ * re-prioritized if the camera turns while the zones are still loading.
+ */
+@Slf4j
+final class ZoneUploadQueue {
+	// Pending jobs, sorted with the highest priority job last
+	private final ArrayList<ZoneUploadJob> pending = new ArrayList<>();
+	private final Comparator<ZoneUploadJob> comparator = Comparator.comparingDouble((ZoneUploadJob job) -> job.priority).reversed();
+
+	private JobGroup<ZoneUploadJob> group;
+	@Nullable
+	private Job dependency;
+	private int maxInFlight;
+	private int inFlight;
+	private boolean isSorted;
+
+	synchronized void begin(JobGroup<ZoneUploadJob> group, @Nullable Job dependency, int maxInFlight) {
+		assert pending.isEmpty() : "Previous zone uploads were never flushed";
+		this.group = group;
+		this.dependency = dependency;
+		this.maxInFlight = maxInFlight;
+		inFlight = 0;
+	}
+
+	synchronized void add(ZoneUploadJob job, float priority) {
+		job.priority = priority;
+		pending.add(job);
+		isSorted = false;
+	}
+
+	synchronized void reprioritize(ToDoubleFunction<ZoneUploadJob> priorityFunction) {
+		if (pending.isEmpty())
+			return;
+		for (var job : pending)
+			job.priority = (float) priorityFunction.applyAsDouble(job);
+		isSorted = false;
+	}
+
+	/**
+	 * Queues the highest priority jobs, until the limit of jobs in flight is reached.
+	 */
+	synchronized void dispatch() {
+		if (pending.isEmpty() || inFlight >= maxInFlight)
+			return;
+
+		if (!isSorted) {
+			quickSort(pending, comparator);
+			isSorted = true;
+		}
+
+		while (inFlight < maxInFlight && !pending.isEmpty()) {
+			var job = pending.remove(pending.size() - 1);
+			job.uploadQueue = this;
+			inFlight++;
+			if (dependency == null) {
+				job.queue(group);
+			} else {
+				job.queue(group, dependency);
+			}
+		}
+	}
+
+	/**
+	 * Queues all remaining jobs in order of priority, before waiting for the job group to complete.
+	 */
+	synchronized void flush() {
+		maxInFlight = Integer.MAX_VALUE;
+		dispatch();
+		group = null;
+		dependency = null;
+	}
+
+	/**
+	 * Releases any jobs which haven't been handed over to the job system.
+	 */
+	synchronized void clear() {
+		for (var job : pending)
+			job.release();
+		pending.clear();
+		group = null;
+		dependency = null;
+	}
+
+	synchronized int getPendingCount() {
+		return pending.size();
+	}
+
+	synchronized void onJobCompleted() {
+		inFlight--;
+		if (group != null)
+			dispatch();
+	}
+}
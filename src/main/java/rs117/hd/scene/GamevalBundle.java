@@ -0,0 +1,138 @@
+package rs117.hd.scene;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import javax.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+import rs117.hd.utils.ResourcePath;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A compact binary copy of {@code gamevals.json}, compiled the first time the JSON is parsed.
+ * <p>
+ * Each category is stored as a contiguous array of IDs, followed by length-prefixed names, so loading it is a matter
+ * of bulk copies out of a single read, instead of tokenizing 4 MB of JSON. The bundle is tagged with the length and
+ * modification time of the JSON it was compiled from, so checking whether it's current doesn't require reading the JSON,
+ * and any change to the source, such as during hot-reloading, makes it fall back to parsing the JSON and recompiling it.
+ */
+@Slf4j
+public class GamevalBundle {
+	private static final int MAGIC = 0x524C4756; // RLGV
+	private static final int VERSION = 2;
+	private static final int HEADER_SIZE = 4 + 4 + 8 + 8;
+
+	private static int checksum(byte[] bytes) {
+		var crc = new CRC32();
+		crc.update(bytes);
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * @return the gameval mappings, or null if the bundle is missing, corrupt or out of date
+	 */
+	@Nullable
+	public static Map<String, Map<String, Integer>> load(ResourcePath path, long sourceLength, long sourceLastModified) {
+		if (!path.exists())
+			return null;
+
+		try {
+			// Read the whole bundle instead of mapping it, since a mapped file can't be replaced on Windows
+			var buffer = ByteBuffer.wrap(Files.readAllBytes(path.toPath()));
+			if (buffer.remaining() < HEADER_SIZE + 8 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+				return null;
+			if (buffer.getLong() != sourceLength || buffer.getLong() != sourceLastModified)
+				return null;
+
+			// Validate the body before trusting any of the lengths within it
+			var body = buffer.slice();
+			body.limit(body.limit() - 4);
+			var crc = new CRC32();
+			crc.update(body.duplicate());
+			if ((int) crc.getValue() != buffer.getInt(buffer.limit() - 4)) {
+				log.warn("Gameval bundle is corrupt, falling back to JSON");
+				return null;
+			}
+
+			int categoryCount = body.getInt();
+			Map<String, Map<String, Integer>> gamevals = new HashMap<>();
+			byte[] bytes = new byte[256];
+			for (int i = 0; i < categoryCount; i++) {
+				String key = readString(body, bytes);
+				int count = body.getInt();
+				int[] ids = new int[count];
+				body.asIntBuffer().get(ids);
+				body.position(body.position() + count * 4);
+
+				Map<String, Integer> map = new HashMap<>((int) (count / .75f) + 1);
+				for (int j = 0; j < count; j++)
+					map.put(readString(body, bytes), ids[j]);
+				gamevals.put(key, map);
+			}
+			return gamevals;
+		} catch (IOException | RuntimeException ex) {
+			log.warn("Failed to load gameval bundle, falling back to JSON:", ex);
+			return null;
+		}
+	}
+
+	private static String readString(ByteBuffer buffer, byte[] bytes) {
+		int length = buffer.getShort() & 0xFFFF;
+		if (length > bytes.length)
+			bytes = new byte[length];
+		buffer.get(bytes, 0, length);
+		return new String(bytes, 0, length, UTF_8);
+	}
+
+	public static void write(
+		ResourcePath path,
+		Map<String, Map<String, Integer>> gamevals,
+		long sourceLength,
+		long sourceLastModified
+	) throws IOException {
+		var body = new ByteArrayOutputStream(2 << 20);
+		var out = new DataOutputStream(body);
+		out.writeInt(gamevals.size());
+		for (var category : gamevals.entrySet()) {
+			writeString(out, category.getKey());
+			var entries = category.getValue().entrySet();
+			out.writeInt(entries.size());
+			for (var entry : entries)
+				out.writeInt(entry.getValue());
+			for (var entry : entries)
+				writeString(out, entry.getKey());
+		}
+		out.flush();
+
+		byte[] bodyBytes = body.toByteArray();
+		var buffer = ByteBuffer.allocate(HEADER_SIZE + bodyBytes.length + 4)
+			.putInt(MAGIC)
+			.putInt(VERSION)
+			.putLong(sourceLength)
+			.putLong(sourceLastModified)
+			.put(bodyBytes)
+			.putInt(checksum(bodyBytes))
+			.flip();
+
+		// Write to a temporary file first, so a crash can't leave a partially written bundle behind
+		Files.createDirectories(path.toPath().getParent());
+		var tempPath = path.setExtension("tmp");
+		tempPath.writeByteBuffer(buffer);
+		Files.move(tempPath.toPath(), path.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static void writeString(DataOutputStream out, String string) throws IOException {
+		byte[] bytes = string.getBytes(UTF_8);
+		if (bytes.length > 0xFFFF)
+			throw new IOException("Gameval name is too long: " + string.substring(0, 64) + "...");
+		out.writeShort(bytes.length);
+		out.write(bytes);
+	}
+}
@@ -6,10 +6,13 @@ import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonWriter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -20,6 +23,7 @@ import rs117.hd.utils.FileWatcher;
 import rs117.hd.utils.GsonUtils;
 import rs117.hd.utils.Props;
 import rs117.hd.utils.ResourcePath;
+import rs117.hd.utils.collections.Int2ObjectHashMap;
 
 import static rs117.hd.utils.ResourcePath.path;
 
@@ -28,6 +32,7 @@ import static rs117.hd.utils.ResourcePath.path;
 public class GamevalManager {
 	private static final ResourcePath GAMEVAL_PATH = Props
 		.getFile("rlhd.gameval-path", () -> path(GamevalManager.class, "gamevals.json"));
+	private static final ResourcePath GAMEVAL_BUNDLE_PATH = HdPlugin.PLUGIN_DIR.resolve("resource-cache", "gamevals.bin");
 
 	private static final String NPC_KEY = "npcs";
 	private static final String OBJECT_KEY = "objects";
@@ -44,19 +49,32 @@ public class GamevalManager {
 
 	private static boolean loaded = false;
 	private static final Map<String, Map<String, Integer>> GAMEVALS = new HashMap<>();
+	private static final Map<String, Int2ObjectHashMap<String>> NAMES = new HashMap<>();
 
 	static {
 		clearGamevals();
 	}
 
 	private static void clearGamevals() {
-		GAMEVALS.put(NPC_KEY, Collections.emptyMap());
-		GAMEVALS.put(OBJECT_KEY, Collections.emptyMap());
-		GAMEVALS.put(ANIM_KEY, Collections.emptyMap());
-		GAMEVALS.put(SPOTANIM_KEY, Collections.emptyMap());
+		for (var key : List.of(NPC_KEY, OBJECT_KEY, ANIM_KEY, SPOTANIM_KEY)) {
+			GAMEVALS.put(key, Collections.emptyMap());
+			NAMES.put(key, new Int2ObjectHashMap<>());
+		}
 		loaded = false;
 	}
 
+	private static void setGamevals(Map<String, Map<String, Integer>> gamevals) {
+		for (var key : GAMEVALS.keySet()) {
+			var map = gamevals.getOrDefault(key, Collections.emptyMap());
+			var names = new Int2ObjectHashMap<String>(map.size());
+			for (var entry : map.entrySet())
+				names.putIfAbsent(entry.getValue(), entry.getKey());
+			GAMEVALS.put(key, map);
+			NAMES.put(key, names);
+		}
+		loaded = true;
+	}
+
 	public void startUp() throws IOException {
 		fileWatcher = GAMEVAL_PATH.watch((path, first) -> loadGamevals());
 	}
@@ -72,11 +90,30 @@ public class GamevalManager {
 
 	private void loadGamevals() {
 		try {
-			Map<String, Map<String, Integer>> gamevals = plugin.getGson()
-				.fromJson(GAMEVAL_PATH.toReader(), new TypeToken<Map<String, Map<String, Integer>>>() {}.getType());
-			GAMEVALS.replaceAll((k, v) -> gamevals.getOrDefault(k, Collections.emptyMap()));
-			loaded = true;
-			log.debug("Loaded gameval mappings");
+			long start = System.nanoTime();
+			// Identify the JSON by its size & modification time, so it only needs to be read if the bundle is stale
+			long sourceLength = GAMEVAL_PATH.getSize();
+			long sourceLastModified = GAMEVAL_PATH.getLastModified();
+			boolean canUseBundle = sourceLength > 0 && sourceLastModified > 0;
+
+			String format = "binary bundle";
+			var gamevals = canUseBundle ? GamevalBundle.load(GAMEVAL_BUNDLE_PATH, sourceLength, sourceLastModified) : null;
+			if (gamevals == null) {
+				format = "JSON";
+				try (var reader = GAMEVAL_PATH.toReader()) {
+					gamevals = plugin.getGson().fromJson(reader, new TypeToken<Map<String, Map<String, Integer>>>() {}.getType());
+				}
+				if (canUseBundle) {
+					try {
+						GamevalBundle.write(GAMEVAL_BUNDLE_PATH, gamevals, sourceLength, sourceLastModified);
+					} catch (IOException ex) {
+						log.warn("Failed to write gameval bundle:", ex);
+					}
+				}
+			}
+
+			setGamevals(gamevals);
+			log.debug("Loaded gameval mappings from {} in {} ms", format, (System.nanoTime() - start) / 1e6);
 		} catch (IOException ex) {
 			log.error("Failed to load gamevals:", ex);
 		}
@@ -102,14 +139,7 @@ public class GamevalManager {
 		if (!loaded)
 			log.warn("Gamevals not loaded yet, will fail to resolve name.");
 
-		return GAMEVALS
-			.get(key)
-			.entrySet()
-			.stream()
-			.filter(e -> e.getValue() == id)
-			.map(Map.Entry::getKey)
-			.findFirst()
-			.orElse(null);
+		return NAMES.get(key).get(id);
 	}
 
 	@Slf4j
@@ -261,6 +291,20 @@ public class GamevalManager {
 			return getName(SPOTANIM_KEY, id);
 		}
 
+		public Set<Integer> getAnimIdsContaining(Collection<String> substrings) {
+			var result = new HashSet<Integer>();
+			// Test all substrings in a single pass over the names
+			for (var entry : getAnims().entrySet()) {
+				for (var substring : substrings) {
+					if (entry.getKey().contains(substring)) {
+						result.add(entry.getValue());
+						break;
+					}
+				}
+			}
+			return result;
+		}
+
 		@Override
 		public void close() {
 			handles.remove(this);
@@ -24,11 +24,19 @@
  */
 package rs117.hd.scene;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.*;
+import rs117.hd.overlays.FrameTimer;
+import rs117.hd.overlays.Timer;
 import rs117.hd.renderer.legacy.LegacySceneContext;
 import rs117.hd.scene.materials.Material;
 import rs117.hd.scene.model_overrides.ModelOverride;
@@ -37,9 +45,13 @@ import rs117.hd.scene.tile_overrides.TileOverride;
 import rs117.hd.scene.water_types.WaterType;
 import rs117.hd.utils.ColorUtils;
 import rs117.hd.utils.collections.ConcurrentPool;
-import rs117.hd.utils.collections.Int2IntHashMap;
-import rs117.hd.utils.collections.Int2ObjectHashMap;
 import rs117.hd.utils.collections.PooledArrayType;
+import rs117.hd.utils.collections.PrimitiveIntArray;
+import rs117.hd.utils.collections.TileVertexIntMap;
+import rs117.hd.utils.collections.TileVertexObjectMap;
+import rs117.hd.utils.jobs.GenericJob;
+import rs117.hd.utils.jobs.JobGroup;
+import rs117.hd.utils.jobs.JobSystem;
 
 import static net.runelite.api.Constants.*;
 import static net.runelite.api.Perspective.*;
@@ -49,6 +61,9 @@ import static rs117.hd.scene.SceneContext.TILE_OVERRIDE_OVERLAY;
 import static rs117.hd.scene.SceneContext.TILE_OVERRIDE_UNDERLAY;
 import static rs117.hd.scene.SceneContext.TILE_SKIP_FLAG;
 import static rs117.hd.scene.SceneContext.TILE_WATER_FLAG;
+import static rs117.hd.scene.SceneContext.VERTEX_IS_HIGH_PRIORITY_COLOR;
+import static rs117.hd.scene.SceneContext.VERTEX_IS_OVERLAY;
+import static rs117.hd.scene.SceneContext.VERTEX_IS_UNDERLAY;
 import static rs117.hd.scene.tile_overrides.TileOverride.OVERLAY_FLAG;
 import static rs117.hd.utils.HDUtils.HIDDEN_HSL;
 import static rs117.hd.utils.HDUtils.calculateSurfaceNormals;
@@ -84,6 +99,15 @@ public class ProceduralGenerator {
 	@Inject
 	private WaterTypeManager waterTypeManager;
 
+	@Inject
+	private JobSystem jobSystem;
+
+	@Inject
+	private FrameTimer frameTimer;
+
+	// Width in tiles of the strips which each generation stage is split into for processing in parallel
+	private static final int STRIP_WIDTH = 8;
+
 	private final ConcurrentPool<GeneratorContext> GENERATOR_POOL = new ConcurrentPool<>(GeneratorContext::new);
 
 	final class GeneratorContext implements AutoCloseable {
@@ -91,6 +115,7 @@ public class ProceduralGenerator {
 		final TerrainDataGenerator terrainDataGenerator = new TerrainDataGenerator();
 		final UnderwaterTerrainGenerator underwaterTerrainGenerator = new UnderwaterTerrainGenerator();
 		final TerrainNormalGenerator terrainNormalGenerator = new TerrainNormalGenerator();
+		final TerrainDataReuse terrainDataReuse = new TerrainDataReuse();
 
 		@Override
 		public void close() {
@@ -139,38 +164,358 @@ public class ProceduralGenerator {
 
 	public void generateSceneData(SceneContext sceneCtx, SceneContext prevSceneCtx) {
 		try (GeneratorContext ctx = GENERATOR_POOL.acquire()) {
-			long timerTotal = System.currentTimeMillis();
+			long timerTotal = System.nanoTime();
 			long timerCalculateMainOverrides, timerCalculateTerrainNormals, timerGenerateTerrainData, timerGenerateUnderwaterTerrain;
 
-			long startTime = System.currentTimeMillis();
+			long startTime = System.nanoTime();
 			ctx.mainTileOverridesGenerator.generate(sceneCtx, prevSceneCtx);
-			timerCalculateMainOverrides = (int) (System.currentTimeMillis() - startTime);
-			startTime = System.currentTimeMillis();
+			timerCalculateMainOverrides = System.nanoTime() - startTime;
+			startTime = System.nanoTime();
 			ctx.underwaterTerrainGenerator.generate(sceneCtx, prevSceneCtx);
-			timerGenerateUnderwaterTerrain = (int) (System.currentTimeMillis() - startTime);
-			startTime = System.currentTimeMillis();
-			ctx.terrainNormalGenerator.generate(sceneCtx, prevSceneCtx);
-			timerCalculateTerrainNormals = (int) (System.currentTimeMillis() - startTime);
-			startTime = System.currentTimeMillis();
-			ctx.terrainDataGenerator.generate(sceneCtx, prevSceneCtx);
-			timerGenerateTerrainData = (int) (System.currentTimeMillis() - startTime);
-
-			log.debug("procedural data generation took {}ms to complete", (System.currentTimeMillis() - timerTotal));
-			log.debug("-- calculateMainTileOverrides: {}ms", timerCalculateMainOverrides);
-			log.debug("-- calculateTerrainNormals: {}ms", timerCalculateTerrainNormals);
-			log.debug("-- generateTerrainData: {}ms", timerGenerateTerrainData);
-			log.debug("-- generateUnderwaterTerrain: {}ms", timerGenerateUnderwaterTerrain);
+			timerGenerateUnderwaterTerrain = System.nanoTime() - startTime;
+
+			// Underwater depths are cheap to regenerate, but affect the normals and colors of tiles within a wide radius,
+			// so they're always regenerated in full, and used to determine which of the remaining terrain data is reusable
+			startTime = System.nanoTime();
+			final TerrainDataReuse reuse = ctx.terrainDataReuse.prepare(sceneCtx, prevSceneCtx) ? ctx.terrainDataReuse : null;
+			long timerFindReusableTerrain = System.nanoTime() - startTime;
+
+			startTime = System.nanoTime();
+			ctx.terrainNormalGenerator.generate(sceneCtx, prevSceneCtx, reuse);
+			timerCalculateTerrainNormals = System.nanoTime() - startTime;
+			startTime = System.nanoTime();
+			ctx.terrainDataGenerator.generate(sceneCtx, prevSceneCtx, reuse);
+			timerGenerateTerrainData = System.nanoTime() - startTime;
+
+			frameTimer.add(Timer.GENERATE_MAIN_TILE_OVERRIDES, timerCalculateMainOverrides);
+			frameTimer.add(Timer.GENERATE_UNDERWATER_TERRAIN, timerGenerateUnderwaterTerrain);
+			frameTimer.add(Timer.GENERATE_TERRAIN_NORMALS, timerCalculateTerrainNormals);
+			frameTimer.add(Timer.GENERATE_TERRAIN_DATA, timerGenerateTerrainData);
+
+			log.debug(
+				"procedural data generation took {}ms to complete, using {} threads",
+				(System.nanoTime() - timerTotal) / 1_000_000,
+				1 + getHelperCount(Integer.MAX_VALUE)
+			);
+			log.debug("-- calculateMainTileOverrides: {}ms", timerCalculateMainOverrides / 1_000_000);
+			log.debug("-- calculateTerrainNormals: {}ms", timerCalculateTerrainNormals / 1_000_000);
+			log.debug("-- generateTerrainData: {}ms", timerGenerateTerrainData / 1_000_000);
+			log.debug("-- generateUnderwaterTerrain: {}ms", timerGenerateUnderwaterTerrain / 1_000_000);
+			if (reuse != null) {
+				log.debug(
+					"-- findReusableTerrain: {}ms, regenerated {} of {} tiles",
+					timerFindReusableTerrain / 1_000_000,
+					reuse.getRegeneratedTileCount(),
+					sceneCtx.sizeX * sceneCtx.sizeZ
+				);
+			}
+		}
+	}
+
+	private static int getStripCount(int sizeX) {
+		return (sizeX + STRIP_WIDTH - 1) / STRIP_WIDTH;
+	}
+
+	private int getHelperCount(int chunkCount) {
+		if (jobSystem == null || !jobSystem.isActive())
+			return 0;
+		// A worker calling this is busy helping out, so it can't also run a helper job
+		return max(0, min(chunkCount - 1, jobSystem.getWorkerCount() - (jobSystem.isWorker() ? 1 : 0)));
+	}
+
+	/**
+	 * Runs the task for each chunk, spread across the calling thread and the job system's workers.
+	 * Chunks complete in no particular order, so each task must only write to its own chunk's output,
+	 * which should then be merged in chunk order to keep the result independent of how the work was split.
+	 */
+	private void forEachChunk(String name, int chunkCount, IntConsumer task) {
+		final AtomicInteger nextChunk = new AtomicInteger();
+		final AtomicReference<Throwable> error = new AtomicReference<>();
+		final Runnable processChunks = () -> {
+			int chunk;
+			while ((chunk = nextChunk.getAndIncrement()) < chunkCount) {
+				try {
+					if (error.get() == null)
+						task.accept(chunk);
+				} catch (Throwable ex) {
+					error.compareAndSet(null, ex);
+				}
+			}
+		};
+
+		int helperCount = getHelperCount(chunkCount);
+		if (helperCount == 0) {
+			processChunks.run();
+		} else {
+			final JobGroup<GenericJob> group = new JobGroup<>(true, true);
+			for (int i = 0; i < helperCount; i++)
+				GenericJob.build(name, t -> processChunks.run()).queue(group);
+			// The calling thread helps out too, so the work gets done even if every worker is busy
+			processChunks.run();
+			group.complete();
 		}
+
+		if (error.get() != null)
+			throw new RuntimeException("Failed to " + name, error.get());
 	}
 
-	static class TerrainNormalGenerator {
-		private final int[][] vertices = new int[4][3];
-		private final int[] hashes = new int[4];
+	/**
+	 * When the scene base shifts, such as when walking across a map chunk boundary, most of the new scene overlaps the
+	 * previous one. This finds the vertices whose terrain normals and colors are unaffected by the shift, so they can
+	 * be copied from the previous scene instead of being regenerated.
+	 * <p>
+	 * A tile column is dirty if it's close to the edge of either scene, or if any of its tiles differ from the previous
+	 * scene in geometry, colors, tile overrides or underwater depths. The normal and color of a vertex only depend on
+	 * the tiles sharing the vertex, and on the depths of their vertices, so vertices must be regenerated if any tile
+	 * sharing them is dirty, which in turn requires revisiting each tile adjacent to a dirty tile.
+	 */
+	final class TerrainDataReuse {
+		// Tiles at the edges of the extended scene may be incomplete, and have their colors adjusted to hide the edge
+		private static final int EDGE_PADDING = 2;
+		private static final int REUSED_VERTEX_FLAGS = VERTEX_IS_OVERLAY | VERTEX_IS_UNDERLAY | VERTEX_IS_HIGH_PRIORITY_COLOR;
+
+		private final ArrayList<Chunk> chunks = new ArrayList<>();
+		private final boolean[] dirtyTiles = new boolean[EXTENDED_SCENE_SIZE * EXTENDED_SCENE_SIZE];
+		private final boolean[] regeneratedTiles = new boolean[EXTENDED_SCENE_SIZE * EXTENDED_SCENE_SIZE];
+
+		private int sizeX, sizeY;
+		// Offset from tile coordinates in the current scene to tile coordinates in the previous scene
+		private int dX, dY;
+		private int prevKeyOffset;
+		@Getter
+		private int regeneratedTileCount;
+
+		/**
+		 * Must be called after underwater depths have been generated for the scene.
+		 *
+		 * @return whether any terrain data can be reused from the previous scene
+		 */
+		boolean prepare(SceneContext sceneContext, @Nullable SceneContext prevSceneContext) {
+			if (prevSceneContext == null ||
+				prevSceneContext == sceneContext ||
+				sceneContext.sceneBase == null ||
+				prevSceneContext.sceneBase == null ||
+				sceneContext.sceneBase[2] != prevSceneContext.sceneBase[2] ||
+				sceneContext.scene.isInstance() != prevSceneContext.scene.isInstance() ||
+				sceneContext.currentArea != prevSceneContext.currentArea ||
+				sceneContext.sizeX != prevSceneContext.sizeX ||
+				sceneContext.sizeZ != prevSceneContext.sizeZ ||
+				prevSceneContext.tileOverrideIndices == null ||
+				prevSceneContext.vertexTerrainData == null ||
+				prevSceneContext.vertexTerrainColor == null ||
+				prevSceneContext.vertexTerrainTexture == null ||
+				prevSceneContext.vertexTerrainNormalIndices == null ||
+				prevSceneContext.vertexTerrainNormals == null)
+				return false;
+
+			sizeX = sceneContext.sizeX;
+			sizeY = sceneContext.sizeZ;
+			dX = sceneContext.sceneBase[0] - prevSceneContext.sceneBase[0];
+			dY = sceneContext.sceneBase[1] - prevSceneContext.sceneBase[1];
+			if (abs(dX) >= sizeX - 2 * EDGE_PADDING || abs(dY) >= sizeY - 2 * EDGE_PADDING)
+				return false;
+
+			// Vertex keys store X and Y coordinates in units of a quarter tile
+			prevKeyOffset = (dY * 4 << 10) + dX * 4;
+
+			final int stripCount = getStripCount(sizeX);
+			while (chunks.size() < stripCount)
+				chunks.add(new Chunk());
+			forEachChunk(
+				"find reusable terrain", stripCount,
+				i -> chunks.get(i).markDirtyTiles(sceneContext, prevSceneContext, i * STRIP_WIDTH)
+			);
+
+			// Regenerate a border of clean tiles around dirty tiles, since they share vertices and normals with them
+			dilate(dirtyTiles, regeneratedTiles);
+
+			regeneratedTileCount = 0;
+			for (int i = 0; i < sizeX * sizeY; i++)
+				if (regeneratedTiles[i])
+					regeneratedTileCount++;
+			return true;
+		}
+
+		private void dilate(boolean[] src, boolean[] dst) {
+			for (int y = 0; y < sizeY; y++) {
+				for (int x = 0; x < sizeX; x++) {
+					boolean any = false;
+					for (int j = max(0, y - 1); j <= min(sizeY - 1, y + 1) && !any; j++)
+						for (int i = max(0, x - 1); i <= min(sizeX - 1, x + 1) && !any; i++)
+							any = src[i + j * sizeX];
+					dst[x + y * sizeX] = any;
+				}
+			}
+		}
+
+		/**
+		 * @return whether the tile contributes to the normal or color of any vertex which must be regenerated
+		 */
+		boolean isRegeneratedTile(int tileExX, int tileExY) {
+			return regeneratedTiles[tileExX + tileExY * sizeX];
+		}
+
+		/**
+		 * @return whether the normal and color of the vertex must be regenerated, rather than copied from the previous scene
+		 */
+		boolean isFreshVertex(int key) {
+			return isFreshVertex(key & 0x3FF, key >> 10 & 0x3FF);
+		}
+
+		private boolean isFreshVertex(int vertexX, int vertexY) {
+			// A vertex may be shared by the tiles on either side of it
+			final int tileX = vertexX >> 2;
+			final int tileY = vertexY >> 2;
+			for (int y = max(0, tileY - 1); y <= min(sizeY - 1, tileY); y++)
+				for (int x = max(0, tileX - 1); x <= min(sizeX - 1, tileX); x++)
+					if (dirtyTiles[x + y * sizeX])
+						return true;
+			return false;
+		}
+
+		/**
+		 * @return whether the previous scene's data for the vertex is valid in the current scene
+		 */
+		boolean canReuseVertex(int prevKey) {
+			final int vertexX = (prevKey & 0x3FF) - dX * 4;
+			final int vertexY = (prevKey >> 10 & 0x3FF) - dY * 4;
+			if (vertexX < 0 || vertexY < 0 || vertexX > sizeX * 4 || vertexY > sizeY * 4)
+				return false;
+			return !isFreshVertex(vertexX, vertexY);
+		}
+
+		int toPrevKey(int key) {
+			return key + prevKeyOffset;
+		}
+
+		int fromPrevKey(int prevKey) {
+			return prevKey - prevKeyOffset;
+		}
+
+		/**
+		 * Copies per-vertex colors, materials and flags which aren't regenerated from the previous scene.
+		 */
+		void copyVertexTerrainData(SceneContext sceneContext, SceneContext prevSceneContext) {
+			for (var entry : prevSceneContext.vertexTerrainColor)
+				if (canReuseVertex(entry.getKey()))
+					sceneContext.vertexTerrainColor.put(fromPrevKey(entry.getKey()), entry.getValue());
+
+			for (var entry : prevSceneContext.vertexTerrainTexture)
+				if (canReuseVertex(entry.getKey()))
+					sceneContext.vertexTerrainTexture.put(fromPrevKey(entry.getKey()), entry.getValue());
+
+			// Land, water and underwater depth flags are always regenerated
+			for (var entry : prevSceneContext.vertexTerrainData) {
+				final int flags = entry.getValue() & REUSED_VERTEX_FLAGS;
+				if (flags != 0 && canReuseVertex(entry.getKey()))
+					sceneContext.vertexTerrainData.or(fromPrevKey(entry.getKey()), flags, 0);
+			}
+		}
+
+		private final class Chunk {
+			private final int[][] vertices = new int[4][3];
+			private final int[] hashes = new int[4];
+			private final int[][] prevVertices = new int[4][3];
+			private final int[] prevHashes = new int[4];
+
+			private void markDirtyTiles(SceneContext sceneContext, SceneContext prevSceneContext, int startX) {
+				final Tile[][][] tiles = sceneContext.scene.getExtendedTiles();
+				final Tile[][][] prevTiles = prevSceneContext.scene.getExtendedTiles();
+				final int endX = min(startX + STRIP_WIDTH, sizeX);
+				for (int x = startX; x < endX; x++) {
+					for (int y = 0; y < sizeY; y++) {
+						final int prevX = x + dX;
+						final int prevY = y + dY;
+						boolean dirty =
+							x < EDGE_PADDING || x >= sizeX - EDGE_PADDING ||
+							y < EDGE_PADDING || y >= sizeY - EDGE_PADDING ||
+							prevX < EDGE_PADDING || prevX >= sizeX - EDGE_PADDING ||
+							prevY < EDGE_PADDING || prevY >= sizeY - EDGE_PADDING;
+
+						for (int z = 0; z < MAX_Z && !dirty; z++) {
+							final int offset = sceneContext.getTileIdx(z, x, y) * TILE_OVERRIDE_COUNT;
+							final int prevOffset = prevSceneContext.getTileIdx(z, prevX, prevY) * TILE_OVERRIDE_COUNT;
+							for (int i = 0; i < TILE_OVERRIDE_COUNT; i++)
+								if (sceneContext.tileOverrideIndices[offset + i] != prevSceneContext.tileOverrideIndices[prevOffset + i])
+									dirty = true;
+
+							final Tile tile = tiles[z][x][y];
+							final Tile prevTile = prevTiles[z][prevX][prevY];
+							if (tile == null || prevTile == null) {
+								dirty |= tile != prevTile;
+								continue;
+							}
+
+							final Tile bridge = tile.getBridge();
+							final Tile prevBridge = prevTile.getBridge();
+							dirty |=
+								!isSameTile(sceneContext, prevSceneContext, tile, prevTile) ||
+								(bridge == null) != (prevBridge == null) ||
+								bridge != null && !isSameTile(sceneContext, prevSceneContext, bridge, prevBridge);
+						}
+
+						dirtyTiles[x + y * sizeX] = dirty;
+					}
+				}
+			}
+
+			private boolean isSameTile(SceneContext sceneContext, SceneContext prevSceneContext, Tile tile, Tile prevTile) {
+				if (tile.getRenderLevel() != prevTile.getRenderLevel())
+					return false;
+
+				final SceneTilePaint paint = tile.getSceneTilePaint();
+				final SceneTilePaint prevPaint = prevTile.getSceneTilePaint();
+				if (paint != null || prevPaint != null) {
+					if (paint == null || prevPaint == null ||
+						paint.getSwColor() != prevPaint.getSwColor() ||
+						paint.getSeColor() != prevPaint.getSeColor() ||
+						paint.getNwColor() != prevPaint.getNwColor() ||
+						paint.getNeColor() != prevPaint.getNeColor() ||
+						paint.getTexture() != prevPaint.getTexture())
+						return false;
+
+					tileVertexKeys(sceneContext, tile, vertices, hashes);
+					tileVertexKeys(prevSceneContext, prevTile, prevVertices, prevHashes);
+					return isSameVertices(sceneContext, prevSceneContext, 4);
+				}
+
+				final SceneTileModel model = tile.getSceneTileModel();
+				final SceneTileModel prevModel = prevTile.getSceneTileModel();
+				if (model == null || prevModel == null)
+					return model == prevModel;
+
+				final int faceCount = model.getFaceX().length;
+				if (faceCount != prevModel.getFaceX().length ||
+					!Arrays.equals(model.getTriangleColorA(), prevModel.getTriangleColorA()) ||
+					!Arrays.equals(model.getTriangleColorB(), prevModel.getTriangleColorB()) ||
+					!Arrays.equals(model.getTriangleColorC(), prevModel.getTriangleColorC()) ||
+					!Arrays.equals(model.getTriangleTextureId(), prevModel.getTriangleTextureId()))
+					return false;
 
-		private final int[] surfaceNormal = new int[3];
+				for (int face = 0; face < faceCount; face++) {
+					faceVertexKeys(tile, face, vertices, hashes);
+					faceVertexKeys(prevTile, face, prevVertices, prevHashes);
+					if (!isSameVertices(sceneContext, prevSceneContext, VERTICES_PER_FACE))
+						return false;
+				}
+				return true;
+			}
+
+			private boolean isSameVertices(SceneContext sceneContext, SceneContext prevSceneContext, int vertexCount) {
+				for (int i = 0; i < vertexCount; i++) {
+					if (toPrevKey(hashes[i]) != prevHashes[i] ||
+						sceneContext.getVertexUnderwaterDepth(hashes[i]) != prevSceneContext.getVertexUnderwaterDepth(prevHashes[i]))
+						return false;
+				}
+				return true;
+			}
+		}
+	}
 
-		private int[][][] faceVertices = new int[2][VERTICES_PER_FACE][3];
-		private int[][] faceVertexKeys = new int[VERTICES_PER_FACE][3];
+	final class TerrainNormalGenerator {
+		private final ArrayList<Chunk> chunks = new ArrayList<>();
+		// Pairs of vertex key and normal index in the previous scene
+		private final PrimitiveIntArray reusedNormals = new PrimitiveIntArray();
 		private int[] vertexNormals;
 		private int vertexNormalsPos = 0;
 
@@ -178,36 +523,41 @@ public class ProceduralGenerator {
 		 * Iterates through all Tiles in a given Scene, calculating vertex normals
 		 * for each one, then stores resulting normal data in a HashMap.
 		 */
-		private void generate(SceneContext sceneContext, SceneContext prevSceneContext) {
-			final Tile[][][] tiles = sceneContext.scene.getExtendedTiles();
-
-			sceneContext.vertexTerrainNormalIndices = new Int2IntHashMap(
+		private void generate(SceneContext sceneContext, SceneContext prevSceneContext, @Nullable TerrainDataReuse reuse) {
+			sceneContext.vertexTerrainNormalIndices = new TileVertexIntMap(
 				prevSceneContext != null && prevSceneContext.vertexTerrainNormalIndices != null ?
-					prevSceneContext.vertexTerrainNormalIndices.capacity() : 0);
+					prevSceneContext.vertexTerrainNormalIndices.overflowSize() : 0);
 
 			vertexNormals = PooledArrayType.INT.borrow(
 				prevSceneContext != null && prevSceneContext.vertexTerrainNormals != null ?
 					prevSceneContext.vertexTerrainNormals.length : 3000);
 			vertexNormalsPos = 0;
 
-			for (int z = 0; z < MAX_Z; z++) {
-				final Tile[][] zTiles = tiles[z];
-				for (int x = 0; x < sceneContext.sizeX; x++) {
-					final Tile[] xTiles = zTiles[x];
-					for (int y = 0; y < sceneContext.sizeZ; y++) {
-						final Tile tile = xTiles[y];
-						if (tile == null)
-							continue;
-
-						final boolean isBridge = tile.getBridge() != null;
-						if (isBridge)
-							calculateNormalsForTile(sceneContext, tile.getBridge(), false);
-						calculateNormalsForTile(sceneContext, tile, isBridge);
+			// Calculate face normals in parallel strips of tiles, then accumulate them in the original tile order
+			final int stripCount = getStripCount(sceneContext.sizeX);
+			final int chunkCount = MAX_Z * stripCount;
+			while (chunks.size() < chunkCount)
+				chunks.add(new Chunk());
+			forEachChunk(
+				"calculate terrain normals", chunkCount,
+				i -> chunks.get(i).calculateNormals(sceneContext, reuse, i / stripCount, i % stripCount * STRIP_WIDTH)
+			);
+			for (int i = 0; i < chunkCount; i++)
+				accumulateNormals(sceneContext, chunks.get(i).faceNormals);
+
+			// Normals which weren't regenerated are copied after the new ones, already normalized
+			reusedNormals.reset();
+			if (reuse != null) {
+				for (var entry : prevSceneContext.vertexTerrainNormalIndices) {
+					if (reuse.canReuseVertex(entry.getKey())) {
+						reusedNormals.ensureCapacity(2);
+						reusedNormals.put(reuse.fromPrevKey(entry.getKey()));
+						reusedNormals.put(entry.getValue());
 					}
 				}
 			}
 
-			sceneContext.vertexTerrainNormals = new short[vertexNormalsPos];
+			sceneContext.vertexTerrainNormals = new short[vertexNormalsPos + reusedNormals.length / 2 * 3];
 			for (int offset = 0; offset < vertexNormalsPos; offset += 3) {
 				final float x = vertexNormals[offset];
 				final float y = vertexNormals[offset + 1];
@@ -223,89 +573,149 @@ public class ProceduralGenerator {
 				sceneContext.vertexTerrainNormals[offset + 2] = normShort(z * invLen);
 			}
 
+			for (int i = 0, offset = vertexNormalsPos; i < reusedNormals.length; i += 2, offset += 3) {
+				sceneContext.vertexTerrainNormalIndices.put(reusedNormals.array[i], offset / 3);
+				System.arraycopy(prevSceneContext.vertexTerrainNormals, reusedNormals.array[i + 1] * 3, sceneContext.vertexTerrainNormals, offset, 3);
+			}
+
 			PooledArrayType.INT.release(vertexNormals);
 			vertexNormals = null;
 		}
 
 		/**
-		 * Calculates vertex normals for a given Tile,
-		 * then stores resulting normal data in a HashMap.
-		 *
-		 * @param sceneContext that the tile is associated with
-		 * @param tile         to calculate normals for
-		 * @param isBridge     whether the tile is a bridge tile, i.e. tile above
+		 * Accumulates the face normals of each vertex, calculated by {@link Chunk#calculateNormals}.
 		 */
-		private void calculateNormalsForTile(SceneContext sceneContext, Tile tile, boolean isBridge) {
-			int faceCount = 2;
-			final SceneTileModel tileModel = tile.getSceneTileModel();
-			if (tileModel != null) {
-				// Tile model
-				faceCount = tileModel.getFaceX().length;
-				if (faceVertices.length < faceCount) {
-					faceVertices = new int[faceCount][VERTICES_PER_FACE][3];
-					faceVertexKeys = new int[faceCount][VERTICES_PER_FACE];
+		private void accumulateNormals(SceneContext sceneContext, PrimitiveIntArray faceNormals) {
+			final int[] normals = faceNormals.array;
+			for (int i = 0; i < faceNormals.length; i += 4) {
+				final int vertexKey = normals[i];
+				final int terrainNormalIdx = sceneContext.vertexTerrainNormalIndices.getOrDefault(vertexKey, -1);
+				if (terrainNormalIdx == -1) {
+					sceneContext.vertexTerrainNormalIndices.put(vertexKey, vertexNormalsPos / 3);
+
+					if (vertexNormalsPos + 3 >= vertexNormals.length) {
+						int[] newVertexNormals = PooledArrayType.INT.borrow(vertexNormalsPos * 2);
+						System.arraycopy(vertexNormals, 0, newVertexNormals, 0, vertexNormalsPos);
+
+						PooledArrayType.INT.release(vertexNormals);
+						vertexNormals = newVertexNormals;
+					}
+
+					vertexNormals[vertexNormalsPos++] = normals[i + 1];
+					vertexNormals[vertexNormalsPos++] = normals[i + 2];
+					vertexNormals[vertexNormalsPos++] = normals[i + 3];
+				} else {
+					final int offset = terrainNormalIdx * 3;
+					vertexNormals[offset] += normals[i + 1];
+					vertexNormals[offset + 1] += normals[i + 2];
+					vertexNormals[offset + 2] += normals[i + 3];
 				}
+			}
+		}
 
-				for (int face = 0; face < faceCount; face++) {
-					faceVertexKeys(tile, face, vertices, hashes);
+		private final class Chunk {
+			private final int[][] vertices = new int[4][3];
+			private final int[] hashes = new int[4];
 
-					// Winding order: 0, 1, 2
-					ivec3(faceVertices[face][0], vertices[0][0], vertices[0][1], vertices[0][2]);
-					ivec3(faceVertices[face][1], vertices[1][0], vertices[1][1], vertices[1][2]);
-					ivec3(faceVertices[face][2], vertices[2][0], vertices[2][1], vertices[2][2]);
+			private final int[] surfaceNormal = new int[3];
 
-					ivec3(faceVertexKeys[face], hashes[0], hashes[1], hashes[2]);
-				}
-			} else {
-				tileVertexKeys(sceneContext, tile, vertices, hashes);
+			private int[][][] faceVertices = new int[2][VERTICES_PER_FACE][3];
+			private int[][] faceVertexKeys = new int[VERTICES_PER_FACE][3];
 
-				// Winding order: ne, nw, se => 3, 2, 1
-				ivec3(faceVertices[0][0], vertices[3][0], vertices[3][1], vertices[3][2]);
-				ivec3(faceVertices[0][1], vertices[2][0], vertices[2][1], vertices[2][2]);
-				ivec3(faceVertices[0][2], vertices[1][0], vertices[1][1], vertices[1][2]);
+			// Vertex key followed by the XYZ of the face normal, for each vertex of each face
+			private final PrimitiveIntArray faceNormals = new PrimitiveIntArray();
 
-				// Winding order: sw, se, nw => 0, 1, 2
-				ivec3(faceVertices[1][0], vertices[0][0], vertices[0][1], vertices[0][2]);
-				ivec3(faceVertices[1][1], vertices[1][0], vertices[1][1], vertices[1][2]);
-				ivec3(faceVertices[1][2], vertices[2][0], vertices[2][1], vertices[2][2]);
+			private void calculateNormals(SceneContext sceneContext, @Nullable TerrainDataReuse reuse, int z, int startX) {
+				faceNormals.reset();
 
-				ivec3(faceVertexKeys[0], hashes[3], hashes[1], hashes[2]);
-				ivec3(faceVertexKeys[1], hashes[0], hashes[2], hashes[1]);
-			}
+				final Tile[][] zTiles = sceneContext.scene.getExtendedTiles()[z];
+				final int endX = min(startX + STRIP_WIDTH, sceneContext.sizeX);
+				for (int x = startX; x < endX; x++) {
+					final Tile[] xTiles = zTiles[x];
+					for (int y = 0; y < sceneContext.sizeZ; y++) {
+						final Tile tile = xTiles[y];
+						if (tile == null || reuse != null && !reuse.isRegeneratedTile(x, y))
+							continue;
 
-			// Loop through tris to calculate and accumulate normals
-			for (int face = 0; face < faceCount; face++) {
-				// XYZ
-				if (!isBridge) {
-					faceVertices[face][0][1] += sceneContext.getVertexUnderwaterDepth(faceVertexKeys[face][0]);
-					faceVertices[face][1][1] += sceneContext.getVertexUnderwaterDepth(faceVertexKeys[face][1]);
-					faceVertices[face][2][1] += sceneContext.getVertexUnderwaterDepth(faceVertexKeys[face][2]);
+						final boolean isBridge = tile.getBridge() != null;
+						if (isBridge)
+							calculateNormalsForTile(sceneContext, reuse, tile.getBridge(), false);
+						calculateNormalsForTile(sceneContext, reuse, tile, isBridge);
+					}
 				}
+			}
+
+			/**
+			 * Calculates face normals for a given Tile,
+			 * then stores them to be accumulated per vertex.
+			 *
+			 * @param sceneContext that the tile is associated with
+			 * @param reuse        which vertices need their normals regenerated, or null to regenerate all of them
+			 * @param tile         to calculate normals for
+			 * @param isBridge     whether the tile is a bridge tile, i.e. tile above
+			 */
+			private void calculateNormalsForTile(
+				SceneContext sceneContext,
+				@Nullable TerrainDataReuse reuse,
+				Tile tile,
+				boolean isBridge
+			) {
+				int faceCount = 2;
+				final SceneTileModel tileModel = tile.getSceneTileModel();
+				if (tileModel != null) {
+					// Tile model
+					faceCount = tileModel.getFaceX().length;
+					if (faceVertices.length < faceCount) {
+						faceVertices = new int[faceCount][VERTICES_PER_FACE][3];
+						faceVertexKeys = new int[faceCount][VERTICES_PER_FACE];
+					}
+
+					for (int face = 0; face < faceCount; face++) {
+						faceVertexKeys(tile, face, vertices, hashes);
 
-				calculateSurfaceNormals(surfaceNormal, faceVertices[face][0], faceVertices[face][1], faceVertices[face][2]);
+						// Winding order: 0, 1, 2
+						ivec3(faceVertices[face][0], vertices[0][0], vertices[0][1], vertices[0][2]);
+						ivec3(faceVertices[face][1], vertices[1][0], vertices[1][1], vertices[1][2]);
+						ivec3(faceVertices[face][2], vertices[2][0], vertices[2][1], vertices[2][2]);
 
-				for (int vertex = 0; vertex < VERTICES_PER_FACE; vertex++) {
-					final int vertexKey = faceVertexKeys[face][vertex];
-					final int terrainNormalIdx = sceneContext.vertexTerrainNormalIndices.getOrDefault(vertexKey, -1);
-					if (terrainNormalIdx == -1) {
-						sceneContext.vertexTerrainNormalIndices.put(vertexKey, vertexNormalsPos / 3);
+						ivec3(faceVertexKeys[face], hashes[0], hashes[1], hashes[2]);
+					}
+				} else {
+					tileVertexKeys(sceneContext, tile, vertices, hashes);
 
-						if (vertexNormalsPos + 3 >= vertexNormals.length) {
-							int[] newVertexNormals = PooledArrayType.INT.borrow(vertexNormalsPos * 2);
-							System.arraycopy(vertexNormals, 0, newVertexNormals, 0, vertexNormalsPos);
+					// Winding order: ne, nw, se => 3, 2, 1
+					ivec3(faceVertices[0][0], vertices[3][0], vertices[3][1], vertices[3][2]);
+					ivec3(faceVertices[0][1], vertices[2][0], vertices[2][1], vertices[2][2]);
+					ivec3(faceVertices[0][2], vertices[1][0], vertices[1][1], vertices[1][2]);
 
-							PooledArrayType.INT.release(vertexNormals);
-							vertexNormals = newVertexNormals;
-						}
+					// Winding order: sw, se, nw => 0, 1, 2
+					ivec3(faceVertices[1][0], vertices[0][0], vertices[0][1], vertices[0][2]);
+					ivec3(faceVertices[1][1], vertices[1][0], vertices[1][1], vertices[1][2]);
+					ivec3(faceVertices[1][2], vertices[2][0], vertices[2][1], vertices[2][2]);
 
-						vertexNormals[vertexNormalsPos++] = surfaceNormal[0];
-						vertexNormals[vertexNormalsPos++] = surfaceNormal[1];
-						vertexNormals[vertexNormalsPos++] = surfaceNormal[2];
-					} else {
-						final int offset = terrainNormalIdx * 3;
-						vertexNormals[offset] += surfaceNormal[0];
-						vertexNormals[offset + 1] += surfaceNormal[1];
-						vertexNormals[offset + 2] += surfaceNormal[2];
+					ivec3(faceVertexKeys[0], hashes[3], hashes[1], hashes[2]);
+					ivec3(faceVertexKeys[1], hashes[0], hashes[2], hashes[1]);
+				}
+
+				// Loop through tris to calculate normals
+				faceNormals.ensureCapacity(faceCount * VERTICES_PER_FACE * 4);
+				for (int face = 0; face < faceCount; face++) {
+					// XYZ
+					if (!isBridge) {
+						faceVertices[face][0][1] += sceneContext.getVertexUnderwaterDepth(faceVertexKeys[face][0]);
+						faceVertices[face][1][1] += sceneContext.getVertexUnderwaterDepth(faceVertexKeys[face][1]);
+						faceVertices[face][2][1] += sceneContext.getVertexUnderwaterDepth(faceVertexKeys[face][2]);
+					}
+
+					calculateSurfaceNormals(surfaceNormal, faceVertices[face][0], faceVertices[face][1], faceVertices[face][2]);
+
+					for (int vertex = 0; vertex < VERTICES_PER_FACE; vertex++) {
+						if (reuse != null && !reuse.isFreshVertex(faceVertexKeys[face][vertex]))
+							continue;
+						faceNormals.put(faceVertexKeys[face][vertex]);
+						faceNormals.put(surfaceNormal[0]);
+						faceNormals.put(surfaceNormal[1]);
+						faceNormals.put(surfaceNormal[2]);
 					}
 				}
 			}
@@ -564,34 +974,68 @@ public class ProceduralGenerator {
 	}
 
 	final class TerrainDataGenerator {
-		private final int[][] vertices = new int[4][3];
-		private final int[] hashes = new int[4];
-		private final int[] worldPos = new int[3];
-		private final short[] vNormals = new short[3];
+		private static final int VERTEX_FLAG_OVERLAY = 1;
+		private static final int VERTEX_FLAG_LOW_PRIORITY_COLOR = 1 << 1;
+		private static final int VERTEX_FLAG_DEFAULT_COLOR = 1 << 2;
 
-		private int[] vertexHashes;
-		private int[] vertexColors;
-		private TileOverride[] vertexOverrides;
-		private boolean[] vertexIsOverlay;
-		private boolean[] vertexDefaultColor;
+		private final ArrayList<Chunk> chunks = new ArrayList<>();
 
 		/**
 		 * Iterates through all Tiles in a given Scene, producing color and
 		 * material data for each vertex of each Tile. Then adds the resulting
 		 * data to appropriate HashMaps.
 		 */
-		private void generate(SceneContext sceneContext, SceneContext prevSceneCtx) {
-			sceneContext.vertexTerrainColor = new Int2IntHashMap(prevSceneCtx != null && prevSceneCtx.vertexTerrainColor != null ? prevSceneCtx.vertexTerrainColor.capacity() : 0);
-			sceneContext.vertexTerrainTexture = new Int2ObjectHashMap<>(prevSceneCtx != null && prevSceneCtx.vertexTerrainTexture != null ? prevSceneCtx.vertexTerrainTexture.capacity() : 0);
+		private void generate(SceneContext sceneContext, SceneContext prevSceneCtx, @Nullable TerrainDataReuse reuse) {
+			sceneContext.vertexTerrainColor = new TileVertexIntMap(prevSceneCtx != null && prevSceneCtx.vertexTerrainColor != null ? prevSceneCtx.vertexTerrainColor.overflowSize() : 0);
+			sceneContext.vertexTerrainTexture = new TileVertexObjectMap<>(prevSceneCtx != null && prevSceneCtx.vertexTerrainTexture != null ? prevSceneCtx.vertexTerrainTexture.overflowSize() : 0);
+
+			// Vertices are shared between neighbouring tiles, and which color a vertex ends up with depends on the
+			// order in which tiles are visited, so colors are produced in parallel and then merged in tile order
+			final int stripCount = getStripCount(sceneContext.sizeX);
+			final int chunkCount = MAX_Z * stripCount;
+			while (chunks.size() < chunkCount)
+				chunks.add(new Chunk());
+			forEachChunk(
+				"generate terrain data", chunkCount,
+				i -> chunks.get(i).generate(sceneContext, reuse, i / stripCount, i % stripCount * STRIP_WIDTH)
+			);
+			for (int i = 0; i < chunkCount; i++)
+				chunks.get(i).merge(sceneContext);
+
+			if (reuse != null)
+				reuse.copyVertexTerrainData(sceneContext, prevSceneCtx);
+		}
 
-			final Tile[][][] tiles = sceneContext.scene.getExtendedTiles();
-			for (int z = 0; z < MAX_Z; ++z) {
-				final Tile[][] zTiles = tiles[z];
-				for (int x = 0; x < sceneContext.sizeX; ++x) {
+		private final class Chunk {
+			private final int[][] vertices = new int[4][3];
+			private final int[] hashes = new int[4];
+			private final int[] worldPos = new int[3];
+			private final short[] vNormals = new short[3];
+
+			private int[] vertexHashes;
+			private int[] vertexColors;
+			private TileOverride[] vertexOverrides;
+			private boolean[] vertexIsOverlay;
+			private boolean[] vertexDefaultColor;
+
+			// Vertex key, color and VERTEX_FLAG bits, for each vertex which was assigned a color
+			private final PrimitiveIntArray vertexData = new PrimitiveIntArray();
+			private final ArrayList<Material> vertexMaterials = new ArrayList<>();
+			@Nullable
+			private TerrainDataReuse reuse;
+
+			private void generate(SceneContext sceneContext, @Nullable TerrainDataReuse reuse, int z, int startX) {
+				this.reuse = reuse;
+				vertexData.reset();
+				vertexMaterials.clear();
+
+				final Tile[][] zTiles = sceneContext.scene.getExtendedTiles()[z];
+				final int endX = min(startX + STRIP_WIDTH, sceneContext.sizeX);
+				for (int x = startX; x < endX; ++x) {
 					final Tile[] xTiles = zTiles[x];
 					for (int y = 0; y < sceneContext.sizeZ; ++y) {
 						final var tile = xTiles[y];
-						if (tile == null)
+						if (tile == null || reuse != null && !reuse.isRegeneratedTile(x, y))
 							continue;
 
 						generateDataForTile(sceneContext, tile, x, y, z);
@@ -602,190 +1046,217 @@ public class ProceduralGenerator {
 					}
 				}
 			}
-		}
 
-		/**
-		 * Produces color and material data for the vertices of the provided Tile.
-		 * Then adds the resulting data to appropriate HashMaps.
-		 *
-		 * @param sceneContext that the tile is associated with
-		 * @param tile         to generate terrain data for
-		 */
-		private void generateDataForTile(SceneContext sceneContext, Tile tile, int tileExX, int tileExY, int plane) {
-			int faceCount;
-			final SceneTilePaint tilePaint = tile.getSceneTilePaint();
-			final SceneTileModel tileModel = tilePaint == null ? tile.getSceneTileModel() : null;
-			if (tilePaint != null) {
-				faceCount = 2;
-			} else if (tileModel != null) {
-				faceCount = tileModel.getFaceX().length;
-			} else {
-				return;
-			}
-
-			final int tileX = tileExX - sceneContext.sceneOffset;
-			final int tileY = tileExY - sceneContext.sceneOffset;
-			final int tileZ = tile.getRenderLevel();
-			sceneContext.sceneToWorld(tileX, tileY, tileZ, worldPos);
-
-			vertexHashes = ensureCapacity(vertexHashes, faceCount * VERTICES_PER_FACE);
-			vertexColors = ensureCapacity(vertexColors, faceCount * VERTICES_PER_FACE);
-			vertexOverrides = ensureCapacity(vertexOverrides, faceCount * VERTICES_PER_FACE, TileOverride[]::new);
-			vertexIsOverlay = ensureCapacity(vertexIsOverlay, faceCount * VERTICES_PER_FACE);
-			vertexDefaultColor = ensureCapacity(vertexDefaultColor, faceCount * VERTICES_PER_FACE);
-
-			Arrays.fill(vertexHashes, 0, faceCount * VERTICES_PER_FACE, 0);
-			Arrays.fill(vertexColors, 0, faceCount * VERTICES_PER_FACE, 0);
-			Arrays.fill(vertexOverrides, 0, faceCount * VERTICES_PER_FACE, null);
-			Arrays.fill(vertexIsOverlay, 0, faceCount * VERTICES_PER_FACE, false);
-			Arrays.fill(vertexDefaultColor, 0, faceCount * VERTICES_PER_FACE, false);
-
-			if (tilePaint != null) {
-				var override = sceneContext.getTileOverride(tileZ, tileExX, tileExY, TILE_OVERRIDE_MAIN);
-				if (override.waterType != WaterType.NONE) {
-					// skip water tiles
-					return;
-				}
+			/**
+			 * Adds the color and material data produced by {@link #generate} to appropriate HashMaps.
+			 */
+			private void merge(SceneContext sceneContext) {
+				final int[] data = vertexData.array;
+				for (int i = 0, vertex = 0; i < vertexData.length; i += 3, vertex++) {
+					final int key = data[i];
+					final int color = data[i + 1];
+					final int flags = data[i + 2];
+					final boolean isOverlay = (flags & VERTEX_FLAG_OVERLAY) != 0;
+					final boolean lowPriorityColor = (flags & VERTEX_FLAG_LOW_PRIORITY_COLOR) != 0;
+					final Material material = vertexMaterials.get(vertex);
+
+					// mark the vertex as either an overlay or underlay.
+					// this is used to determine how to blend between vertex colors
+					sceneContext.setVertexIsOverlay(key, isOverlay);
+
+					// add color and texture to hashmap
+					if ((!lowPriorityColor || !sceneContext.isVertexHighPriorityColor(key)) && (flags & VERTEX_FLAG_DEFAULT_COLOR) == 0) {
+						boolean shouldWrite = isOverlay || !sceneContext.vertexTerrainColor.containsKey(key);
+
+						if (shouldWrite) {
+							sceneContext.vertexTerrainColor.put(key, color);
+							sceneContext.vertexTerrainTexture.put(key, material);
+						} else {
+							sceneContext.vertexTerrainColor.putIfAbsent(key, color);
+							sceneContext.vertexTerrainTexture.putIfAbsent(key, material);
+						}
 
-				int swColor = tilePaint.getSwColor();
-				int seColor = tilePaint.getSeColor();
-				int nwColor = tilePaint.getNwColor();
-				int neColor = tilePaint.getNeColor();
-
-				tileVertexKeys(sceneContext, tile, vertices, vertexHashes);
-
-				if (tileExX >= EXTENDED_SCENE_SIZE - 2 && tileExY >= EXTENDED_SCENE_SIZE - 2) {
-					// reduce the black scene edges by assigning surrounding colors
-					neColor = swColor;
-					nwColor = swColor;
-					seColor = swColor;
-				} else if (tileExY >= EXTENDED_SCENE_SIZE - 2) {
-					nwColor = swColor;
-					neColor = seColor;
-				} else if (tileExX >= EXTENDED_SCENE_SIZE - 2) {
-					neColor = nwColor;
-					seColor = swColor;
+						if (!lowPriorityColor)
+							sceneContext.setVertexHighPriorityColor(key);
+					}
 				}
+			}
 
-				vertexColors[0] = swColor;
-				vertexColors[1] = seColor;
-				vertexColors[2] = nwColor;
-				vertexColors[3] = neColor;
-
-				final boolean useDefaultColor = useDefaultColor(tile, override);
-				for (int i = 0; i < 4; i++) {
-					vertexOverrides[i] = override;
-					vertexIsOverlay[i] = override.queriedAsOverlay;
-					if (useDefaultColor)
-						vertexDefaultColor[i] = true;
+			/**
+			 * Produces color and material data for the vertices of the provided Tile,
+			 * to be added to the appropriate HashMaps by {@link #merge}.
+			 *
+			 * @param sceneContext that the tile is associated with
+			 * @param tile         to generate terrain data for
+			 */
+			private void generateDataForTile(SceneContext sceneContext, Tile tile, int tileExX, int tileExY, int plane) {
+				int faceCount;
+				final SceneTilePaint tilePaint = tile.getSceneTilePaint();
+				final SceneTileModel tileModel = tilePaint == null ? tile.getSceneTileModel() : null;
+				if (tilePaint != null) {
+					faceCount = 2;
+				} else if (tileModel != null) {
+					faceCount = tileModel.getFaceX().length;
+				} else {
+					return;
 				}
-			} else {
-				final int[] faceColorsA = tileModel.getTriangleColorA();
-				final int[] faceColorsB = tileModel.getTriangleColorB();
-				final int[] faceColorsC = tileModel.getTriangleColorC();
 
-				var overlayOverride = sceneContext.getTileOverride(tileZ, tileExX, tileExY, TILE_OVERRIDE_OVERLAY);
-				var underlayOverride = sceneContext.getTileOverride(tileZ, tileExX, tileExY, TILE_OVERRIDE_UNDERLAY);
-
-				for (int face = 0; face < faceCount; face++) {
-					faceVertexKeys(tile, face, vertices, hashes);
-
-					for (int vertex = 0; vertex < VERTICES_PER_FACE; vertex++) {
-						final boolean isOverlay = isOverlayFace(tile, face);
-						final var override = isOverlay ? overlayOverride : underlayOverride;
-						if (override.waterType != WaterType.NONE)
-							continue; // skip water faces
+				final int tileX = tileExX - sceneContext.sceneOffset;
+				final int tileY = tileExY - sceneContext.sceneOffset;
+				final int tileZ = tile.getRenderLevel();
+				sceneContext.sceneToWorld(tileX, tileY, tileZ, worldPos);
+
+				vertexHashes = ensureCapacity(vertexHashes, faceCount * VERTICES_PER_FACE);
+				vertexColors = ensureCapacity(vertexColors, faceCount * VERTICES_PER_FACE);
+				vertexOverrides = ensureCapacity(vertexOverrides, faceCount * VERTICES_PER_FACE, TileOverride[]::new);
+				vertexIsOverlay = ensureCapacity(vertexIsOverlay, faceCount * VERTICES_PER_FACE);
+				vertexDefaultColor = ensureCapacity(vertexDefaultColor, faceCount * VERTICES_PER_FACE);
+
+				Arrays.fill(vertexHashes, 0, faceCount * VERTICES_PER_FACE, 0);
+				Arrays.fill(vertexColors, 0, faceCount * VERTICES_PER_FACE, 0);
+				Arrays.fill(vertexOverrides, 0, faceCount * VERTICES_PER_FACE, null);
+				Arrays.fill(vertexIsOverlay, 0, faceCount * VERTICES_PER_FACE, false);
+				Arrays.fill(vertexDefaultColor, 0, faceCount * VERTICES_PER_FACE, false);
+
+				if (tilePaint != null) {
+					var override = sceneContext.getTileOverride(tileZ, tileExX, tileExY, TILE_OVERRIDE_MAIN);
+					if (override.waterType != WaterType.NONE) {
+						// skip water tiles
+						return;
+					}
 
-						final int base = face * VERTICES_PER_FACE + vertex;
+					int swColor = tilePaint.getSwColor();
+					int seColor = tilePaint.getSeColor();
+					int nwColor = tilePaint.getNwColor();
+					int neColor = tilePaint.getNeColor();
+
+					tileVertexKeys(sceneContext, tile, vertices, vertexHashes);
+
+					if (tileExX >= EXTENDED_SCENE_SIZE - 2 && tileExY >= EXTENDED_SCENE_SIZE - 2) {
+						// reduce the black scene edges by assigning surrounding colors
+						neColor = swColor;
+						nwColor = swColor;
+						seColor = swColor;
+					} else if (tileExY >= EXTENDED_SCENE_SIZE - 2) {
+						nwColor = swColor;
+						neColor = seColor;
+					} else if (tileExX >= EXTENDED_SCENE_SIZE - 2) {
+						neColor = nwColor;
+						seColor = swColor;
+					}
 
-						vertexHashes[base] = hashes[vertex];
-						vertexColors[base] = (vertex == 0 ? faceColorsA : vertex == 1 ? faceColorsB : faceColorsC)[face];
+					vertexColors[0] = swColor;
+					vertexColors[1] = seColor;
+					vertexColors[2] = nwColor;
+					vertexColors[3] = neColor;
+
+					final boolean useDefaultColor = useDefaultColor(tile, override);
+					for (int i = 0; i < 4; i++) {
+						vertexOverrides[i] = override;
+						vertexIsOverlay[i] = override.queriedAsOverlay;
+						if (useDefaultColor)
+							vertexDefaultColor[i] = true;
+					}
+				} else {
+					final int[] faceColorsA = tileModel.getTriangleColorA();
+					final int[] faceColorsB = tileModel.getTriangleColorB();
+					final int[] faceColorsC = tileModel.getTriangleColorC();
 
-						vertexOverrides[base] = override;
-						vertexIsOverlay[base] = isOverlay;
+					var overlayOverride = sceneContext.getTileOverride(tileZ, tileExX, tileExY, TILE_OVERRIDE_OVERLAY);
+					var underlayOverride = sceneContext.getTileOverride(tileZ, tileExX, tileExY, TILE_OVERRIDE_UNDERLAY);
 
-						if (isOverlay && useDefaultColor(tile, override))
-							vertexDefaultColor[base] = true;
-					}
-				}
-			}
+					for (int face = 0; face < faceCount; face++) {
+						faceVertexKeys(tile, face, vertices, hashes);
 
-			final int vertexCount = faceCount * VERTICES_PER_FACE;
-			for (int vertex = 0; vertex < vertexCount; vertex++) {
-				if (vertexHashes[vertex] == 0)
-					continue;
+						for (int vertex = 0; vertex < VERTICES_PER_FACE; vertex++) {
+							final boolean isOverlay = isOverlayFace(tile, face);
+							final var override = isOverlay ? overlayOverride : underlayOverride;
+							if (override.waterType != WaterType.NONE)
+								continue; // skip water faces
 
-				int color = vertexColors[vertex];
-				var override = vertexOverrides[vertex];
-				if (color < 0 || color == HIDDEN_HSL && !override.forced)
-					continue;
+							final int base = face * VERTICES_PER_FACE + vertex;
 
-				// if this vertex already has a 'high priority' color assigned,
-				// skip assigning a 'low priority' color unless there is no color assigned.
-				// Near-solid-black tiles that are used in some places under wall objects
-				boolean lowPriorityColor = vertexColors[vertex] <= 2;
+							vertexHashes[base] = hashes[vertex];
+							vertexColors[base] = (vertex == 0 ? faceColorsA : vertex == 1 ? faceColorsB : faceColorsC)[face];
 
-				float lightenMultiplier = 1.5f;
-				int lightenBase = 15;
-				int lightenAdd = 3;
-				float darkenMultiplier = 0.5f;
+							vertexOverrides[base] = override;
+							vertexIsOverlay[base] = isOverlay;
 
-				float dot = 0;
-				final int key = vertexHashes[vertex];
-				if (sceneContext.getVertexNormal(key, vNormals) == null) {
-					vNormals[0] = vNormals[1] = vNormals[2] = 0;
-				} else {
-					dot = dot(vNormals);
-					if (dot >= EPSILON) {
-						// Approximately reverse vanilla tile lighting
-						dot = (vNormals[0] + vNormals[2]) / sqrt(2 * dot);
+							if (isOverlay && useDefaultColor(tile, override))
+								vertexDefaultColor[base] = true;
+						}
 					}
 				}
 
-				int lightness = color & 0x7F;
-
-				float lightFactor = Math.max(dot, 0f);
-				int adjustedLight = (int) (Math.max(lightness - lightenAdd, 0) * lightenMultiplier + lightenBase);
-				lightness = (int) mix(lightness, adjustedLight, lightFactor);
+				final int vertexCount = faceCount * VERTICES_PER_FACE;
+				for (int vertex = 0; vertex < vertexCount; vertex++) {
+					if (vertexHashes[vertex] == 0 || reuse != null && !reuse.isFreshVertex(vertexHashes[vertex]))
+						continue;
+
+					int color = vertexColors[vertex];
+					var override = vertexOverrides[vertex];
+					if (color < 0 || color == HIDDEN_HSL && !override.forced)
+						continue;
+
+					// if this vertex already has a 'high priority' color assigned,
+					// skip assigning a 'low priority' color unless there is no color assigned.
+					// Near-solid-black tiles that are used in some places under wall objects
+					boolean lowPriorityColor = vertexColors[vertex] <= 2;
+
+					float lightenMultiplier = 1.5f;
+					int lightenBase = 15;
+					int lightenAdd = 3;
+					float darkenMultiplier = 0.5f;
+
+					float dot = 0;
+					final int key = vertexHashes[vertex];
+					if (sceneContext.getVertexNormal(key, vNormals) == null) {
+						vNormals[0] = vNormals[1] = vNormals[2] = 0;
+					} else {
+						dot = dot(vNormals);
+						if (dot >= EPSILON) {
+							// Approximately reverse vanilla tile lighting
+							dot = (vNormals[0] + vNormals[2]) / sqrt(2 * dot);
+						}
+					}
 
-				float darkFactor = -Math.min(dot, 0f);
-				int darkened = (int) (lightness * darkenMultiplier);
-				lightness = (int) (1.25f * mix(lightness, darkened, darkFactor));
+					int lightness = color & 0x7F;
 
-				lightness = Math.min(lightness, 55); // reduces overexposure
-				color = (color & ~0x7F) | lightness;
+					float lightFactor = Math.max(dot, 0f);
+					int adjustedLight = (int) (Math.max(lightness - lightenAdd, 0) * lightenMultiplier + lightenBase);
+					lightness = (int) mix(lightness, adjustedLight, lightFactor);
 
-				color = override.modifyColor(color);
+					float darkFactor = -Math.min(dot, 0f);
+					int darkened = (int) (lightness * darkenMultiplier);
+					lightness = (int) (1.25f * mix(lightness, darkened, darkFactor));
 
-				final Material material = override.groundMaterial.getRandomMaterial(worldPos);
-				final boolean isOverlay = vertexIsOverlay[vertex] != override.blendedAsOpposite;
+					lightness = Math.min(lightness, 55); // reduces overexposure
+					color = (color & ~0x7F) | lightness;
 
-				// mark the vertex as either an overlay or underlay.
-				// this is used to determine how to blend between vertex colors
-				sceneContext.setVertexIsOverlay(key, isOverlay);
+					color = override.modifyColor(color);
 
-				// add color and texture to hashmap
-				if ((!lowPriorityColor || !sceneContext.isVertexHighPriorityColor(key)) && !vertexDefaultColor[vertex]) {
-					boolean shouldWrite = isOverlay || !sceneContext.vertexTerrainColor.containsKey(key);
+					final Material material = override.groundMaterial.getRandomMaterial(worldPos);
+					final boolean isOverlay = vertexIsOverlay[vertex] != override.blendedAsOpposite;
 
-					if (shouldWrite) {
-						sceneContext.vertexTerrainColor.put(key, color);
-						sceneContext.vertexTerrainTexture.put(key, material);
-					} else {
-						sceneContext.vertexTerrainColor.putIfAbsent(key, color);
-						sceneContext.vertexTerrainTexture.putIfAbsent(key, material);
-					}
-
-					if (!lowPriorityColor)
-						sceneContext.setVertexHighPriorityColor(key);
+					vertexData.ensureCapacity(3);
+					vertexData.put(key);
+					vertexData.put(color);
+					vertexData.put(
+						(isOverlay ? VERTEX_FLAG_OVERLAY : 0) |
+						(lowPriorityColor ? VERTEX_FLAG_LOW_PRIORITY_COLOR : 0) |
+						(vertexDefaultColor[vertex] ? VERTEX_FLAG_DEFAULT_COLOR : 0)
+					);
+					vertexMaterials.add(material);
 				}
 			}
 		}
 	}
 
 	final class UnderwaterTerrainGenerator {
-		private final int[][] vertices = new int[4][3];
-		private final int[] hashes = new int[4];
+		private static final int VERTEX_LAND = 1;
+		private static final int VERTEX_WATER = 2;
+
+		private final ArrayList<Chunk> chunks = new ArrayList<>();
 
 		private final byte[][][] underwaterDepthLevels = new byte[MAX_Z][EXTENDED_SCENE_SIZE + 1][EXTENDED_SCENE_SIZE + 1];
 
@@ -808,9 +1279,9 @@ public class ProceduralGenerator {
 			// bit 2 set if a tile will be skipped when the scene is drawn,
 			// 	this is due to certain edge cases with water on the same X/Y on different planes
 			sceneContext.tileFlags = new byte[MAX_Z * sizeX * sizeY];
-			sceneContext.vertexTerrainData = new Int2IntHashMap(
+			sceneContext.vertexTerrainData = new TileVertexIntMap(
 				prevSceneCtx != null && prevSceneCtx.vertexTerrainData != null ?
-					prevSceneCtx.vertexTerrainData.capacity() : 0);
+					prevSceneCtx.vertexTerrainData.overflowSize() : 0);
 			// the world-space height offsets of each vertex on the tile grid
 			// these offsets are interpolated to calculate offsets for vertices not on the grid (tile models)
 
@@ -823,208 +1294,318 @@ public class ProceduralGenerator {
 				}
 			}
 
+			final int stripCount = getStripCount(sizeX);
+			while (chunks.size() < MAX_Z * stripCount)
+				chunks.add(new Chunk());
+
+			// Figure out which vertices are water in parallel strips spanning all planes, since whether a tile
+			// generates water depends on the tiles below it. Tile flags and depth levels can be written directly,
+			// while vertex data is merged afterwards in the original plane and tile order
+			forEachChunk(
+				"classify water tiles", stripCount,
+				i -> chunks.get(i).classifyTiles(sceneContext, i * STRIP_WIDTH)
+			);
+
 			int minZ = MAX_Z, maxZ = 0;
 			Arrays.fill(minX, sizeX);
 			Arrays.fill(minY, sizeY);
 			Arrays.fill(maxX, 0);
 			Arrays.fill(maxY, 0);
 
-			// figure out which vertices are water and assign some data
 			for (int z = 0; z < MAX_Z; ++z) {
-				final Tile[][] zTiles = tiles[z];
-				final byte[][] zUnderwaterDepthLevels = underwaterDepthLevels[z];
-				for (int x = 0; x < sizeX; ++x) {
-					final Tile[] xTiles = zTiles[x];
-					for (int y = 0; y < sizeY; ++y) {
-						Tile tile = xTiles[y];
-						if (tile == null) {
-							zUnderwaterDepthLevels[x][y] = 0;
-							zUnderwaterDepthLevels[x + 1][y] = 0;
-							zUnderwaterDepthLevels[x][y + 1] = 0;
-							zUnderwaterDepthLevels[x + 1][y + 1] = 0;
-							continue;
+				for (int i = 0; i < stripCount; i++) {
+					final Chunk chunk = chunks.get(i);
+					final PrimitiveIntArray vertexFlags = chunk.vertexFlags[z];
+					for (int j = 0; j < vertexFlags.length; j += 2) {
+						if (vertexFlags.array[j + 1] == VERTEX_LAND) {
+							sceneContext.setVertexIsLand(vertexFlags.array[j]);
+						} else {
+							sceneContext.setVertexIsWater(vertexFlags.array[j]);
 						}
+					}
 
-						if (tile.getBridge() != null)
-							tile = tile.getBridge();
+					if (chunk.minX[z] <= chunk.maxX[z]) {
+						maxZ = max(maxZ, z);
+						minZ = min(minZ, z);
+						minX[z] = min(minX[z], chunk.minX[z]);
+						maxX[z] = max(maxX[z], chunk.maxX[z]);
+						minY[z] = min(minY[z], chunk.minY[z]);
+						maxY[z] = max(maxY[z], chunk.maxY[z]);
+					}
+				}
+			}
+
+			// Sink terrain further from shore by desired levels.
+			// Each pass reads depth levels written earlier in the same pass, so this has to remain sequential.
+			// noinspection ConstantValue
+			assert DEPTH_LEVEL_SLOPE.length <= Byte.MAX_VALUE;
+			for (int level = 0; level < DEPTH_LEVEL_SLOPE.length - 1; level++) {
+				for (int z = minZ; z <= maxZ; ++z) {
+					final byte[][] zUnderwaterDepthLevels = underwaterDepthLevels[z];
+					for (int x = minX[z]; x <= maxX[z]; x++) {
+						for (int y = minY[z]; y <= maxY[z]; y++) {
+							int tileHeight = zUnderwaterDepthLevels[x][y];
+							if (tileHeight == 0)
+								continue; // Skip the tile if it isn't water.
 
-						final int tileZ = tile.getRenderLevel();
-						final SceneTilePaint tilePaint = tile.getSceneTilePaint();
-						final SceneTileModel tileModel = tilePaint == null ? tile.getSceneTileModel() : null;
+							// If it's on the edge of the scene, reset the depth so
+							// it creates a 'wall' to prevent fog from passing through.
+							// Not incredibly effective, but better than nothing.
+							if (x == 0 || y == 0 || x == EXTENDED_SCENE_SIZE || y == EXTENDED_SCENE_SIZE) {
+								zUnderwaterDepthLevels[x][y] = 0;
+								continue;
+							}
 
-						if (tilePaint != null) {
-							tileVertexKeys(sceneContext, tile, vertices, hashes);
+							if (zUnderwaterDepthLevels[x - 1][y] < tileHeight ||
+								zUnderwaterDepthLevels[x][y - 1] < tileHeight ||
+								x < zUnderwaterDepthLevels.length - 1 && zUnderwaterDepthLevels[x + 1][y] < tileHeight ||
+								y < zUnderwaterDepthLevels.length - 1 && zUnderwaterDepthLevels[x][y + 1] < tileHeight)
+								continue;
+
+							// At this point, it's surrounded only by other depth-adjusted vertices.
+							zUnderwaterDepthLevels[x][y]++;
+						}
+					}
+				}
+			}
+
+			// Store the height offsets in a hashmap and calculate interpolated
+			// height offsets for non-corner vertices.
+			if (minZ <= maxZ) {
+				final int firstZ = minZ;
+				final int chunkCount = (maxZ - minZ + 1) * stripCount;
+				forEachChunk(
+					"calculate underwater depths", chunkCount,
+					i -> chunks.get(i).calculateDepths(sceneContext, firstZ + i / stripCount, i % stripCount * STRIP_WIDTH)
+				);
+				for (int i = 0; i < chunkCount; i++) {
+					final PrimitiveIntArray vertexDepths = chunks.get(i).vertexDepths;
+					for (int j = 0; j < vertexDepths.length; j += 2)
+						sceneContext.setVertexUnderwaterDepth(vertexDepths.array[j], vertexDepths.array[j + 1]);
+				}
+			}
+
+			if (sceneContext instanceof LegacySceneContext) {
+				byte[][][] sceneUnderwaterDepthLevels = ((LegacySceneContext) sceneContext).underwaterDepthLevels;
+				for (int z = 0; z < MAX_Z; ++z)
+					for (int x = 0; x < sizeX; ++x)
+						System.arraycopy(this.underwaterDepthLevels[z][x], 0, sceneUnderwaterDepthLevels[z][x], 0, sizeY);
+			}
+		}
+
+		private int getHeightOffset(int z, int x, int y) {
+			int depthLevel = underwaterDepthLevels[z][x][y];
+			if (depthLevel == 0)
+				return 0;
+
+			int depth = DEPTH_LEVEL_SLOPE[depthLevel - 1];
+			return (int) (depth * .55f); // legacy weirdness
+		}
+
+		private final class Chunk {
+			private final int[][] vertices = new int[4][3];
+			private final int[] hashes = new int[4];
 
-							var override = sceneContext.getTileOverride(tileZ, x, y, TILE_OVERRIDE_MAIN);
-							if (seasonalWaterType(override, tilePaint.getTexture()) == WaterType.NONE) {
-								for (int i = 0; i < hashes.length; i++)
-									if (tilePaint.getNeColor() != HIDDEN_HSL || override.forced)
-										sceneContext.setVertexIsLand(hashes[i]);
+			// Pairs of vertex key and VERTEX_LAND or VERTEX_WATER, for each plane
+			private final PrimitiveIntArray[] vertexFlags = new PrimitiveIntArray[MAX_Z];
+			// Pairs of vertex key and underwater depth
+			private final PrimitiveIntArray vertexDepths = new PrimitiveIntArray();
 
+			// Defines ranges of water tiles within the chunk
+			private final int[] minX = new int[MAX_Z];
+			private final int[] maxX = new int[MAX_Z];
+			private final int[] minY = new int[MAX_Z];
+			private final int[] maxY = new int[MAX_Z];
+
+			private Chunk() {
+				for (int z = 0; z < MAX_Z; z++)
+					vertexFlags[z] = new PrimitiveIntArray();
+			}
+
+			private void putVertexFlag(int z, int hash, int flag) {
+				vertexFlags[z].ensureCapacity(2);
+				vertexFlags[z].put(hash);
+				vertexFlags[z].put(flag);
+			}
+
+			private void putVertexDepth(int hash, int depth) {
+				vertexDepths.ensureCapacity(2);
+				vertexDepths.put(hash);
+				vertexDepths.put(depth);
+			}
+
+			private void expandWaterBounds(int z, int x, int y) {
+				minX[z] = min(minX[z], x);
+				maxX[z] = max(maxX[z], x);
+				minY[z] = min(minY[z], y);
+				maxY[z] = max(maxY[z], y);
+			}
+
+			private void classifyTiles(SceneContext sceneContext, int startX) {
+				final Tile[][][] tiles = sceneContext.scene.getExtendedTiles();
+				final int endX = min(startX + STRIP_WIDTH, sceneContext.sizeX);
+				final int sizeY = sceneContext.sizeZ;
+
+				Arrays.fill(minX, Integer.MAX_VALUE);
+				Arrays.fill(minY, Integer.MAX_VALUE);
+				Arrays.fill(maxX, -1);
+				Arrays.fill(maxY, -1);
+
+				for (int z = 0; z < MAX_Z; ++z) {
+					vertexFlags[z].reset();
+					final Tile[][] zTiles = tiles[z];
+					final byte[][] zUnderwaterDepthLevels = underwaterDepthLevels[z];
+					for (int x = startX; x < endX; ++x) {
+						final Tile[] xTiles = zTiles[x];
+						for (int y = 0; y < sizeY; ++y) {
+							Tile tile = xTiles[y];
+							if (tile == null) {
 								zUnderwaterDepthLevels[x][y] = 0;
 								zUnderwaterDepthLevels[x + 1][y] = 0;
 								zUnderwaterDepthLevels[x][y + 1] = 0;
 								zUnderwaterDepthLevels[x + 1][y + 1] = 0;
-							} else {
-								// Stop tiles on the same X,Y coordinates on different planes from
-								// each generating water. Prevents undesirable results in certain places.
-								if (z > 0) {
-									boolean continueLoop = false;
+								continue;
+							}
 
-									for (int checkZ = 0; checkZ < z; ++checkZ) {
-										if (sceneContext.isTileFlagSet(checkZ, x, y, TILE_WATER_FLAG)) {
-											zUnderwaterDepthLevels[x][y] = 0;
-											zUnderwaterDepthLevels[x + 1][y] = 0;
-											zUnderwaterDepthLevels[x][y + 1] = 0;
-											zUnderwaterDepthLevels[x + 1][y + 1] = 0;
+							if (tile.getBridge() != null)
+								tile = tile.getBridge();
 
-											sceneContext.setTileFlag(z, x, y, TILE_SKIP_FLAG);
+							final int tileZ = tile.getRenderLevel();
+							final SceneTilePaint tilePaint = tile.getSceneTilePaint();
+							final SceneTileModel tileModel = tilePaint == null ? tile.getSceneTileModel() : null;
 
-											continueLoop = true;
+							if (tilePaint != null) {
+								tileVertexKeys(sceneContext, tile, vertices, hashes);
 
-											break;
-										}
-									}
+								var override = sceneContext.getTileOverride(tileZ, x, y, TILE_OVERRIDE_MAIN);
+								if (seasonalWaterType(override, tilePaint.getTexture()) == WaterType.NONE) {
+									for (int i = 0; i < hashes.length; i++)
+										if (tilePaint.getNeColor() != HIDDEN_HSL || override.forced)
+											putVertexFlag(z, hashes[i], VERTEX_LAND);
 
-									if (continueLoop)
-										continue;
-								}
+									zUnderwaterDepthLevels[x][y] = 0;
+									zUnderwaterDepthLevels[x + 1][y] = 0;
+									zUnderwaterDepthLevels[x][y + 1] = 0;
+									zUnderwaterDepthLevels[x + 1][y + 1] = 0;
+								} else {
+									// Stop tiles on the same X,Y coordinates on different planes from
+									// each generating water. Prevents undesirable results in certain places.
+									if (z > 0) {
+										boolean continueLoop = false;
 
-								sceneContext.setTileFlag(z, x, y, TILE_WATER_FLAG);
-								maxZ = max(maxZ, z);
-								minZ = min(minZ, z);
-								minX[z] = min(minX[z], x);
-								maxX[z] = max(maxX[z], x);
-								minY[z] = min(minY[z], y);
-								maxY[z] = max(maxY[z], y);
+										for (int checkZ = 0; checkZ < z; ++checkZ) {
+											if (sceneContext.isTileFlagSet(checkZ, x, y, TILE_WATER_FLAG)) {
+												zUnderwaterDepthLevels[x][y] = 0;
+												zUnderwaterDepthLevels[x + 1][y] = 0;
+												zUnderwaterDepthLevels[x][y + 1] = 0;
+												zUnderwaterDepthLevels[x + 1][y + 1] = 0;
 
-								for (int i = 0; i < hashes.length; i++)
-									sceneContext.setVertexIsWater(hashes[i]);
-							}
-						} else if (tileModel != null) {
-							int faceCount = tileModel.getFaceX().length;
+												sceneContext.setTileFlag(z, x, y, TILE_SKIP_FLAG);
 
-							var overlayOverride = sceneContext.getTileOverride(tileZ, x, y, TILE_OVERRIDE_OVERLAY);
-							var underlayOverride = sceneContext.getTileOverride(tileZ, x, y, TILE_OVERRIDE_UNDERLAY);
+												continueLoop = true;
 
-							// Stop tiles on the same X,Y coordinates on different planes from
-							// each generating water. Prevents undesirable results in certain places.
-							if (z > 0) {
-								boolean tileIncludesWater = false;
-								for (int face = 0; face < faceCount; face++) {
-									var override = ProceduralGenerator.isOverlayFace(tile, face) ? overlayOverride : underlayOverride;
-									int textureId = tileModel.getTriangleTextureId() == null ? -1 :
-										tileModel.getTriangleTextureId()[face];
-									if (seasonalWaterType(override, textureId) != WaterType.NONE) {
-										tileIncludesWater = true;
-										break;
-									}
-								}
+												break;
+											}
+										}
 
-								if (tileIncludesWater) {
-									boolean continueLoop = false;
+										if (continueLoop)
+											continue;
+									}
 
-									for (int checkZ = 0; checkZ < z; ++checkZ) {
-										if (sceneContext.isTileFlagSet(checkZ, x, y, TILE_WATER_FLAG)) {
-											zUnderwaterDepthLevels[x][y] = 0;
-											zUnderwaterDepthLevels[x + 1][y] = 0;
-											zUnderwaterDepthLevels[x][y + 1] = 0;
-											zUnderwaterDepthLevels[x + 1][y + 1] = 0;
+									sceneContext.setTileFlag(z, x, y, TILE_WATER_FLAG);
+									expandWaterBounds(z, x, y);
 
-											sceneContext.setTileFlag(z, x, y, TILE_SKIP_FLAG);
+									for (int i = 0; i < hashes.length; i++)
+										putVertexFlag(z, hashes[i], VERTEX_WATER);
+								}
+							} else if (tileModel != null) {
+								int faceCount = tileModel.getFaceX().length;
 
-											continueLoop = true;
+								var overlayOverride = sceneContext.getTileOverride(tileZ, x, y, TILE_OVERRIDE_OVERLAY);
+								var underlayOverride = sceneContext.getTileOverride(tileZ, x, y, TILE_OVERRIDE_UNDERLAY);
 
+								// Stop tiles on the same X,Y coordinates on different planes from
+								// each generating water. Prevents undesirable results in certain places.
+								if (z > 0) {
+									boolean tileIncludesWater = false;
+									for (int face = 0; face < faceCount; face++) {
+										var override = ProceduralGenerator.isOverlayFace(tile, face) ? overlayOverride : underlayOverride;
+										int textureId = tileModel.getTriangleTextureId() == null ? -1 :
+											tileModel.getTriangleTextureId()[face];
+										if (seasonalWaterType(override, textureId) != WaterType.NONE) {
+											tileIncludesWater = true;
 											break;
 										}
 									}
 
-									if (continueLoop)
-										continue;
-								}
-							}
+									if (tileIncludesWater) {
+										boolean continueLoop = false;
 
-							for (int face = 0; face < faceCount; face++) {
-								faceVertexKeys(tile, face, vertices, hashes);
+										for (int checkZ = 0; checkZ < z; ++checkZ) {
+											if (sceneContext.isTileFlagSet(checkZ, x, y, TILE_WATER_FLAG)) {
+												zUnderwaterDepthLevels[x][y] = 0;
+												zUnderwaterDepthLevels[x + 1][y] = 0;
+												zUnderwaterDepthLevels[x][y + 1] = 0;
+												zUnderwaterDepthLevels[x + 1][y + 1] = 0;
 
-								var override = ProceduralGenerator.isOverlayFace(tile, face) ? overlayOverride : underlayOverride;
-								int textureId = tileModel.getTriangleTextureId() == null ? -1 :
-									tileModel.getTriangleTextureId()[face];
-								if (seasonalWaterType(override, textureId) == WaterType.NONE) {
-									for (int vertex = 0; vertex < VERTICES_PER_FACE; vertex++) {
-										if (tileModel.getTriangleColorA()[face] != HIDDEN_HSL || override.forced)
-											sceneContext.setVertexIsLand(hashes[vertex]);
+												sceneContext.setTileFlag(z, x, y, TILE_SKIP_FLAG);
 
-										if (vertices[vertex][0] % LOCAL_TILE_SIZE == 0 && vertices[vertex][2] % LOCAL_TILE_SIZE == 0) {
-											int vX = (vertices[vertex][0] >> LOCAL_COORD_BITS) + sceneContext.sceneOffset;
-											int vY = (vertices[vertex][2] >> LOCAL_COORD_BITS) + sceneContext.sceneOffset;
+												continueLoop = true;
 
-											zUnderwaterDepthLevels[vX][vY] = 0;
+												break;
+											}
 										}
+
+										if (continueLoop)
+											continue;
 									}
-								} else {
-									sceneContext.setTileFlag(z, x, y, TILE_WATER_FLAG);
-									minZ = min(minZ, z);
-									maxZ = max(maxZ, z);
-									minX[z] = min(minX[z], x);
-									maxX[z] = max(maxX[z], x);
-									minY[z] = min(minY[z], y);
-									maxY[z] = max(maxY[z], y);
-
-									for (int vertex = 0; vertex < VERTICES_PER_FACE; vertex++)
-										sceneContext.setVertexIsWater(hashes[vertex]);
 								}
-							}
-						} else {
-							zUnderwaterDepthLevels[x][y] = 0;
-							zUnderwaterDepthLevels[x + 1][y] = 0;
-							zUnderwaterDepthLevels[x][y + 1] = 0;
-							zUnderwaterDepthLevels[x + 1][y + 1] = 0;
-						}
-					}
-				}
-			}
 
-			// Sink terrain further from shore by desired levels.
-			// noinspection ConstantValue
-			assert DEPTH_LEVEL_SLOPE.length <= Byte.MAX_VALUE;
-			for (int level = 0; level < DEPTH_LEVEL_SLOPE.length - 1; level++) {
-				for (int z = minZ; z <= maxZ; ++z) {
-					final byte[][] zUnderwaterDepthLevels = underwaterDepthLevels[z];
-					for (int x = minX[z]; x <= maxX[z]; x++) {
-						for (int y = minY[z]; y <= maxY[z]; y++) {
-							int tileHeight = zUnderwaterDepthLevels[x][y];
-							if (tileHeight == 0)
-								continue; // Skip the tile if it isn't water.
+								for (int face = 0; face < faceCount; face++) {
+									faceVertexKeys(tile, face, vertices, hashes);
 
-							// If it's on the edge of the scene, reset the depth so
-							// it creates a 'wall' to prevent fog from passing through.
-							// Not incredibly effective, but better than nothing.
-							if (x == 0 || y == 0 || x == EXTENDED_SCENE_SIZE || y == EXTENDED_SCENE_SIZE) {
-								zUnderwaterDepthLevels[x][y] = 0;
-								continue;
-							}
+									var override = ProceduralGenerator.isOverlayFace(tile, face) ? overlayOverride : underlayOverride;
+									int textureId = tileModel.getTriangleTextureId() == null ? -1 :
+										tileModel.getTriangleTextureId()[face];
+									if (seasonalWaterType(override, textureId) == WaterType.NONE) {
+										for (int vertex = 0; vertex < VERTICES_PER_FACE; vertex++) {
+											if (tileModel.getTriangleColorA()[face] != HIDDEN_HSL || override.forced)
+												putVertexFlag(z, hashes[vertex], VERTEX_LAND);
 
-							if (zUnderwaterDepthLevels[x - 1][y] < tileHeight ||
-								zUnderwaterDepthLevels[x][y - 1] < tileHeight ||
-								x < zUnderwaterDepthLevels.length - 1 && zUnderwaterDepthLevels[x + 1][y] < tileHeight ||
-								y < zUnderwaterDepthLevels.length - 1 && zUnderwaterDepthLevels[x][y + 1] < tileHeight)
-								continue;
+											if (vertices[vertex][0] % LOCAL_TILE_SIZE == 0 && vertices[vertex][2] % LOCAL_TILE_SIZE == 0) {
+												int vX = (vertices[vertex][0] >> LOCAL_COORD_BITS) + sceneContext.sceneOffset;
+												int vY = (vertices[vertex][2] >> LOCAL_COORD_BITS) + sceneContext.sceneOffset;
 
-							// At this point, it's surrounded only by other depth-adjusted vertices.
-							zUnderwaterDepthLevels[x][y]++;
+												zUnderwaterDepthLevels[vX][vY] = 0;
+											}
+										}
+									} else {
+										sceneContext.setTileFlag(z, x, y, TILE_WATER_FLAG);
+										expandWaterBounds(z, x, y);
+
+										for (int vertex = 0; vertex < VERTICES_PER_FACE; vertex++)
+											putVertexFlag(z, hashes[vertex], VERTEX_WATER);
+									}
+								}
+							} else {
+								zUnderwaterDepthLevels[x][y] = 0;
+								zUnderwaterDepthLevels[x + 1][y] = 0;
+								zUnderwaterDepthLevels[x][y + 1] = 0;
+								zUnderwaterDepthLevels[x + 1][y + 1] = 0;
+							}
 						}
 					}
 				}
 			}
 
-			// Store the height offsets in a hashmap and calculate interpolated
-			// height offsets for non-corner vertices.
-			for (int z = minZ; z <= maxZ; ++z) {
-				final Tile[][] zTiles = tiles[z];
-				for (int x = minX[z]; x <= maxX[z]; x++) {
+			private void calculateDepths(SceneContext sceneContext, int z, int startX) {
+				vertexDepths.reset();
+
+				final Tile[][] zTiles = sceneContext.scene.getExtendedTiles()[z];
+				final int endX = min(startX + STRIP_WIDTH - 1, UnderwaterTerrainGenerator.this.maxX[z]);
+				for (int x = max(startX, UnderwaterTerrainGenerator.this.minX[z]); x <= endX; x++) {
 					final Tile[] xTiles = zTiles[x];
-					for (int y = minY[z]; y <= maxY[z]; y++) {
+					for (int y = UnderwaterTerrainGenerator.this.minY[z]; y <= UnderwaterTerrainGenerator.this.maxY[z]; y++) {
 						Tile tile = xTiles[y];
 						if (tile == null)
 							continue;
@@ -1043,10 +1624,10 @@ public class ProceduralGenerator {
 							final int nwVertex = getHeightOffset(z, x, y + 1);
 							final int neVertex = getHeightOffset(z, x + 1, y + 1);
 
-							sceneContext.setVertexUnderwaterDepth(hashes[0], swVertex);
-							sceneContext.setVertexUnderwaterDepth(hashes[1], seVertex);
-							sceneContext.setVertexUnderwaterDepth(hashes[2], nwVertex);
-							sceneContext.setVertexUnderwaterDepth(hashes[3], neVertex);
+							putVertexDepth(hashes[0], swVertex);
+							putVertexDepth(hashes[1], seVertex);
+							putVertexDepth(hashes[2], nwVertex);
+							putVertexDepth(hashes[3], neVertex);
 						} else if (tile.getSceneTileModel() != null) {
 							SceneTileModel sceneTileModel = tile.getSceneTileModel();
 
@@ -1064,7 +1645,7 @@ public class ProceduralGenerator {
 										int vY = (vertices[vertex][2] >> LOCAL_COORD_BITS) + sceneContext.sceneOffset;
 
 										int height = getHeightOffset(z, vX, vY);
-										sceneContext.setVertexUnderwaterDepth(hashes[vertex], height);
+										putVertexDepth(hashes[vertex], height);
 									} else {
 										// If the tile is a tile model and this vertex is shared only by faces that are water,
 										// interpolate between the height offsets at each corner to get the height offset
@@ -1083,8 +1664,9 @@ public class ProceduralGenerator {
 											lerpX);
 										int heightOffset = (int) mix(southHeightOffset, northHeightOffset, lerpY);
 
+										// Land flags are final at this point, so they can be checked ahead of the merge
 										if (!sceneContext.isVertexLand(hashes[vertex]))
-											sceneContext.setVertexUnderwaterDepth(hashes[vertex], heightOffset);
+											putVertexDepth(hashes[vertex], heightOffset);
 									}
 								}
 							}
@@ -1092,22 +1674,6 @@ public class ProceduralGenerator {
 					}
 				}
 			}
-
-			if (sceneContext instanceof LegacySceneContext) {
-				byte[][][] sceneUnderwaterDepthLevels = ((LegacySceneContext) sceneContext).underwaterDepthLevels;
-				for (int z = 0; z < MAX_Z; ++z)
-					for (int x = 0; x < sizeX; ++x)
-						System.arraycopy(this.underwaterDepthLevels[z][x], 0, sceneUnderwaterDepthLevels[z][x], 0, sizeY);
-			}
-		}
-
-		private int getHeightOffset(int z, int x, int y) {
-			int depthLevel = underwaterDepthLevels[z][x][y];
-			if (depthLevel == 0)
-				return 0;
-
-			int depth = DEPTH_LEVEL_SLOPE[depthLevel - 1];
-			return (int) (depth * .55f); // legacy weirdness
 		}
 	}
 
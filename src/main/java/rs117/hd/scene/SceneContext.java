@@ -15,8 +15,8 @@ import rs117.hd.scene.materials.Material;
 import rs117.hd.scene.tile_overrides.TileOverride;
 import rs117.hd.scene.tile_overrides.TileOverrideVariables;
 import rs117.hd.utils.HDUtils;
-import rs117.hd.utils.collections.Int2IntHashMap;
-import rs117.hd.utils.collections.Int2ObjectHashMap;
+import rs117.hd.utils.collections.TileVertexIntMap;
+import rs117.hd.utils.collections.TileVertexObjectMap;
 
 import static net.runelite.api.Constants.*;
 import static net.runelite.api.Constants.SCENE_SIZE;
@@ -70,10 +70,10 @@ public class SceneContext {
 	public char[] tileOverrideIndices;
 
 	// Terrain data
-	public Int2ObjectHashMap<Material> vertexTerrainTexture;
-	public Int2IntHashMap vertexTerrainColor;
-	public Int2IntHashMap vertexTerrainData;
-	public Int2IntHashMap vertexTerrainNormalIndices;
+	public TileVertexObjectMap<Material> vertexTerrainTexture;
+	public TileVertexIntMap vertexTerrainColor;
+	public TileVertexIntMap vertexTerrainData;
+	public TileVertexIntMap vertexTerrainNormalIndices;
 	public short[] vertexTerrainNormals;
 
 	public SceneContext(Client client, Scene scene, int expandedMapLoadingChunks) {
@@ -11,6 +11,7 @@ import java.util.Set;
 import javax.annotation.Nonnull;
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.*;
 import net.runelite.api.coords.*;
@@ -20,10 +21,10 @@ import rs117.hd.renderer.zone.SceneManager;
 import rs117.hd.scene.areas.Area;
 import rs117.hd.scene.ground_materials.GroundMaterial;
 import rs117.hd.scene.tile_overrides.TileOverride;
+import rs117.hd.scene.tile_overrides.TileOverrideIndex;
 import rs117.hd.utils.FileWatcher;
 import rs117.hd.utils.Props;
 import rs117.hd.utils.ResourcePath;
-import rs117.hd.utils.collections.Int2ObjectHashMap;
 
 import static rs117.hd.scene.tile_overrides.TileOverride.OVERLAY_FLAG;
 import static rs117.hd.utils.HDUtils.localToWorld;
@@ -53,8 +54,8 @@ public class TileOverrideManager {
 
 	private FileWatcher.UnregisterCallback fileWatcher;
 	private boolean trackReplacements;
-	private List<TileOverride> anyMatchOverrides;
-	private Int2ObjectHashMap<List<TileOverride>> idMatchOverrides;
+	@Getter
+	private TileOverrideIndex overrideIndex;
 
 	public void startUp() {
 		fileWatcher = TILE_OVERRIDES_PATH.watch((path, first) -> clientThread.invoke(() -> reload(first)));
@@ -65,8 +66,7 @@ public class TileOverrideManager {
 			fileWatcher.unregister();
 		OVERRIDES = null;
 		fileWatcher = null;
-		anyMatchOverrides = null;
-		idMatchOverrides = null;
+		overrideIndex = null;
 	}
 
 	public void reload(boolean skipSceneReload) {
@@ -92,13 +92,11 @@ public class TileOverrideManager {
 
 			checkForReplacementLoops(allOverrides);
 
-			List<TileOverride> anyMatch = new ArrayList<>();
-			Int2ObjectHashMap<List<TileOverride>> idMatch = new Int2ObjectHashMap<>();
-
 			var tileOverrideVars = plugin.vars.aliases(Map.of(
 				"textures", "groundTextures"
 			));
 
+			List<TileOverride> validOverrides = new ArrayList<>(allOverrides.length);
 			for (int i = 0; i < allOverrides.length; i++) {
 				var override = allOverrides[i];
 				try {
@@ -108,25 +106,10 @@ public class TileOverrideManager {
 					log.warn("Skipping invalid tile override '{}':", override.name, ex);
 					continue;
 				}
-
-				if (override.area == Area.NONE)
-					continue;
-
-				override.replacement = trackReplacements ? override : override.resolveConstantReplacements();
-				if (override.ids != null) {
-					for (int id : override.ids) {
-						List<TileOverride> overrides = idMatch.get(id);
-						if (overrides == null)
-							idMatch.put(id, overrides = new ArrayList<>());
-						overrides.add(override);
-					}
-				} else {
-					anyMatch.add(override);
-				}
+				validOverrides.add(override);
 			}
 
-			anyMatchOverrides = anyMatch;
-			idMatchOverrides = idMatch;
+			indexOverrides(validOverrides);
 			OVERRIDES = allOverrides;
 
 			log.debug("Loaded {} tile overrides", allOverrides.length);
@@ -211,6 +194,27 @@ public class TileOverrideManager {
 		loop.removeLast();
 	}
 
+	/**
+	 * Builds the lookup index used by {@link #getOverrideBeforeReplacements} from normalized overrides, in priority order.
+	 */
+	public void indexOverrides(List<TileOverride> overrides) {
+		List<TileOverride> indexedOverrides = new ArrayList<>(overrides.size());
+		for (var override : overrides) {
+			if (override.area == Area.NONE)
+				continue;
+
+			override.replacement = trackReplacements ? override : override.resolveConstantReplacements();
+			indexedOverrides.add(override);
+		}
+
+		long start = System.nanoTime();
+		overrideIndex = new TileOverrideIndex(indexedOverrides);
+		log.debug(
+			"Indexed {} tile overrides across {} regions in {} ms",
+			indexedOverrides.size(), overrideIndex.getRegionCount(), (System.nanoTime() - start) / 1e6
+		);
+	}
+
 	public void setTrackReplacements(boolean shouldTrackReplacements) {
 		clientThread.invoke(() -> {
 			trackReplacements = shouldTrackReplacements;
@@ -253,36 +257,6 @@ public class TileOverrideManager {
 
 	@Nonnull
 	public TileOverride getOverrideBeforeReplacements(@Nonnull int[] worldPos, int... ids) {
-		var match = TileOverride.NONE;
-		int index = match.index;
-
-		outer:
-		for (int i = 0; i < ids.length; i++) {
-			final int id = ids[i];
-			final var entries = idMatchOverrides.get(id);
-			if (entries == null)
-				continue;
-			for (int j = 0; j < entries.size(); j++) {
-				final var entry = entries.get(j);
-				if (entry.area.containsPoint(worldPos)) {
-					index = entry.index;
-					match = entry.replacement;
-					match.queriedAsOverlay = (id & OVERLAY_FLAG) != 0;
-					break outer;
-				}
-			}
-		}
-
-		for (int i = 0; i < anyMatchOverrides.size(); i++)  {
-			final var entry = anyMatchOverrides.get(i);
-			if (entry.index > index)
-				break;
-			if (entry.area.containsPoint(worldPos)) {
-				match = entry.replacement;
-				break;
-			}
-		}
-
-		return match;
+		return overrideIndex.find(worldPos, ids);
 	}
 }
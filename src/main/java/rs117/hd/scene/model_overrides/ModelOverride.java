@@ -6,6 +6,7 @@ import com.google.gson.annotations.JsonAdapter;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import javax.annotation.Nullable;
 import lombok.AllArgsConstructor;
@@ -124,6 +125,8 @@ public class ModelOverride
 
 	// Transient not volatile, since access order can be random as it'll mean we'll just fall back to the full lookup
 	private transient long cachedColorOverrideAhsl = -1;
+	// Lazily computed, since overrides are mutable until they've been normalized and registered
+	private transient int cachedContentHash;
 
 	@FunctionalInterface
 	public interface AhslPredicate {
@@ -342,7 +345,8 @@ public class ModelOverride
 			mightHaveTransparency,
 			modifiesVanillaTexture,
 			// Runtime caching fields
-			-1
+			-1,
+			0
 		);
 	}
 
@@ -706,6 +710,90 @@ public class ModelOverride
 		}
 	}
 
+	/**
+	 * Returns a hash of the override's content, which unlike {@link #hashCode()} remains stable across restarts.
+	 * Area restrictions and IDs are excluded, since they only decide which override applies, and are cleared after loading.
+	 */
+	public int contentHash() {
+		int h = cachedContentHash;
+		if (h != 0)
+			return h;
+
+		h = Objects.hashCode(description);
+		h = h * 31 + enumHash(seasonalTheme);
+		h = h * 31 + materialHash(baseMaterial);
+		h = h * 31 + materialHash(textureMaterial);
+		h = h * 31 + enumHash(uvType);
+		h = h * 31 + Float.floatToIntBits(uvScale);
+		h = h * 31 + uvOrientation;
+		h = h * 31 + uvOrientationX;
+		h = h * 31 + uvOrientationY;
+		h = h * 31 + uvOrientationZ;
+		h = h * 31 + rotate;
+		h = h * 31 + Boolean.hashCode(hide);
+		h = h * 31 + Boolean.hashCode(disableDetailCulling);
+		h = h * 31 + Boolean.hashCode(retainVanillaUvs);
+		h = h * 31 + Boolean.hashCode(forceMaterialChanges);
+		h = h * 31 + Boolean.hashCode(flatNormals);
+		h = h * 31 + Boolean.hashCode(upwardsNormals);
+		h = h * 31 + Boolean.hashCode(hideVanillaShadows);
+		h = h * 31 + Boolean.hashCode(retainVanillaShadowsInPvm);
+		h = h * 31 + Boolean.hashCode(hideHdShadowsInPvm);
+		h = h * 31 + Boolean.hashCode(castShadows);
+		h = h * 31 + Boolean.hashCode(receiveShadows);
+		h = h * 31 + Boolean.hashCode(terrainVertexSnap);
+		h = h * 31 + Boolean.hashCode(undoVanillaShading);
+		h = h * 31 + Boolean.hashCode(hideAsWaterEffect);
+		h = h * 31 + Float.floatToIntBits(terrainVertexSnapThreshold);
+		h = h * 31 + Float.floatToIntBits(shadowOpacityThreshold);
+		h = h * 31 + enumHash(tzHaarRecolorType);
+		h = h * 31 + enumHash(inheritTileColorType);
+		h = h * 31 + enumHash(windDisplacementMode);
+		h = h * 31 + windDisplacementModifier;
+		h = h * 31 + Boolean.hashCode(invertDisplacementStrength);
+		h = h * 31 + depthBias;
+		h = h * 31 + Boolean.hashCode(disablePrioritySorting);
+		h = h * 31 + shiftHue;
+		h = h * 31 + minHue;
+		h = h * 31 + maxHue;
+		h = h * 31 + shiftSaturation;
+		h = h * 31 + minSaturation;
+		h = h * 31 + maxSaturation;
+		h = h * 31 + shiftLightness;
+		h = h * 31 + minLightness;
+		h = h * 31 + maxLightness;
+		h = h * 31 + shiftAlpha;
+		h = h * 31 + minAlpha;
+		h = h * 31 + maxAlpha;
+		h = h * 31 + Objects.hashCode(colors);
+
+		if (materialOverrides != null) {
+			// Sum the entries, since the iteration order of the map isn't stable
+			int entries = 0;
+			for (var entry : materialOverrides.entrySet())
+				entries += materialHash(entry.getKey()) ^ entry.getValue().contentHash();
+			h = h * 31 + entries;
+		}
+
+		if (colorOverrides != null)
+			for (var override : colorOverrides)
+				h = h * 31 + override.contentHash();
+
+		// Reserve zero to signal that the hash hasn't been computed yet
+		if (h == 0)
+			h = 1;
+		return cachedContentHash = h;
+	}
+
+	private static int enumHash(@Nullable Enum<?> value) {
+		// Enums use identity hash codes, so use the ordinal instead
+		return value == null ? 0 : value.ordinal() + 1;
+	}
+
+	private static int materialHash(@Nullable Material material) {
+		return material == null ? 0 : Objects.hashCode(material.name);
+	}
+
 	public int modifyAlpha(int alpha) {
 		return clamp(alpha + shiftAlpha, minAlpha, maxAlpha);
 	}
@@ -0,0 +1,177 @@
+package rs117.hd.scene.tile_overrides;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nonnull;
+import rs117.hd.scene.areas.AABB;
+import rs117.hd.utils.collections.Int2ObjectHashMap;
+import rs117.hd.utils.collections.PrimitiveIntArray;
+
+import static rs117.hd.scene.tile_overrides.TileOverride.OVERLAY_FLAG;
+import static rs117.hd.utils.MathUtils.*;
+
+/**
+ * Answers which tile override applies to a tile, without having to test the area of every override.
+ * Overrides are bucketed by the 64x64 map regions their areas overlap, so a lookup only has to check the handful
+ * of overrides which can possibly match within the tile's region, while preserving the priority order of the full list.
+ */
+public class TileOverrideIndex {
+	private static final int REGION_GRID_SIZE = 256;
+	// Overrides spanning more regions than this are tested everywhere instead, such as those using the ALL area
+	private static final int MAX_REGIONS_PER_OVERRIDE = REGION_GRID_SIZE * REGION_GRID_SIZE / 4;
+
+	private static final TileOverride[] EMPTY = {};
+
+	private static class Bucket {
+		final Int2ObjectHashMap<TileOverride[]> idMatch = new Int2ObjectHashMap<>();
+		final TileOverride[] anyMatch;
+
+		Bucket(List<TileOverride> overrides) {
+			var anyMatchList = new ArrayList<TileOverride>();
+			var idMatchLists = new Int2ObjectHashMap<List<TileOverride>>();
+			for (var override : overrides) {
+				if (override.ids == null) {
+					anyMatchList.add(override);
+					continue;
+				}
+
+				for (int id : override.ids) {
+					var list = idMatchLists.get(id);
+					if (list == null)
+						idMatchLists.put(id, list = new ArrayList<>());
+					list.add(override);
+				}
+			}
+
+			anyMatch = anyMatchList.toArray(EMPTY);
+			for (var entry : idMatchLists)
+				idMatch.put(entry.getKey(), entry.getValue().toArray(EMPTY));
+		}
+	}
+
+	private final Bucket unindexed;
+	private final Bucket global;
+	private final Int2ObjectHashMap<Bucket> regions = new Int2ObjectHashMap<>();
+
+	/**
+	 * @param overrides normalized tile overrides, sorted by priority
+	 */
+	public TileOverrideIndex(List<TileOverride> overrides) {
+		unindexed = new Bucket(overrides);
+
+		// Determine which regions each override overlaps
+		var overrideRegions = new PrimitiveIntArray[overrides.size()];
+		var globalOverrides = new ArrayList<TileOverride>();
+		var regionOverrides = new Int2ObjectHashMap<List<TileOverride>>();
+		var visited = new boolean[REGION_GRID_SIZE * REGION_GRID_SIZE];
+		for (int i = 0; i < overrides.size(); i++) {
+			var area = overrides.get(i).area;
+			var list = new PrimitiveIntArray();
+			addRegions(list, visited, area.aabbs);
+			addRegions(list, visited, area.unhideAreas);
+			for (int j = 0; j < list.length; j++)
+				visited[list.array[j]] = false;
+
+			if (list.length > MAX_REGIONS_PER_OVERRIDE) {
+				globalOverrides.add(overrides.get(i));
+			} else {
+				overrideRegions[i] = list;
+				for (int j = 0; j < list.length; j++)
+					if (!regionOverrides.containsKey(list.array[j]))
+						regionOverrides.put(list.array[j], new ArrayList<>());
+			}
+		}
+
+		// Build per-region lists in priority order, with global overrides included in every region
+		for (int i = 0; i < overrides.size(); i++) {
+			var override = overrides.get(i);
+			var list = overrideRegions[i];
+			if (list == null) {
+				for (var entry : regionOverrides)
+					entry.getValue().add(override);
+			} else {
+				for (int j = 0; j < list.length; j++)
+					regionOverrides.get(list.array[j]).add(override);
+			}
+		}
+
+		global = new Bucket(globalOverrides);
+		for (var entry : regionOverrides)
+			regions.put(entry.getKey(), new Bucket(entry.getValue()));
+	}
+
+	private static void addRegions(PrimitiveIntArray list, boolean[] visited, AABB[] aabbs) {
+		if (aabbs == null)
+			return;
+
+		for (var aabb : aabbs) {
+			int minX = clamp(aabb.minX >> 6, 0, REGION_GRID_SIZE - 1);
+			int minY = clamp(aabb.minY >> 6, 0, REGION_GRID_SIZE - 1);
+			int maxX = clamp(aabb.maxX >> 6, 0, REGION_GRID_SIZE - 1);
+			int maxY = clamp(aabb.maxY >> 6, 0, REGION_GRID_SIZE - 1);
+			for (int x = minX; x <= maxX; x++) {
+				for (int y = minY; y <= maxY; y++) {
+					int regionId = x << 8 | y;
+					if (!visited[regionId]) {
+						visited[regionId] = true;
+						list.ensureCapacity(1).put(regionId);
+					}
+				}
+			}
+		}
+	}
+
+	public int getRegionCount() {
+		return regions.size();
+	}
+
+	@Nonnull
+	public TileOverride find(@Nonnull int[] worldPos, int... ids) {
+		int regionX = worldPos[0] >> 6;
+		int regionY = worldPos[1] >> 6;
+		Bucket bucket = unindexed;
+		if (regionX >= 0 && regionX < REGION_GRID_SIZE && regionY >= 0 && regionY < REGION_GRID_SIZE)
+			bucket = regions.getOrDefault(regionX << 8 | regionY, global);
+		return find(bucket, worldPos, ids);
+	}
+
+	/**
+	 * Tests every override, like before the index existed. Used as a reference when testing and benchmarking.
+	 */
+	@Nonnull
+	public TileOverride findUnindexed(@Nonnull int[] worldPos, int... ids) {
+		return find(unindexed, worldPos, ids);
+	}
+
+	private static TileOverride find(Bucket bucket, int[] worldPos, int[] ids) {
+		var match = TileOverride.NONE;
+		int index = match.index;
+
+		outer:
+		for (int i = 0; i < ids.length; i++) {
+			final int id = ids[i];
+			final var entries = bucket.idMatch.get(id);
+			if (entries == null)
+				continue;
+			for (final var entry : entries) {
+				if (entry.area.containsPoint(worldPos)) {
+					index = entry.index;
+					match = entry.replacement;
+					match.queriedAsOverlay = (id & OVERLAY_FLAG) != 0;
+					break outer;
+				}
+			}
+		}
+
+		for (final var entry : bucket.anyMatch) {
+			if (entry.index > index)
+				break;
+			if (entry.area.containsPoint(worldPos)) {
+				match = entry.replacement;
+				break;
+			}
+		}
+
+		return match;
+	}
+}
@@ -13,6 +13,7 @@ import net.runelite.client.input.KeyListener;
 import net.runelite.client.input.KeyManager;
 import rs117.hd.HdPlugin;
 import rs117.hd.overlays.FrameTimerOverlay;
+import rs117.hd.overlays.HitchDetector;
 import rs117.hd.overlays.LightGizmoOverlay;
 import rs117.hd.overlays.ShadowMapOverlay;
 import rs117.hd.overlays.TileInfoOverlay;
@@ -59,6 +60,9 @@ public class DeveloperTools implements KeyListener {
 	@Inject
 	private FrameTimingsRecorder frameTimingsRecorder;
 
+	@Inject
+	private HitchDetector hitchDetector;
+
 	@Inject
 	private ShadowMapOverlay shadowMapOverlay;
 
@@ -82,6 +86,10 @@ public class DeveloperTools implements KeyListener {
 		// Listen for commands
 		eventBus.register(this);
 
+		// Optionally keep a flight recorder running, with the hitch threshold in milliseconds as the value
+		if (Props.has("rlhd.flight-recorder"))
+			frameTimingsRecorder.startFlightRecorder(parseHitchThreshold(Props.get("rlhd.flight-recorder")));
+
 		// Don't do anything else unless we're in the development environment
 		if (!Props.DEVELOPMENT)
 			return;
@@ -120,9 +128,20 @@ public class DeveloperTools implements KeyListener {
 		shadowMapOverlay.setActive(false);
 		lightGizmoOverlay.setActive(false);
 		tiledLightingOverlay.setActive(false);
+		frameTimingsRecorder.stopFlightRecorder();
+		hitchDetector.setActive(false, 0);
 		hideUiEnabled = false;
 	}
 
+	private static long parseHitchThreshold(String value) {
+		try {
+			return value == null || value.isEmpty() ? 0 : Long.parseLong(value);
+		} catch (NumberFormatException ex) {
+			log.warn("Invalid hitch threshold: {}", value);
+			return 0;
+		}
+	}
+
 	@Subscribe
 	public void onCommandExecuted(CommandExecuted commandExecuted) {
 		if (!commandExecuted.getCommand().equalsIgnoreCase("117hd"))
@@ -144,6 +163,20 @@ public class DeveloperTools implements KeyListener {
 			case "snapshot":
 				frameTimingsRecorder.recordSnapshot();
 				break;
+			case "flightrecorder":
+				if (frameTimingsRecorder.isFlightRecorderActive() && args.length < 2) {
+					frameTimingsRecorder.stopFlightRecorder();
+				} else {
+					frameTimingsRecorder.startFlightRecorder(parseHitchThreshold(args.length < 2 ? null : args[1]));
+				}
+				break;
+			case "hitches":
+				if (hitchDetector.isActive() && args.length < 2) {
+					hitchDetector.setActive(false, 0);
+				} else {
+					hitchDetector.setActive(true, parseHitchThreshold(args.length < 2 ? null : args[1]));
+				}
+				break;
 			case "shadowmap":
 				shadowMapOverlay.setActive(shadowMapOverlayEnabled = !shadowMapOverlayEnabled);
 				break;
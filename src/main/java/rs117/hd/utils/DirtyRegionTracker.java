@@ -0,0 +1,159 @@
+package rs117.hd.utils;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import lombok.Getter;
+
+import static rs117.hd.utils.MathUtils.*;
+
+/**
+ * Tracks which parts of a pixel buffer changed since the previous frame, so only those need to be copied and uploaded.
+ * The buffer is split into bands of rows, and each band is compared against a copy of the previous frame, one tile
+ * column at a time. Changed tiles within a band are combined into a single rectangle spanning them, and vertically
+ * adjacent rectangles with the same horizontal extent are merged.
+ * <p>
+ * Since the interface usually only changes in small areas, such as the minimap, chatbox or an open interface, this
+ * avoids writing the entire frame to a mapped buffer every frame, which at high resolutions costs a lot of memory
+ * bandwidth.
+ */
+public class DirtyRegionTracker {
+	public static final int TILE_WIDTH = 64;
+	public static final int BAND_HEIGHT = 16;
+
+	private int[] previous;
+	private int width;
+	private int height;
+	private boolean invalidated = true;
+	private final int[] scanResult = new int[2];
+
+	/**
+	 * Dirty rectangles from the last update, as x, y, width and height
+	 */
+	@Getter
+	private int[] rects = new int[64];
+	@Getter
+	private int rectCount;
+	@Getter
+	private boolean fullFrame;
+	@Getter
+	private long lastCopiedPixels;
+
+	/**
+	 * Force the next update to copy the whole frame, for instance if the previous copy was never uploaded.
+	 */
+	public void invalidate() {
+		invalidated = true;
+	}
+
+	/**
+	 * Compares the pixels against the previous frame, and copies every changed region into the target buffer, at the
+	 * same offsets as in the source array. Regions which didn't change are left untouched in the target buffer.
+	 *
+	 * @return the number of dirty rectangles
+	 */
+	public int update(int[] pixels, int width, int height, IntBuffer target) {
+		int size = width * height;
+		rectCount = 0;
+		lastCopiedPixels = 0;
+
+		if (invalidated || previous == null || previous.length < size || this.width != width || this.height != height) {
+			if (previous == null || previous.length < size)
+				previous = new int[size];
+			this.width = width;
+			this.height = height;
+			invalidated = false;
+
+			System.arraycopy(pixels, 0, previous, 0, size);
+			target.position(0);
+			target.put(pixels, 0, size);
+			target.position(0);
+			fullFrame = true;
+			lastCopiedPixels = size;
+			addRect(0, 0, width, height);
+			return rectCount;
+		}
+
+		fullFrame = false;
+		for (int bandStart = 0; bandStart < height; bandStart += BAND_HEIGHT) {
+			int bandEnd = min(height, bandStart + BAND_HEIGHT);
+			int minX = width;
+			int maxX = 0;
+
+			for (int y = bandStart; y < bandEnd; y++) {
+				int row = y * width;
+				// Only the parts of the row outside the band's current extent need to be compared
+				if (minX > maxX) {
+					int[] extent = scan(pixels, row, 0, width);
+					minX = extent[0];
+					maxX = extent[1];
+				} else {
+					if (minX > 0)
+						minX = min(minX, scan(pixels, row, 0, minX)[0]);
+					if (maxX < width)
+						maxX = max(maxX, scan(pixels, row, maxX, width)[1]);
+					if (minX == 0 && maxX == width)
+						break;
+				}
+			}
+
+			if (minX >= maxX)
+				continue;
+
+			int rectWidth = maxX - minX;
+			for (int y = bandStart; y < bandEnd; y++) {
+				int offset = y * width + minX;
+				System.arraycopy(pixels, offset, previous, offset, rectWidth);
+				target.position(offset);
+				target.put(pixels, offset, rectWidth);
+			}
+			lastCopiedPixels += (long) rectWidth * (bandEnd - bandStart);
+
+			int last = (rectCount - 1) * 4;
+			if (rectCount > 0 &&
+				rects[last] == minX && rects[last + 2] == rectWidth &&
+				rects[last + 1] + rects[last + 3] == bandStart
+			) {
+				rects[last + 3] += bandEnd - bandStart;
+			} else {
+				addRect(minX, bandStart, rectWidth, bandEnd - bandStart);
+			}
+		}
+		target.position(0);
+
+		return rectCount;
+	}
+
+	/**
+	 * Finds the range of tiles containing changes within part of a row.
+	 *
+	 * @return the start and end of the changed range, aligned to tiles, or an empty range if nothing changed
+	 */
+	private int[] scan(int[] pixels, int row, int from, int to) {
+		int minX = width;
+		int maxX = 0;
+		int x = from;
+		while (x < to) {
+			int mismatch = Arrays.mismatch(pixels, row + x, row + to, previous, row + x, row + to);
+			if (mismatch < 0)
+				break;
+			int tileStart = (x + mismatch) / TILE_WIDTH * TILE_WIDTH;
+			int tileEnd = min(width, tileStart + TILE_WIDTH);
+			minX = min(minX, tileStart);
+			maxX = max(maxX, tileEnd);
+			x = tileEnd;
+		}
+		scanResult[0] = minX;
+		scanResult[1] = maxX;
+		return scanResult;
+	}
+
+	private void addRect(int x, int y, int w, int h) {
+		if (rects.length < (rectCount + 1) * 4)
+			rects = Arrays.copyOf(rects, rects.length * 2);
+		int i = rectCount++ * 4;
+		rects[i] = x;
+		rects[i + 1] = y;
+		rects[i + 2] = w;
+		rects[i + 3] = h;
+	}
+}
@@ -4,10 +4,17 @@ import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -20,16 +27,53 @@ import rs117.hd.HdPluginConfig;
 import rs117.hd.overlays.FrameTimer;
 import rs117.hd.overlays.FrameTimings;
 import rs117.hd.overlays.Timer;
+import rs117.hd.renderer.legacy.LegacyModelPusher;
+import rs117.hd.utils.jobs.GenericJob;
+import rs117.hd.utils.jobs.JobStats;
+import rs117.hd.utils.jobs.JobSystem;
 
 import static org.lwjgl.opengl.GL33C.*;
 import static rs117.hd.utils.MathUtils.*;
 
+/**
+ * Records frame timings, either as a fixed length snapshot on demand, or continuously as a flight recorder.
+ * <p>
+ * The flight recorder keeps fixed-width records of the last {@value FLIGHT_RECORDER_SECONDS} seconds of frames in a
+ * preallocated ring buffer, and dumps them to a compact binary file whenever a frame takes longer than the hitch
+ * threshold. Dumps can be converted to the snapshot JSON & CSV formats with {@link #convertFlightRecording}.
+ */
 @Slf4j
 @Singleton
 public class FrameTimingsRecorder implements FrameTimer.Listener {
-	private static final ResourcePath SNAPSHOTS_PATH = HdPlugin.PLUGIN_DIR.resolve("snapshots");
+	static final ResourcePath SNAPSHOTS_PATH = HdPlugin.PLUGIN_DIR.resolve("snapshots");
 	private static final int SNAPSHOT_DURATION_MS = 20_000;
 
+	static final String FLIGHT_RECORDING_EXTENSION = "rlhdfr";
+	static final int FLIGHT_RECORDING_MAGIC = 0x31314652;
+	static final int FLIGHT_RECORDING_VERSION = 2;
+	private static final int FLIGHT_RECORDER_SECONDS = 30;
+	private static final int FLIGHT_RECORDER_MAX_FPS = 250;
+	private static final int FLIGHT_RECORDER_DEFAULT_HITCH_MS = 100;
+
+	// Fixed fields at the start of every frame record, in the same order as the snapshot's frame fields.
+	// They're followed by the raw timings of every timer.
+	static final int RECORD_TIMESTAMP = 0;
+	static final int RECORD_DRAWN_TILES = 1;
+	static final int RECORD_DRAWN_STATIC = 2;
+	static final int RECORD_DRAWN_DYNAMIC = 3;
+	static final int RECORD_NPC_DISPLACEMENT_CACHE_SIZE = 4;
+	static final int RECORD_MODEL_CACHE_HITS = 5;
+	static final int RECORD_MODEL_CACHE_MISSES = 6;
+	static final int RECORD_MODEL_CACHE_EVICTIONS = 7;
+	static final int RECORD_MODEL_CACHE_RETENTIONS = 8;
+	static final int RECORD_JOB_STEALS = 9;
+	static final int RECORD_MEMORY_USED = 10;
+	static final int RECORD_MEMORY_TOTAL = 11;
+	static final int RECORD_MEMORY_FREE = 12;
+	static final int RECORD_MEMORY_MAX = 13;
+	static final int RECORD_FIXED_FIELDS = 14;
+	private static final int RECORD_WIDTH = RECORD_FIXED_FIELDS + Timer.TIMERS.length;
+
 	@Inject
 	private Gson gson;
 
@@ -51,7 +95,13 @@ public class FrameTimingsRecorder implements FrameTimer.Listener {
 	@Inject
 	private NpcDisplacementCache npcDisplacementCache;
 
-	private static class Snapshot {
+	@Inject
+	private LegacyModelPusher legacyModelPusher;
+
+	@Inject
+	private JobSystem jobSystem;
+
+	static class Snapshot {
 		public long timestamp = System.currentTimeMillis();
 		public String osName;
 		public String osArch;
@@ -69,33 +119,115 @@ public class FrameTimingsRecorder implements FrameTimer.Listener {
 			public long drawnStatic;
 			public long drawnDynamic;
 			public long npcDisplacementCacheSize;
+			public long modelCacheHits;
+			public long modelCacheMisses;
+			public long modelCacheEvictions;
+			public long modelCacheRetentions;
+			public long jobSteals;
+			public long jobStalls;
 			public long memoryUsed;
 			public long memoryTotal;
 			public long memoryFree;
 			public long memoryMax;
 			public LinkedHashMap<String, Long> cpu;
 			public LinkedHashMap<String, Long> gpu;
+			// Only included in the JSON, since the set of job classes can change between frames
+			public LinkedHashMap<String, JobTimings> jobs;
 
 			public transient long[] rawTimings;
 
-			public Frame(FrameTimings frameTimings) {
-				timestamp = frameTimings.frameTimestamp;
-				rawTimings = frameTimings.timers;
-				Runtime rt = Runtime.getRuntime();
-				memoryTotal = rt.totalMemory() / MiB;
-				memoryFree = rt.freeMemory() / MiB;
-				memoryMax = rt.maxMemory() / MiB;
-				memoryUsed = memoryTotal - memoryFree;
+			public Frame(long[] record, int offset) {
+				timestamp = record[offset + RECORD_TIMESTAMP];
+				drawnTiles = record[offset + RECORD_DRAWN_TILES];
+				drawnStatic = record[offset + RECORD_DRAWN_STATIC];
+				drawnDynamic = record[offset + RECORD_DRAWN_DYNAMIC];
+				npcDisplacementCacheSize = record[offset + RECORD_NPC_DISPLACEMENT_CACHE_SIZE];
+				modelCacheHits = record[offset + RECORD_MODEL_CACHE_HITS];
+				modelCacheMisses = record[offset + RECORD_MODEL_CACHE_MISSES];
+				modelCacheEvictions = record[offset + RECORD_MODEL_CACHE_EVICTIONS];
+				modelCacheRetentions = record[offset + RECORD_MODEL_CACHE_RETENTIONS];
+				jobSteals = record[offset + RECORD_JOB_STEALS];
+				memoryUsed = record[offset + RECORD_MEMORY_USED];
+				memoryTotal = record[offset + RECORD_MEMORY_TOTAL];
+				memoryFree = record[offset + RECORD_MEMORY_FREE];
+				memoryMax = record[offset + RECORD_MEMORY_MAX];
 			}
 		}
+
+		public static class JobTimings {
+			public long count;
+			public long stalls;
+			public long queueLatencyP50;
+			public long queueLatencyP99;
+			public long runTimeP50;
+			public long runTimeP99;
+		}
 	}
 
 	private Snapshot snapshot;
+	private final long[] modelCacheStats = new long[4];
+	private final long[] lastModelCacheStats = new long[4];
+	private boolean hasModelCacheStats;
+	private JobStats.Sampler jobStatsSampler;
+	private long lastJobSteals;
+	private boolean isListening;
+	private final long[] frameRecord = new long[RECORD_WIDTH];
+
+	// The flight recorder's ring buffer of frame records
+	private long[] flightRecorderRing;
+	private int flightRecorderHead;
+	private int flightRecorderCount;
+	private long flightRecorderHitchMs;
+	private long lastFrameTimestamp;
+	private long lastFlightRecordingTimestamp;
 
 	public boolean isCapturingSnapshot() {
 		return snapshot != null;
 	}
 
+	public boolean isFlightRecorderActive() {
+		return flightRecorderRing != null;
+	}
+
+	private Snapshot createSnapshot() {
+		var snapshot = new Snapshot();
+		snapshot.osName = System.getProperty("os.name");
+		snapshot.osArch = System.getProperty("os.arch");
+		snapshot.osVersion = System.getProperty("os.version");
+		snapshot.javaVersion = System.getProperty("java.version");
+		snapshot.cpuCores = HdPlugin.PROCESSOR_COUNT;
+		snapshot.memoryMaxMiB = Runtime.getRuntime().maxMemory() / MiB;
+		snapshot.gpuName = String.format(
+			"%s (%s, OpenGL %s)",
+			glGetString(GL_RENDERER),
+			glGetString(GL_VENDOR),
+			glGetString(GL_VERSION)
+		);
+
+		String prefix = HdPluginConfig.CONFIG_GROUP + ".";
+		for (String config : configManager.getConfigurationKeys(prefix)) {
+			String key = config.substring(prefix.length());
+			snapshot.settings.put(key, configManager.getConfiguration("hd", key));
+		}
+		return snapshot;
+	}
+
+	private void updateListener() {
+		boolean shouldListen = isCapturingSnapshot() || isFlightRecorderActive();
+		if (shouldListen == isListening)
+			return;
+
+		isListening = shouldListen;
+		if (shouldListen) {
+			hasModelCacheStats = false;
+			lastJobSteals = jobSystem.getTotalStealCount();
+			lastFrameTimestamp = 0;
+			frameTimer.addTimingsListener(this);
+		} else {
+			frameTimer.removeTimingsListener(this);
+		}
+	}
+
 	public void recordSnapshot() {
 		clientThread.invoke(() -> {
 			if (isCapturingSnapshot()) {
@@ -103,31 +235,51 @@ public class FrameTimingsRecorder implements FrameTimer.Listener {
 				return;
 			}
 
-			snapshot = new Snapshot();
-			snapshot.osName = System.getProperty("os.name");
-			snapshot.osArch = System.getProperty("os.arch");
-			snapshot.osVersion = System.getProperty("os.version");
-			snapshot.javaVersion = System.getProperty("java.version");
-			snapshot.cpuCores = HdPlugin.PROCESSOR_COUNT;
-			snapshot.memoryMaxMiB = Runtime.getRuntime().maxMemory() / MiB;
-			snapshot.gpuName = String.format(
-				"%s (%s, OpenGL %s)",
-				glGetString(GL_RENDERER),
-				glGetString(GL_VENDOR),
-				glGetString(GL_VERSION)
-			);
+			snapshot = createSnapshot();
 
-			String prefix = HdPluginConfig.CONFIG_GROUP + ".";
-			for (String config : configManager.getConfigurationKeys(prefix)) {
-				String key = config.substring(prefix.length());
-				snapshot.settings.put(key, configManager.getConfiguration("hd", key));
-			}
+			jobSystem.getStats().setEnabled(this, true);
+			jobStatsSampler = jobSystem.getStats().createSampler();
+			jobStatsSampler.sample();
 
-			frameTimer.addTimingsListener(this);
+			updateListener();
 			sendGameMessage(String.format("Capturing frame timings for %.0f seconds...", SNAPSHOT_DURATION_MS / 1e3f));
 		});
 	}
 
+	/**
+	 * Start continuously recording frame timings, and dump the last {@value FLIGHT_RECORDER_SECONDS} seconds to disk
+	 * whenever a frame takes longer than the hitch threshold.
+	 *
+	 * @param hitchThresholdMs the frame time in milliseconds which counts as a hitch, or 0 for the default
+	 */
+	public void startFlightRecorder(long hitchThresholdMs) {
+		clientThread.invoke(() -> {
+			flightRecorderHitchMs = hitchThresholdMs > 0 ? hitchThresholdMs : FLIGHT_RECORDER_DEFAULT_HITCH_MS;
+			if (!isFlightRecorderActive()) {
+				flightRecorderRing = new long[FLIGHT_RECORDER_SECONDS * FLIGHT_RECORDER_MAX_FPS * RECORD_WIDTH];
+				flightRecorderHead = 0;
+				flightRecorderCount = 0;
+				lastFlightRecordingTimestamp = 0;
+			}
+			updateListener();
+			log.info(
+				"Flight recorder active, saving the last {} seconds on frames slower than {} ms",
+				FLIGHT_RECORDER_SECONDS,
+				flightRecorderHitchMs
+			);
+		});
+	}
+
+	public void stopFlightRecorder() {
+		clientThread.invoke(() -> {
+			if (!isFlightRecorderActive())
+				return;
+			flightRecorderRing = null;
+			updateListener();
+			log.info("Flight recorder stopped");
+		});
+	}
+
 	public int getProgressPercentage() {
 		if (isCapturingSnapshot())
 			return round((float) (System.currentTimeMillis() - snapshot.timestamp) / SNAPSHOT_DURATION_MS * 100);
@@ -136,26 +288,168 @@ public class FrameTimingsRecorder implements FrameTimer.Listener {
 
 	@Override
 	public void onFrameCompletion(FrameTimings timings) {
-		if (!isCapturingSnapshot()) {
-			frameTimer.removeTimingsListener(this);
+		if (!isCapturingSnapshot() && !isFlightRecorderActive()) {
+			updateListener();
 			return;
 		}
 
-		if (timings.frameTimestamp - snapshot.timestamp > SNAPSHOT_DURATION_MS) {
-			saveSnapshot();
+		fillFrameRecord(frameRecord, timings);
+
+		if (isFlightRecorderActive())
+			recordFlightFrame(frameRecord);
+
+		if (isCapturingSnapshot()) {
+			if (timings.frameTimestamp - snapshot.timestamp > SNAPSHOT_DURATION_MS) {
+				saveSnapshot();
+			} else {
+				var frame = new Snapshot.Frame(frameRecord, 0);
+				frame.rawTimings = timings.timers;
+				recordJobStats(frame);
+				snapshot.frames.add(frame);
+			}
+		}
+
+		lastFrameTimestamp = timings.frameTimestamp;
+	}
+
+	private void fillFrameRecord(long[] record, FrameTimings timings) {
+		record[RECORD_TIMESTAMP] = timings.frameTimestamp;
+		record[RECORD_DRAWN_TILES] = plugin.getDrawnTileCount();
+		record[RECORD_DRAWN_STATIC] = plugin.getDrawnStaticRenderableCount();
+		record[RECORD_DRAWN_DYNAMIC] = plugin.getDrawnDynamicRenderableCount();
+		record[RECORD_NPC_DISPLACEMENT_CACHE_SIZE] = npcDisplacementCache.size();
+		recordModelCacheStats(record);
+
+		long steals = jobSystem.getTotalStealCount();
+		record[RECORD_JOB_STEALS] = max(0, steals - lastJobSteals);
+		lastJobSteals = steals;
+
+		Runtime rt = Runtime.getRuntime();
+		record[RECORD_MEMORY_TOTAL] = rt.totalMemory() / MiB;
+		record[RECORD_MEMORY_FREE] = rt.freeMemory() / MiB;
+		record[RECORD_MEMORY_MAX] = rt.maxMemory() / MiB;
+		record[RECORD_MEMORY_USED] = record[RECORD_MEMORY_TOTAL] - record[RECORD_MEMORY_FREE];
+
+		System.arraycopy(timings.timers, 0, record, RECORD_FIXED_FIELDS, Timer.TIMERS.length);
+	}
+
+	private void recordFlightFrame(long[] record) {
+		final int capacity = flightRecorderRing.length / RECORD_WIDTH;
+		System.arraycopy(record, 0, flightRecorderRing, flightRecorderHead * RECORD_WIDTH, RECORD_WIDTH);
+		flightRecorderHead = (flightRecorderHead + 1) % capacity;
+		flightRecorderCount = min(flightRecorderCount + 1, capacity);
+
+		long timestamp = record[RECORD_TIMESTAMP];
+		if (lastFrameTimestamp == 0 || timestamp - lastFrameTimestamp < flightRecorderHitchMs)
 			return;
+
+		// Don't dump overlapping windows when several hitches happen in a row
+		if (timestamp - lastFlightRecordingTimestamp < FLIGHT_RECORDER_SECONDS * 1000L)
+			return;
+		lastFlightRecordingTimestamp = timestamp;
+
+		// Copy the frames within the window out of the ring in chronological order, then write them off the client thread
+		int frameCount = 0;
+		while (frameCount < flightRecorderCount) {
+			int idx = Math.floorMod(flightRecorderHead - 1 - frameCount, capacity);
+			if (timestamp - flightRecorderRing[idx * RECORD_WIDTH + RECORD_TIMESTAMP] > FLIGHT_RECORDER_SECONDS * 1000L)
+				break;
+			frameCount++;
+		}
+		final int count = frameCount;
+		long[] frames = new long[count * RECORD_WIDTH];
+		for (int i = 0; i < count; i++) {
+			int idx = Math.floorMod(flightRecorderHead - count + i, capacity);
+			System.arraycopy(flightRecorderRing, idx * RECORD_WIDTH, frames, i * RECORD_WIDTH, RECORD_WIDTH);
 		}
 
-		var frame = new Snapshot.Frame(timings);
-		frame.drawnTiles = plugin.getDrawnTileCount();
-		frame.drawnStatic = plugin.getDrawnStaticRenderableCount();
-		frame.drawnDynamic = plugin.getDrawnDynamicRenderableCount();
-		frame.npcDisplacementCacheSize = npcDisplacementCache.size();
-		snapshot.frames.add(frame);
+		var metadata = createSnapshot();
+		metadata.timestamp = timestamp;
+		log.warn("Detected a {} ms hitch, saving the last {} frames", timestamp - lastFrameTimestamp, count);
+		GenericJob
+			.build("FrameTimingsRecorder::saveFlightRecording", task -> saveFlightRecording(metadata, frames, count))
+			.queue(false);
+	}
+
+	private void saveFlightRecording(Snapshot metadata, long[] frames, int frameCount) {
+		try {
+			SNAPSHOTS_PATH.mkdirs();
+			String timestamp = new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss").format(metadata.timestamp);
+			var path = SNAPSHOTS_PATH.resolve("flight-" + timestamp).setExtension(FLIGHT_RECORDING_EXTENSION);
+			writeFlightRecording(gson, path, metadata, frames, frameCount);
+			log.info("Saved flight recording to: {}", path);
+		} catch (IOException ex) {
+			log.error("Error while saving flight recording:", ex);
+		}
+	}
+
+	static void writeFlightRecording(
+		Gson gson,
+		ResourcePath path,
+		Snapshot metadata,
+		long[] frames,
+		int frameCount
+	) throws IOException {
+		try (var out = new DataOutputStream(new BufferedOutputStream(path.toOutputStream()))) {
+			out.writeInt(FLIGHT_RECORDING_MAGIC);
+			out.writeInt(FLIGHT_RECORDING_VERSION);
+			// Length-prefixed rather than writeUTF, which is limited to 64 KiB
+			byte[] metadataJson = gson.toJson(metadata).getBytes(StandardCharsets.UTF_8);
+			out.writeInt(metadataJson.length);
+			out.write(metadataJson);
+			out.writeInt(RECORD_FIXED_FIELDS);
+			out.writeInt(Timer.TIMERS.length);
+			for (var timer : Timer.TIMERS) {
+				out.writeUTF(timer.name);
+				out.writeBoolean(timer.isGpuTimer());
+			}
+			out.writeInt(frameCount);
+			var bytes = ByteBuffer.allocate(frameCount * RECORD_WIDTH * Long.BYTES);
+			bytes.asLongBuffer().put(frames, 0, frameCount * RECORD_WIDTH);
+			out.write(bytes.array());
+		}
+	}
+
+	private void recordJobStats(Snapshot.Frame frame) {
+		frame.jobs = new LinkedHashMap<>();
+		for (var interval : jobStatsSampler.sample()) {
+			frame.jobStalls += interval.getStalls();
+			if (interval.getCount() == 0 && interval.getStalls() == 0)
+				continue;
+
+			var timings = new Snapshot.JobTimings();
+			timings.count = interval.getCount();
+			timings.stalls = interval.getStalls();
+			timings.queueLatencyP50 = interval.getQueueLatency(.5);
+			timings.queueLatencyP99 = interval.getQueueLatency(.99);
+			timings.runTimeP50 = interval.getRunTime(.5);
+			timings.runTimeP99 = interval.getRunTime(.99);
+			frame.jobs.put(interval.getName(), timings);
+		}
+	}
+
+	private void recordModelCacheStats(long[] record) {
+		var modelCache = legacyModelPusher.getModelCache();
+		if (modelCache == null) {
+			Arrays.fill(record, RECORD_MODEL_CACHE_HITS, RECORD_MODEL_CACHE_RETENTIONS + 1, 0);
+			return;
+		}
+
+		// Record the change since the previous frame, since the counters are cumulative
+		final long[] stats = modelCacheStats;
+		stats[0] = modelCache.getHits();
+		stats[1] = modelCache.getMisses();
+		stats[2] = modelCache.getEvictions();
+		stats[3] = modelCache.getRetentions();
+		for (int i = 0; i < stats.length; i++)
+			record[RECORD_MODEL_CACHE_HITS + i] = hasModelCacheStats ? stats[i] - lastModelCacheStats[i] : 0;
+		System.arraycopy(stats, 0, lastModelCacheStats, 0, stats.length);
+		hasModelCacheStats = true;
 	}
 
 	private void saveSnapshot() {
-		frameTimer.removeTimingsListener(this);
+		jobSystem.getStats().setEnabled(this, false);
+		jobStatsSampler = null;
 
 		for (var frame : snapshot.frames) {
 			frame.cpu = new LinkedHashMap<>();
@@ -168,24 +462,81 @@ public class FrameTimingsRecorder implements FrameTimer.Listener {
 			SNAPSHOTS_PATH.mkdirs();
 			String timestamp = new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss").format(snapshot.timestamp);
 			var path = SNAPSHOTS_PATH.resolve("snapshot-" + timestamp);
-			path.setExtension("json").writeString(gson.toJson(snapshot));
-			saveCsvSnapshot(path);
+			writeSnapshot(gson, snapshot, path);
 			sendGameMessage("Snapshot complete! Saved to: " + path + ".csv & json");
 		} catch (IOException ex) {
 			log.error("Error while saving snapshot:", ex);
 		}
 
 		snapshot = null;
+		updateListener();
+	}
+
+	/**
+	 * Convert a flight recording dump into the same JSON & CSV formats as regular snapshots, at the specified path with
+	 * each extension. Timers are matched by the names stored in the recording, so recordings from older versions can
+	 * still be converted.
+	 */
+	public static void convertFlightRecording(Gson gson, ResourcePath recording, ResourcePath outputPath) throws IOException {
+		Snapshot snapshot;
+		try (var in = new DataInputStream(new BufferedInputStream(recording.toInputStream()))) {
+			if (in.readInt() != FLIGHT_RECORDING_MAGIC)
+				throw new IOException("Not a flight recording: " + recording);
+			int version = in.readInt();
+			if (version != FLIGHT_RECORDING_VERSION)
+				throw new IOException("Unsupported flight recording version: " + version);
+
+			byte[] metadataJson = new byte[in.readInt()];
+			in.readFully(metadataJson);
+			snapshot = gson.fromJson(new String(metadataJson, StandardCharsets.UTF_8), Snapshot.class);
+			int fixedFields = in.readInt();
+			if (fixedFields != RECORD_FIXED_FIELDS)
+				throw new IOException("Unexpected number of fields per frame: " + fixedFields);
+
+			int timerCount = in.readInt();
+			String[] timerNames = new String[timerCount];
+			boolean[] isGpuTimer = new boolean[timerCount];
+			for (int i = 0; i < timerCount; i++) {
+				timerNames[i] = in.readUTF();
+				isGpuTimer[i] = in.readBoolean();
+			}
+
+			int recordWidth = fixedFields + timerCount;
+			long[] record = new long[recordWidth];
+			int frameCount = in.readInt();
+			snapshot.frames = new ArrayDeque<>(frameCount);
+			for (int f = 0; f < frameCount; f++) {
+				for (int i = 0; i < recordWidth; i++)
+					record[i] = in.readLong();
+
+				var frame = new Snapshot.Frame(record, 0);
+				frame.cpu = new LinkedHashMap<>();
+				frame.gpu = new LinkedHashMap<>();
+				for (int i = 0; i < timerCount; i++)
+					(isGpuTimer[i] ? frame.gpu : frame.cpu).put(timerNames[i], record[fixedFields + i]);
+				snapshot.frames.add(frame);
+			}
+		}
+
+		writeSnapshot(gson, snapshot, outputPath);
+	}
+
+	/**
+	 * Write the snapshot as JSON, and its frames without job timings as CSV, to the path with each extension.
+	 */
+	static void writeSnapshot(Gson gson, Snapshot snapshot, ResourcePath path) throws IOException {
+		path.setExtension("json").writeString(gson.toJson(snapshot));
+		saveCsvSnapshot(gson, snapshot, path);
 	}
 
-	private String escapeCsv(String string) {
+	private static String escapeCsv(String string) {
 		string = string.replaceAll("\"", "\"\"");
 		if (string.contains(",") || string.contains("\n"))
 			string = '"' + string + '"';
 		return string;
 	}
 
-	private void writeCsvObject(PrintWriter out, boolean header, String prefix, JsonObject obj) {
+	private static void writeCsvObject(PrintWriter out, boolean header, String prefix, JsonObject obj) {
 		String comma = "";
 		for (var entry : obj.entrySet()) {
 			out.write(comma);
@@ -199,12 +550,14 @@ public class FrameTimingsRecorder implements FrameTimer.Listener {
 		}
 	}
 
-	private void saveCsvSnapshot(ResourcePath path) throws IOException {
+	private static void saveCsvSnapshot(Gson gson, Snapshot snapshot, ResourcePath path) throws IOException {
 		if (snapshot.frames.isEmpty())
 			return;
 
 		var frames = gson.toJsonTree(snapshot.frames).getAsJsonArray();
 		try (var out = new PrintWriter(path.setExtension("csv").toWriter())) {
+			for (var frame : frames)
+				frame.getAsJsonObject().remove("jobs");
 			writeCsvObject(out, true, "", frames.get(0).getAsJsonObject());
 			out.println();
 			for (var frame : frames) {
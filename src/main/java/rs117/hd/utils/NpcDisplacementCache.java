@@ -2,7 +2,6 @@ package rs117.hd.utils;
 
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Set;
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -39,12 +38,7 @@ public class NpcDisplacementCache {
 
 	public void initialize() {
 		try (var gamevals = gamevalManager.obtainHandle()) {
-			HashSet<Integer> idsToIgnore = new HashSet<>();
-			for (var substringToIgnore : ANIM_IGNORE_LIST)
-				for (var entry : gamevals.getAnims().entrySet())
-					if (entry.getKey().contains(substringToIgnore))
-						idsToIgnore.add(entry.getValue());
-			ANIM_ID_IGNORE_LIST = Set.copyOf(idsToIgnore);
+			ANIM_ID_IGNORE_LIST = Set.copyOf(gamevals.getAnimIdsContaining(ANIM_IGNORE_LIST));
 		}
 	}
 
@@ -39,6 +39,7 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.net.URL;
+import java.net.URLConnection;
 import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
@@ -241,6 +242,24 @@ public class ResourcePath {
 		}
 	}
 
+	/**
+	 * @return the size of the resource in bytes, without reading its contents
+	 */
+	public long getSize() throws IOException {
+		if (root != null)
+			return root.resolve(path).getSize();
+		return Files.size(toPath());
+	}
+
+	/**
+	 * @return the time the resource was last modified, in milliseconds since the epoch, or 0 if unknown
+	 */
+	public long getLastModified() throws IOException {
+		if (root != null)
+			return root.resolve(path).getLastModified();
+		return Files.getLastModifiedTime(toPath()).toMillis();
+	}
+
 	public BufferedWriter toWriter() throws IOException {
 		return new BufferedWriter(new OutputStreamWriter(toOutputStream(), StandardCharsets.UTF_8));
 	}
@@ -522,6 +541,26 @@ public class ResourcePath {
 			return url.openStream();
 		}
 
+		private URLConnection openConnection() throws IOException {
+			var url = toResource();
+			if (url == null)
+				throw new IOException("Unable to load resource: " + this);
+			var connection = url.openConnection();
+			// Some connections open the resource to read its metadata, so make sure it's closed again
+			connection.getInputStream().close();
+			return connection;
+		}
+
+		@Override
+		public long getSize() throws IOException {
+			return openConnection().getContentLengthLong();
+		}
+
+		@Override
+		public long getLastModified() throws IOException {
+			return openConnection().getLastModified();
+		}
+
 		@Override
 		public boolean isFileSystemResource() {
 			return false;
@@ -6,7 +6,6 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
-import org.lwjgl.BufferUtils;
 import rs117.hd.utils.Destructible;
 import rs117.hd.utils.DestructibleHandler;
 
@@ -21,7 +20,9 @@ public class GLMappedBufferIntWriter implements Destructible {
 	private final GLBuffer buffer;
 	private GLBuffer stagingBuffer;
 
+	private final StagingArena stagingArena = new StagingArena();
 	private final ArrayDeque<ReservedView> freeViews = new ArrayDeque<>();
+	private final ArrayDeque<ReservedView> freeStagingViews = new ArrayDeque<>();
 	private final ArrayDeque<ReservedView> usedStagingViews = new ArrayDeque<>();
 	private final ArrayList<ReservedView> usedMappedViews = new ArrayList<>();
 
@@ -33,6 +34,14 @@ public class GLMappedBufferIntWriter implements Destructible {
 		return writtenMappedInts + writtenStagingInts;
 	}
 
+	public long getLastFrameStagingBytes() {
+		return stagingArena.getLastFrameStagingBytes();
+	}
+
+	public long getStagingCapacityBytes() {
+		return stagingArena.getCapacityBytes();
+	}
+
 	public void map(boolean sync) {
 		mappedBuffer = buffer.map(MAP_WRITE | MAP_INVALIDATE | (sync ? 0 : MAP_UNSYNCHRONIZED));
 	}
@@ -42,8 +51,22 @@ public class GLMappedBufferIntWriter implements Destructible {
 
 		// Need staging if we've already staged or mapped buffer has no space
 		if (writtenStagingInts > 0 || mappedBuffer.intView().remaining() < sizeInts || DEBUG_STAGING) {
-			ReservedView view = new ReservedView();
-			view.buffer = BufferUtils.createIntBuffer(sizeInts);
+			final int offset = stagingArena.reserve(sizeInts);
+			final IntBuffer block = stagingArena.getBlock();
+
+			ReservedView view = freeStagingViews.poll();
+			if (view == null)
+				view = new ReservedView();
+
+			if (view.stagingBlock != block) {
+				view.stagingBlock = block;
+				view.buffer = block.duplicate();
+			}
+
+			view.buffer.clear();
+			view.buffer.position(offset);
+			view.buffer.limit(offset + sizeInts);
+			view.startInts = offset;
 			view.bufferOffsetInts = writtenMappedInts + writtenStagingInts;
 			writtenStagingInts += sizeInts;
 			usedStagingViews.add(view);
@@ -62,6 +85,7 @@ public class GLMappedBufferIntWriter implements Destructible {
 		view.buffer.clear();
 		view.buffer.position(writtenMappedInts);
 		view.buffer.limit(writtenMappedInts + sizeInts);
+		view.startInts = writtenMappedInts;
 		view.bufferOffsetInts = writtenMappedInts;
 
 		writtenMappedInts += sizeInts;
@@ -74,7 +98,7 @@ public class GLMappedBufferIntWriter implements Destructible {
 	@Override
 	@SuppressWarnings("deprecation")
 	protected void finalize() {
-		if (!usedStagingViews.isEmpty() || !usedMappedViews.isEmpty() || !freeViews.isEmpty())
+		if (!usedStagingViews.isEmpty() || !usedMappedViews.isEmpty() || !freeViews.isEmpty() || !freeStagingViews.isEmpty())
 			DestructibleHandler.queueLeakedDestruction(this);
 	}
 
@@ -101,10 +125,18 @@ public class GLMappedBufferIntWriter implements Destructible {
 		usedMappedViews.clear();
 
 		for (ReservedView view : usedStagingViews) {
-			view.backing = null;
+			view.stagingBlock = null;
 			view.buffer = null;
 		}
 		usedStagingViews.clear();
+
+		for (ReservedView view : freeStagingViews) {
+			view.stagingBlock = null;
+			view.buffer = null;
+		}
+		freeStagingViews.clear();
+
+		stagingArena.destroy();
 	}
 
 	public synchronized long flush() {
@@ -122,9 +154,10 @@ public class GLMappedBufferIntWriter implements Destructible {
 			final IntBuffer intView = owner.mapped().intView().clear();
 			ReservedView view;
 			while ((view = usedStagingViews.poll()) != null) {
-				view.buffer.flip();
+				view.buffer.limit(view.buffer.position());
+				view.buffer.position(view.startInts);
 				intView.put(view.buffer);
-				view.buffer = null;
+				freeStagingViews.add(view);
 			}
 
 			mappedBuffer.syncViews();
@@ -133,6 +166,7 @@ public class GLMappedBufferIntWriter implements Destructible {
 
 		freeViews.addAll(usedMappedViews);
 		usedMappedViews.clear();
+		stagingArena.reset();
 
 		long writtenBytes = (long) (writtenMappedInts + writtenStagingInts) * Integer.BYTES;
 		writtenMappedInts = 0;
@@ -142,13 +176,16 @@ public class GLMappedBufferIntWriter implements Destructible {
 
 	public static final class ReservedView {
 		private ByteBuffer backing;
+		private IntBuffer stagingBlock;
 		@Getter
 		private IntBuffer buffer;
 		@Getter
 		private int bufferOffsetInts;
+		// The view's starting position within its buffer
+		private int startInts;
 
 		public int getEndOffsetInts() {
-			return (backing == null ? bufferOffsetInts : 0) + buffer.position();
+			return bufferOffsetInts + buffer.position() - startInts;
 		}
 	}
 }
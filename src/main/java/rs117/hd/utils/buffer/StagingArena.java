@@ -0,0 +1,114 @@
+package rs117.hd.utils.buffer;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import lombok.Getter;
+import org.lwjgl.system.MemoryUtil;
+import rs117.hd.utils.Destructible;
+
+import static rs117.hd.utils.MathUtils.*;
+
+/**
+ * A growable off-heap arena for staging data which doesn't fit in a mapped buffer. Slices are handed out from a single
+ * block of memory, which is only reallocated between frames, sized to the high-water mark of previous frames, so
+ * steady-state frames don't allocate any direct memory.
+ * <p>
+ * If a frame runs out of space, additional blocks are allocated, since previously reserved slices may still be in use.
+ * These are merged into a single larger block on the next {@link #reset()}.
+ */
+public final class StagingArena implements Destructible {
+	private static final int MIN_BLOCK_INTS = (int) (64 * KiB / Integer.BYTES);
+	// The number of frames to track peak usage over, before shrinking the arena if it's oversized
+	private static final int SHRINK_WINDOW_FRAMES = 600;
+
+	private final ArrayList<IntBuffer> blocks = new ArrayList<>();
+
+	/**
+	 * The block which the last slice was reserved from
+	 */
+	@Getter
+	private IntBuffer block;
+	private int blockUsedInts;
+	private int frameUsedInts;
+	private int windowPeakInts;
+	private int windowFrames;
+
+	@Getter
+	private int allocationCount;
+	@Getter
+	private long lastFrameStagingBytes;
+
+	/**
+	 * Reserves a slice of the arena, which remains valid until the next {@link #reset()}.
+	 *
+	 * @return the offset of the slice in ints, within {@link #getBlock()}
+	 */
+	public int reserve(int sizeInts) {
+		if (block == null || block.capacity() - blockUsedInts < sizeInts) {
+			int capacity = block == null ? MIN_BLOCK_INTS : block.capacity() * 2;
+			allocateBlock(max(capacity, sizeInts));
+		}
+
+		int offset = blockUsedInts;
+		blockUsedInts += sizeInts;
+		frameUsedInts += sizeInts;
+		return offset;
+	}
+
+	/**
+	 * Releases all slices reserved during the frame, and resizes the arena if necessary.
+	 */
+	public void reset() {
+		lastFrameStagingBytes = (long) frameUsedInts * Integer.BYTES;
+		windowPeakInts = max(windowPeakInts, frameUsedInts);
+
+		if (blocks.size() > 1) {
+			// Grow to fit the whole frame, with some headroom
+			resize(max(MIN_BLOCK_INTS, frameUsedInts + frameUsedInts / 4));
+		} else if (++windowFrames >= SHRINK_WINDOW_FRAMES) {
+			if (block != null && block.capacity() > max(MIN_BLOCK_INTS, windowPeakInts * 4))
+				resize(windowPeakInts == 0 ? 0 : max(MIN_BLOCK_INTS, windowPeakInts * 2));
+			windowPeakInts = 0;
+			windowFrames = 0;
+		}
+
+		blockUsedInts = 0;
+		frameUsedInts = 0;
+	}
+
+	public long getCapacityBytes() {
+		long capacity = 0;
+		for (int i = 0; i < blocks.size(); i++)
+			capacity += blocks.get(i).capacity();
+		return capacity * Integer.BYTES;
+	}
+
+	private void resize(int capacityInts) {
+		freeBlocks();
+		if (capacityInts > 0)
+			allocateBlock(capacityInts);
+	}
+
+	private void allocateBlock(int capacityInts) {
+		block = MemoryUtil.memAllocInt(capacityInts);
+		blocks.add(block);
+		blockUsedInts = 0;
+		allocationCount++;
+	}
+
+	private void freeBlocks() {
+		for (int i = 0; i < blocks.size(); i++)
+			MemoryUtil.memFree(blocks.get(i));
+		blocks.clear();
+		block = null;
+		blockUsedInts = 0;
+	}
+
+	@Override
+	public void destroy() {
+		freeBlocks();
+		frameUsedInts = 0;
+		windowPeakInts = 0;
+		windowFrames = 0;
+	}
+}
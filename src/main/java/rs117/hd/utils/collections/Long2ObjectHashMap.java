@@ -0,0 +1,322 @@
+package rs117.hd.utils.collections;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.UnaryOperator;
+import lombok.Getter;
+import lombok.NonNull;
+
+import static rs117.hd.utils.MathUtils.*;
+import static rs117.hd.utils.collections.Util.DEFAULT_CAPACITY;
+import static rs117.hd.utils.collections.Util.DEFAULT_GROWTH;
+import static rs117.hd.utils.collections.Util.EMPTY_LONG;
+import static rs117.hd.utils.collections.Util.LOAD_FACTOR;
+import static rs117.hd.utils.collections.Util.findIndex;
+import static rs117.hd.utils.collections.Util.murmurHash3;
+
+public final class Long2ObjectHashMap<T> implements Iterable<Long2ObjectHashMap.Entry<T>> {
+	public interface Supplier<T> { T[] get(int capacity); }
+
+	private final Supplier<T> defaultValueSupplier;
+	private final float growthFactor;
+
+	private long[] keys;
+	private T[] values;
+	private int[] distances;
+
+	private int lowTide = Integer.MAX_VALUE;
+	private int highTide;
+	private int size;
+	private int mask;
+
+	public Long2ObjectHashMap() {
+		this(DEFAULT_CAPACITY, DEFAULT_GROWTH, null);
+	}
+
+	public Long2ObjectHashMap(Supplier<T> defaultValueSupplier) {
+		this(DEFAULT_CAPACITY, DEFAULT_GROWTH, defaultValueSupplier);
+	}
+
+	public Long2ObjectHashMap(int initialCapacity) {
+		this(initialCapacity, DEFAULT_GROWTH, null);
+	}
+
+	public Long2ObjectHashMap(int initialCapacity, Supplier<T> defaultValueSupplier) {
+		this(initialCapacity, DEFAULT_GROWTH, defaultValueSupplier);
+	}
+
+	@SuppressWarnings("unchecked")
+	public Long2ObjectHashMap(int initialCapacity, float growthFactor, Supplier<T> defaultValueSupplier) {
+		assert growthFactor > 1;
+		this.defaultValueSupplier =
+			defaultValueSupplier != null
+				? defaultValueSupplier
+				: (capacity) -> (T[]) new Object[capacity];
+
+		this.growthFactor = growthFactor;
+
+		int cap = max(ceilPow2(initialCapacity), DEFAULT_CAPACITY);
+
+		keys = new long[cap];
+		values = this.defaultValueSupplier.get(cap);
+		distances = new int[cap];
+
+		Arrays.fill(keys, EMPTY_LONG);
+
+		this.size = 0;
+		this.mask = cap - 1;
+	}
+
+	public void trimToSize() {
+		resizeTo(max(size, DEFAULT_CAPACITY));
+	}
+
+	private void grow() {
+		resizeTo((int) (keys.length * growthFactor));
+	}
+
+	private void resizeTo(int newCapacity) {
+		assert size <= newCapacity;
+		newCapacity = ceilPow2(newCapacity);
+		if (newCapacity == keys.length)
+			return;
+
+		long[] oldKeys = keys;
+		T[] oldValues = values;
+
+		keys = new long[newCapacity];
+		values = defaultValueSupplier.get(newCapacity);
+		distances = new int[newCapacity];
+
+		Arrays.fill(keys, EMPTY_LONG);
+
+		mask = newCapacity - 1;
+		lowTide = Integer.MAX_VALUE;
+		highTide = 0;
+
+		// The size will remain the same after, but we make
+		// it negative to avoid growth while repopulating
+		int newSize = size;
+		size = -newSize;
+
+		for (int i = 0; i < oldKeys.length; i++)
+			if (oldKeys[i] != EMPTY_LONG)
+				put(oldKeys[i], oldValues[i]);
+
+		size = newSize;
+	}
+
+	public boolean put(long key, T value) {
+		return put(key, value, true);
+	}
+
+	public boolean putIfAbsent(long key, T value) {
+		return put(key, value, false);
+	}
+
+	public T compute(long key, UnaryOperator<T> op, T defaultValue) {
+		int idx = findIndex(key, mask, keys, distances);
+		if (idx >= 0)
+			return values[idx] = op.apply(values[idx]);
+		T newVal = op.apply(defaultValue);
+		put(key, newVal);
+		return newVal;
+	}
+
+	private boolean put(long key, T value, boolean overwrite) {
+		if (size >= (int) (keys.length * LOAD_FACTOR))
+			grow();
+
+		final long[] keys = this.keys;
+		final int[] distances = this.distances;
+
+		int idx = (int) murmurHash3(key) & mask;
+		int dist = 0;
+		while (true) {
+			final long k = keys[idx];
+
+			if (k == EMPTY_LONG) {
+				keys[idx] = key;
+				values[idx] = value;
+				distances[idx] = dist;
+				size++;
+				lowTide = min(idx, lowTide);
+				highTide = max(idx, highTide);
+				return true;
+			}
+
+			if (k == key) {
+				if (overwrite)
+					values[idx] = value;
+				return false;
+			}
+
+			// Robin Hood swap: steal slot if we probed farther
+			if (distances[idx] < dist) {
+				long tmpKey = keys[idx];
+				T tmpVal = values[idx];
+				int tmpDist = distances[idx];
+
+				keys[idx] = key;
+				values[idx] = value;
+				distances[idx] = dist;
+
+				key = tmpKey;
+				value = tmpVal;
+				dist = tmpDist;
+			}
+
+			idx = (idx + 1) & mask;
+			dist++;
+		}
+	}
+
+	public T getOrDefault(long key, T defaultValue) {
+		int idx = findIndex(key, mask, keys, distances);
+		return idx >= 0 ? values[idx] : defaultValue;
+	}
+
+	public T get(long key) {
+		int idx = findIndex(key, mask, keys, distances);
+		return idx >= 0 ? values[idx] : null;
+	}
+
+	public boolean containsKey(long key) {
+		return findIndex(key, mask, keys, distances) >= 0;
+	}
+
+	public T getValue(int idx) {
+		return values[idx];
+	}
+
+	public void setValue(int idx, T value) {
+		values[idx] = value;
+	}
+
+	public boolean remove(long key) {
+		int idx = findIndex(key, mask, keys, distances);
+		if (idx < 0)
+			return false;
+
+		removeIndex(idx);
+		return true;
+	}
+
+	/**
+	 * Remove the entry for the specified key, only if it's currently mapped to the specified value.
+	 */
+	public boolean remove(long key, T value) {
+		int idx = findIndex(key, mask, keys, distances);
+		if (idx < 0 || values[idx] != value)
+			return false;
+
+		removeIndex(idx);
+		return true;
+	}
+
+	public void removeIndex(int idx) {
+		keys[idx] = EMPTY_LONG;
+		values[idx] = null;
+		distances[idx] = 0;
+		size--;
+
+		int last = idx;
+
+		// Shift backward while probe distance allows
+		while (true) {
+			int next = (last + 1) & mask;
+			if (keys[next] == EMPTY_LONG || distances[next] == 0)
+				break;
+
+			keys[last] = keys[next];
+			values[last] = values[next];
+			distances[last] = distances[next] - 1;
+
+			keys[next] = EMPTY_LONG;
+			values[next] = null;
+			distances[next] = 0;
+
+			last = next;
+		}
+	}
+
+	public void clear() {
+		if (size == 0)
+			return;
+		Arrays.fill(keys, lowTide, highTide + 1, EMPTY_LONG);
+		Arrays.fill(values, lowTide, highTide + 1, null);
+		Arrays.fill(distances, lowTide, highTide + 1, 0);
+		lowTide = keys.length;
+		highTide = 0;
+		size = 0;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int capacity() { return keys.length; }
+
+	@Override
+	@NonNull
+	public Iterator<Entry<T>> iterator() {
+		return new Iter();
+	}
+
+	public static class Entry<T> {
+		@Getter
+		private long key;
+		@Getter
+		private T value;
+	}
+
+	private class Iter implements Iterator<Entry<T>> {
+		private int index = -1;
+		private int nextIndex = -1;
+
+		private final Entry<T> entry = new Entry<>();
+
+		Iter() {
+			advance();
+		}
+
+		private void advance() {
+			do {
+				nextIndex++;
+			} while (nextIndex < keys.length && keys[nextIndex] == EMPTY_LONG);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return nextIndex < keys.length;
+		}
+
+		@Override
+		public Entry<T> next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+
+			index = nextIndex;
+			advance();
+
+			entry.key = keys[index];
+			entry.value = values[index];
+			return entry;
+		}
+
+		@Override
+		public void remove() {
+			if (index == -1)
+				throw new IllegalStateException();
+
+			removeIndex(index);
+			nextIndex = index;
+			index = -1;
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package rs117.hd.utils.collections;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import lombok.Getter;
+import lombok.NonNull;
+
+public final class TileVertexIntMap extends TileVertexMap implements Iterable<TileVertexIntMap.Entry> {
+	private int[] values;
+
+	public TileVertexIntMap() {
+		this(0);
+	}
+
+	public TileVertexIntMap(int overflowCapacity) {
+		super(overflowCapacity);
+		values = new int[keys.length];
+	}
+
+	@Override
+	protected void resizeValues(int slotCount) {
+		values = Arrays.copyOf(values, slotCount);
+	}
+
+	public boolean put(int key, int value) {
+		int slot = findSlot(key);
+		if (slot != -1) {
+			values[slot] = value;
+			return false;
+		}
+		slot = addSlot(key);
+		values[slot] = value;
+		return true;
+	}
+
+	public boolean putIfAbsent(int key, int value) {
+		if (findSlot(key) != -1)
+			return false;
+		int slot = addSlot(key);
+		values[slot] = value;
+		return true;
+	}
+
+	public int or(int key, int maskBits, int defaultValue) {
+		int slot = findSlot(key);
+		if (slot == -1) {
+			slot = addSlot(key);
+			values[slot] = defaultValue;
+		}
+		return values[slot] |= maskBits;
+	}
+
+	public int setBits(int key, int valueBits, int maskBits, int defaultValue) {
+		int slot = findSlot(key);
+		if (slot == -1) {
+			slot = addSlot(key);
+			values[slot] = defaultValue;
+		}
+		return values[slot] = (values[slot] & ~maskBits) | (valueBits & maskBits);
+	}
+
+	public boolean test(int key, int maskBits) {
+		int slot = findSlot(key);
+		return slot != -1 && (values[slot] & maskBits) == maskBits;
+	}
+
+	public int getBits(int key, int maskBits, int shift, int defaultValue) {
+		int slot = findSlot(key);
+		return slot != -1 ? (values[slot] >>> shift) & maskBits : defaultValue;
+	}
+
+	public int getOrDefault(int key, int defaultValue) {
+		int slot = findSlot(key);
+		return slot != -1 ? values[slot] : defaultValue;
+	}
+
+	@Override
+	@NonNull
+	public Iterator<Entry> iterator() {
+		return new Iter();
+	}
+
+	public static class Entry {
+		@Getter
+		private int key;
+		@Getter
+		private int value;
+	}
+
+	private class Iter implements Iterator<Entry> {
+		private final Entry entry = new Entry();
+		private int nextSlot = nextSlot(-1);
+
+		@Override
+		public boolean hasNext() {
+			return nextSlot < keys.length;
+		}
+
+		@Override
+		public Entry next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+
+			entry.key = keys[nextSlot];
+			entry.value = values[nextSlot];
+			nextSlot = nextSlot(nextSlot);
+			return entry;
+		}
+	}
+}
@@ -0,0 +1,119 @@
+package rs117.hd.utils.collections;
+
+import java.util.Arrays;
+import rs117.hd.utils.HDUtils;
+
+import static net.runelite.api.Constants.*;
+import static rs117.hd.utils.MathUtils.*;
+import static rs117.hd.utils.collections.Util.DEFAULT_CAPACITY;
+import static rs117.hd.utils.collections.Util.DEFAULT_GROWTH;
+import static rs117.hd.utils.collections.Util.EMPTY;
+
+/**
+ * Base for maps keyed by {@link HDUtils#tileVertexHash}, which store their values in a dense grid with one slot per tile
+ * corner in the extended scene, so looking up a tile's vertices is a single array index, instead of a hash and probe.
+ * <p>
+ * Vertex keys include the height rather than the plane, so a corner can be shared by multiple keys. The first key
+ * inserted at a corner claims its grid slot, while any others, along with vertices inside tile models, are assigned
+ * slots after the grid through a small overflow map. Keys can't be removed.
+ */
+public abstract class TileVertexMap {
+	public static final int GRID_SIZE = EXTENDED_SCENE_SIZE + 1;
+	public static final int GRID_SLOTS = GRID_SIZE * GRID_SIZE;
+
+	private final Int2IntHashMap overflow;
+	private int overflowSize;
+	private int size;
+
+	/**
+	 * Slot keys, with the grid slots first, followed by the overflow slots
+	 */
+	protected int[] keys;
+
+	protected TileVertexMap(int overflowCapacity) {
+		overflowCapacity = max(overflowCapacity, DEFAULT_CAPACITY);
+		keys = new int[GRID_SLOTS + overflowCapacity];
+		Arrays.fill(keys, EMPTY);
+		overflow = new Int2IntHashMap(overflowCapacity);
+	}
+
+	/**
+	 * Called when the overflow slots need to grow, to resize the subclass' values to the new slot count.
+	 */
+	protected abstract void resizeValues(int slotCount);
+
+	private static int gridSlot(int key) {
+		int x = key & 0x3FF;
+		int y = key >>> 10 & 0x3FF;
+		if (((x | y) & 3) != 0)
+			return -1;
+		x >>= 2;
+		y >>= 2;
+		if (x >= GRID_SIZE || y >= GRID_SIZE)
+			return -1;
+		return y * GRID_SIZE + x;
+	}
+
+	/**
+	 * @return the key's slot, or -1 if the key isn't in the map
+	 */
+	protected final int findSlot(int key) {
+		int slot = gridSlot(key);
+		if (slot != -1) {
+			int k = keys[slot];
+			if (k == key)
+				return slot;
+			// Only corners with a claimed grid slot can have keys in the overflow
+			if (k == EMPTY)
+				return -1;
+		}
+		return overflowSize == 0 ? -1 : overflow.getOrDefault(key, -1);
+	}
+
+	/**
+	 * Assigns a slot to a key which isn't already in the map.
+	 */
+	protected final int addSlot(int key) {
+		int slot = gridSlot(key);
+		if (slot == -1 || keys[slot] != EMPTY) {
+			slot = GRID_SLOTS + overflowSize++;
+			if (slot >= keys.length) {
+				int slotCount = GRID_SLOTS + (int) ((keys.length - GRID_SLOTS) * DEFAULT_GROWTH);
+				int oldLength = keys.length;
+				keys = Arrays.copyOf(keys, slotCount);
+				Arrays.fill(keys, oldLength, slotCount, EMPTY);
+				resizeValues(slotCount);
+			}
+			overflow.put(key, slot);
+		}
+		keys[slot] = key;
+		size++;
+		return slot;
+	}
+
+	public boolean containsKey(int key) {
+		return findSlot(key) != -1;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of keys which didn't fit in the grid, useful as a capacity hint when creating a similar map
+	 */
+	public int overflowSize() {
+		return overflowSize;
+	}
+
+	protected final int nextSlot(int slot) {
+		do {
+			slot++;
+		} while (slot < keys.length && keys[slot] == EMPTY);
+		return slot;
+	}
+}
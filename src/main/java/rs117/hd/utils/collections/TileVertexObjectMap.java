@@ -0,0 +1,89 @@
+package rs117.hd.utils.collections;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import lombok.Getter;
+import lombok.NonNull;
+
+public final class TileVertexObjectMap<T> extends TileVertexMap implements Iterable<TileVertexObjectMap.Entry<T>> {
+	private Object[] values;
+
+	public TileVertexObjectMap() {
+		this(0);
+	}
+
+	public TileVertexObjectMap(int overflowCapacity) {
+		super(overflowCapacity);
+		values = new Object[keys.length];
+	}
+
+	@Override
+	protected void resizeValues(int slotCount) {
+		values = Arrays.copyOf(values, slotCount);
+	}
+
+	public boolean put(int key, T value) {
+		int slot = findSlot(key);
+		if (slot != -1) {
+			values[slot] = value;
+			return false;
+		}
+		slot = addSlot(key);
+		values[slot] = value;
+		return true;
+	}
+
+	public boolean putIfAbsent(int key, T value) {
+		if (findSlot(key) != -1)
+			return false;
+		int slot = addSlot(key);
+		values[slot] = value;
+		return true;
+	}
+
+	@SuppressWarnings("unchecked")
+	public T getOrDefault(int key, T defaultValue) {
+		int slot = findSlot(key);
+		return slot != -1 ? (T) values[slot] : defaultValue;
+	}
+
+	public T get(int key) {
+		return getOrDefault(key, null);
+	}
+
+	@Override
+	@NonNull
+	public Iterator<Entry<T>> iterator() {
+		return new Iter();
+	}
+
+	public static class Entry<T> {
+		@Getter
+		private int key;
+		@Getter
+		private T value;
+	}
+
+	private class Iter implements Iterator<Entry<T>> {
+		private final Entry<T> entry = new Entry<>();
+		private int nextSlot = nextSlot(-1);
+
+		@Override
+		public boolean hasNext() {
+			return nextSlot < keys.length;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public Entry<T> next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+
+			entry.key = keys[nextSlot];
+			entry.value = (T) values[nextSlot];
+			nextSlot = nextSlot(nextSlot);
+			return entry;
+		}
+	}
+}
@@ -6,6 +6,7 @@ import java.util.List;
 public final class Util {
 	public static final int DEFAULT_CAPACITY = 16;
 	public static final int EMPTY = Integer.MIN_VALUE;
+	public static final long EMPTY_LONG = Long.MIN_VALUE;
 	public static final float LOAD_FACTOR = 0.7f;
 	public static final float DEFAULT_GROWTH = 1.5f;
 
@@ -49,6 +50,23 @@ public final class Util {
 		return -1;
 	}
 
+	public static int findIndex(final long key, final int mask, final long[] keys, final int[] distances) {
+		int idx = (int) murmurHash3(key) & mask;
+		for (int dist = 0; dist == 0 || distances[idx] >= dist; dist++) {
+			final long k = keys[idx];
+
+			if (k == EMPTY_LONG)
+				break;
+
+			if (k == key)
+				return idx;
+
+			idx = (idx + 1) & mask;
+		}
+
+		return -1;
+	}
+
 	/**
 	 * Allocation-free quicksort for Object arrays and Lists.
 	 * Algorithm based on the JDK 8 Dual-Pivot Quicksort by Yaroslavskiy, Bentley,
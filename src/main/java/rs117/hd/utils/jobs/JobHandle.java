@@ -42,6 +42,8 @@ final class JobHandle extends AbstractQueuedSynchronizer {
 	Worker worker;
 	@Getter
 	boolean highPriority;
+	long queuedAt;
+	boolean stalled;
 
 	static JobHandle obtain() {
 		JobHandle handle = POOL.acquire();
@@ -61,6 +63,8 @@ final class JobHandle extends AbstractQueuedSynchronizer {
 
 		handle.depCount.set(0);
 		handle.highPriority = false;
+		handle.queuedAt = 0;
+		handle.stalled = false;
 		handle.item = null;
 		handle.worker = null;
 
@@ -135,6 +139,7 @@ final class JobHandle extends AbstractQueuedSynchronizer {
 	synchronized void setInQueue() {
 		assert isIdle() : "State should be NONE but is " + STATE_NAMES[jobState.get()];
 		setJobState(STATE_QUEUED);
+		queuedAt = JOB_SYSTEM.stats.isEnabled() ? System.nanoTime() : 0;
 	}
 
 	synchronized void setCompleted() throws InterruptedException {
@@ -155,6 +160,8 @@ final class JobHandle extends AbstractQueuedSynchronizer {
 		if (VALIDATE)
 			log.debug("Handle [{}] Completed", this);
 
+		// Dependants are pushed onto the completing worker's own deque, which only its thread is allowed to do
+		final boolean isOwningWorker = worker != null && worker.thread == Thread.currentThread();
 		int queuedWork = 0;
 		JobHandle dep;
 		while ((dep = dependants.poll()) != null) {
@@ -168,18 +175,22 @@ final class JobHandle extends AbstractQueuedSynchronizer {
 				if (VALIDATE)
 					log.debug("Handle [{}] Adding: [{}] to queue", this, dep);
 
-				if (dep.isHighPriority()) {
-					worker.localWorkQueue.addFirst(dep);
+				if (isOwningWorker) {
+					worker.pushLocalWork(dep);
+				} else if (dep.isHighPriority()) {
+					JOB_SYSTEM.workQueue.addFirst(dep);
 				} else {
-					worker.localWorkQueue.addLast(dep);
+					JOB_SYSTEM.workQueue.addLast(dep);
 				}
 
 				queuedWork++;
 			}
 		}
 
-		if (queuedWork > 1)
-			JOB_SYSTEM.signalWorkAvailable(queuedWork - 1);
+		// The owning worker will pick up one of the jobs itself
+		int signalCount = isOwningWorker ? queuedWork - 1 : queuedWork;
+		if (signalCount > 0)
+			JOB_SYSTEM.signalWorkAvailable(signalCount);
 	}
 
 	private void setJobState(int newState) {
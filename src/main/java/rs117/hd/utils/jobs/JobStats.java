@@ -0,0 +1,180 @@
+package rs117.hd.utils.jobs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import lombok.Getter;
+
+import static rs117.hd.utils.MathUtils.*;
+
+/**
+ * Optional instrumentation of the job system, recording how long each class of job waits in a queue before starting,
+ * and how long it runs for, into fixed-bucket histograms. Recording is allocation-free, and only happens while at least
+ * one consumer, such as the frame timer overlay, has enabled it.
+ * <p>
+ * Histograms are cumulative, so consumers should use a {@link Sampler} to get the distribution over an interval.
+ */
+public final class JobStats {
+	// Four linear sub-buckets per power of two microseconds, up to several minutes
+	private static final int SUB_BUCKET_BITS = 2;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	public static final int BUCKET_COUNT = SUB_BUCKETS * 28;
+
+	public static final class JobClassStats {
+		@Getter
+		private final String name;
+		private final AtomicLongArray queueLatency = new AtomicLongArray(BUCKET_COUNT);
+		private final AtomicLongArray runTime = new AtomicLongArray(BUCKET_COUNT);
+		private final AtomicLong stalls = new AtomicLong();
+
+		private JobClassStats(String name) {
+			this.name = name;
+		}
+	}
+
+	private final CopyOnWriteArrayList<JobClassStats> jobClasses = new CopyOnWriteArrayList<>();
+	private final ClassValue<JobClassStats> jobClassStats = new ClassValue<>() {
+		@Override
+		protected JobClassStats computeValue(Class<?> type) {
+			var stats = new JobClassStats(type.getSimpleName());
+			jobClasses.add(stats);
+			return stats;
+		}
+	};
+	private final Set<Object> consumers = ConcurrentHashMap.newKeySet();
+
+	@Getter
+	private volatile boolean enabled;
+
+	public void setEnabled(Object consumer, boolean enabled) {
+		if (enabled) {
+			consumers.add(consumer);
+		} else {
+			consumers.remove(consumer);
+		}
+		this.enabled = !consumers.isEmpty();
+	}
+
+	public Sampler createSampler() {
+		return new Sampler();
+	}
+
+	void recordRun(Job job, long queueLatencyNanos, long runTimeNanos) {
+		var stats = jobClassStats.get(job.getClass());
+		stats.queueLatency.incrementAndGet(bucketIndex(queueLatencyNanos));
+		stats.runTime.incrementAndGet(bucketIndex(runTimeNanos));
+	}
+
+	void recordStall(Job job) {
+		jobClassStats.get(job.getClass()).stalls.incrementAndGet();
+	}
+
+	static int bucketIndex(long nanos) {
+		// Roughly microseconds, without a division
+		long units = max(0, nanos >> 10);
+		if (units < SUB_BUCKETS)
+			return (int) units;
+		int exponent = 63 - Long.numberOfLeadingZeros(units);
+		int subBucket = (int) (units >> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return min(BUCKET_COUNT - 1, (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket);
+	}
+
+	/**
+	 * @return the exclusive upper bound of the bucket in nanoseconds
+	 */
+	static long bucketUpperBound(int index) {
+		if (index < SUB_BUCKETS)
+			return (index + 1L) << 10;
+		int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		int subBucket = index % SUB_BUCKETS;
+		return (SUB_BUCKETS + subBucket + 1L) << (exponent - SUB_BUCKET_BITS) << 10;
+	}
+
+	/**
+	 * Tracks the difference in the cumulative histograms between calls to {@link #sample()}.
+	 */
+	public final class Sampler {
+		private final ArrayList<Interval> intervals = new ArrayList<>();
+
+		public List<Interval> sample() {
+			for (int i = intervals.size(); i < jobClasses.size(); i++)
+				intervals.add(new Interval(jobClasses.get(i)));
+			for (var interval : intervals)
+				interval.update();
+			return intervals;
+		}
+	}
+
+	public static final class Interval {
+		private final JobClassStats stats;
+		private final long[] queueLatency = new long[BUCKET_COUNT];
+		private final long[] runTime = new long[BUCKET_COUNT];
+		private final long[] lastQueueLatency = new long[BUCKET_COUNT];
+		private final long[] lastRunTime = new long[BUCKET_COUNT];
+		private long lastStalls;
+
+		@Getter
+		private long count;
+		@Getter
+		private long stalls;
+
+		private Interval(JobClassStats stats) {
+			this.stats = stats;
+		}
+
+		public String getName() {
+			return stats.name;
+		}
+
+		private void update() {
+			count = 0;
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				long queued = stats.queueLatency.get(i);
+				long ran = stats.runTime.get(i);
+				queueLatency[i] = queued - lastQueueLatency[i];
+				runTime[i] = ran - lastRunTime[i];
+				lastQueueLatency[i] = queued;
+				lastRunTime[i] = ran;
+				count += runTime[i];
+			}
+
+			long totalStalls = stats.stalls.get();
+			stalls = totalStalls - lastStalls;
+			lastStalls = totalStalls;
+		}
+
+		/**
+		 * @param percentile between 0 and 1
+		 * @return an upper bound on the time jobs spent queued before starting, in nanoseconds
+		 */
+		public long getQueueLatency(double percentile) {
+			return percentile(queueLatency, percentile);
+		}
+
+		/**
+		 * @param percentile between 0 and 1
+		 * @return an upper bound on the time jobs spent running, in nanoseconds
+		 */
+		public long getRunTime(double percentile) {
+			return percentile(runTime, percentile);
+		}
+
+		private long percentile(long[] histogram, double percentile) {
+			if (count == 0)
+				return 0;
+
+			long target = (long) Math.ceil(count * percentile);
+			long cumulative = 0;
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				cumulative += histogram[i];
+				if (cumulative >= target && cumulative > 0)
+					return bucketUpperBound(i);
+			}
+			return bucketUpperBound(BUCKET_COUNT - 1);
+		}
+	}
+}
@@ -3,7 +3,9 @@ package rs117.hd.utils.jobs;
 import com.google.inject.Injector;
 import java.util.HashMap;
 import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import lombok.Getter;
@@ -50,12 +52,31 @@ public final class JobSystem {
 	private boolean clientInvokeScheduled;
 
 	Worker[] workers;
-	Semaphore workerSemaphore;
+	long idleSpinNanos;
+	long idleYieldNanos;
+	private final AtomicInteger nextWakeIdx = new AtomicInteger();
+
+	// Instrumentation of the idle strategy, accumulated across all workers
+	final AtomicLong wakeCount = new AtomicLong();
+	final AtomicLong wakeLatencyNanos = new AtomicLong();
+	final AtomicLong idleBurnNanos = new AtomicLong();
+
+	@Getter
+	final JobStats stats = new JobStats();
 
 	public void startUp(CpuUsageLimit cpuUsageLimit) {
-		workerCount = max(1, ceil((PROCESSOR_COUNT - 1) * cpuUsageLimit.threadRatio));
+		startUp(max(1, ceil((PROCESSOR_COUNT - 1) * cpuUsageLimit.threadRatio)), cpuUsageLimit);
+	}
+
+	public void startUp(int workerCount) {
+		startUp(workerCount, CpuUsageLimit.MAX);
+	}
+
+	private void startUp(int workerCount, CpuUsageLimit cpuUsageLimit) {
+		this.workerCount = workerCount;
 		workers = new Worker[workerCount];
-		workerSemaphore = new Semaphore(workerCount);
+		idleSpinNanos = TimeUnit.MICROSECONDS.toNanos(cpuUsageLimit.idleSpinMicros);
+		idleYieldNanos = TimeUnit.MICROSECONDS.toNanos(cpuUsageLimit.idleYieldMicros);
 		active = true;
 
 		for (int i = 0; i < workerCount; i++) {
@@ -75,27 +96,92 @@ public final class JobSystem {
 		log.debug("Initialized JobSystem with {} workers", workerCount);
 	}
 
+	/**
+	 * Wakes up to the specified number of parked workers. Workers which are still spinning will find the work by themselves.
+	 */
 	void signalWorkAvailable(int workCount) {
-		int availPermits = workerSemaphore.availablePermits();
-		if (availPermits >= workCount)
+		final Worker[] workers = this.workers;
+		if (workers == null)
 			return;
-		workerSemaphore.release(min(workCount, workCount - availPermits));
+
+		// Rotate the starting point, so wakeups are spread across all workers
+		int startIdx = nextWakeIdx.getAndIncrement() & 0x7FFFFFFF;
+		for (int i = 0; i < workers.length && workCount > 0; i++)
+			if (workers[(startIdx + i) % workers.length].wake())
+				workCount--;
+	}
+
+	boolean hasPendingWork() {
+		if (!workQueue.isEmpty())
+			return true;
+		for (Worker worker : workers)
+			if (worker.getLocalWorkCount() > 0)
+				return true;
+		return false;
 	}
 
 	public int getWorkQueueSize() {
 		return workQueue.size();
 	}
 
+	public int getWorkerCount() {
+		return workerCount;
+	}
+
+	public long getWakeCount() {
+		return wakeCount.get();
+	}
+
+	/**
+	 * @return the total time between parked workers being signalled and resuming execution
+	 */
+	public long getWakeLatencyNanos() {
+		return wakeLatencyNanos.get();
+	}
+
+	/**
+	 * @return the total time workers have spent spinning or yielding while waiting for work, rather than parked
+	 */
+	public long getIdleBurnNanos() {
+		return idleBurnNanos.get();
+	}
+
+	/**
+	 * @return the total number of times workers have stolen work from each other, since the job system started
+	 */
+	public long getTotalStealCount() {
+		final Worker[] workers = this.workers;
+		if (workers == null)
+			return 0;
+
+		long steals = 0;
+		for (var worker : workers)
+			steals += worker.stealCount;
+		return steals;
+	}
+
 	private void cancelAllWork(ConcurrentLinkedDeque<JobHandle> queue) {
 		JobHandle handle;
-		while ((handle = queue.poll()) != null) {
-			try {
-				handle.cancel(false);
-				handle.setCompleted();
-			} catch (InterruptedException e) {
-				log.warn("Interrupted while shutting down worker", e);
-				throw new RuntimeException(e);
-			}
+		while ((handle = queue.poll()) != null)
+			cancelHandle(handle);
+	}
+
+	private void cancelAllWork(Worker worker) {
+		// Local work can only be stolen from other threads, which may fail spuriously when racing the worker
+		while (worker.getLocalWorkCount() > 0) {
+			JobHandle handle = worker.stealWork();
+			if (handle != null)
+				cancelHandle(handle);
+		}
+	}
+
+	private void cancelHandle(JobHandle handle) {
+		try {
+			handle.cancel(false);
+			handle.setCompleted();
+		} catch (InterruptedException e) {
+			log.warn("Interrupted while shutting down worker", e);
+			throw new RuntimeException(e);
 		}
 	}
 
@@ -104,7 +190,7 @@ public final class JobSystem {
 		cancelAllWork(workQueue);
 
 		for (Worker worker : workers) {
-			cancelAllWork(worker.localWorkQueue);
+			cancelAllWork(worker);
 			if (worker.handle != null) {
 				try {
 					worker.handle.cancel(true);
@@ -0,0 +1,104 @@
+package rs117.hd.utils.jobs;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A Chase-Lev work-stealing deque, based on "Correct and Efficient Work-Stealing for Weak Memory Models" (Lê et al. 2013).
+ * <p>
+ * Only the owning worker may {@link #push} and {@link #pop}, which operate on the bottom of the deque without contention.
+ * Any thread may {@link #steal} from the top, which only requires a CAS when racing against other thieves, or against
+ * the owner for the last remaining item.
+ */
+final class WorkStealingDeque<T> {
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final AtomicLong top = new AtomicLong();
+	private volatile long bottom;
+	private volatile AtomicReferenceArray<T> buffer = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+
+	/**
+	 * Owner only. Pushes an item onto the bottom of the deque, growing it if full.
+	 */
+	void push(T item) {
+		long b = bottom;
+		long t = top.get();
+		AtomicReferenceArray<T> a = buffer;
+		if (b - t >= a.length())
+			a = grow(a, b, t);
+		a.set((int) b & (a.length() - 1), item);
+		bottom = b + 1;
+	}
+
+	/**
+	 * Owner only. Pops the most recently pushed item from the bottom of the deque.
+	 *
+	 * @return the item, or null if the deque is empty or the last item was stolen
+	 */
+	T pop() {
+		long b = bottom - 1;
+		AtomicReferenceArray<T> a = buffer;
+		// The volatile write to bottom followed by the volatile read of top acts as the required StoreLoad fence
+		bottom = b;
+		long t = top.get();
+		if (t > b) {
+			bottom = b + 1;
+			return null;
+		}
+
+		final int idx = (int) b & (a.length() - 1);
+		T item = a.get(idx);
+		if (t == b) {
+			// Last item, so race any thieves for it
+			if (!top.compareAndSet(t, t + 1))
+				item = null;
+			bottom = b + 1;
+		}
+		// Clear the slot, so the deque doesn't hold onto finished work until the slot is reused
+		if (item != null)
+			a.set(idx, null);
+		return item;
+	}
+
+	/**
+	 * Steals the oldest item from the top of the deque. Safe to call from any thread.
+	 *
+	 * @return the item, or null if the deque is empty or another thread won the race for it
+	 */
+	T steal() {
+		long t = top.get();
+		long b = bottom;
+		if (t >= b)
+			return null;
+
+		// Retired buffers are never written to again, so reading from a stale buffer is still safe
+		AtomicReferenceArray<T> a = buffer;
+		final int idx = (int) t & (a.length() - 1);
+		T item = a.get(idx);
+		if (!top.compareAndSet(t, t + 1))
+			return null;
+		// Only clear the slot if the owner hasn't already pushed a new item into it
+		a.compareAndSet(idx, item, null);
+		return item;
+	}
+
+	/**
+	 * @return an estimate of the number of items in the deque, which may be stale by the time it's returned
+	 */
+	int size() {
+		long size = bottom - top.get();
+		return size > 0 ? (int) size : 0;
+	}
+
+	boolean isEmpty() {
+		return size() == 0;
+	}
+
+	private AtomicReferenceArray<T> grow(AtomicReferenceArray<T> a, long b, long t) {
+		var grown = new AtomicReferenceArray<T>(a.length() * 2);
+		for (long i = t; i < b; i++)
+			grown.set((int) i & (grown.length() - 1), a.get((int) i & (a.length() - 1)));
+		buffer = grown;
+		return grown;
+	}
+}
@@ -1,9 +1,9 @@
 package rs117.hd.utils.jobs;
 
 import java.util.ArrayDeque;
-import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -14,34 +14,63 @@ import static rs117.hd.utils.jobs.JobSystem.VALIDATE;
 @Slf4j
 @RequiredArgsConstructor
 public final class Worker {
-	private static final long SLEEP_TIME_NANOS = TimeUnit.MICROSECONDS.convert(1, TimeUnit.NANOSECONDS);
-
 	String name, pausedName;
 	Thread thread;
 	JobHandle handle;
 	int stealTargetIdx = -1;
+	long parkedNanos;
+	volatile long wakeRequestedAt;
+	// Only written to by the worker itself
+	volatile long stealCount;
 
 	final JobSystem jobSystem;
 	final int workerIdx;
-	final ConcurrentLinkedDeque<JobHandle> localWorkQueue = new ConcurrentLinkedDeque<>();
+	final WorkStealingDeque<JobHandle> localHighPriorityWork = new WorkStealingDeque<>();
+	final WorkStealingDeque<JobHandle> localWork = new WorkStealingDeque<>();
 	final ArrayDeque<JobHandle> localStalledWork = new ArrayDeque<>();
 	final AtomicBoolean inflight = new AtomicBoolean();
+	final AtomicBoolean parked = new AtomicBoolean();
+
+	/**
+	 * Must only be called from this worker's thread.
+	 */
+	void pushLocalWork(JobHandle handle) {
+		(handle.highPriority ? localHighPriorityWork : localWork).push(handle);
+	}
+
+	/**
+	 * Must only be called from this worker's thread. Returns the most recently pushed work, which is likely still in cache.
+	 */
+	JobHandle pollLocalWork() {
+		JobHandle handle = localHighPriorityWork.pop();
+		return handle != null ? handle : localWork.pop();
+	}
+
+	/**
+	 * Steals the oldest work from this worker. Safe to call from any thread.
+	 */
+	JobHandle stealWork() {
+		JobHandle handle = localHighPriorityWork.steal();
+		return handle != null ? handle : localWork.steal();
+	}
+
+	int getLocalWorkCount() {
+		return localHighPriorityWork.size() + localWork.size();
+	}
 
 	boolean findNextStealTarget() {
-		// Find the best target to steal work from
-		int nextVictimIdx = -1;
-		int nextVictimWorkCount = -1;
-		for (int i = 0; i < jobSystem.workers.length; i++) {
-			if (i == workerIdx || !jobSystem.workers[i].inflight.get())
-				continue; // Don't query ourselves or a worker that is idle
-			int workCount = jobSystem.workers[i].localWorkQueue.size();
-			if (workCount > nextVictimWorkCount) {
-				nextVictimIdx = i;
-				nextVictimWorkCount = workCount;
+		// Start from a random worker, so idle workers spread out instead of all contending over the same victim
+		final Worker[] workers = jobSystem.workers;
+		int startIdx = ThreadLocalRandom.current().nextInt(workers.length);
+		for (int i = 0; i < workers.length; i++) {
+			int victimIdx = (startIdx + i) % workers.length;
+			if (victimIdx != workerIdx && workers[victimIdx].getLocalWorkCount() > 0) {
+				stealTargetIdx = victimIdx;
+				return true;
 			}
 		}
-		stealTargetIdx = nextVictimIdx;
-		return nextVictimWorkCount > 0;
+		stealTargetIdx = -1;
+		return false;
 	}
 
 	@SuppressWarnings("ResultOfMethodCallIgnored")
@@ -50,24 +79,21 @@ public final class Worker {
 		pausedName = name + " [Paused]";
 		while (jobSystem.active) {
 			// Check local work queue
-			handle = (localStalledWork.isEmpty() ? localWorkQueue : localStalledWork).poll();
+			handle = localStalledWork.isEmpty() ? pollLocalWork() : localStalledWork.poll();
 
 			long waitStart = handle == null ? System.nanoTime() : 0;
+			parkedNanos = 0;
 			while (handle == null) {
 				if (stealTargetIdx >= 0) {
 					final Worker victim = jobSystem.workers[stealTargetIdx];
-					int stealCount = max(1, victim.localWorkQueue.size() / jobSystem.workers.length);
-
-					JobHandle stolenHandle;
-					while (stealCount-- > 0 && (stolenHandle = victim.localWorkQueue.poll()) != null) {
-						if (handle == null) {
-							handle = stolenHandle;
-						} else {
-							if (handle.highPriority)
-								localWorkQueue.addFirst(stolenHandle);
-							else
-								localWorkQueue.addLast(stolenHandle);
-						}
+					handle = victim.stealWork();
+					if (handle != null) {
+						stealCount++;
+						// Take a share of the victim's backlog, to reduce how often we need to come back for more
+						int batchSize = victim.getLocalWorkCount() / jobSystem.workers.length;
+						JobHandle stolenHandle;
+						while (batchSize-- > 0 && (stolenHandle = victim.stealWork()) != null)
+							pushLocalWork(stolenHandle);
 					}
 				}
 
@@ -76,20 +102,8 @@ public final class Worker {
 					handle = localStalledWork.isEmpty() ? jobSystem.workQueue.poll() : localStalledWork.poll();
 				}
 
-				if (handle == null && !findNextStealTarget() && System.nanoTime() - waitStart > SLEEP_TIME_NANOS) {
-					// Wait for a signal that there is work to be had
-					try {
-						jobSystem.workerSemaphore.acquire();
-					} catch (InterruptedException ignored) {
-						// Interrupts are used to signal that the worker should shutdown, we'll pick this up and shutdown
-						thread.isInterrupted(); // Consume the interrupt to prevent it from cancelling the next job
-					}
-
-					if (handle == null) {
-						// We've been signaled that there is work to be had, try the main queue again
-						handle = jobSystem.workQueue.poll();
-					}
-				}
+				if (handle == null && !findNextStealTarget())
+					waitForWork(System.nanoTime() - waitStart);
 
 				if (!jobSystem.active) {
 					log.trace("Shutdown");
@@ -97,6 +111,9 @@ public final class Worker {
 				}
 			}
 
+			if (waitStart != 0)
+				jobSystem.idleBurnNanos.addAndGet(System.nanoTime() - waitStart - parkedNanos);
+
 			try {
 				processHandle();
 			} catch (InterruptedException ignored) {
@@ -106,8 +123,64 @@ public final class Worker {
 		log.trace("Shutdown");
 	}
 
+	/**
+	 * Busy-waits for a short while, since more work is often queued shortly after, then yields to other threads for a
+	 * while longer, before finally parking until another thread signals that there's work to be had.
+	 */
+	@SuppressWarnings("ResultOfMethodCallIgnored")
+	private void waitForWork(long idleNanos) {
+		if (idleNanos < jobSystem.idleSpinNanos) {
+			Thread.onSpinWait();
+			return;
+		}
+
+		if (idleNanos < jobSystem.idleSpinNanos + jobSystem.idleYieldNanos) {
+			Thread.yield();
+			return;
+		}
+
+		// Check for work again after announcing that we're parked, so a concurrent signal can't be missed
+		parked.set(true);
+		if (jobSystem.hasPendingWork() || !jobSystem.active) {
+			parked.set(false);
+			return;
+		}
+
+		long parkStart = System.nanoTime();
+		LockSupport.park(this);
+		long now = System.nanoTime();
+		parked.set(false);
+		parkedNanos += now - parkStart;
+
+		long requestedAt = wakeRequestedAt;
+		if (requestedAt != 0) {
+			wakeRequestedAt = 0;
+			jobSystem.wakeCount.incrementAndGet();
+			jobSystem.wakeLatencyNanos.addAndGet(now - requestedAt);
+		}
+
+		// Interrupts are used to signal that the worker should shutdown, which is checked by the caller.
+		// Clear it, since it would otherwise prevent parking and cancel the next job.
+		Thread.interrupted();
+	}
+
+	/**
+	 * Unparks the worker if it's currently parked.
+	 *
+	 * @return whether the worker was parked
+	 */
+	boolean wake() {
+		if (!parked.get() || !parked.compareAndSet(true, false))
+			return false;
+		wakeRequestedAt = System.nanoTime();
+		LockSupport.unpark(thread);
+		return true;
+	}
+
 	void processHandle() throws InterruptedException {
+		final JobStats stats = jobSystem.stats;
 		boolean requeued = false;
+		long startTime = 0;
 		try {
 			workerHandleCancel();
 
@@ -115,6 +188,8 @@ public final class Worker {
 				if (handle.item.canStart()) {
 					if (handle.setRunning(this)) {
 						inflight.set(true);
+						if (stats.isEnabled())
+							startTime = System.nanoTime();
 						handle.item.onRun();
 						handle.item.ranToCompletion.set(true);
 					}
@@ -122,6 +197,12 @@ public final class Worker {
 					// Requeue into stalled work queue, since adding to ConcurrentLinkedDeque continuously is costly
 					localStalledWork.addLast(handle);
 					requeued = true;
+					// Only count the first time a job is found unable to start, rather than every poll while it waits
+					if (!handle.stalled) {
+						handle.stalled = true;
+						if (stats.isEnabled())
+							stats.recordStall(handle.item);
+					}
 				}
 			}
 		} catch (InterruptedException e) {
@@ -136,6 +217,9 @@ public final class Worker {
 			handle.cancel(false);
 		} finally {
 			if (!requeued) {
+				// Skip jobs which were queued before instrumentation was enabled
+				if (startTime != 0 && handle.queuedAt != 0)
+					stats.recordRun(handle.item, startTime - handle.queuedAt, System.nanoTime() - startTime);
 				if (handle.item != null && handle.item.wasCancelled.get())
 					handle.item.onCancel();
 				handle.setCompleted();
@@ -153,6 +237,11 @@ public final class Worker {
 	}
 
 	void printState() {
-		log.debug("Worker {} is {}", thread.getName(), handle == null ? "idle" : "running:\n" + getThreadStackTrace(thread));
+		log.debug(
+			"Worker {} has {} local jobs and is {}",
+			thread.getName(),
+			getLocalWorkCount(),
+			handle == null ? "idle" : "running:\n" + getThreadStackTrace(thread)
+		);
 	}
 }
@@ -0,0 +1,107 @@
+package rs117.hd.tests;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Assert;
+import org.junit.Test;
+import org.lwjgl.system.MemoryUtil;
+import rs117.hd.config.ModelCacheEvictionPolicy;
+import rs117.hd.model.ConcurrentModelCache;
+
+import static java.util.concurrent.Executors.newFixedThreadPool;
+
+public class ConcurrentModelCacheTest {
+	private static final int THREADS = 8;
+	private static final int ITERATIONS = 40_000;
+	private static final int HOT_KEYS = 512;
+	private static final int MAX_INTS = 8192;
+
+	private static int length(long hash) {
+		return 64 + (int) ((hash * 0x9E3779B97F4A7C15L) >>> 51) % (MAX_INTS - 64);
+	}
+
+	private static int value(long hash, int i) {
+		return (int) (hash * 31 + i) ^ (int) (hash >>> 32);
+	}
+
+	private static void fill(IntBuffer buffer, long hash) {
+		int length = length(hash);
+		for (int i = 0; i < length; i++)
+			buffer.put(i, value(hash, i));
+	}
+
+	@Test
+	public void testConcurrentInsertAndEvict() throws Exception {
+		var cache = new ConcurrentModelCache(128, 4, () -> Assert.fail("Model cache terminated"));
+		cache.setEvictionPolicy(ModelCacheEvictionPolicy.FREQUENCY);
+		var pool = newFixedThreadPool(THREADS);
+		var start = new CountDownLatch(1);
+		// Hot hits and lookups, for the first and second half of the run
+		var hotHits = new AtomicLong[] { new AtomicLong(), new AtomicLong() };
+		var hotLookups = new AtomicLong[] { new AtomicLong(), new AtomicLong() };
+		var corrupted = new AtomicLong();
+
+		try {
+			var futures = new ArrayList<Future<?>>();
+			for (int t = 0; t < THREADS; t++) {
+				final long threadSalt = (long) t << 40;
+				final long seed = 117 + t;
+				futures.add(pool.submit(() -> {
+					IntBuffer staging = MemoryUtil.memAllocInt(MAX_INTS);
+					try {
+						var random = new Random(seed);
+						start.await();
+						for (int i = 0; i < ITERATIONS; i++) {
+							// Mostly look up a shared hot set, mixed with a stream of unique one-off models
+							boolean hot = random.nextInt(4) != 0;
+							long hash = hot ? random.nextInt(HOT_KEYS) + 1 : threadSalt | (i + 1);
+							int length = length(hash);
+
+							staging.clear();
+							if (cache.copyIntBuffer(hash, staging, length)) {
+								// Any overlapping reservations would show up as data belonging to another hash
+								for (int j = 0; j < length; j++) {
+									if (staging.get(j) != value(hash, j)) {
+										corrupted.incrementAndGet();
+										break;
+									}
+								}
+								if (hot)
+									hotHits[i * 2 / ITERATIONS].incrementAndGet();
+							} else {
+								fill(staging, hash);
+								Assert.assertTrue(cache.putInts(hash, staging, 0, length));
+							}
+
+							if (hot)
+								hotLookups[i * 2 / ITERATIONS].incrementAndGet();
+						}
+					} finally {
+						MemoryUtil.memFree(staging);
+					}
+					return null;
+				}));
+			}
+
+			start.countDown();
+			for (var future : futures)
+				future.get(2, TimeUnit.MINUTES);
+		} finally {
+			pool.shutdownNow();
+			cache.destroy();
+		}
+
+		Assert.assertEquals("Corrupted cache entries", 0, corrupted.get());
+		Assert.assertTrue("Nothing was evicted", cache.getEvictions() > 0);
+
+		// The hot set only takes up a small fraction of the cache, so once warmed up it should keep hitting, no matter
+		// how many one-off models pass through. The exact rate depends on thread timing, so only check a generous floor.
+		float secondHalf = (float) hotHits[1].get() / hotLookups[1].get();
+		Assert.assertTrue("Hot hit rate dropped to " + secondHalf, secondHalf > .5f);
+	}
+}
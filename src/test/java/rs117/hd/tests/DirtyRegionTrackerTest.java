@@ -0,0 +1,68 @@
+package rs117.hd.tests;
+
+import java.nio.IntBuffer;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import rs117.hd.utils.DirtyRegionTracker;
+
+public class DirtyRegionTrackerTest {
+	private static void upload(DirtyRegionTracker tracker, IntBuffer staging, int[] texture, int width) {
+		int[] rects = tracker.getRects();
+		for (int i = 0; i < tracker.getRectCount() * 4; i += 4) {
+			for (int y = rects[i + 1]; y < rects[i + 1] + rects[i + 3]; y++) {
+				int offset = y * width + rects[i];
+				staging.position(offset);
+				staging.get(texture, offset, rects[i + 2]);
+			}
+		}
+		staging.position(0);
+	}
+
+	@Test
+	public void testUploadedRegionsReproduceFrames() {
+		var random = new Random(117);
+		var tracker = new DirtyRegionTracker();
+		int width = 765;
+		int height = 503;
+		int[] pixels = new int[width * height];
+		int[] texture = new int[width * height];
+		var staging = IntBuffer.allocate(width * height);
+
+		for (int frame = 0; frame < 200; frame++) {
+			// Change a few random rectangles each frame, occasionally none at all
+			int changes = random.nextInt(4);
+			for (int c = 0; c < changes; c++) {
+				int x0 = random.nextInt(width);
+				int y0 = random.nextInt(height);
+				int x1 = Math.min(width, x0 + 1 + random.nextInt(120));
+				int y1 = Math.min(height, y0 + 1 + random.nextInt(80));
+				int color = random.nextInt();
+				for (int y = y0; y < y1; y++)
+					for (int x = x0; x < x1; x++)
+						pixels[y * width + x] = color;
+			}
+
+			// Stale data in the staging buffer must never be uploaded
+			if (frame % 3 == 0) {
+				for (int i = 0; i < staging.capacity(); i++)
+					staging.put(i, 0xDEADBEEF);
+			}
+
+			tracker.update(pixels, width, height, staging);
+			Assert.assertEquals(frame == 0, tracker.isFullFrame());
+			if (changes == 0)
+				Assert.assertEquals(0, tracker.getRectCount());
+			upload(tracker, staging, texture, width);
+			Assert.assertArrayEquals("Mismatch on frame " + frame, pixels, texture);
+		}
+
+		// Invalidating or resizing falls back to a full copy
+		tracker.invalidate();
+		tracker.update(pixels, width, height, staging);
+		Assert.assertTrue(tracker.isFullFrame());
+		tracker.update(pixels, width - 1, height, staging);
+		Assert.assertTrue(tracker.isFullFrame());
+		Assert.assertEquals((long) (width - 1) * height, tracker.getLastCopiedPixels());
+	}
+}
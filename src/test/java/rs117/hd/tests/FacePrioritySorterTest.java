@@ -0,0 +1,151 @@
+package rs117.hd.tests;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import rs117.hd.renderer.zone.FacePrioritySorter;
+import rs117.hd.renderer.zone.Zone;
+import rs117.hd.utils.collections.ConcurrentPool;
+
+import static net.runelite.api.Perspective.*;
+
+/**
+ * Checks that re-sorting a static alpha model from its previous order, after a small camera rotation, produces exactly
+ * the same order as sorting it from scratch.
+ */
+public class FacePrioritySorterTest {
+	private static final int START = 96;
+	private static Method sortStaticModelFacesByDistance;
+	private static int STATIC_SORT_SKIPPED;
+	private static int STATIC_SORT_ADAPTIVE;
+
+	@BeforeClass
+	public static void setup() throws ReflectiveOperationException {
+		FacePrioritySorter.POOL = new ConcurrentPool<>(FacePrioritySorter::new);
+		sortStaticModelFacesByDistance = FacePrioritySorter.class.getDeclaredMethod(
+			"sortStaticModelFacesByDistance",
+			Zone.AlphaModel.class,
+			int.class, int.class,
+			int.class, int.class,
+			int.class, int.class
+		);
+		sortStaticModelFacesByDistance.setAccessible(true);
+		STATIC_SORT_SKIPPED = getStatic("STATIC_SORT_SKIPPED");
+		STATIC_SORT_ADAPTIVE = getStatic("STATIC_SORT_ADAPTIVE");
+	}
+
+	@AfterClass
+	public static void tearDown() {
+		FacePrioritySorter.POOL.destroy();
+		FacePrioritySorter.POOL = null;
+	}
+
+	@Test
+	public void testAdaptiveSortMatchesFullSort() throws ReflectiveOperationException {
+		var random = new Random(117);
+		int adaptiveSorts = 0;
+		for (int i = 0; i < 500; i++) {
+			// Small models have lots of faces at the same distance, which must keep ordering ties by face index
+			int size = i % 2 == 0 ? 4 + random.nextInt(12) : 50 + random.nextInt(400);
+			int[] packedFaces = createFaces(random, 1 + random.nextInt(2000), size);
+
+			int yaw = random.nextInt(2048);
+			int pitch = 128 + random.nextInt(256);
+			var model = createModel(packedFaces);
+			sort(model, yaw, pitch);
+
+			// Same view again, which must leave the order untouched
+			int[] previous = model.sortedFacesCopy();
+			Assert.assertEquals(STATIC_SORT_SKIPPED, sort(model, yaw, pitch));
+			Assert.assertArrayEquals(previous, model.sortedFacesCopy());
+
+			// Nudge the camera by up to the adaptive limit, occasionally wrapping around the yaw
+			int newYaw = (yaw + random.nextInt(33) - 16) & 2047;
+			int newPitch = pitch + random.nextInt(33) - 16;
+			if (sort(model, newYaw, newPitch) == STATIC_SORT_ADAPTIVE)
+				adaptiveSorts++;
+
+			var reference = createModel(packedFaces);
+			sort(reference, newYaw, newPitch);
+			Assert.assertArrayEquals(
+				"Mismatch for model " + i + " rotated from " + yaw + ", " + pitch + " to " + newYaw + ", " + newPitch,
+				reference.sortedFacesCopy(),
+				model.sortedFacesCopy()
+			);
+		}
+
+		// Make sure the comparison isn't only exercising the fallback
+		Assert.assertTrue("Only " + adaptiveSorts + " adaptive sorts", adaptiveSorts > 100);
+	}
+
+	private static int getStatic(String name) throws ReflectiveOperationException {
+		var field = FacePrioritySorter.class.getDeclaredField(name);
+		field.setAccessible(true);
+		return field.getInt(null);
+	}
+
+	private static int[] createFaces(Random random, int faceCount, int size) {
+		int[] packedFaces = new int[faceCount];
+		for (int f = 0; f < faceCount; f++) {
+			int x = random.nextInt(size * 2) - size;
+			int y = random.nextInt(size) - size / 2;
+			int z = random.nextInt(size * 2) - size;
+			packedFaces[f] = (x & 0x7FF) << 21 | (y & 0x3FF) << 11 | z & 0x7FF;
+		}
+		return packedFaces;
+	}
+
+	private static TestModel createModel(int[] packedFaces) throws ReflectiveOperationException {
+		int radius = 0;
+		for (int packed : packedFaces) {
+			int x = (short) (packed >> 21);
+			int y = (short) ((packed << 11) >> 22);
+			int z = (short) ((packed << 21) >> 21);
+			radius = Math.max(radius, x * x + y * y + z * z);
+		}
+
+		var model = new TestModel();
+		model.set("packedFaces", packedFaces);
+		model.set("sortedFaces", new int[packedFaces.length * 3]);
+		model.set("radius", 2 + (int) Math.sqrt(radius));
+		model.set("startpos", START * (Zone.VERT_SIZE >> 2));
+		return model;
+	}
+
+	private static int sort(TestModel model, int yaw, int pitch) throws ReflectiveOperationException {
+		try (var sorter = FacePrioritySorter.POOL.acquire()) {
+			return (int) sortStaticModelFacesByDistance.invoke(
+				sorter,
+				model.model,
+				yaw, pitch,
+				COSINE14[yaw], SINE14[yaw],
+				COSINE14[pitch], SINE14[pitch]
+			);
+		}
+	}
+
+	private static class TestModel {
+		final Zone.AlphaModel model = new Zone.AlphaModel();
+
+		void set(String name, Object value) throws ReflectiveOperationException {
+			var field = Zone.AlphaModel.class.getDeclaredField(name);
+			field.setAccessible(true);
+			field.set(model, value);
+		}
+
+		Object get(String name) throws ReflectiveOperationException {
+			var field = Zone.AlphaModel.class.getDeclaredField(name);
+			field.setAccessible(true);
+			return field.get(model);
+		}
+
+		int[] sortedFacesCopy() throws ReflectiveOperationException {
+			int[] sortedFaces = (int[]) get("sortedFaces");
+			return Arrays.copyOf(sortedFaces, (int) get("sortedFacesLen"));
+		}
+	}
+}
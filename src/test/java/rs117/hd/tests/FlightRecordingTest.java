@@ -0,0 +1,87 @@
+package rs117.hd.tests;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+import rs117.hd.overlays.Timer;
+import rs117.hd.utils.FrameTimingsRecorder;
+import rs117.hd.utils.ResourcePath;
+
+import static rs117.hd.utils.ResourcePath.path;
+
+public class FlightRecordingTest {
+	@Test
+	public void testRoundTripThroughConverter() throws Exception {
+		var gson = new Gson();
+		var dir = Files.createTempDirectory("flight-recording");
+		var recording = path(dir, "flight.rlhdfr");
+		var output = path(dir, "flight");
+
+		// Large enough metadata to exceed the 64 KiB limit of DataOutputStream#writeUTF
+		var snapshotClass = Class.forName(FrameTimingsRecorder.class.getName() + "$Snapshot");
+		var snapshotConstructor = snapshotClass.getDeclaredConstructor();
+		snapshotConstructor.setAccessible(true);
+		Object metadata = snapshotConstructor.newInstance();
+		String largeSetting = "x".repeat(100_000);
+		@SuppressWarnings("unchecked")
+		var settings = (Map<String, String>) getField(snapshotClass, "settings").get(metadata);
+		settings.put("large", largeSetting);
+		getField(snapshotClass, "gpuName").set(metadata, "Test GPU");
+
+		int fixedFields = getStatic("RECORD_FIXED_FIELDS");
+		int timestampField = getStatic("RECORD_TIMESTAMP");
+		int drawnTilesField = getStatic("RECORD_DRAWN_TILES");
+		int recordWidth = fixedFields + Timer.TIMERS.length;
+
+		int frameCount = 50;
+		long[] frames = new long[frameCount * recordWidth];
+		for (int f = 0; f < frameCount; f++) {
+			int offset = f * recordWidth;
+			frames[offset + timestampField] = 1_700_000_000_000L + f * 16L;
+			frames[offset + drawnTilesField] = 1000 + f;
+			for (int t = 0; t < Timer.TIMERS.length; t++)
+				frames[offset + fixedFields + t] = f * 1000L + t;
+		}
+
+		Method write = FrameTimingsRecorder.class.getDeclaredMethod(
+			"writeFlightRecording", Gson.class, ResourcePath.class, snapshotClass, long[].class, int.class);
+		write.setAccessible(true);
+		write.invoke(null, gson, recording, metadata, frames, frameCount);
+
+		FrameTimingsRecorder.convertFlightRecording(gson, recording, output);
+
+		var json = gson.fromJson(output.setExtension("json").loadString(), JsonObject.class);
+		Assert.assertEquals("Test GPU", json.get("gpuName").getAsString());
+		Assert.assertEquals(largeSetting, json.getAsJsonObject("settings").get("large").getAsString());
+
+		var convertedFrames = json.getAsJsonArray("frames");
+		Assert.assertEquals(frameCount, convertedFrames.size());
+		for (int f = 0; f < frameCount; f++) {
+			var frame = convertedFrames.get(f).getAsJsonObject();
+			Assert.assertEquals(1_700_000_000_000L + f * 16L, frame.get("timestamp").getAsLong());
+			Assert.assertEquals(1000 + f, frame.get("drawnTiles").getAsLong());
+			for (var timer : Timer.TIMERS) {
+				var timings = frame.getAsJsonObject(timer.isGpuTimer() ? "gpu" : "cpu");
+				Assert.assertEquals(f * 1000L + timer.ordinal(), timings.get(timer.name).getAsLong());
+			}
+		}
+
+		// One header line, followed by a line per frame
+		Assert.assertEquals(frameCount + 1, Files.readAllLines(output.setExtension("csv").toPath()).size());
+	}
+
+	private static Field getField(Class<?> clazz, String name) throws ReflectiveOperationException {
+		var field = clazz.getDeclaredField(name);
+		field.setAccessible(true);
+		return field;
+	}
+
+	private static int getStatic(String name) throws ReflectiveOperationException {
+		return getField(FrameTimingsRecorder.class, name).getInt(null);
+	}
+}
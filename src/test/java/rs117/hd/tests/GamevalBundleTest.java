@@ -0,0 +1,40 @@
+package rs117.hd.tests;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+import rs117.hd.scene.GamevalBundle;
+import rs117.hd.utils.ResourcePath;
+
+import static rs117.hd.utils.ResourcePath.path;
+
+public class GamevalBundleTest {
+	@Test
+	public void testRoundTrip() throws IOException {
+		ResourcePath bundlePath = path(Files.createTempDirectory("gameval-bundle"), "gamevals.bin");
+		Map<String, Map<String, Integer>> gamevals = Map.of(
+			"npcs", Map.of("HANS", 3105, "COOK", 4626),
+			"objects", Map.of("FURNACE", 16469),
+			"anims", Map.of()
+		);
+
+		long lastModified = 1_700_000_000_000L;
+		GamevalBundle.write(bundlePath, gamevals, 1234, lastModified);
+		Assert.assertEquals(gamevals, GamevalBundle.load(bundlePath, 1234, lastModified));
+
+		// Loading mustn't keep the bundle locked, so it can be replaced when the source changes
+		GamevalBundle.write(bundlePath, gamevals, 1234, lastModified);
+
+		// A bundle compiled from a different source must not be used
+		Assert.assertNull(GamevalBundle.load(bundlePath, 1234, lastModified + 1));
+		Assert.assertNull(GamevalBundle.load(bundlePath, 1235, lastModified));
+
+		// Neither should a corrupted bundle
+		byte[] bytes = Files.readAllBytes(bundlePath.toPath());
+		bytes[bytes.length / 2] ^= 1;
+		Files.write(bundlePath.toPath(), bytes);
+		Assert.assertNull(GamevalBundle.load(bundlePath, 1234, lastModified));
+	}
+}
@@ -0,0 +1,122 @@
+package rs117.hd.tests;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import rs117.hd.overlays.FrameTimings;
+import rs117.hd.overlays.HitchDetector;
+import rs117.hd.overlays.Timer;
+import rs117.hd.utils.jobs.JobSystem;
+
+public class HitchDetectorTest {
+	private static final long MS = 1_000_000;
+
+	private HitchDetector detector;
+	private JobSystem jobSystem;
+	private long frameEndNanos;
+
+	@Before
+	public void setup() throws ReflectiveOperationException {
+		detector = new HitchDetector();
+		jobSystem = new JobSystem();
+		inject(detector, "jobSystem", jobSystem);
+
+		// Warm up the baselines with steady 16 ms frames
+		for (int i = 0; i < 100; i++)
+			detector.onFrameCompletion(frame(16 * MS, normalTimers(), 0, null, 0));
+		Assert.assertEquals(0, detector.getHitchCount());
+		Assert.assertNull(detector.getLastReport());
+	}
+
+	@Test
+	public void testCausesAreOrderedByExcessTime() throws ReflectiveOperationException {
+		long[] timers = normalTimers();
+		timers[Timer.DRAW_FRAME.ordinal()] = 190 * MS;
+		timers[Timer.DRAW_SCENE.ordinal()] = 60 * MS;
+		timers[Timer.UPDATE_LIGHTS.ordinal()] = 100 * MS;
+		// Slower than usual, but not by enough to stand out
+		timers[Timer.GET_MODEL.ordinal()] = 3 * MS;
+		timers[Timer.SWAP_BUFFERS.ordinal()] = 8 * MS;
+		fillWorkQueue(20);
+
+		detector.onFrameCompletion(frame(200 * MS, timers, 1, "G1 Young Generation", 3));
+
+		var report = detector.getLastReport();
+		Assert.assertNotNull(report);
+		Assert.assertEquals(1, detector.getHitchCount());
+		Assert.assertEquals(200 * MS, report.frameNanos);
+		Assert.assertEquals(16 * MS, report.baselineFrameNanos, MS);
+		Assert.assertEquals(List.of(Timer.UPDATE_LIGHTS.name, Timer.DRAW_SCENE.name), names(report.causes));
+		Assert.assertEquals(99 * MS, report.causes.get(0).getExcessNanos(), MS / 100);
+		Assert.assertEquals(56 * MS, report.causes.get(1).getExcessNanos(), MS / 100);
+		Assert.assertEquals(1, report.garbageCollections);
+		Assert.assertEquals("G1 Young Generation", report.garbageCollectors);
+		Assert.assertEquals(3, report.zoneSwaps);
+		Assert.assertTrue(report.jobBacklogSpiked);
+		Assert.assertEquals(20, report.jobBacklog);
+	}
+
+	@Test
+	public void testHitchesDontShiftTheBaselines() {
+		long[] timers = normalTimers();
+		timers[Timer.DRAW_FRAME.ordinal()] = 290 * MS;
+		timers[Timer.UPLOAD_GEOMETRY.ordinal()] = 250 * MS;
+		for (int i = 0; i < 10; i++)
+			detector.onFrameCompletion(frame(300 * MS, timers, 0, null, 0));
+
+		// Each hitch should still be compared against the steady frames before the burst
+		var report = detector.getLastReport();
+		Assert.assertNotNull(report);
+		Assert.assertEquals(10, detector.getHitchCount());
+		Assert.assertEquals(16 * MS, report.baselineFrameNanos, MS);
+		Assert.assertEquals(List.of(Timer.UPLOAD_GEOMETRY.name), names(report.causes));
+		Assert.assertEquals(2 * MS, report.causes.get(0).baselineNanos, MS / 100);
+		Assert.assertEquals(0, report.zoneSwaps);
+		Assert.assertFalse(report.jobBacklogSpiked);
+
+		// A frame below the threshold isn't reported
+		detector.onFrameCompletion(frame(50 * MS, normalTimers(), 0, null, 0));
+		Assert.assertEquals(10, detector.getHitchCount());
+	}
+
+	private FrameTimings frame(long frameNanos, long[] timers, int garbageCollections, String garbageCollectors, int zoneSwaps) {
+		frameEndNanos += frameNanos;
+		return new FrameTimings(frameEndNanos / MS, frameEndNanos, timers, 0, garbageCollections, garbageCollectors, zoneSwaps);
+	}
+
+	private static long[] normalTimers() {
+		long[] timers = new long[Timer.TIMERS.length];
+		timers[Timer.DRAW_FRAME.ordinal()] = 10 * MS;
+		timers[Timer.DRAW_SCENE.ordinal()] = 4 * MS;
+		timers[Timer.UPDATE_LIGHTS.ordinal()] = MS;
+		timers[Timer.GET_MODEL.ordinal()] = 2 * MS;
+		timers[Timer.SWAP_BUFFERS.ordinal()] = 5 * MS;
+		timers[Timer.UPLOAD_GEOMETRY.ordinal()] = 2 * MS;
+		return timers;
+	}
+
+	private static List<String> names(Collection<HitchDetector.Cause> causes) {
+		return causes.stream().map(c -> c.name).collect(Collectors.toList());
+	}
+
+	@SuppressWarnings("unchecked")
+	private void fillWorkQueue(int count) throws ReflectiveOperationException {
+		// The job system isn't started, so anything in its queue simply counts towards the backlog
+		var handleConstructor = Class.forName("rs117.hd.utils.jobs.JobHandle").getDeclaredConstructor();
+		handleConstructor.setAccessible(true);
+		var workQueueField = JobSystem.class.getDeclaredField("workQueue");
+		workQueueField.setAccessible(true);
+		var workQueue = (Collection<Object>) workQueueField.get(jobSystem);
+		for (int i = 0; i < count; i++)
+			workQueue.add(handleConstructor.newInstance());
+	}
+
+	private static void inject(Object target, String name, Object value) throws ReflectiveOperationException {
+		var field = target.getClass().getDeclaredField(name);
+		field.setAccessible(true);
+		field.set(target, value);
+	}
+}
@@ -1,7 +1,10 @@
 package rs117.hd.tests;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.AfterClass;
 import org.junit.Assert;
@@ -9,6 +12,9 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 import rs117.hd.config.CpuUsageLimit;
 import rs117.hd.utils.jobs.GenericJob;
+import rs117.hd.utils.jobs.Job;
+import rs117.hd.utils.jobs.JobGroup;
+import rs117.hd.utils.jobs.JobStats;
 import rs117.hd.utils.jobs.JobSystem;
 
 @Slf4j
@@ -526,6 +532,73 @@ public class JobSystemTests {
 		Assert.assertEquals(1, order.size());
 	}
 
+	@Test
+	public void testGroupFanOutFanInStress() {
+		int rounds = 200;
+		int fanOut = 256;
+
+		for (int round = 0; round < rounds; round++) {
+			// Alternate priorities, since high and normal priority work is kept in separate deques
+			var group = new JobGroup<GenericJob>(round % 2 == 0, true);
+			var ranCount = new AtomicInteger();
+			var fanInCount = new AtomicInteger(-1);
+			var rootLatch = new CountDownLatch(1);
+
+			// Dependants of the root are pushed onto the deque of whichever worker completes it, and must be stolen from there
+			GenericJob root = GenericJob.build("Root", t -> rootLatch.await()).queue(group);
+
+			Job[] fanOutJobs = new Job[fanOut];
+			for (int i = 0; i < fanOut; i++)
+				fanOutJobs[i] = GenericJob.build("FanOut" + i, t -> ranCount.incrementAndGet()).queue(group, root);
+
+			GenericJob fanIn = GenericJob
+				.build("FanIn", t -> fanInCount.set(ranCount.get()))
+				.queue(group, fanOutJobs);
+
+			rootLatch.countDown();
+			fanIn.waitForCompletion();
+			Assert.assertTrue("Fan-in should complete in round " + round, fanIn.ranToCompletion());
+			Assert.assertEquals("Fan-in should run after every fan-out job in round " + round, fanOut, fanInCount.get());
+
+			group.complete();
+			Assert.assertEquals(0, group.getPendingCount());
+			Assert.assertEquals(fanOut, ranCount.get());
+		}
+	}
+
+	@Test
+	public void testJobStatsRecording() {
+		var stats = JOB_SYSTEM.getStats();
+		stats.setEnabled(this, true);
+		try {
+			var sampler = stats.createSampler();
+			sampler.sample();
+
+			List<GenericJob> jobs = new ArrayList<>();
+			for (int i = 0; i < 100; i++)
+				jobs.add(GenericJob.build("Stats" + i, t -> busyWork(t, 2)).queue(false));
+			for (var job : jobs)
+				job.waitForCompletion(true);
+
+			var interval = sampler.sample().stream()
+				.filter(i -> i.getName().equals(GenericJob.class.getSimpleName()))
+				.findFirst()
+				.orElseThrow();
+			Assert.assertEquals(100, interval.getCount());
+			// Buckets are an upper bound, so every job's bucket must be at least as long as its busy work
+			long runTimeP50 = interval.getRunTime(.5);
+			long runTimeP99 = interval.getRunTime(.99);
+			Assert.assertTrue("Median run time was " + runTimeP50 + " ns", runTimeP50 >= 2_000_000);
+			Assert.assertTrue("p99 run time " + runTimeP99 + " ns was below the median", runTimeP99 >= runTimeP50);
+			Assert.assertTrue(interval.getQueueLatency(.5) <= interval.getQueueLatency(.99));
+
+			// Nothing ran since the last sample
+			Assert.assertEquals(0, sampler.sample().stream().mapToLong(JobStats.Interval::getCount).sum());
+		} finally {
+			stats.setEnabled(this, false);
+		}
+	}
+
 	private static void busyWork(GenericJob task, long millis) throws InterruptedException {
 		final long start = System.nanoTime();
 		final long durationNanos = millis * 1_000_000L;
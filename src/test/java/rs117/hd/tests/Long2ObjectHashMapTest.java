@@ -0,0 +1,37 @@
+package rs117.hd.tests;
+
+import java.util.HashMap;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import rs117.hd.utils.collections.Long2ObjectHashMap;
+
+public class Long2ObjectHashMapTest {
+	@Test
+	public void testCorrectness() {
+		var random = new Random(117);
+		var expected = new HashMap<Long, Object>();
+		var map = new Long2ObjectHashMap<>();
+
+		for (int i = 0; i < 100_000; i++) {
+			long key = random.nextInt(20_000) * 0x9E3779B97F4A7C15L;
+			if (random.nextInt(4) == 0) {
+				Assert.assertEquals(expected.remove(key) != null, map.remove(key));
+			} else {
+				Object value = new Object();
+				expected.put(key, value);
+				map.put(key, value);
+			}
+		}
+
+		Assert.assertEquals(expected.size(), map.size());
+		for (var entry : expected.entrySet())
+			Assert.assertSame(entry.getValue(), map.get(entry.getKey()));
+
+		Object value = new Object();
+		map.put(1, value);
+		Assert.assertFalse(map.remove(1, new Object()));
+		Assert.assertTrue(map.remove(1, value));
+		Assert.assertNull(map.get(1));
+	}
+}
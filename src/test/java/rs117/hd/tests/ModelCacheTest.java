@@ -0,0 +1,46 @@
+package rs117.hd.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import rs117.hd.config.ModelCacheEvictionPolicy;
+import rs117.hd.model.ModelCache;
+
+import static rs117.hd.utils.MathUtils.*;
+
+public class ModelCacheTest {
+	private static final int HOT_HASH = -1;
+	private static final int BUFFER_INTS = (int) (64 * KiB / 4);
+
+	private static boolean survivesBurst(ModelCacheEvictionPolicy policy) {
+		var cache = new ModelCache(1, () -> Assert.fail("Model cache terminated"));
+		try {
+			cache.setEvictionPolicy(policy);
+
+			var hot = cache.reserveIntBuffer(HOT_HASH, BUFFER_INTS);
+			for (int i = 0; i < BUFFER_INTS; i++)
+				hot.put(i);
+			hot.flip();
+
+			// Cycle through the cache several times with one-off entries, while the hot entry is reused every "frame"
+			for (int i = 0; i < 64; i++) {
+				if (cache.getIntBuffer(HOT_HASH) == null)
+					return false;
+				Assert.assertNotNull(cache.reserveIntBuffer(i, BUFFER_INTS));
+			}
+
+			// Ensure the data was moved intact
+			var buffer = cache.getIntBuffer(HOT_HASH);
+			for (int i = 0; i < BUFFER_INTS; i++)
+				Assert.assertEquals(i, buffer.get(i));
+			return true;
+		} finally {
+			cache.destroy();
+		}
+	}
+
+	@Test
+	public void testEvictionPolicies() {
+		Assert.assertFalse(survivesBurst(ModelCacheEvictionPolicy.FIFO));
+		Assert.assertTrue(survivesBurst(ModelCacheEvictionPolicy.FREQUENCY));
+	}
+}
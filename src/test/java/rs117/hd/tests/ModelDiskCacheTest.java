@@ -0,0 +1,83 @@
+package rs117.hd.tests;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import org.junit.Assert;
+import org.junit.Test;
+import org.lwjgl.system.MemoryUtil;
+import rs117.hd.model.ModelDiskCache;
+import rs117.hd.utils.ResourcePath;
+
+import static rs117.hd.utils.MathUtils.*;
+import static rs117.hd.utils.ResourcePath.path;
+
+public class ModelDiskCacheTest {
+	private static long allocateFilled(int numInts, int seed) {
+		long address = MemoryUtil.nmemAllocChecked(numInts * 4L);
+		for (int i = 0; i < numInts; i++)
+			MemoryUtil.memPutInt(address + i * 4L, seed * 31 + i);
+		return address;
+	}
+
+	private static void assertFilled(long address, int numInts, int seed) {
+		Assert.assertNotEquals(0, address);
+		for (int i = 0; i < numInts; i++)
+			Assert.assertEquals(seed * 31 + i, MemoryUtil.memGetInt(address + i * 4L));
+	}
+
+	@Test
+	public void testPersistence() throws IOException {
+		ResourcePath dir = path(Files.createTempDirectory("model-disk-cache"));
+		int numInts = 1024;
+		long data = allocateFilled(numInts, 7);
+		try {
+			var cache = new ModelDiskCache(dir, 1);
+			cache.open(123);
+			cache.put(42, data, numInts * 4);
+			// The index's sentinel key can't be stored
+			cache.put(Long.MIN_VALUE, data, numInts * 4);
+			Assert.assertEquals(1, cache.size());
+			cache.close();
+
+			cache = new ModelDiskCache(dir, 1);
+			cache.open(123);
+			assertFilled(cache.get(42), numInts, 7);
+			Assert.assertEquals(numInts * 4, cache.getByteLength(42));
+			Assert.assertEquals(0, cache.get(43));
+			Assert.assertEquals(.5f, cache.getHitRate(), 1e-6f);
+			cache.close();
+
+			// A different fingerprint should invalidate all existing entries
+			cache = new ModelDiskCache(dir, 1);
+			cache.open(456);
+			Assert.assertEquals(0, cache.get(42));
+			cache.close();
+		} finally {
+			MemoryUtil.nmemFree(data);
+		}
+	}
+
+	@Test
+	public void testFifoEviction() throws IOException {
+		ResourcePath dir = path(Files.createTempDirectory("model-disk-cache"));
+		int entryInts = (int) (MiB / 4 / 4) - 16; // slightly less than a quarter of the cache
+		long data = allocateFilled(entryInts, 1);
+		try {
+			var cache = new ModelDiskCache(dir, 1);
+			cache.open(1);
+			for (int i = 0; i < 6; i++)
+				cache.put(i, data, entryInts * 4);
+
+			// Only the four most recent entries fit, so the oldest two should have been evicted in order
+			Assert.assertEquals(4, cache.size());
+			Assert.assertEquals(2, cache.getEvictions());
+			Assert.assertEquals(0, cache.get(0));
+			Assert.assertEquals(0, cache.get(1));
+			for (int i = 2; i < 6; i++)
+				assertFilled(cache.get(i), entryInts, 1);
+			cache.close();
+		} finally {
+			MemoryUtil.nmemFree(data);
+		}
+	}
+}
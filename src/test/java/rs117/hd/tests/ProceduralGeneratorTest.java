@@ -0,0 +1,309 @@
+package rs117.hd.tests;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import net.runelite.api.*;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import rs117.hd.overlays.FrameTimer;
+import rs117.hd.scene.ProceduralGenerator;
+import rs117.hd.scene.SceneContext;
+import rs117.hd.scene.TileOverrideManager;
+import rs117.hd.scene.tile_overrides.TileOverride;
+import rs117.hd.scene.water_types.WaterType;
+import rs117.hd.utils.collections.TileVertexIntMap;
+
+import static net.runelite.api.Constants.*;
+import static net.runelite.api.Perspective.*;
+import static rs117.hd.utils.HDUtils.EXTENDED_SCENE_OFFSET;
+
+public class ProceduralGeneratorTest {
+	private static final int BASE_X = 3136;
+	private static final int BASE_Y = 3456;
+	private static final int LAKE_X = BASE_X + 60;
+	private static final int LAKE_Y = BASE_Y + 50;
+	private static final int LAKE_RADIUS = 15;
+
+	private static final TileOverride WATER = new TileOverride();
+
+	static {
+		WATER.index = 0;
+		WATER.waterType = new WaterType();
+		WATER.normalize(null, null);
+		TileOverrideManager.OVERRIDES = new TileOverride[] { WATER };
+	}
+
+	/**
+	 * World data shared between scenes, except for a single tile which can be made to differ between them.
+	 */
+	private static class World {
+		int changedX = -1, changedY = -1;
+
+		boolean isChanged(int x, int y) {
+			return x == changedX && y == changedY;
+		}
+
+		int hash(int x, int y) {
+			int h = x * 73856093 ^ y * 19349663;
+			h ^= h >>> 13;
+			h *= 0x5bd1e995;
+			return (h ^ h >>> 15) & Integer.MAX_VALUE;
+		}
+
+		int height(int x, int y, int plane) {
+			return (int) (Math.sin(x * .37) * 90 + Math.cos(y * .21) * 130) + hash(x, y) % 24 - plane * 240;
+		}
+
+		boolean isWater(int x, int y) {
+			int dx = x - LAKE_X;
+			int dy = y - LAKE_Y;
+			return dx * dx + dy * dy < LAKE_RADIUS * LAKE_RADIUS;
+		}
+
+		int color(int x, int y, int i) {
+			int h = hash(x * 4 + i, y);
+			if (h % 11 == 0)
+				return h % 3; // Low priority color
+			return (h & 0x3F) << 10 | (h >> 6 & 7) << 7 | h >> 9 & 0x7F;
+		}
+
+		boolean isTileModel(int x, int y) {
+			return hash(x, y) % 7 == 0;
+		}
+
+		boolean hasUpperTile(int x, int y) {
+			return (x / 8 + y / 8) % 5 == 0;
+		}
+
+		boolean hasBridge(int x, int y) {
+			return (x * 31 + y * 17) % 53 == 0;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T stub(Class<T> type, Map<String, Object> values) {
+		return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class[] { type }, (proxy, method, args) -> {
+			Object value = values.get(method.getName());
+			if (value != null || !method.getReturnType().isPrimitive() || method.getReturnType() == void.class)
+				return value;
+			return Array.get(Array.newInstance(method.getReturnType(), 1), 0);
+		});
+	}
+
+	private static Scene createScene(World world, int baseX, int baseY) {
+		Tile[][][] tiles = new Tile[MAX_Z][EXTENDED_SCENE_SIZE][EXTENDED_SCENE_SIZE];
+		int[][][] tileHeights = new int[MAX_Z][EXTENDED_SCENE_SIZE + 1][EXTENDED_SCENE_SIZE + 1];
+		for (int z = 0; z < MAX_Z; z++)
+			for (int x = 0; x <= EXTENDED_SCENE_SIZE; x++)
+				for (int y = 0; y <= EXTENDED_SCENE_SIZE; y++)
+					tileHeights[z][x][y] = world.height(baseX + x - EXTENDED_SCENE_OFFSET, baseY + y - EXTENDED_SCENE_OFFSET, z);
+
+		for (int x = 0; x < EXTENDED_SCENE_SIZE; x++) {
+			for (int y = 0; y < EXTENDED_SCENE_SIZE; y++) {
+				int worldX = baseX + x - EXTENDED_SCENE_OFFSET;
+				int worldY = baseY + y - EXTENDED_SCENE_OFFSET;
+				Tile bridge = world.hasBridge(worldX, worldY) ? createTile(world, tileHeights, worldX, worldY, x, y, 1, false, null) : null;
+				tiles[0][x][y] = createTile(world, tileHeights, worldX, worldY, x, y, 0, world.isTileModel(worldX, worldY), bridge);
+				if (world.hasUpperTile(worldX, worldY))
+					tiles[1][x][y] = createTile(world, tileHeights, worldX, worldY, x, y, 1, false, null);
+			}
+		}
+
+		short[][][] ids = new short[MAX_Z][EXTENDED_SCENE_SIZE][EXTENDED_SCENE_SIZE];
+		return stub(Scene.class, Map.of(
+			"getExtendedTiles", tiles,
+			"getTileHeights", tileHeights,
+			"getOverlayIds", ids,
+			"getUnderlayIds", ids,
+			"getBaseX", baseX,
+			"getBaseY", baseY
+		));
+	}
+
+	private static Tile createTile(
+		World world,
+		int[][][] tileHeights,
+		int worldX,
+		int worldY,
+		int exX,
+		int exY,
+		int plane,
+		boolean isModel,
+		Tile bridge
+	) {
+		int tileX = exX - EXTENDED_SCENE_OFFSET;
+		int tileY = exY - EXTENDED_SCENE_OFFSET;
+		int[][] heights = tileHeights[plane];
+
+		Object surface;
+		if (isModel) {
+			// Four triangles around a center vertex
+			int x = tileX * LOCAL_TILE_SIZE;
+			int y = tileY * LOCAL_TILE_SIZE;
+			int sw = heights[exX][exY], se = heights[exX + 1][exY], ne = heights[exX + 1][exY + 1], nw = heights[exX][exY + 1];
+			int[] colors = new int[4];
+			for (int i = 0; i < 4; i++)
+				colors[i] = world.color(worldX, worldY, i);
+			surface = stub(SceneTileModel.class, Map.of(
+				"getVertexX", new int[] { x, x + LOCAL_TILE_SIZE, x + LOCAL_TILE_SIZE, x, x + LOCAL_TILE_SIZE / 2 },
+				"getVertexY", new int[] { sw, se, ne, nw, (sw + se + ne + nw) / 4 },
+				"getVertexZ", new int[] { y, y, y + LOCAL_TILE_SIZE, y + LOCAL_TILE_SIZE, y + LOCAL_TILE_SIZE / 2 },
+				"getFaceX", new int[] { 0, 1, 2, 3 },
+				"getFaceY", new int[] { 1, 2, 3, 0 },
+				"getFaceZ", new int[] { 4, 4, 4, 4 },
+				"getTriangleColorA", colors,
+				"getTriangleColorB", colors,
+				"getTriangleColorC", colors,
+				"getShape", 2
+			));
+		} else {
+			surface = stub(SceneTilePaint.class, Map.of(
+				"getSwColor", world.color(worldX, worldY, 0),
+				"getSeColor", world.color(worldX, worldY, 1),
+				"getNwColor", world.color(worldX, worldY, 2),
+				"getNeColor", world.color(worldX, worldY, 3),
+				// A vanilla water texture, to turn the tile into water without changing its tile override
+				"getTexture", world.isChanged(worldX, worldY) ? 1 : -1
+			));
+		}
+
+		var values = new HashMap<String, Object>();
+		values.put("getSceneLocation", new Point(tileX, tileY));
+		values.put("getRenderLevel", plane);
+		values.put(isModel ? "getSceneTileModel" : "getSceneTilePaint", surface);
+		if (bridge != null)
+			values.put("getBridge", bridge);
+		return stub(Tile.class, values);
+	}
+
+	private static ProceduralGenerator createGenerator(World world) throws ReflectiveOperationException {
+		var tileOverrideManager = Mockito.mock(TileOverrideManager.class, invocation -> {
+			int[] worldPos = invocation.getArgument(2);
+			return world.isWater(worldPos[0], worldPos[1]) ? WATER : TileOverride.NONE;
+		});
+
+		var generator = new ProceduralGenerator();
+		inject(generator, "tileOverrideManager", tileOverrideManager);
+		inject(generator, "frameTimer", new FrameTimer());
+		return generator;
+	}
+
+	private static void inject(Object target, String name, Object value) throws ReflectiveOperationException {
+		var field = target.getClass().getDeclaredField(name);
+		field.setAccessible(true);
+		field.set(target, value);
+	}
+
+	private static SceneContext generate(ProceduralGenerator generator, Scene scene, SceneContext prevSceneContext) {
+		var sceneContext = new SceneContext(null, scene, 0);
+		generator.generateSceneData(sceneContext, prevSceneContext);
+		return sceneContext;
+	}
+
+	private static void assertSameTerrain(SceneContext expected, SceneContext actual) {
+		Assert.assertArrayEquals(expected.tileFlags, actual.tileFlags);
+		Assert.assertArrayEquals(expected.tileOverrideIndices, actual.tileOverrideIndices);
+		assertSameValues(expected.vertexTerrainColor, actual.vertexTerrainColor);
+		assertSameValues(expected.vertexTerrainData, actual.vertexTerrainData);
+
+		Assert.assertEquals(expected.vertexTerrainTexture.size(), actual.vertexTerrainTexture.size());
+		for (var entry : expected.vertexTerrainTexture)
+			Assert.assertSame(entry.getValue(), actual.vertexTerrainTexture.get(entry.getKey()));
+
+		var keys = new HashSet<Integer>();
+		for (var entry : expected.vertexTerrainNormalIndices)
+			keys.add(entry.getKey());
+		for (var entry : actual.vertexTerrainNormalIndices)
+			keys.add(entry.getKey());
+		short[] expectedNormal = new short[3];
+		short[] actualNormal = new short[3];
+		for (int key : keys) {
+			Assert.assertArrayEquals(
+				"Normal of vertex " + key,
+				expected.getVertexNormal(key, expectedNormal),
+				actual.getVertexNormal(key, actualNormal)
+			);
+		}
+	}
+
+	private static void assertSameValues(TileVertexIntMap expected, TileVertexIntMap actual) {
+		// Keys without any flags set are equivalent to missing keys
+		for (var entry : expected)
+			Assert.assertEquals("Vertex " + entry.getKey(), entry.getValue(), actual.getOrDefault(entry.getKey(), 0));
+		for (var entry : actual)
+			Assert.assertEquals("Vertex " + entry.getKey(), entry.getValue(), expected.getOrDefault(entry.getKey(), 0));
+	}
+
+	private static void testShift(World world, int dx, int dy) throws ReflectiveOperationException {
+		var generator = createGenerator(world);
+		var prevScene = createScene(world, BASE_X, BASE_Y);
+		var scene = createScene(world, BASE_X + dx, BASE_Y + dy);
+
+		var prevSceneContext = generate(generator, prevScene, null);
+		var full = generate(generator, scene, null);
+		var incremental = generate(generator, scene, prevSceneContext);
+
+		long start = System.nanoTime();
+		generate(generator, scene, null);
+		long fullTime = System.nanoTime() - start;
+		start = System.nanoTime();
+		generate(generator, scene, prevSceneContext);
+		long incrementalTime = System.nanoTime() - start;
+		System.out.printf(
+			"Shift (%d, %d): full generation %.1f ms, incremental %.1f ms%n",
+			dx, dy, fullTime / 1e6, incrementalTime / 1e6
+		);
+
+		assertSameTerrain(full, incremental);
+	}
+
+	@Test
+	public void testIncrementalMatchesFullGeneration() throws ReflectiveOperationException {
+		var world = new World();
+		testShift(world, 8, 0);
+		testShift(world, 0, -8);
+		testShift(world, -16, 24);
+		testShift(world, 64, -40);
+		// No overlap at all
+		testShift(world, 400, 0);
+	}
+
+	@Test
+	public void testIncrementalHandlesChangedTiles() throws ReflectiveOperationException {
+		// A tile at the lake shore which differs between the scenes, affecting underwater depths across the lake
+		var world = new World();
+		var generator = createGenerator(world);
+		var prevSceneContext = generate(generator, createScene(world, BASE_X, BASE_Y), null);
+
+		world.changedX = LAKE_X + LAKE_RADIUS;
+		world.changedY = LAKE_Y;
+		while (world.isTileModel(world.changedX, world.changedY))
+			world.changedY++;
+		var scene = createScene(world, BASE_X + 8, BASE_Y);
+		assertSameTerrain(generate(generator, scene, null), generate(generator, scene, prevSceneContext));
+	}
+
+	@Test
+	public void testIncrementalReusesPreviousData() throws ReflectiveOperationException {
+		var world = new World();
+		var generator = createGenerator(world);
+		var prevSceneContext = generate(generator, createScene(world, BASE_X, BASE_Y), null);
+
+		// Tamper with the color of a vertex far from any edges, which should be carried over to the shifted scene
+		int[][] vertices = new int[4][3];
+		int[] hashes = new int[4];
+		int exX = EXTENDED_SCENE_SIZE / 2;
+		int exY = EXTENDED_SCENE_SIZE / 2 + 40;
+		ProceduralGenerator.tileVertexKeys(prevSceneContext, prevSceneContext.scene.getExtendedTiles()[0][exX][exY], vertices, hashes);
+		Assert.assertTrue(prevSceneContext.vertexTerrainColor.containsKey(hashes[0]));
+		prevSceneContext.vertexTerrainColor.put(hashes[0], 12345);
+
+		var sceneContext = generate(generator, createScene(world, BASE_X + 8, BASE_Y), prevSceneContext);
+		ProceduralGenerator.tileVertexKeys(sceneContext, sceneContext.scene.getExtendedTiles()[0][exX - 8][exY], vertices, hashes);
+		Assert.assertEquals(12345, sceneContext.vertexTerrainColor.getOrDefault(hashes[0], 0));
+	}
+}
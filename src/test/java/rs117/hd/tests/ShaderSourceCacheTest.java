@@ -0,0 +1,93 @@
+package rs117.hd.tests;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Assert;
+import org.junit.Test;
+import rs117.hd.opengl.shader.ShaderException;
+import rs117.hd.opengl.shader.ShaderIncludes;
+import rs117.hd.opengl.shader.ShaderSourceCache;
+import rs117.hd.utils.ResourcePath;
+
+import static rs117.hd.utils.ResourcePath.path;
+
+public class ShaderSourceCacheTest {
+	private static final String[] TEMPLATE_SET = { "vert.glsl", "frag.glsl", "comp.glsl" };
+	private static final int DISTINCT_FILES = 6;
+	private static final int RECOMPILES = 10;
+
+	private static ResourcePath createShaders(Path dir) throws IOException {
+		Files.createDirectories(dir.resolve("utils"));
+		Files.writeString(dir.resolve("vert.glsl"), "#include VERSION_HEADER\n#include \"utils/constants.glsl\"\nvoid main() {}\n");
+		Files.writeString(dir.resolve("frag.glsl"), "#include VERSION_HEADER\n#include SHADOW_MODE\n#include <utils/lighting.glsl>\nvoid main() {}\n");
+		Files.writeString(dir.resolve("comp.glsl"), "#include VERSION_HEADER\n#include <utils/constants.glsl>\nvoid main() {}\n");
+		Files.writeString(dir.resolve("utils/constants.glsl"), "#pragma once\n#define PI 3.14159\n");
+		Files.writeString(dir.resolve("utils/lighting.glsl"), "#include \"constants.glsl\"\n#include \"shadows.glsl\"\n");
+		Files.writeString(dir.resolve("utils/shadows.glsl"), "float shadow() { return SHADOW_MODE; }\n");
+		return path(dir.toFile());
+	}
+
+	private static ShaderIncludes createIncludes(ResourcePath shaderPath, ShaderSourceCache cache, int shadowMode) {
+		return new ShaderIncludes()
+			.setSourceCache(cache)
+			.addIncludePath(shaderPath)
+			.addInclude("VERSION_HEADER", "#version 330\n")
+			.define("SHADOW_MODE", shadowMode);
+	}
+
+	private static String[] compileAll(ShaderIncludes includes) throws ShaderException, IOException {
+		String[] sources = new String[TEMPLATE_SET.length];
+		for (int i = 0; i < TEMPLATE_SET.length; i++)
+			sources[i] = includes.loadFile(TEMPLATE_SET[i]);
+		return sources;
+	}
+
+	@Test
+	public void testRepeatedRecompilesSkipFileReads() throws Exception {
+		Path dir = Files.createTempDirectory("shader-cache-test");
+		try {
+			var shaderPath = createShaders(dir);
+			var cache = new ShaderSourceCache(false);
+
+			String[] expected = compileAll(createIncludes(shaderPath, null, 1));
+			String[] first = compileAll(createIncludes(shaderPath, cache, 1));
+			Assert.assertArrayEquals(expected, first);
+			Assert.assertEquals(DISTINCT_FILES, cache.getFileReads());
+
+			// Recompiling with the same includes should neither read nor expand any files
+			for (int i = 0; i < RECOMPILES; i++)
+				Assert.assertArrayEquals(first, compileAll(createIncludes(shaderPath, cache, 1)));
+			Assert.assertEquals(DISTINCT_FILES, cache.getFileReads());
+			Assert.assertEquals(RECOMPILES * TEMPLATE_SET.length, cache.getHits());
+			System.out.printf(
+				"%d recompiles of %d templates: %d file reads, %d hits, %d misses\n",
+				RECOMPILES + 1, TEMPLATE_SET.length, cache.getFileReads(), cache.getHits(), cache.getMisses()
+			);
+
+			// Changing a define only re-expands the templates using it, still without reading any files
+			int misses = cache.getMisses();
+			String[] changedDefine = compileAll(createIncludes(shaderPath, cache, 2));
+			Assert.assertArrayEquals(compileAll(createIncludes(shaderPath, null, 2)), changedDefine);
+			Assert.assertEquals(misses + 1, cache.getMisses());
+			Assert.assertEquals(DISTINCT_FILES, cache.getFileReads());
+
+			// Both variants remain cached
+			Assert.assertArrayEquals(first, compileAll(createIncludes(shaderPath, cache, 1)));
+			Assert.assertEquals(misses + 1, cache.getMisses());
+
+			// A changed file is only re-read once invalidated, after which dependent templates are re-expanded
+			Files.writeString(dir.resolve("utils/constants.glsl"), "#pragma once\n#define PI 3.1415926\n");
+			Assert.assertArrayEquals(first, compileAll(createIncludes(shaderPath, cache, 1)));
+			cache.invalidate(path(dir.resolve("utils/constants.glsl").toFile()));
+			String[] changedFile = compileAll(createIncludes(shaderPath, cache, 1));
+			Assert.assertArrayEquals(compileAll(createIncludes(shaderPath, null, 1)), changedFile);
+			Assert.assertTrue(changedFile[0].contains("3.1415926"));
+			Assert.assertEquals(DISTINCT_FILES + 1, cache.getFileReads());
+		} finally {
+			try (var paths = Files.walk(dir)) {
+				paths.sorted((a, b) -> b.compareTo(a)).forEach(p -> p.toFile().delete());
+			}
+		}
+	}
+}
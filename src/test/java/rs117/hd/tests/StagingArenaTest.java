@@ -0,0 +1,79 @@
+package rs117.hd.tests;
+
+import java.nio.IntBuffer;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import rs117.hd.utils.buffer.StagingArena;
+
+public class StagingArenaTest {
+	@Test
+	public void testSlicesAreIntact() {
+		var arena = new StagingArena();
+		try {
+			var random = new Random(117);
+			for (int frame = 0; frame < 8; frame++) {
+				// Reserve more than the initial block can hold, so slices end up spread across multiple blocks
+				int count = 64 + random.nextInt(64);
+				var blocks = new IntBuffer[count];
+				int[] offsets = new int[count];
+				int[] sizes = new int[count];
+				for (int i = 0; i < count; i++) {
+					sizes[i] = 1 + random.nextInt(4096);
+					offsets[i] = arena.reserve(sizes[i]);
+					blocks[i] = arena.getBlock();
+					for (int j = 0; j < sizes[i]; j++)
+						blocks[i].put(offsets[i] + j, i * 31 + j);
+				}
+
+				for (int i = 0; i < count; i++)
+					for (int j = 0; j < sizes[i]; j++)
+						Assert.assertEquals(i * 31 + j, blocks[i].get(offsets[i] + j));
+
+				arena.reset();
+			}
+		} finally {
+			arena.destroy();
+		}
+	}
+
+	@Test
+	public void testSteadyStateFramesDontAllocate() {
+		var arena = new StagingArena();
+		try {
+			var random = new Random(1337);
+			int warmupFrames = 200;
+			int steadyFrames = 10_000;
+			int[] sizes = new int[192];
+
+			for (int frame = 0; frame < warmupFrames + steadyFrames; frame++) {
+				if (frame == warmupFrames) {
+					System.out.printf(
+						"After %d warm-up frames: %d allocations, %,d KiB capacity\n",
+						warmupFrames, arena.getAllocationCount(), arena.getCapacityBytes() / 1024
+					);
+				}
+
+				// Simulate a busy scene with a varying amount of overflow each frame
+				int count = 160 + random.nextInt(32);
+				for (int i = 0; i < count; i++)
+					sizes[i] = 256 + random.nextInt(512);
+
+				int allocationsBefore = arena.getAllocationCount();
+				for (int i = 0; i < count; i++)
+					arena.reserve(sizes[i]);
+				arena.reset();
+
+				if (frame >= warmupFrames)
+					Assert.assertEquals("Direct allocation during steady-state frame " + frame, allocationsBefore, arena.getAllocationCount());
+			}
+
+			System.out.printf(
+				"After %,d steady-state frames: %d allocations, %,d KiB capacity, %,d KiB staged last frame\n",
+				steadyFrames, arena.getAllocationCount(), arena.getCapacityBytes() / 1024, arena.getLastFrameStagingBytes() / 1024
+			);
+		} finally {
+			arena.destroy();
+		}
+	}
+}
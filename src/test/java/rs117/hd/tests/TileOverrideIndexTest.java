@@ -0,0 +1,62 @@
+package rs117.hd.tests;
+
+import com.google.gson.Gson;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import rs117.hd.scene.AreaManager;
+import rs117.hd.scene.areas.Area;
+import rs117.hd.scene.tile_overrides.TileOverride;
+import rs117.hd.scene.tile_overrides.TileOverrideIndex;
+
+import static rs117.hd.utils.ResourcePath.path;
+
+public class TileOverrideIndexTest {
+	@Test
+	public void testMatchesUnindexedLookup() throws IOException {
+		Area[] areas = path(AreaManager.class, "areas.json").loadJson(new Gson(), Area[].class);
+		AreaManager.AREAS = areas;
+		for (var area : areas)
+			area.normalize();
+
+		var random = new Random(117);
+		var overrides = new ArrayList<TileOverride>();
+		for (int i = 0; i < 1000; i++) {
+			var override = new TileOverride();
+			override.index = i;
+			// Include some overrides which apply everywhere, since they're handled separately
+			override.area = random.nextInt(50) == 0 ? Area.ALL : areas[random.nextInt(areas.length)];
+			if (random.nextInt(5) != 0) {
+				override.underlayIds = new int[1 + random.nextInt(3)];
+				for (int j = 0; j < override.underlayIds.length; j++)
+					override.underlayIds[j] = random.nextInt(64);
+			}
+			override.normalize(null, null);
+			override.replacement = override;
+			overrides.add(override);
+		}
+
+		var index = new TileOverrideIndex(overrides);
+		int[] worldPos = new int[3];
+		int[] ids = new int[1];
+		for (int i = 0; i < 200_000; i++) {
+			if (i % 2 == 0) {
+				worldPos[0] = random.nextInt(4096);
+				worldPos[1] = random.nextInt(13000);
+			} else {
+				// Focus on points in or around area edges, where mistakes are most likely
+				var area = areas[random.nextInt(areas.length)];
+				if (area.aabbs.length == 0)
+					continue;
+				var aabb = area.aabbs[random.nextInt(area.aabbs.length)];
+				worldPos[0] = (random.nextBoolean() ? aabb.minX : aabb.maxX) + random.nextInt(5) - 2;
+				worldPos[1] = (random.nextBoolean() ? aabb.minY : aabb.maxY) + random.nextInt(5) - 2;
+			}
+			worldPos[2] = random.nextInt(4);
+			ids[0] = random.nextInt(64);
+			Assert.assertSame(index.findUnindexed(worldPos, ids), index.find(worldPos, ids));
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package rs117.hd.tests;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import rs117.hd.utils.collections.Int2IntHashMap;
+import rs117.hd.utils.collections.PrimitiveIntArray;
+import rs117.hd.utils.collections.TileVertexIntMap;
+import rs117.hd.utils.collections.TileVertexObjectMap;
+
+import static net.runelite.api.Constants.*;
+
+public class TileVertexMapTest {
+	private static final int GRID_SIZE = EXTENDED_SCENE_SIZE + 1;
+
+	private static int vertexKey(int height, int x, int y) {
+		return (height & 0xFFF) << 20 | y << 10 | x;
+	}
+
+	private static int groundHeight(int x, int y) {
+		return (int) (Math.sin(x * .1) * Math.cos(y * .07) * 400) + 800;
+	}
+
+	/**
+	 * Generates vertex keys resembling a full extended scene, with every tile corner on the ground plane, some corners
+	 * on upper planes at different heights, some shared between planes at the same height, and the occasional tile model
+	 * with vertices inside the tile.
+	 */
+	private static int[] generateSceneKeys(Random random) {
+		var keys = new PrimitiveIntArray();
+		for (int y = 0; y < GRID_SIZE; y++) {
+			for (int x = 0; x < GRID_SIZE; x++) {
+				int height = groundHeight(x, y);
+				keys.ensureCapacity(8);
+				keys.put(vertexKey(height, x * 4, y * 4));
+				if (random.nextInt(6) == 0)
+					keys.put(vertexKey(height - 240, x * 4, y * 4));
+				if (random.nextInt(20) == 0)
+					keys.put(vertexKey(height - 480, x * 4, y * 4));
+				if (random.nextInt(20) == 0 && x < EXTENDED_SCENE_SIZE && y < EXTENDED_SCENE_SIZE) {
+					keys.put(vertexKey(height, x * 4 + 2, y * 4 + 2));
+					keys.put(vertexKey(height, x * 4 + 1, y * 4));
+					keys.put(vertexKey(height, x * 4, y * 4 + 3));
+				}
+			}
+		}
+		return Arrays.copyOf(keys.array, keys.length);
+	}
+
+	@Test
+	public void testCorrectness() {
+		var random = new Random(117);
+		int[] keys = generateSceneKeys(random);
+
+		var expected = new Int2IntHashMap();
+		var map = new TileVertexIntMap();
+		var objectMap = new TileVertexObjectMap<Integer>();
+		for (int i = 0; i < 200_000; i++) {
+			int key = keys[random.nextInt(keys.length)];
+			int value = random.nextInt();
+			switch (random.nextInt(4)) {
+				case 0:
+					Assert.assertEquals(expected.put(key, value), map.put(key, value));
+					objectMap.put(key, value);
+					break;
+				case 1:
+					Assert.assertEquals(expected.putIfAbsent(key, value), map.putIfAbsent(key, value));
+					objectMap.putIfAbsent(key, value);
+					break;
+				case 2:
+					Assert.assertEquals(expected.or(key, value, 0), map.or(key, value, 0));
+					objectMap.put(key, expected.getOrDefault(key, 0));
+					break;
+				default:
+					Assert.assertEquals(expected.setBits(key, value, 0xFF0, 3), map.setBits(key, value, 0xFF0, 3));
+					objectMap.put(key, expected.getOrDefault(key, 0));
+					break;
+			}
+		}
+
+		Assert.assertEquals(expected.size(), map.size());
+		Assert.assertEquals(expected.size(), objectMap.size());
+		Assert.assertTrue("Expected some keys to overflow the grid", map.overflowSize() > 0);
+		for (int key : keys) {
+			Assert.assertEquals(expected.containsKey(key), map.containsKey(key));
+			Assert.assertEquals(expected.getOrDefault(key, -1), map.getOrDefault(key, -1));
+			Assert.assertEquals(expected.test(key, 0x30), map.test(key, 0x30));
+			Assert.assertEquals(expected.getBits(key, 0xFF, 4, -1), map.getBits(key, 0xFF, 4, -1));
+			if (expected.containsKey(key))
+				Assert.assertEquals(expected.getOrDefault(key, 0), (int) objectMap.get(key));
+		}
+
+		int count = 0;
+		for (var entry : map) {
+			Assert.assertEquals(expected.getOrDefault(entry.getKey(), -1), entry.getValue());
+			count++;
+		}
+		Assert.assertEquals(expected.size(), count);
+	}
+}
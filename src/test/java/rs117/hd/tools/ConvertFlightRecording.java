@@ -0,0 +1,30 @@
+package rs117.hd.tools;
+
+import com.google.gson.Gson;
+import java.io.IOException;
+import lombok.extern.slf4j.Slf4j;
+import rs117.hd.utils.FrameTimingsRecorder;
+
+import static rs117.hd.utils.ResourcePath.path;
+
+/**
+ * Converts flight recordings dumped by {@link FrameTimingsRecorder} into the regular snapshot JSON & CSV formats,
+ * written next to each recording.
+ */
+@Slf4j
+public class ConvertFlightRecording {
+	public static void main(String... args) throws IOException {
+		if (args.length == 0) {
+			System.out.println("Usage: ConvertFlightRecording <recording.rlhdfr>...");
+			return;
+		}
+
+		var gson = new Gson();
+		for (String arg : args) {
+			var recording = path(arg);
+			var output = recording.setExtension(null);
+			FrameTimingsRecorder.convertFlightRecording(gson, recording, output);
+			log.info("Converted {} to {}.json & csv", recording, output);
+		}
+	}
+}